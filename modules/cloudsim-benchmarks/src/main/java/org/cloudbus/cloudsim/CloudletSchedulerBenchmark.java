@@ -0,0 +1,97 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.benchmarks.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CloudletScheduler#updateVmProcessing(double, List, Double)}, which every host
+ * calls for each of its VMs at each datacenter update, with a number of cloudlets running on the
+ * VM that do not finish while they are measured.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CloudletSchedulerBenchmark {
+
+	/** The MIPS of the VM. */
+	private static final double MIPS = 2500;
+
+	/** The IOPS of the VM. */
+	private static final double IOPS = 400;
+
+	/** The cloudlet scheduler. */
+	@Param({ "timeShared", "dynamicWorkloadIops" })
+	public String scheduler;
+
+	/** The number of cloudlets running on the VM. */
+	@Param({ "1", "10", "100" })
+	public int cloudlets;
+
+	/** The cloudlet scheduler. */
+	private CloudletScheduler cloudletScheduler;
+
+	/** The MIPS share of the VM. */
+	private List<Double> mipsShare;
+
+	/** The time of the next update. */
+	private double time;
+
+	/**
+	 * Creates the scheduler and submits the cloudlets.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		Log.disable();
+		if (scheduler.equals("timeShared")) {
+			cloudletScheduler = new CloudletSchedulerTimeShared();
+		} else {
+			cloudletScheduler = new CloudletSchedulerDynamicWorkloadIops(IOPS, MIPS, 1);
+		}
+		mipsShare = Arrays.asList(MIPS);
+		cloudletScheduler.updateVmProcessing(0, mipsShare, IOPS);
+		for (Cloudlet cloudlet : BenchmarkFixtures.createCloudlets(cloudlets, 1)) {
+			cloudletScheduler.cloudletSubmit(cloudlet);
+		}
+		time = 0;
+	}
+
+	/**
+	 * Updates the processing of the cloudlets after a time step.
+	 *
+	 * @return the predicted completion time of the next cloudlet
+	 */
+	@Benchmark
+	public double updateVmProcessing() {
+		time += 1;
+		return cloudletScheduler.updateVmProcessing(time, mipsShare, IOPS);
+	}
+
+}
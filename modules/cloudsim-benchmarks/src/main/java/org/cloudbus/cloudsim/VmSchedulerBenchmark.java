@@ -0,0 +1,127 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.benchmarks.BenchmarkFixtures;
+import org.cloudbus.cloudsim.provisioners.IoProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the allocation of the PEs of a host to its VMs by
+ * {@link VmSchedulerTimeSharedOverSubscription}, for a single VM whose request changes and for the
+ * whole host, as {@link HostDynamicWorkload#updateVmsProcessing(double)} reallocates it at each
+ * scheduling interval.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VmSchedulerBenchmark {
+
+	/** The MIPS of a PE of the host. */
+	private static final double PE_MIPS = 2660;
+
+	/** The number of PEs of the host. */
+	@Param({ "2", "16" })
+	public int pes;
+
+	/** The number of VMs per PE of the host, above 1 when the host is over-subscribed. */
+	@Param({ "1", "4" })
+	public int vmsPerPe;
+
+	/** The scheduler. */
+	private VmSchedulerTimeSharedOverSubscription scheduler;
+
+	/** The VMs. */
+	private List<Vm> vms;
+
+	/** The MIPS requested by the VMs. */
+	private List<List<Double>> requests;
+
+	/** The VM whose request changes next. */
+	private int next;
+
+	/**
+	 * Creates the host and allocates its VMs.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		List<Pe> peList = new ArrayList<Pe>();
+		for (int i = 0; i < pes; i++) {
+			peList.add(new Pe(i, new PeProvisionerSimple(PE_MIPS)));
+		}
+		scheduler = new VmSchedulerTimeSharedOverSubscription(peList, new IoProvisionerSimple(400));
+		Random random = new Random(1);
+		vms = new ArrayList<Vm>();
+		requests = new ArrayList<List<Double>>();
+		for (int i = 0; i < pes * vmsPerPe; i++) {
+			Vm vm = BenchmarkFixtures.createVm(i, PE_MIPS, 1024, new CloudletSchedulerDynamicWorkloadIops(
+					400,
+					PE_MIPS,
+					1));
+			vms.add(vm);
+			requests.add(Arrays.asList(PE_MIPS * random.nextDouble()));
+			scheduler.allocatePesForVm(vm, requests.get(i));
+		}
+		next = 0;
+	}
+
+	/**
+	 * Changes the request of a VM.
+	 *
+	 * @return whether the request has been allocated
+	 */
+	@Benchmark
+	public boolean reallocateVm() {
+		Vm vm = vms.get(next);
+		List<Double> request = requests.get(next);
+		next = (next + 1) % vms.size();
+		scheduler.deallocatePesForVm(vm);
+		return scheduler.allocatePesForVm(vm, request);
+	}
+
+	/**
+	 * Reallocates the whole host, deallocating every VM and allocating them again.
+	 *
+	 * @return the MIPS still available
+	 */
+	@Benchmark
+	public double reallocateHost() {
+		for (Vm vm : vms) {
+			scheduler.deallocatePesForVm(vm);
+		}
+		for (int i = 0; i < vms.size(); i++) {
+			scheduler.allocatePesForVm(vms.get(i), requests.get(i));
+		}
+		return scheduler.getAvailableMips();
+	}
+
+}
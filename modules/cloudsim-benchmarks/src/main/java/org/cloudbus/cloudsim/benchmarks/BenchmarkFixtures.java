@@ -0,0 +1,204 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletScheduler;
+import org.cloudbus.cloudsim.CloudletSchedulerDynamicWorkloadIops;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.UtilizationIops;
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.UtilizationModelNull;
+import org.cloudbus.cloudsim.UtilizationModelStochastic;
+import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.PowerHostUtilizationHistory;
+import org.cloudbus.cloudsim.power.PowerVm;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G4Xeon3040;
+import org.cloudbus.cloudsim.power.models.PowerModelSpecPowerHpProLiantMl110G5Xeon3075;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.IoProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * The hosts, VMs and cloudlets used by the benchmarks, with the characteristics of the PlanetLab
+ * power examples, so that the benchmarks measure the models at realistic sizes. The fixtures are
+ * created from a seed, so that every fork of a benchmark measures the same state.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+public final class BenchmarkFixtures {
+
+	/** The scheduling interval of the power examples. */
+	public static final double SCHEDULING_INTERVAL = 300;
+
+	/** The number of utilization values kept in the history of a VM. */
+	public static final int HISTORY_LENGTH = 30;
+
+	/** The MIPS of the VM types. */
+	private static final int[] VM_MIPS = { 2500, 2000, 1000, 500 };
+
+	/** The RAM of the VM types. */
+	private static final int[] VM_RAM = { 870, 1740, 1740, 613 };
+
+	/** The IOPS of a VM. */
+	private static final int VM_IOPS = 400;
+
+	/** The bandwidth of a VM. */
+	private static final int VM_BW = 100000;
+
+	/** The image size of a VM. */
+	private static final int VM_SIZE = 2500;
+
+	/** The MIPS of a PE of the host types. */
+	private static final int[] HOST_MIPS = { 1860, 2660 };
+
+	/** The number of PEs of a host. */
+	private static final int HOST_PES = 2;
+
+	/** The RAM of a host. */
+	private static final int HOST_RAM = 4096;
+
+	/** The IOPS of a host. */
+	private static final int HOST_IOPS = 400;
+
+	/** The bandwidth of a host. */
+	private static final int HOST_BW = 1000000;
+
+	/** The storage of a host. */
+	private static final int HOST_STORAGE = 1000000;
+
+	/** The power models of the host types. */
+	private static final PowerModel[] HOST_POWER = {
+			new PowerModelSpecPowerHpProLiantMl110G4Xeon3040(),
+			new PowerModelSpecPowerHpProLiantMl110G5Xeon3075() };
+
+	/** The length of a cloudlet, long enough not to finish while it is measured. */
+	private static final long CLOUDLET_LENGTH = Long.MAX_VALUE / 4;
+
+	/**
+	 * Instantiates a new benchmark fixtures.
+	 */
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Creates hosts with a time-shared over-subscription VM scheduler, alternating the two host
+	 * types of the power examples.
+	 *
+	 * @param hostsNumber the number of hosts
+	 * @return the hosts
+	 */
+	public static List<PowerHost> createHosts(int hostsNumber) {
+		List<PowerHost> hosts = new ArrayList<PowerHost>();
+		for (int i = 0; i < hostsNumber; i++) {
+			int hostType = i % HOST_MIPS.length;
+			List<Pe> peList = new ArrayList<Pe>();
+			for (int j = 0; j < HOST_PES; j++) {
+				peList.add(new Pe(j, new PeProvisionerSimple(HOST_MIPS[hostType])));
+			}
+			hosts.add(new PowerHostUtilizationHistory(
+					i,
+					new RamProvisionerSimple(HOST_RAM),
+					new BwProvisionerSimple(HOST_BW),
+					HOST_STORAGE,
+					peList,
+					new VmSchedulerTimeSharedOverSubscription(peList, new IoProvisionerSimple(HOST_IOPS)),
+					HOST_POWER[hostType]));
+		}
+		return hosts;
+	}
+
+	/**
+	 * Creates VMs with a dynamic workload cloudlet scheduler, in the four VM types of the power
+	 * examples.
+	 *
+	 * @param vmsNumber the number of VMs
+	 * @return the VMs
+	 */
+	public static List<PowerVm> createVms(int vmsNumber) {
+		List<PowerVm> vms = new ArrayList<PowerVm>();
+		for (int i = 0; i < vmsNumber; i++) {
+			int vmType = i % VM_MIPS.length;
+			vms.add(createVm(i, VM_MIPS[vmType], VM_RAM[vmType], new CloudletSchedulerDynamicWorkloadIops(
+					VM_IOPS,
+					VM_MIPS[vmType],
+					1)));
+		}
+		return vms;
+	}
+
+	/**
+	 * Creates a VM of a single PE.
+	 *
+	 * @param id the id of the VM
+	 * @param mips the MIPS of the VM
+	 * @param ram the RAM of the VM
+	 * @param scheduler the cloudlet scheduler of the VM
+	 * @return the VM
+	 */
+	public static PowerVm createVm(int id, double mips, int ram, CloudletScheduler scheduler) {
+		return new PowerVm(id, 0, mips, VM_IOPS, 1, ram, VM_BW, VM_SIZE, 1, "Xen", scheduler, SCHEDULING_INTERVAL);
+	}
+
+	/**
+	 * Creates cloudlets whose CPU utilization is stochastic, with the I/O model of the PlanetLab
+	 * IOPS examples.
+	 *
+	 * @param cloudletsNumber the number of cloudlets
+	 * @param seed the seed of the utilization models
+	 * @return the cloudlets
+	 */
+	public static List<Cloudlet> createCloudlets(int cloudletsNumber, long seed) {
+		List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+		UtilizationModel none = new UtilizationModelNull();
+		UtilizationModel full = new UtilizationModelFull();
+		for (int i = 0; i < cloudletsNumber; i++) {
+			Cloudlet cloudlet = new Cloudlet(
+					i,
+					CLOUDLET_LENGTH,
+					CLOUDLET_LENGTH,
+					1,
+					300,
+					300,
+					new UtilizationModelStochastic(seed + i),
+					new UtilizationIops(full, 0.0857, 0.0105),
+					none,
+					none);
+			cloudlet.setUserId(0);
+			cloudlet.setResourceParameter(0, 0, 0);
+			cloudlets.add(cloudlet);
+		}
+		return cloudlets;
+	}
+
+	/**
+	 * Fills the utilization history of VMs with random values.
+	 *
+	 * @param vms the VMs
+	 * @param random the random generator
+	 */
+	public static void fillUtilizationHistory(List<PowerVm> vms, Random random) {
+		for (PowerVm vm : vms) {
+			double mean = random.nextDouble();
+			for (int i = 0; i < HISTORY_LENGTH; i++) {
+				double utilization = mean + (random.nextDouble() - 0.5) * 0.4;
+				vm.addUtilizationHistoryValue(Math.max(0, Math.min(1, utilization)));
+			}
+		}
+	}
+
+}
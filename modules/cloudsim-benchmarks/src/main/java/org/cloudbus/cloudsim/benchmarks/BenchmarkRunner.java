@@ -0,0 +1,52 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler, so that every result comes with the bytes
+ * allocated per operation and the allocation rate, and writes the results as JSON to
+ * <tt>benchmarks.json</tt>, unless another result file is given, to serve as a baseline. The arguments are those of the JMH command line,
+ * e.g. a regular expression selecting the benchmarks to run and <tt>-p hosts=800</tt> to fix a
+ * parameter:
+ *
+ * <pre>
+ * mvn -Pbenchmarks package
+ * java -jar modules/cloudsim-benchmarks/target/benchmarks.jar FutureQueue -rff baseline.json
+ * </pre>
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the JMH command line arguments
+	 * @throws Exception if the command line is invalid or the benchmarks fail
+	 */
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+		if (!commandLine.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			builder.result("benchmarks.json");
+		}
+		new Runner(builder.build()).run();
+	}
+
+}
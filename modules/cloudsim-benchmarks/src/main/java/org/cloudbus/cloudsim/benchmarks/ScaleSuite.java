@@ -0,0 +1,457 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.DatacenterBroker;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.UtilizationIops;
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.UtilizationModelNull;
+import org.cloudbus.cloudsim.UtilizationModelPlanetLabInMemory;
+import org.cloudbus.cloudsim.UtilizationModelStochastic;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.core.SimulationStatistics;
+import org.cloudbus.cloudsim.examples.power.Constants;
+import org.cloudbus.cloudsim.examples.power.HelperIops;
+import org.cloudbus.cloudsim.examples.power.random.RandomConstants;
+import org.cloudbus.cloudsim.power.PowerDatacenter;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationStaticThreshold;
+import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyMinimumUtilization;
+
+/**
+ * A scale suite running the power simulation of the examples (static threshold of 0.8, minimum
+ * utilization VM selection) built with {@link HelperIops}, at growing numbers of hosts and VMs.
+ * Each configuration runs in a JVM of its own, forked with the options of this one, so that its
+ * peak heap and GC time are not mixed with those of the other configurations. The results are
+ * appended to a CSV file, one line per configuration, with the wall time of the setup and of the
+ * simulation, the number of events processed and their rate, the peak heap and the GC time.
+ * <p>
+ * The comparison mode reads the results of two builds and flags the configurations whose wall
+ * time, event rate, peak heap or GC time got worse beyond a tolerance; it exits with status 1 if
+ * any did, so it can gate a build.
+ *
+ * <pre>
+ * ScaleSuite run [-out scale.csv] [-config 1000x1315,...] [-duration 86400] [-workload random|&lt;planetlab folder&gt;]
+ * ScaleSuite compare baseline.csv candidate.csv [-tolerance 0.1]
+ * </pre>
+ *
+ * By default, the hosts are swept from 1k to 100k with the VMs in the proportion of the PlanetLab
+ * workload (1052 VMs for 800 hosts), then the VMs from 10k to 1M with the hosts in the same
+ * proportion. The random workload gives every cloudlet a stochastic CPU utilization seeded by its
+ * id; a PlanetLab folder gives the cloudlets its traces, in turn.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+public class ScaleSuite {
+
+	/** The header of the results file. */
+	private static final String HEADER = "hosts,vms,workload,duration,setupMillis,wallMillis,events,eventsPerSecond,"
+			+ "peakHeapBytes,gcMillis,gcCount,migrations";
+
+	/** The number of VMs of the PlanetLab workload. */
+	private static final int PLANETLAB_VMS = 1052;
+
+	/** The number of hosts of the PlanetLab workload. */
+	private static final int PLANETLAB_HOSTS = 800;
+
+	/** The GC time below which a GC time increase is not flagged, in milliseconds. */
+	private static final long GC_NOISE_MILLIS = 100;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the mode and its arguments
+	 * @throws Exception if a configuration fails or the files can't be read or written
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			usage();
+			return;
+		}
+		Map<String, String> options = parseOptions(args, 1);
+		if (args[0].equals("run")) {
+			run(options);
+		} else if (args[0].equals("single")) {
+			single(options);
+		} else if (args[0].equals("compare") && args.length >= 3) {
+			System.exit(compare(new File(args[1]), new File(args[2]), Double.parseDouble(get(
+					options,
+					"tolerance",
+					"0.1"))) ? 1 : 0);
+		} else {
+			usage();
+		}
+	}
+
+	/**
+	 * Runs each configuration in a forked JVM and appends its result to the results file.
+	 *
+	 * @param options the options
+	 * @throws Exception if a configuration fails
+	 */
+	private static void run(Map<String, String> options) throws Exception {
+		File out = new File(get(options, "out", "scale.csv"));
+		String duration = get(options, "duration", String.valueOf(Constants.SIMULATION_LIMIT));
+		String workload = get(options, "workload", "random");
+		List<int[]> configurations = parseConfigurations(get(options, "config", null));
+		if (!out.exists()) {
+			PrintWriter writer = new PrintWriter(new FileWriter(out));
+			writer.println(HEADER);
+			writer.close();
+		}
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (int[] configuration : configurations) {
+			File result = File.createTempFile("scale", ".csv");
+			List<String> command = new ArrayList<String>();
+			command.add(java);
+			command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+			command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), ScaleSuite.class.getName(),
+					"single", "-hosts", String.valueOf(configuration[0]), "-vms", String.valueOf(configuration[1]),
+					"-duration", duration, "-workload", workload, "-out", result.getPath()));
+			System.out.println("Running " + configuration[0] + " hosts, " + configuration[1] + " VMs");
+			// the models print to the console, which would be measured as well
+			Process process = new ProcessBuilder(command)
+					.redirectOutput(new File(result.getPath() + ".log"))
+					.redirectErrorStream(true)
+					.start();
+			if (process.waitFor() != 0) {
+				throw new IllegalStateException("The configuration of " + configuration[0] + " hosts failed, see "
+						+ result.getPath() + ".log");
+			}
+			BufferedReader reader = new BufferedReader(new FileReader(result));
+			String line = reader.readLine();
+			reader.close();
+			FileWriter writer = new FileWriter(out, true);
+			writer.write(line + System.getProperty("line.separator"));
+			writer.close();
+			System.out.println(line);
+			result.delete();
+			new File(result.getPath() + ".log").delete();
+		}
+	}
+
+	/**
+	 * Runs a single configuration in this JVM and writes its result line.
+	 *
+	 * @param options the options
+	 * @throws Exception if the simulation fails
+	 */
+	private static void single(Map<String, String> options) throws Exception {
+		final int hosts = Integer.parseInt(get(options, "hosts", null));
+		final int vms = Integer.parseInt(get(options, "vms", null));
+		final double duration = Double.parseDouble(get(options, "duration", null));
+		final String workload = get(options, "workload", "random");
+		final long[] measures = new long[2];
+		final SimulationStatistics statistics = new SimulationStatistics();
+		final PowerDatacenter[] datacenter = new PowerDatacenter[1];
+		Log.disable();
+
+		new SimulationContext().call(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				long start = System.nanoTime();
+				CloudSim.init(1, Calendar.getInstance(), false);
+				CloudSim.setStatistics(statistics);
+				DatacenterBroker broker = HelperIops.createBroker();
+				List<Cloudlet> cloudlets = createCloudlets(broker.getId(), vms, workload);
+				List<Vm> vmList = HelperIops.createVmList(broker.getId(), vms);
+				List<PowerHost> hostList = HelperIops.createHostList(hosts);
+				datacenter[0] = (PowerDatacenter) HelperIops.createDatacenter(
+						"Datacenter",
+						PowerDatacenter.class,
+						hostList,
+						new PowerVmAllocationPolicyMigrationStaticThreshold(
+								hostList,
+								new PowerVmSelectionPolicyMinimumUtilization(),
+								0.8));
+				datacenter[0].setDisableMigrations(false);
+				broker.submitVmList(vmList);
+				broker.submitCloudletList(cloudlets);
+				CloudSim.terminateSimulation(duration);
+				measures[0] = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				CloudSim.startSimulation();
+				CloudSim.stopSimulation();
+				measures[1] = System.nanoTime() - start;
+				return null;
+			}
+		});
+
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		long gcMillis = 0;
+		long gcCount = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcMillis += Math.max(0, collector.getCollectionTime());
+			gcCount += Math.max(0, collector.getCollectionCount());
+		}
+		long wallMillis = measures[1] / 1000000;
+		long events = statistics.getEventCount();
+		PrintWriter writer = new PrintWriter(new FileWriter(get(options, "out", null)));
+		writer.println(String.format(Locale.ROOT, "%d,%d,%s,%s,%d,%d,%d,%.1f,%d,%d,%d,%d",
+				hosts,
+				vms,
+				workload.equals("random") ? "random" : "planetlab",
+				get(options, "duration", null),
+				measures[0] / 1000000,
+				wallMillis,
+				events,
+				events * 1e9 / Math.max(1, measures[1]),
+				peakHeap,
+				gcMillis,
+				gcCount,
+				datacenter[0].getMigrationCount()));
+		writer.close();
+	}
+
+	/**
+	 * Compares the results of two builds, printing the ratios of their measures for each
+	 * configuration and flagging the regressions.
+	 *
+	 * @param baselineFile the results of the baseline build
+	 * @param candidateFile the results of the candidate build
+	 * @param tolerance the relative degradation tolerated
+	 * @return true, if a regression has been flagged
+	 * @throws IOException if a file can't be read
+	 */
+	static boolean compare(File baselineFile, File candidateFile, double tolerance) throws IOException {
+		Map<String, Map<String, String>> baseline = readResults(baselineFile);
+		Map<String, Map<String, String>> candidate = readResults(candidateFile);
+		boolean regression = false;
+		System.out.println(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s  %s",
+				"configuration", "wall", "events/s", "heap", "gc", "verdict"));
+		for (Map.Entry<String, Map<String, String>> entry : candidate.entrySet()) {
+			Map<String, String> base = baseline.get(entry.getKey());
+			if (base == null) {
+				System.out.println(String.format(Locale.ROOT, "%-28s %s", entry.getKey(), "not in the baseline"));
+				continue;
+			}
+			Map<String, String> cand = entry.getValue();
+			double wall = ratio(cand, base, "wallMillis");
+			double rate = ratio(cand, base, "eventsPerSecond");
+			double heap = ratio(cand, base, "peakHeapBytes");
+			double gc = ratio(cand, base, "gcMillis");
+			List<String> flags = new ArrayList<String>();
+			if (wall > 1 + tolerance) {
+				flags.add("wall");
+			}
+			if (rate < 1 / (1 + tolerance)) {
+				flags.add("events/s");
+			}
+			if (heap > 1 + tolerance) {
+				flags.add("heap");
+			}
+			if (gc > 1 + tolerance
+					&& Long.parseLong(cand.get("gcMillis")) - Long.parseLong(base.get("gcMillis")) > GC_NOISE_MILLIS) {
+				flags.add("gc");
+			}
+			regression |= !flags.isEmpty();
+			System.out.println(String.format(Locale.ROOT, "%-28s %10.3f %10.3f %10.3f %10.3f  %s",
+					entry.getKey(), wall, rate, heap, gc,
+					flags.isEmpty() ? "ok" : "REGRESSION " + flags));
+		}
+		return regression;
+	}
+
+	/**
+	 * Gets the ratio of a measure of the candidate to that of the baseline.
+	 *
+	 * @param candidate the candidate result
+	 * @param baseline the baseline result
+	 * @param column the measure
+	 * @return the ratio, 1 if both are zero
+	 */
+	private static double ratio(Map<String, String> candidate, Map<String, String> baseline, String column) {
+		double value = Double.parseDouble(candidate.get(column));
+		double base = Double.parseDouble(baseline.get(column));
+		if (base == 0) {
+			return value == 0 ? 1 : Double.POSITIVE_INFINITY;
+		}
+		return value / base;
+	}
+
+	/**
+	 * Reads a results file, keyed by configuration; the last result of a configuration wins.
+	 *
+	 * @param file the file
+	 * @return the results
+	 * @throws IOException if the file can't be read
+	 */
+	private static Map<String, Map<String, String>> readResults(File file) throws IOException {
+		Map<String, Map<String, String>> results = new LinkedHashMap<String, Map<String, String>>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String[] header = reader.readLine().split(",");
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				String[] values = line.split(",");
+				Map<String, String> result = new LinkedHashMap<String, String>();
+				for (int i = 0; i < header.length && i < values.length; i++) {
+					result.put(header[i], values[i]);
+				}
+				results.put(result.get("hosts") + "x" + result.get("vms") + " " + result.get("workload") + " "
+						+ result.get("duration"), result);
+			}
+		} finally {
+			reader.close();
+		}
+		return results;
+	}
+
+	/**
+	 * Creates the cloudlets, one per VM.
+	 *
+	 * @param brokerId the broker id
+	 * @param cloudletsNumber the number of cloudlets
+	 * @param workload "random" or the folder of the PlanetLab traces
+	 * @return the cloudlets
+	 * @throws Exception if a trace can't be read
+	 */
+	private static List<Cloudlet> createCloudlets(int brokerId, int cloudletsNumber, String workload)
+			throws Exception {
+		File[] traces = null;
+		if (!workload.equals("random")) {
+			traces = new File(workload).listFiles();
+			if (traces == null || traces.length == 0) {
+				throw new IllegalArgumentException("No PlanetLab traces in " + workload);
+			}
+			Arrays.sort(traces);
+		}
+		UtilizationModel utilizationModelNull = new UtilizationModelNull();
+		UtilizationModel utilizationModelFull = new UtilizationModelFull();
+		List<Cloudlet> list = new ArrayList<Cloudlet>();
+		for (int i = 0; i < cloudletsNumber; i++) {
+			UtilizationModel cpu;
+			if (traces == null) {
+				cpu = new UtilizationModelStochastic(RandomConstants.CLOUDLET_UTILIZATION_SEED * i);
+			} else {
+				cpu = new UtilizationModelPlanetLabInMemory(
+						traces[i % traces.length].getAbsolutePath(),
+						Constants.SCHEDULING_INTERVAL);
+			}
+			Cloudlet cloudlet = new Cloudlet(
+					i,
+					Constants.CLOUDLET_LENGTH,
+					Constants.CLOUDLET_IOPS_LENGTH,
+					Constants.CLOUDLET_PES,
+					300,
+					300,
+					cpu,
+					new UtilizationIops(utilizationModelFull, 0.0857, 0.0105),
+					utilizationModelNull,
+					utilizationModelNull);
+			cloudlet.setUserId(brokerId);
+			cloudlet.setVmId(i);
+			list.add(cloudlet);
+		}
+		return list;
+	}
+
+	/**
+	 * Parses the configurations, or gives the default sweep.
+	 *
+	 * @param value the configurations, as comma-separated HOSTSxVMS pairs, or <tt>null</tt>
+	 * @return the pairs of numbers of hosts and VMs
+	 */
+	private static List<int[]> parseConfigurations(String value) {
+		List<int[]> configurations = new ArrayList<int[]>();
+		if (value == null) {
+			for (int hosts : new int[] { 1000, 10000, 100000 }) {
+				configurations.add(new int[] { hosts, (int) ((long) hosts * PLANETLAB_VMS / PLANETLAB_HOSTS) });
+			}
+			for (int vms : new int[] { 10000, 100000, 1000000 }) {
+				configurations.add(new int[] { (int) ((long) vms * PLANETLAB_HOSTS / PLANETLAB_VMS), vms });
+			}
+			return configurations;
+		}
+		for (String configuration : value.split(",")) {
+			String[] sizes = configuration.trim().split("x");
+			configurations.add(new int[] { Integer.parseInt(sizes[0]), Integer.parseInt(sizes[1]) });
+		}
+		return configurations;
+	}
+
+	/**
+	 * Parses the options, given as <tt>-name value</tt> pairs.
+	 *
+	 * @param args the arguments
+	 * @param from the index of the first option
+	 * @return the options by name
+	 */
+	private static Map<String, String> parseOptions(String[] args, int from) {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		for (int i = from; i < args.length; i++) {
+			if (args[i].startsWith("-") && i + 1 < args.length) {
+				options.put(args[i].substring(1), args[++i]);
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * Gets an option.
+	 *
+	 * @param options the options
+	 * @param name the name of the option
+	 * @param defaultValue the default value, or <tt>null</tt> if the option is required
+	 * @return the value
+	 */
+	private static String get(Map<String, String> options, String name, String defaultValue) {
+		String value = options.get(name);
+		if (value == null && defaultValue == null) {
+			throw new IllegalArgumentException("Missing option -" + name);
+		}
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Prints the usage.
+	 */
+	private static void usage() {
+		System.out.println("Usage:");
+		System.out.println("  ScaleSuite run [-out scale.csv] [-config HOSTSxVMS,...] [-duration seconds]"
+				+ " [-workload random|<planetlab folder>]");
+		System.out.println("  ScaleSuite compare <baseline.csv> <candidate.csv> [-tolerance 0.1]");
+	}
+
+}
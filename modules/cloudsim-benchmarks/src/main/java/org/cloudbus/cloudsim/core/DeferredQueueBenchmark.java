@@ -0,0 +1,126 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the selection of events from the deferred queue, as done by entities waiting for a
+ * given tag while other events are pending for them and for many other entities.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeferredQueueBenchmark {
+
+	/** The number of entities having events in the queue. */
+	@Param({ "10", "1000" })
+	public int entities;
+
+	/** The number of events pending for each entity. */
+	@Param({ "1", "100" })
+	public int eventsPerEntity;
+
+	/** The queue. */
+	private DeferredQueue queue;
+
+	/** The predicates selecting the last tag sent to an entity. */
+	private Predicate lastTag;
+
+	/** The entity whose events are selected next. */
+	private int entity;
+
+	/** The time of the next event added. */
+	private double time;
+
+	/**
+	 * Fills the queue, the events of the entities being interleaved.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		queue = new DeferredQueue();
+		for (int i = 0; i < eventsPerEntity; i++) {
+			for (int id = 0; id < entities; id++) {
+				queue.addEvent(createEvent(id, i));
+			}
+		}
+		lastTag = new PredicateType(eventsPerEntity - 1);
+		entity = 0;
+	}
+
+	/**
+	 * Selects the last event sent to an entity by its tag, and sends it again.
+	 *
+	 * @return the selected event
+	 */
+	@Benchmark
+	public SimEvent selectByTag() {
+		SimEvent event = queue.select(entity, lastTag);
+		queue.addEvent(createEvent(entity, event.getTag()));
+		entity = (entity + 1) % entities;
+		return event;
+	}
+
+	/**
+	 * Selects the first event sent to an entity, and sends it again.
+	 *
+	 * @return the selected event
+	 */
+	@Benchmark
+	public SimEvent selectAny() {
+		SimEvent event = queue.select(entity, CloudSim.SIM_ANY);
+		queue.addEvent(createEvent(entity, event.getTag()));
+		entity = (entity + 1) % entities;
+		return event;
+	}
+
+	/**
+	 * Counts the events sent to an entity with a given tag.
+	 *
+	 * @return the count
+	 */
+	@Benchmark
+	public int countByTag() {
+		int count = queue.count(entity, lastTag);
+		entity = (entity + 1) % entities;
+		return count;
+	}
+
+	/**
+	 * Creates an event later than those in the queue.
+	 *
+	 * @param destination the destination of the event
+	 * @param tag the tag of the event
+	 * @return the event
+	 */
+	private SimEvent createEvent(int destination, int tag) {
+		return new SimEvent(SimEvent.SEND, time++, destination, destination, tag, null);
+	}
+
+}
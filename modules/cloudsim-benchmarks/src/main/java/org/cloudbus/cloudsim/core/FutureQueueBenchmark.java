@@ -0,0 +1,155 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the future event queue with each event list. The hold benchmark is the classic
+ * priority queue benchmark: the queue keeps a constant size while the first event is polled and a
+ * later one is added, which is what the simulation loop does. The fill and drain benchmark adds a
+ * batch of events and polls them all, as happens when many entities schedule at once.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FutureQueueBenchmark {
+
+	/** The number of increments drawn in advance, a power of two. */
+	private static final int INCREMENTS = 1 << 16;
+
+	/** The event list backing the queue. */
+	@Param({ "treeset", "calendar", "packed" })
+	public String eventList;
+
+	/** The number of events in the queue. */
+	@Param({ "1000", "100000" })
+	public int size;
+
+	/** The number of distinct times the events are spread on, relative to their number. */
+	@Param({ "1.0", "0.01" })
+	public double timeSpread;
+
+	/** The queue. */
+	private FutureQueue queue;
+
+	/** The time increments between a polled event and the added one. */
+	private double[] increments;
+
+	/** The index of the next increment. */
+	private int next;
+
+	/**
+	 * Fills the queue.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		Random random = new Random(1);
+		increments = new double[INCREMENTS];
+		for (int i = 0; i < INCREMENTS; i++) {
+			// exponential increments with a mean of the queue size, rounded to the time spread
+			double increment = -Math.log(1 - random.nextDouble()) * size;
+			increments[i] = Math.rint(increment * timeSpread) / timeSpread;
+		}
+		queue = new FutureQueue(createEventList(eventList));
+		for (int i = 0; i < size; i++) {
+			queue.addEvent(createEvent(increments[i], i));
+		}
+		next = size;
+	}
+
+	/**
+	 * Polls the first event and adds a later one.
+	 *
+	 * @return the polled event
+	 */
+	@Benchmark
+	public SimEvent hold() {
+		SimEvent first = queue.poll();
+		queue.addEvent(createEvent(first.eventTime() + nextIncrement(), first.getDestination()));
+		return first;
+	}
+
+	/**
+	 * Adds a thousand events at times following the first event, then polls as many events.
+	 *
+	 * @return the number of events polled
+	 */
+	@Benchmark
+	@OperationsPerInvocation(1000)
+	public int fillAndDrain() {
+		double time = queue.first().eventTime();
+		for (int i = 0; i < 1000; i++) {
+			queue.addEvent(createEvent(time + nextIncrement(), i));
+		}
+		int polled = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (queue.poll() != null) {
+				polled++;
+			}
+		}
+		return polled;
+	}
+
+	/**
+	 * Gets the next time increment.
+	 *
+	 * @return the increment
+	 */
+	private double nextIncrement() {
+		return increments[next++ & (INCREMENTS - 1)];
+	}
+
+	/**
+	 * Creates an event.
+	 *
+	 * @param time the time of the event
+	 * @param destination the destination of the event
+	 * @return the event
+	 */
+	private static SimEvent createEvent(double time, int destination) {
+		return new SimEvent(SimEvent.SEND, time, destination, destination, CloudSimTags.VM_DATACENTER_EVENT, null);
+	}
+
+	/**
+	 * Creates an event list.
+	 *
+	 * @param name the name of the event list
+	 * @return the event list
+	 */
+	static EventList createEventList(String name) {
+		if (name.equals("calendar")) {
+			return new CalendarEventList();
+		} else if (name.equals("packed")) {
+			return new PackedEventList();
+		}
+		return new TreeSetEventList();
+	}
+
+}
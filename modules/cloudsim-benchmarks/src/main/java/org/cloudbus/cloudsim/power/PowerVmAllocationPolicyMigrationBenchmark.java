@@ -0,0 +1,146 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.VmScheduler;
+import org.cloudbus.cloudsim.benchmarks.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PowerVmAllocationPolicyMigrationAbstract#optimizeAllocation(List)}, which the
+ * power datacenter calls at each scheduling interval, for each overload detection policy of the
+ * PlanetLab examples with the minimum migration time VM selection. The VMs are placed on the hosts
+ * by the policy, as many as fit, run one stochastic cloudlet each and have a random utilization history. The
+ * policy restores the allocation once it has computed the migrations, so every invocation
+ * measures the same state.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PowerVmAllocationPolicyMigrationBenchmark {
+
+	/** The overload detection policy, named as in the PlanetLab examples. */
+	@Param({ "thr", "iqr", "mad", "lr", "lrr" })
+	public String policy;
+
+	/** The number of hosts; the VMs are in the proportion of the PlanetLab workload (1052 for 800). */
+	@Param({ "100", "800" })
+	public int hosts;
+
+	/** The policy. */
+	private PowerVmAllocationPolicyMigrationAbstract allocationPolicy;
+
+	/** The VMs. */
+	private List<PowerVm> vms;
+
+	/**
+	 * Creates the hosts and the VMs, and places the VMs.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Log.disable();
+		List<PowerHost> hostList = BenchmarkFixtures.createHosts(hosts);
+		List<PowerVm> vmList = BenchmarkFixtures.createVms(hosts * 1052 / 800);
+		BenchmarkFixtures.fillUtilizationHistory(vmList, new Random(1));
+		allocationPolicy = createPolicy(policy, hostList);
+
+		// the VMs are all placed before their cloudlets start, as in the examples; those which do
+		// not fit are left out, as the datacenter would fail to create them
+		vms = new ArrayList<PowerVm>();
+		for (PowerVm vm : vmList) {
+			if (allocationPolicy.allocateHostForVm(vm)) {
+				vms.add(vm);
+			}
+		}
+		List<Cloudlet> cloudlets = BenchmarkFixtures.createCloudlets(vms.size(), 1);
+		for (int i = 0; i < vms.size(); i++) {
+			PowerVm vm = vms.get(i);
+			VmScheduler vmScheduler = vm.getHost().getVmScheduler();
+			vm.updateVmProcessing(0, vmScheduler.getAllocatedMipsForVm(vm), vmScheduler.getAllocatedIopsForVm(vm));
+			vm.getCloudletScheduler().cloudletSubmit(cloudlets.get(i));
+		}
+		for (PowerHost host : hostList) {
+			host.updateVmsProcessing(BenchmarkFixtures.SCHEDULING_INTERVAL);
+		}
+	}
+
+	/**
+	 * Computes the migrations of the VMs.
+	 *
+	 * @return the migrations
+	 */
+	@Benchmark
+	public List<Map<String, Object>> optimizeAllocation() {
+		return allocationPolicy.optimizeAllocation(vms);
+	}
+
+	/**
+	 * Creates an allocation policy with the parameters of the PlanetLab examples.
+	 *
+	 * @param name the name of the overload detection policy
+	 * @param hostList the hosts
+	 * @return the policy
+	 */
+	private static PowerVmAllocationPolicyMigrationAbstract createPolicy(String name, List<PowerHost> hostList) {
+		PowerVmSelectionPolicy selectionPolicy = new PowerVmSelectionPolicyMinimumMigrationTime();
+		PowerVmAllocationPolicyMigrationAbstract fallback = new PowerVmAllocationPolicyMigrationStaticThreshold(
+				hostList,
+				selectionPolicy,
+				0.7);
+		if (name.equals("iqr")) {
+			return new PowerVmAllocationPolicyMigrationInterQuartileRange(hostList, selectionPolicy, 1.5, fallback);
+		} else if (name.equals("mad")) {
+			return new PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation(
+					hostList,
+					selectionPolicy,
+					2.5,
+					fallback);
+		} else if (name.equals("lr")) {
+			return new PowerVmAllocationPolicyMigrationLocalRegression(
+					hostList,
+					selectionPolicy,
+					1.2,
+					BenchmarkFixtures.SCHEDULING_INTERVAL,
+					fallback);
+		} else if (name.equals("lrr")) {
+			return new PowerVmAllocationPolicyMigrationLocalRegressionRobust(
+					hostList,
+					selectionPolicy,
+					1.2,
+					BenchmarkFixtures.SCHEDULING_INTERVAL,
+					fallback);
+		}
+		return new PowerVmAllocationPolicyMigrationStaticThreshold(hostList, selectionPolicy, 0.8);
+	}
+
+}
@@ -75,7 +75,7 @@ public class TestExample {
 			List<Cloudlet> newList = broker.getCloudletReceivedList();
 			printCloudletList(newList);
 			System.out.println("numberofcloudlet " + newList.size() + " Cached "
-					+ NetDatacenterBroker.cachedcloudlet + " Data transfered "
+					+ NetDatacenterBroker.getCachedCloudlet() + " Data transfered "
 					+ NetworkConstants.totaldatatransfer);
 			// Print the debt of each user to each datacenter
 			datacenter0.printDebts();
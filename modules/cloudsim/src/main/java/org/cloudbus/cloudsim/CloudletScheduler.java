@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -19,7 +20,10 @@ import java.util.List;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class CloudletScheduler {
+public abstract class CloudletScheduler implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The previous time. */
 	private double previousTime;
@@ -31,6 +35,12 @@ public abstract class CloudletScheduler {
 	/** The current iops share. */
 	private Double currentIopsShare;
 
+	/** The queue of the datacenter notified of the finished cloudlets, or null. */
+	private FinishedCloudletQueue finishedCloudletQueue;
+
+	/** Whether the scheduler is in the queue of the datacenter. */
+	private boolean finishedCloudletQueued;
+
 	/**
 	 * Creates a new CloudletScheduler object. This method must be invoked before starting the
 	 * actual simulation.
@@ -106,14 +116,67 @@ public abstract class CloudletScheduler {
 	public abstract double cloudletResume(int clId);
 
 	/**
-	 * Processes a finished cloudlet.
+	 * Processes a finished cloudlet. Once the cloudlet is in the finished list, the
+	 * implementations notifying their datacenter call {@link #notifyCloudletFinished()}.
 	 * 
 	 * @param rcl finished cloudlet
 	 * @pre rgl != $null
 	 * @post $none
+	 * @see #isNotifyingFinishedCloudlets()
 	 */
 	public abstract void cloudletFinish(ResCloudlet rcl);
 
+	/**
+	 * Notifies the datacenter of the VM that a cloudlet has finished, so that it returns the
+	 * cloudlet without looking at the other VMs.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	protected void notifyCloudletFinished() {
+		if (finishedCloudletQueue != null && !finishedCloudletQueued) {
+			finishedCloudletQueue.add(this);
+		}
+	}
+
+	/**
+	 * Checks whether the scheduler calls {@link #notifyCloudletFinished()} for each finished
+	 * cloudlet. The datacenters look for the finished cloudlets of the VMs whose schedulers do not
+	 * in all their VMs, after each update.
+	 * 
+	 * @return true, if the finished cloudlets are notified; false by default
+	 */
+	protected boolean isNotifyingFinishedCloudlets() {
+		return false;
+	}
+
+	/**
+	 * Sets the queue of the datacenter notified of the finished cloudlets.
+	 * 
+	 * @param finishedCloudletQueue the queue, or null
+	 */
+	void setFinishedCloudletQueue(FinishedCloudletQueue finishedCloudletQueue) {
+		this.finishedCloudletQueue = finishedCloudletQueue;
+	}
+
+	/**
+	 * Checks whether the scheduler is in the queue of the datacenter.
+	 * 
+	 * @return true, if it is in the queue
+	 */
+	boolean isFinishedCloudletQueued() {
+		return finishedCloudletQueued;
+	}
+
+	/**
+	 * Sets whether the scheduler is in the queue of the datacenter.
+	 * 
+	 * @param finishedCloudletQueued true, if it is in the queue
+	 */
+	void setFinishedCloudletQueued(boolean finishedCloudletQueued) {
+		this.finishedCloudletQueued = finishedCloudletQueued;
+	}
+
 	/**
 	 * Gets the status of a cloudlet.
 	 * 
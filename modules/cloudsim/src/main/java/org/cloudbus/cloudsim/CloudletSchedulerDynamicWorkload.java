@@ -23,6 +23,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerDynamicWorkload extends CloudletSchedulerTimeShared {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The mips. */
 	private double mips;
 
@@ -201,6 +204,7 @@ public class CloudletSchedulerDynamicWorkload extends CloudletSchedulerTimeShare
 		rcl.setCloudletStatus(Cloudlet.SUCCESS);
 		rcl.finalizeCloudlet();
 		getCloudletFinishedList().add(rcl);
+		notifyCloudletFinished();
 	}
 
 	/**
@@ -23,6 +23,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerDynamicWorkloadIops extends CloudletSchedulerTimeShared {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The mips. */
 	private double mips;
 
@@ -229,6 +232,7 @@ public class CloudletSchedulerDynamicWorkloadIops extends CloudletSchedulerTimeS
 		rcl.setCloudletStatus(Cloudlet.SUCCESS);
 		rcl.finalizeCloudlet();
 		getCloudletFinishedList().add(rcl);
+		notifyCloudletFinished();
 	}
 
 	/**
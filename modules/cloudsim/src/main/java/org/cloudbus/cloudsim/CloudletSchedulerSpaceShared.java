@@ -26,6 +26,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet waiting list. */
 	private List<? extends ResCloudlet> cloudletWaitingList;
 
@@ -260,6 +263,12 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 		rcl.finalizeCloudlet();
 		getCloudletFinishedList().add(rcl);
 		usedPes -= rcl.getNumberOfPes();
+		notifyCloudletFinished();
+	}
+
+	@Override
+	protected boolean isNotifyingFinishedCloudlets() {
+		return true;
 	}
 
 	/**
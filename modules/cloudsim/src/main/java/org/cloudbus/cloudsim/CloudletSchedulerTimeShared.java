@@ -25,6 +25,9 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
  */
 public class CloudletSchedulerTimeShared extends CloudletScheduler {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet exec list. */
 	private List<? extends ResCloudlet> cloudletExecList;
 
@@ -262,6 +265,12 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 		rcl.setCloudletStatus(Cloudlet.SUCCESS);
 		rcl.finalizeCloudlet();
 		getCloudletFinishedList().add(rcl);
+		notifyCloudletFinished();
+	}
+
+	@Override
+	protected boolean isNotifyingFinishedCloudlets() {
+		return true;
 	}
 
 	/**
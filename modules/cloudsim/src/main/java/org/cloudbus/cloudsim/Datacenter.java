@@ -9,8 +9,11 @@ package org.cloudbus.cloudsim;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +36,9 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class Datacenter extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The characteristics. */
 	private DatacenterCharacteristics characteristics;
 
@@ -57,6 +63,28 @@ public class Datacenter extends SimEntity {
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
+	/** Whether only the hosts which are due or have changed are updated. */
+	private boolean incrementalProcessing;
+
+	/** The hosts ordered by due time, in the incremental mode, once the processing has started. */
+	private transient HostDueQueue hostDueQueue;
+
+	/** The time of the last event scheduled for the hosts made due earlier. */
+	private double dueEventTime = -1;
+
+	/** The cloudlet schedulers of the VMs of the hosts which have finished cloudlets. */
+	private final FinishedCloudletQueue finishedCloudletQueue = new FinishedCloudletQueue();
+
+	/** Whether a VM of the hosts has a scheduler not notifying its finished cloudlets. */
+	private boolean scanningFinishedCloudlets;
+
+	/** The cloudlets submitted in bulk and not returned yet, which are returned in bulk. */
+	private final Set<Cloudlet> bulkCloudlets = Collections
+			.newSetFromMap(new IdentityHashMap<Cloudlet, Boolean>());
+
+	/** The finished cloudlets not returned yet to the users getting them back in bulk. */
+	private final Map<Integer, List<Cloudlet>> bulkReturns = new LinkedHashMap<Integer, List<Cloudlet>>();
+
 	/**
 	 * Allocates a new PowerDatacenter object.
 	 * 
@@ -95,6 +123,9 @@ public class Datacenter extends SimEntity {
 
 		for (Host host : getCharacteristics().getHostList()) {
 			host.setDatacenter(this);
+			for (Vm vm : host.getVmList()) {
+				registerCloudletScheduler(vm.getCloudletScheduler());
+			}
 		}
 
 		// If this resource doesn't have any PEs then no useful at all
@@ -164,6 +195,21 @@ public class Datacenter extends SimEntity {
 				processCloudletSubmit(ev, true);
 				break;
 
+			// A list of new Cloudlets arrives
+			case CloudSimTags.CLOUDLET_SUBMIT_BULK:
+				processCloudletSubmitBulk(ev, false);
+				break;
+
+			// A list of new Cloudlets arrives, but the sender asks for an ack of each of them
+			case CloudSimTags.CLOUDLET_SUBMIT_BULK_ACK:
+				processCloudletSubmitBulk(ev, true);
+				break;
+
+			// The finished Cloudlets of this time are returned in bulk
+			case CloudSimTags.CLOUDLET_RETURN_BULK:
+				processCloudletReturnBulk();
+				break;
+
 			// Cancels a previously submitted Cloudlet
 			case CloudSimTags.CLOUDLET_CANCEL:
 				processCloudlet(ev, CloudSimTags.CLOUDLET_CANCEL);
@@ -445,7 +491,7 @@ public class Datacenter extends SimEntity {
 	protected void processVmCreate(SimEvent ev, boolean ack) {
 		Vm vm = (Vm) ev.getData();
 
-		boolean result = getVmAllocationPolicy().allocateHostForVm(vm);
+		boolean result = allocateHostForVm(vm);
 
 		if (ack) {
 			int[] data = new int[3];
@@ -483,6 +529,32 @@ public class Datacenter extends SimEntity {
 
 	}
 
+	/**
+	 * Allocates a host to a new VM. In the incremental mode, the host is updated before the VM
+	 * changes the MIPS shares of its VMs: only the host chosen by the allocation policy if the
+	 * policy can tell it in advance, all the hosts otherwise.
+	 * 
+	 * @param vm the VM
+	 * @return true, if a host has been allocated
+	 * @see VmAllocationPolicy#findHostForVm(Vm)
+	 */
+	private boolean allocateHostForVm(Vm vm) {
+		VmAllocationPolicy policy = getVmAllocationPolicy();
+		if (hostDueQueue == null) {
+			return policy.allocateHostForVm(vm);
+		}
+		Host host = policy.findHostForVm(vm);
+		if (host != null) {
+			updateHostProcessing(host);
+			return policy.allocateHostForVm(vm, host);
+		}
+		List<? extends Host> list = policy.getHostList();
+		for (int i = 0; i < list.size(); i++) {
+			updateHostProcessing(list.get(i));
+		}
+		return policy.allocateHostForVm(vm);
+	}
+
 	/**
 	 * Process the event for an User/Broker who wants to destroy a VM previously created in this
 	 * PowerDatacenter. This PowerDatacenter may send, upon request, the status back to the
@@ -495,6 +567,10 @@ public class Datacenter extends SimEntity {
 	 */
 	protected void processVmDestroy(SimEvent ev, boolean ack) {
 		Vm vm = (Vm) ev.getData();
+		Host host = getVmAllocationPolicy().getHost(vm);
+		if (host != null) {
+			updateHostProcessing(host);
+		}
 		getVmAllocationPolicy().deallocateHostForVm(vm);
 
 		if (ack) {
@@ -529,6 +605,10 @@ public class Datacenter extends SimEntity {
 		Vm vm = (Vm) migrate.get("vm");
 		Host host = (Host) migrate.get("host");
 
+		if (vm.getHost() != null) {
+			updateHostProcessing(vm.getHost());
+		}
+		updateHostProcessing(host);
 		getVmAllocationPolicy().deallocateHostForVm(vm);
 		host.removeMigratingInVm(vm);
 		boolean result = getVmAllocationPolicy().allocateHostForVm(vm, host);
@@ -644,7 +724,7 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletMove(int[] receivedData, int type) {
-		updateCloudletProcessing();
+		updateCloudletProcessingForRequest();
 
 		int[] array = receivedData;
 		int cloudletId = array[0];
@@ -654,8 +734,11 @@ public class Datacenter extends SimEntity {
 		int destId = array[4];
 
 		// get the cloudlet
-		Cloudlet cl = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletCancel(cloudletId);
+		Host sourceHost = getVmAllocationPolicy().getHost(vmId, userId);
+		Vm sourceVm = sourceHost.getVm(vmId, userId);
+		updateVmProcessing(sourceHost, sourceVm);
+		Cloudlet cl = sourceVm.getCloudletScheduler().cloudletCancel(cloudletId);
+		updateVmProcessing(sourceHost, sourceVm);
 
 		boolean failed = false;
 		if (cl == null) {// cloudlet doesn't exist
@@ -668,7 +751,7 @@ public class Datacenter extends SimEntity {
 				data[1] = cloudletId;
 				data[2] = 0;
 				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_SUBMIT_ACK, data);
-				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+				returnCloudlet(cl);
 			}
 
 			// prepare cloudlet for migration
@@ -676,15 +759,19 @@ public class Datacenter extends SimEntity {
 
 			// the cloudlet will migrate from one vm to another does the destination VM exist?
 			if (destId == getId()) {
-				Vm vm = getVmAllocationPolicy().getHost(vmDestId, userId).getVm(vmDestId,userId);
+				Host destHost = getVmAllocationPolicy().getHost(vmDestId, userId);
+				Vm vm = destHost.getVm(vmDestId,userId);
 				if (vm == null) {
 					failed = true;
 				} else {
+					updateVmProcessing(destHost, vm);
 					// time to transfer the files
 					double fileTransferTime = predictFileTransferTime(cl.getRequiredFiles());
 					vm.getCloudletScheduler().cloudletSubmit(cl, fileTransferTime);
+					updateVmProcessing(destHost, vm);
 				}
 			} else {// the cloudlet will migrate from one resource to another
+				bulkCloudlets.remove(cl);
 				int tag = ((type == CloudSimTags.CLOUDLET_MOVE_ACK) ? CloudSimTags.CLOUDLET_SUBMIT_ACK
 						: CloudSimTags.CLOUDLET_SUBMIT);
 				sendNow(destId, tag, cl);
@@ -713,81 +800,155 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletSubmit(SimEvent ev, boolean ack) {
-		updateCloudletProcessing();
+		updateCloudletProcessingForRequest();
 
 		try {
 			// gets the Cloudlet object
 			Cloudlet cl = (Cloudlet) ev.getData();
 
-			// checks whether this Cloudlet has finished or not
-			if (cl.isFinished()) {
-				String name = CloudSim.getEntityName(cl.getUserId());
-				Log.printLine(getName() + ": Warning - Cloudlet #" + cl.getCloudletId() + " owned by " + name
-						+ " is already completed/finished.");
-				Log.printLine("Therefore, it is not being executed again");
-				Log.printLine();
-
-				// NOTE: If a Cloudlet has finished, then it won't be processed.
-				// So, if ack is required, this method sends back a result.
-				// If ack is not required, this method don't send back a result.
-				// Hence, this might cause CloudSim to be hanged since waiting
-				// for this Cloudlet back.
-				if (ack) {
-					int[] data = new int[3];
-					data[0] = getId();
-					data[1] = cl.getCloudletId();
-					data[2] = CloudSimTags.FALSE;
-
-					// unique tag = operation tag
-					int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
-					sendNow(cl.getUserId(), tag, data);
-				}
-
-				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
-
-				return;
+			double estimatedFinishTime = submitCloudlet(cl, ack);
+			if (estimatedFinishTime > 0.0) {
+				scheduleFinish(estimatedFinishTime);
 			}
+		} catch (ClassCastException c) {
+			Log.printLine(getName() + ".processCloudletSubmit(): " + "ClassCastException error.");
+			c.printStackTrace();
+		} catch (Exception e) {
+			Log.printLine(getName() + ".processCloudletSubmit(): " + "Exception error.");
+			e.printStackTrace();
+		}
 
-			// process this Cloudlet to this CloudResource
-			cl.setResourceParameter(getId(), getCharacteristics().getCostPerSecond(), getCharacteristics()
-					.getCostPerBw());
+		checkCloudletCompletion();
+	}
 
-			int userId = cl.getUserId();
-			int vmId = cl.getVmId();
+	/**
+	 * Processes the submission of a list of Cloudlets, with a single update of the processing of
+	 * the Cloudlets before they are submitted and a single event scheduled at the earliest
+	 * expected finish time, the next ones being scheduled by the updates. The Cloudlets submitted
+	 * this way are returned in bulk, once per simulation time.
+	 * 
+	 * @param ev a SimEvent object whose data is the list of Cloudlets
+	 * @param ack whether each Cloudlet is acknowledged, as a separate submission would be
+	 * @pre ev != null
+	 * @post $none
+	 * @see CloudSimTags#CLOUDLET_SUBMIT_BULK
+	 * @see CloudSimTags#CLOUDLET_SUBMIT_BULK_ACK
+	 */
+	@SuppressWarnings("unchecked")
+	protected void processCloudletSubmitBulk(SimEvent ev, boolean ack) {
+		updateCloudletProcessingForRequest();
 
-			// time to transfer the files
-			double fileTransferTime = predictFileTransferTime(cl.getRequiredFiles());
+		try {
+			List<Cloudlet> cloudlets = (List<Cloudlet>) ev.getData();
+
+			double earliestFinishTime = Double.MAX_VALUE;
+			for (Cloudlet cl : cloudlets) {
+				bulkCloudlets.add(cl);
+				double estimatedFinishTime = submitCloudlet(cl, ack);
+				if (estimatedFinishTime > 0.0 && estimatedFinishTime < earliestFinishTime) {
+					earliestFinishTime = estimatedFinishTime;
+				}
+			}
+			if (earliestFinishTime != Double.MAX_VALUE) {
+				scheduleFinish(earliestFinishTime);
+			}
+		} catch (ClassCastException c) {
+			Log.printLine(getName() + ".processCloudletSubmitBulk(): " + "ClassCastException error.");
+			c.printStackTrace();
+		} catch (Exception e) {
+			Log.printLine(getName() + ".processCloudletSubmitBulk(): " + "Exception error.");
+			e.printStackTrace();
+		}
 
-			Host host = getVmAllocationPolicy().getHost(vmId, userId);
-			Vm vm = host.getVm(vmId, userId);
-			CloudletScheduler scheduler = vm.getCloudletScheduler();
-			double estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
+		checkCloudletCompletion();
+	}
 
-			// if this cloudlet is in the exec queue
-			if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
-				estimatedFinishTime += fileTransferTime;
-				send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
-			}
+	/**
+	 * Schedules the update of the processing of the Cloudlets when a submitted Cloudlet is expected
+	 * to finish.
+	 * 
+	 * @param estimatedFinishTime the time at which the Cloudlet is expected to finish, as returned
+	 *            by {@link #submitCloudlet(Cloudlet, boolean)}
+	 */
+	private void scheduleFinish(double estimatedFinishTime) {
+		// gurantees a minimal interval before scheduling the event, as the updates do
+		double delay = Math.max(estimatedFinishTime - CloudSim.clock(), 0.11);
+		send(getId(), delay, CloudSimTags.VM_DATACENTER_EVENT);
+	}
 
+	/**
+	 * Submits a Cloudlet to its VM, once the processing of the Cloudlets has been updated.
+	 * 
+	 * @param cl the Cloudlet
+	 * @param ack an acknowledgement
+	 * @return the time at which the Cloudlet is expected to finish, including the transfer of its
+	 *         files, or 0 if it is not in the exec queue
+	 * @pre cl != null
+	 * @post $result >= 0
+	 */
+	private double submitCloudlet(Cloudlet cl, boolean ack) {
+		// checks whether this Cloudlet has finished or not
+		if (cl.isFinished()) {
+			String name = CloudSim.getEntityName(cl.getUserId());
+			Log.printLine(getName() + ": Warning - Cloudlet #" + cl.getCloudletId() + " owned by " + name
+					+ " is already completed/finished.");
+			Log.printLine("Therefore, it is not being executed again");
+			Log.printLine();
+
+			// NOTE: If a Cloudlet has finished, then it won't be processed.
+			// So, if ack is required, this method sends back a result.
+			// If ack is not required, this method don't send back a result.
+			// Hence, this might cause CloudSim to be hanged since waiting
+			// for this Cloudlet back.
 			if (ack) {
 				int[] data = new int[3];
 				data[0] = getId();
 				data[1] = cl.getCloudletId();
-				data[2] = CloudSimTags.TRUE;
+				data[2] = CloudSimTags.FALSE;
 
 				// unique tag = operation tag
 				int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
 				sendNow(cl.getUserId(), tag, data);
 			}
-		} catch (ClassCastException c) {
-			Log.printLine(getName() + ".processCloudletSubmit(): " + "ClassCastException error.");
-			c.printStackTrace();
-		} catch (Exception e) {
-			Log.printLine(getName() + ".processCloudletSubmit(): " + "Exception error.");
-			e.printStackTrace();
+
+			returnCloudlet(cl);
+
+			return 0.0;
 		}
 
-		checkCloudletCompletion();
+		// process this Cloudlet to this CloudResource
+		cl.setResourceParameter(getId(), getCharacteristics().getCostPerSecond(), getCharacteristics()
+				.getCostPerBw());
+
+		int userId = cl.getUserId();
+		int vmId = cl.getVmId();
+
+		// time to transfer the files
+		double fileTransferTime = predictFileTransferTime(cl.getRequiredFiles());
+
+		Host host = getVmAllocationPolicy().getHost(vmId, userId);
+		Vm vm = host.getVm(vmId, userId);
+		updateVmProcessing(host, vm);
+		CloudletScheduler scheduler = vm.getCloudletScheduler();
+		double estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
+		updateVmProcessing(host, vm);
+
+		if (ack) {
+			int[] data = new int[3];
+			data[0] = getId();
+			data[1] = cl.getCloudletId();
+			data[2] = CloudSimTags.TRUE;
+
+			// unique tag = operation tag
+			int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
+			sendNow(cl.getUserId(), tag, data);
+		}
+
+		// if this cloudlet is in the exec queue
+		if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+			return estimatedFinishTime + fileTransferTime;
+		}
+		return 0.0;
 	}
 
 	/**
@@ -825,8 +986,11 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletResume(int cloudletId, int userId, int vmId, boolean ack) {
-		double eventTime = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletResume(cloudletId);
+		Host host = getVmAllocationPolicy().getHost(vmId, userId);
+		Vm vm = host.getVm(vmId, userId);
+		updateVmProcessing(host, vm);
+		double eventTime = vm.getCloudletScheduler().cloudletResume(cloudletId);
+		updateVmProcessing(host, vm);
 
 		boolean status = false;
 		if (eventTime > 0.0) { // if this cloudlet is in the exec queue
@@ -860,8 +1024,11 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletPause(int cloudletId, int userId, int vmId, boolean ack) {
-		boolean status = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletPause(cloudletId);
+		Host host = getVmAllocationPolicy().getHost(vmId, userId);
+		Vm vm = host.getVm(vmId, userId);
+		updateVmProcessing(host, vm);
+		boolean status = vm.getCloudletScheduler().cloudletPause(cloudletId);
+		updateVmProcessing(host, vm);
 
 		if (ack) {
 			int[] data = new int[3];
@@ -886,8 +1053,14 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletCancel(int cloudletId, int userId, int vmId) {
-		Cloudlet cl = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletCancel(cloudletId);
+		Host host = getVmAllocationPolicy().getHost(vmId, userId);
+		Vm vm = host.getVm(vmId, userId);
+		updateVmProcessing(host, vm);
+		Cloudlet cl = vm.getCloudletScheduler().cloudletCancel(cloudletId);
+		updateVmProcessing(host, vm);
+		if (cl != null) {
+			bulkCloudlets.remove(cl);
+		}
 		sendNow(userId, CloudSimTags.CLOUDLET_CANCEL, cl);
 	}
 
@@ -906,14 +1079,22 @@ public class Datacenter extends SimEntity {
 		if (CloudSim.clock() < 0.111 || CloudSim.clock() > getLastProcessTime() + 0.1) {
 			List<? extends Host> list = getVmAllocationPolicy().getHostList();
 			double smallerTime = Double.MAX_VALUE;
-			// for each host...
-			for (int i = 0; i < list.size(); i++) {
-				Host host = list.get(i);
-				// inform VMs to update processing
-				double time = host.updateVmsProcessing(CloudSim.clock());
-				// what time do we expect that the next cloudlet will finish?
-				if (time < smallerTime) {
-					smallerTime = time;
+			if (isIncrementalProcessing()) {
+				// only the hosts which are due or have changed
+				if (hostDueQueue == null || !hostDueQueue.covers(list)) {
+					hostDueQueue = new HostDueQueue(list);
+				}
+				smallerTime = hostDueQueue.update(CloudSim.clock());
+			} else {
+				// for each host...
+				for (int i = 0; i < list.size(); i++) {
+					Host host = list.get(i);
+					// inform VMs to update processing
+					double time = host.updateVmsProcessing(CloudSim.clock());
+					// what time do we expect that the next cloudlet will finish?
+					if (time < smallerTime) {
+						smallerTime = time;
+					}
 				}
 			}
 			// gurantees a minimal interval before scheduling the event
@@ -927,25 +1108,171 @@ public class Datacenter extends SimEntity {
 		}
 	}
 
+	/**
+	 * Updates the processing of a host before its VMs or cloudlets change, in the incremental
+	 * mode, so that the cloudlets progress at their former rates until now, and makes the host due
+	 * at the next update of the cloudlet processing, which computes the time of its next event
+	 * again. It does nothing otherwise, since all the hosts are then updated together.
+	 * 
+	 * @param host the host
+	 * @see #setIncrementalProcessing(boolean)
+	 */
+	protected void updateHostProcessing(Host host) {
+		if (hostDueQueue != null) {
+			hostDueQueue.touch(host, CloudSim.clock());
+			scheduleDueHost(CloudSim.clock());
+		}
+	}
+
+	/**
+	 * Updates the processing of the VM whose cloudlets a request of a user changes, in the
+	 * incremental mode: called before the change, it brings the cloudlets of the VM up to now;
+	 * called after it, it computes the time of the next event of the VM again, and makes the host
+	 * due at that time if it is earlier than its due time. The other VMs are only updated when
+	 * their hosts are due. It does nothing otherwise, since all the hosts are then updated
+	 * together.
+	 * 
+	 * @param host the host of the VM
+	 * @param vm the VM
+	 * @see #setIncrementalProcessing(boolean)
+	 * @see Host#isVmProcessingIndependent()
+	 */
+	protected void updateVmProcessing(Host host, Vm vm) {
+		if (hostDueQueue != null) {
+			double dueTime = hostDueQueue.touchVm(host, vm, CloudSim.clock());
+			if (dueTime != Double.MAX_VALUE) {
+				scheduleDueHost(dueTime);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the update of the cloudlet processing for a host which has become due earlier, in
+	 * the incremental mode. The hosts due at the same time share a single event.
+	 * 
+	 * @param dueTime the new due time of the host
+	 */
+	private void scheduleDueHost(double dueTime) {
+		// gurantees a minimal interval before scheduling the event, as the updates do
+		double time = Math.max(dueTime, CloudSim.clock() + 0.11);
+		if (time != dueEventTime) {
+			dueEventTime = time;
+			schedule(getId(), time - CloudSim.clock(), CloudSimTags.VM_DATACENTER_EVENT);
+		}
+	}
+
+	/**
+	 * Updates the processing of the cloudlets before a request of a user, unless they are updated
+	 * incrementally, in which case only the VMs the request changes are updated.
+	 * 
+	 * @see #updateVmProcessing(Host, Vm)
+	 */
+	private void updateCloudletProcessingForRequest() {
+		if (hostDueQueue == null) {
+			updateCloudletProcessing();
+		}
+	}
+
 	/**
 	 * Verifies if some cloudlet inside this PowerDatacenter already finished. If yes, send it to
-	 * the User/Broker
+	 * the User/Broker. Only the VMs whose schedulers have notified finished cloudlets are looked
+	 * at, unless a VM of the hosts has a scheduler which does not notify them, in which case all
+	 * the VMs are looked at, or, in the incremental mode, those of the hosts updated since the last
+	 * verification.
 	 * 
 	 * @pre $none
 	 * @post $none
+	 * @see CloudletScheduler#isNotifyingFinishedCloudlets()
 	 */
 	protected void checkCloudletCompletion() {
-		List<? extends Host> list = getVmAllocationPolicy().getHostList();
-		for (int i = 0; i < list.size(); i++) {
-			Host host = list.get(i);
-			for (Vm vm : host.getVmList()) {
-				while (vm.getCloudletScheduler().isFinishedCloudlets()) {
-					Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
-					if (cl != null) {
-						sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
-					}
+		List<CloudletScheduler> schedulers = finishedCloudletQueue.take();
+		if (scanningFinishedCloudlets) {
+			List<? extends Host> list = getVmAllocationPolicy().getHostList();
+			if (hostDueQueue != null) {
+				list = hostDueQueue.getUpdatedHosts();
+			}
+			for (int i = 0; i < list.size(); i++) {
+				Host host = list.get(i);
+				for (Vm vm : host.getVmList()) {
+					returnFinishedCloudlets(vm.getCloudletScheduler());
 				}
 			}
+		} else {
+			for (int i = 0; i < schedulers.size(); i++) {
+				returnFinishedCloudlets(schedulers.get(i));
+			}
+		}
+		if (hostDueQueue != null) {
+			hostDueQueue.clearUpdatedHosts();
+		}
+	}
+
+	/**
+	 * Sends the finished cloudlets of a VM to their users.
+	 * 
+	 * @param scheduler the cloudlet scheduler of the VM
+	 */
+	private void returnFinishedCloudlets(CloudletScheduler scheduler) {
+		while (scheduler.isFinishedCloudlets()) {
+			Cloudlet cl = scheduler.getNextFinishedCloudlet();
+			if (cl != null) {
+				returnCloudlet(cl);
+			}
+		}
+	}
+
+	/**
+	 * Sends a finished Cloudlet to its user. The Cloudlets submitted in bulk are kept until the end
+	 * of the current simulation time, and sent in bulk.
+	 * 
+	 * @param cl the Cloudlet
+	 * @see CloudSimTags#CLOUDLET_RETURN_BULK
+	 */
+	private void returnCloudlet(Cloudlet cl) {
+		int userId = cl.getUserId();
+		if (!bulkCloudlets.remove(cl)) {
+			sendNow(userId, CloudSimTags.CLOUDLET_RETURN, cl);
+			return;
+		}
+		if (bulkReturns.isEmpty()) {
+			// returns the Cloudlets once the events of this time already sent are processed
+			sendNow(getId(), CloudSimTags.CLOUDLET_RETURN_BULK);
+		}
+		List<Cloudlet> cloudlets = bulkReturns.get(userId);
+		if (cloudlets == null) {
+			cloudlets = new ArrayList<Cloudlet>();
+			bulkReturns.put(userId, cloudlets);
+		}
+		cloudlets.add(cl);
+	}
+
+	/**
+	 * Sends the finished Cloudlets kept for the users submitting Cloudlets in bulk, one event per
+	 * user.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	protected void processCloudletReturnBulk() {
+		for (Map.Entry<Integer, List<Cloudlet>> entry : bulkReturns.entrySet()) {
+			sendNow(entry.getKey(), CloudSimTags.CLOUDLET_RETURN_BULK, entry.getValue());
+		}
+		bulkReturns.clear();
+	}
+
+	/**
+	 * Makes the cloudlet scheduler of a VM created in one of the hosts notify this datacenter of
+	 * its finished cloudlets. If the scheduler does not notify them, the datacenter looks for
+	 * finished cloudlets in all the VMs from then on.
+	 * 
+	 * @param scheduler the cloudlet scheduler of the VM
+	 * @see Host#vmCreate(Vm)
+	 */
+	void registerCloudletScheduler(CloudletScheduler scheduler) {
+		if (scheduler.isNotifyingFinishedCloudlets()) {
+			scheduler.setFinishedCloudletQueue(finishedCloudletQueue);
+		} else {
+			scanningFinishedCloudlets = true;
 		}
 	}
 
@@ -1149,6 +1476,21 @@ public class Datacenter extends SimEntity {
 		return vmAllocationPolicy;
 	}
 
+	/**
+	 * Replaces the vm allocation policy while the simulation runs, e.g. to try another policy in a
+	 * simulation restored from a {@link org.cloudbus.cloudsim.core.SimulationCheckpoint}. The new
+	 * policy has to manage the hosts of this datacenter; it takes over the current placement of
+	 * the VMs.
+	 * 
+	 * @param vmAllocationPolicy the new vm allocation policy
+	 * @throws UnsupportedOperationException if the policy cannot take over the placement
+	 * @see VmAllocationPolicy#adoptAllocation()
+	 */
+	public void replaceVmAllocationPolicy(VmAllocationPolicy vmAllocationPolicy) {
+		vmAllocationPolicy.adoptAllocation();
+		setVmAllocationPolicy(vmAllocationPolicy);
+	}
+
 	/**
 	 * Sets the vm allocation policy.
 	 * 
@@ -1249,4 +1591,40 @@ public class Datacenter extends SimEntity {
 		this.schedulingInterval = schedulingInterval;
 	}
 
+	/**
+	 * Sets whether the processing of the cloudlets is updated incrementally. In that mode, each
+	 * update only updates the hosts whose next cloudlet is expected to complete by then, and those
+	 * whose VMs have been created, destroyed or migrated, which are brought up to date just before
+	 * the change. The hosts are kept in a heap ordered by the expected completion time of their
+	 * next cloudlet, so that an update costs O(k log n) for k updated hosts out of n rather than
+	 * O(n). The cloudlet submissions, cancellations, pauses, resumptions and moves do not update
+	 * the hosts at all: they only bring the VM they change up to date, and make its host due
+	 * earlier if needed, unless the VMs of the host cannot be updated one at a time.
+	 * <p>
+	 * The results are those of the default mode, up to rounding errors, as long as the cloudlets of
+	 * a host progress at constant rates between two changes, as with the time-shared and
+	 * space-shared cloudlet schedulers. The schedulers whose rates depend on the time of the update,
+	 * such as those of dynamic workloads, need all the hosts to be updated together, which is the
+	 * default. Subclasses overriding {@link #updateCloudletProcessing()} without calling it, such as
+	 * the power datacenters, are not affected.
+	 * 
+	 * @param incrementalProcessing true to update only the due and changed hosts
+	 */
+	public void setIncrementalProcessing(boolean incrementalProcessing) {
+		this.incrementalProcessing = incrementalProcessing;
+		if (!incrementalProcessing) {
+			hostDueQueue = null;
+		}
+	}
+
+	/**
+	 * Checks whether the processing of the cloudlets is updated incrementally.
+	 * 
+	 * @return true, if only the due and changed hosts are updated
+	 * @see #setIncrementalProcessing(boolean)
+	 */
+	public boolean isIncrementalProcessing() {
+		return incrementalProcessing;
+	}
+
 }
@@ -9,10 +9,14 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
@@ -31,6 +35,9 @@ import org.cloudbus.cloudsim.lists.VmList;
  */
 public class DatacenterBroker extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The vm list. */
 	protected List<? extends Vm> vmList;
 
@@ -70,6 +77,9 @@ public class DatacenterBroker extends SimEntity {
 	/** The datacenter characteristics list. */
 	protected Map<Integer, DatacenterCharacteristics> datacenterCharacteristicsList;
 
+	/** Whether the cloudlets are submitted in bulk, one event per datacenter. */
+	protected boolean bulkSubmission;
+
 	/**
 	 * Created a new DatacenterBroker object.
 	 * 
@@ -161,6 +171,10 @@ public class DatacenterBroker extends SimEntity {
 			case CloudSimTags.CLOUDLET_RETURN:
 				processCloudletReturn(ev);
 				break;
+			// The cloudlets finished at the same time returned
+			case CloudSimTags.CLOUDLET_RETURN_BULK:
+				processCloudletReturnBulk(ev);
+				break;
 			// if the simulation finishes
 			case CloudSimTags.END_OF_SIMULATION:
 				shutdownEntity();
@@ -268,11 +282,49 @@ public class DatacenterBroker extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletReturn(SimEvent ev) {
-		Cloudlet cloudlet = (Cloudlet) ev.getData();
+		receiveCloudlet((Cloudlet) ev.getData());
+		checkCloudletsReturned();
+	}
+
+	/**
+	 * Process the return of the cloudlets finished at the same time in a datacenter, which the
+	 * datacenter sends back in bulk since they were submitted in bulk.
+	 * 
+	 * @param ev a SimEvent object whose data is the list of cloudlets
+	 * @pre ev != $null
+	 * @post $none
+	 * @see #setBulkSubmission(boolean)
+	 */
+	@SuppressWarnings("unchecked")
+	protected void processCloudletReturnBulk(SimEvent ev) {
+		for (Cloudlet cloudlet : (List<Cloudlet>) ev.getData()) {
+			receiveCloudlet(cloudlet);
+		}
+		checkCloudletsReturned();
+	}
+
+	/**
+	 * Records a returned cloudlet.
+	 * 
+	 * @param cloudlet the cloudlet
+	 * @pre cloudlet != $null
+	 * @post $none
+	 */
+	protected void receiveCloudlet(Cloudlet cloudlet) {
 		getCloudletReceivedList().add(cloudlet);
 		Log.printLine(CloudSim.clock() + ": " + getName() + ": Cloudlet " + cloudlet.getCloudletId()
 				+ " received");
 		cloudletsSubmitted--;
+	}
+
+	/**
+	 * Finishes the execution once all the cloudlets have been returned, or submits the cloudlets
+	 * waiting for their VMs once the submitted ones have been returned.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	protected void checkCloudletsReturned() {
 		if (getCloudletList().size() == 0 && cloudletsSubmitted == 0) { // all cloudlets executed
 			Log.printLine(CloudSim.clock() + ": " + getName() + ": All Cloudlets executed. Finishing...");
 			clearDatacenters();
@@ -340,6 +392,8 @@ public class DatacenterBroker extends SimEntity {
 	 */
 	protected void submitCloudlets() {
 		int vmIndex = 0;
+		Map<Integer, List<Cloudlet>> bulks = new LinkedHashMap<Integer, List<Cloudlet>>();
+		Set<Cloudlet> submitted = Collections.newSetFromMap(new IdentityHashMap<Cloudlet, Boolean>());
 		for (Cloudlet cloudlet : getCloudletList()) {
 			Vm vm;
 			// if user didn't bind this cloudlet and it has not been executed yet
@@ -357,16 +411,29 @@ public class DatacenterBroker extends SimEntity {
 			Log.printLine(CloudSim.clock() + ": " + getName() + ": Sending cloudlet "
 					+ cloudlet.getCloudletId() + " to VM #" + vm.getId());
 			cloudlet.setVmId(vm.getId());
-			sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+			int datacenterId = getVmsToDatacentersMap().get(vm.getId());
+			if (isBulkSubmission()) {
+				List<Cloudlet> bulk = bulks.get(datacenterId);
+				if (bulk == null) {
+					bulk = new ArrayList<Cloudlet>();
+					bulks.put(datacenterId, bulk);
+				}
+				bulk.add(cloudlet);
+			} else {
+				sendNow(datacenterId, CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+			}
 			cloudletsSubmitted++;
 			vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
 			getCloudletSubmittedList().add(cloudlet);
+			submitted.add(cloudlet);
 		}
 
-		// remove submitted cloudlets from waiting list
-		for (Cloudlet cloudlet : getCloudletSubmittedList()) {
-			getCloudletList().remove(cloudlet);
+		for (Map.Entry<Integer, List<Cloudlet>> bulk : bulks.entrySet()) {
+			sendNow(bulk.getKey(), CloudSimTags.CLOUDLET_SUBMIT_BULK, bulk.getValue());
 		}
+
+		// remove submitted cloudlets from waiting list
+		getCloudletList().removeAll(submitted);
 	}
 
 	/**
@@ -652,4 +719,27 @@ public class DatacenterBroker extends SimEntity {
 		this.datacenterRequestedIdsList = datacenterRequestedIdsList;
 	}
 
+	/**
+	 * Checks whether the cloudlets are submitted in bulk.
+	 * 
+	 * @return true, if the cloudlets are submitted in bulk
+	 */
+	public boolean isBulkSubmission() {
+		return bulkSubmission;
+	}
+
+	/**
+	 * Sets whether the cloudlets are submitted in bulk, in one event per datacenter rather than
+	 * one per cloudlet, so that each datacenter updates the processing of its cloudlets once for
+	 * all of them. The datacenters then return the finished cloudlets in bulk too, in one event
+	 * per simulation time.
+	 * 
+	 * @param bulkSubmission true to submit the cloudlets in bulk
+	 * @see CloudSimTags#CLOUDLET_SUBMIT_BULK
+	 * @see CloudSimTags#CLOUDLET_RETURN_BULK
+	 */
+	public void setBulkSubmission(boolean bulkSubmission) {
+		this.bulkSubmission = bulkSubmission;
+	}
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.core.TaskContext;
+
+/**
+ * The cloudlet schedulers of the VMs of a datacenter which have finished cloudlets not returned
+ * yet, in the order in which their first finished cloudlet was notified. The schedulers notify the
+ * queue from {@link CloudletScheduler#cloudletFinish(ResCloudlet)}, so that the datacenter only
+ * looks at the schedulers with finished cloudlets, rather than at all the VMs of all its hosts.
+ * <p>
+ * A scheduler notifying the queue from a {@link TaskContext}, while its host is updated in
+ * parallel with other hosts, is only added when the context is flushed, so that the order of the
+ * queue is the order of the sequential updates.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see Datacenter#checkCloudletCompletion()
+ */
+class FinishedCloudletQueue implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The schedulers with finished cloudlets. */
+	private List<CloudletScheduler> schedulers = new ArrayList<CloudletScheduler>();
+
+	/** The list the schedulers are moved to when they are taken, reused by the next take. */
+	private List<CloudletScheduler> taken = new ArrayList<CloudletScheduler>();
+
+	/**
+	 * Adds a scheduler which has finished a cloudlet, unless it is already in the queue.
+	 *
+	 * @param scheduler the scheduler
+	 */
+	void add(final CloudletScheduler scheduler) {
+		SimulationContext c = SimulationContext.current();
+		if (c instanceof TaskContext) {
+			((TaskContext) c).defer(new Runnable() {
+
+				@Override
+				public void run() {
+					enqueue(scheduler);
+				}
+			});
+		} else {
+			enqueue(scheduler);
+		}
+	}
+
+	/**
+	 * Checks whether the queue is empty.
+	 *
+	 * @return true, if no scheduler has been notified since the last take
+	 */
+	boolean isEmpty() {
+		return schedulers.isEmpty();
+	}
+
+	/**
+	 * Takes all the schedulers of the queue. The returned list is only valid until the next take.
+	 *
+	 * @return the schedulers, in the order of their notifications
+	 */
+	List<CloudletScheduler> take() {
+		List<CloudletScheduler> result = schedulers;
+		schedulers = taken;
+		taken = result;
+		schedulers.clear();
+		for (int i = 0; i < result.size(); i++) {
+			result.get(i).setFinishedCloudletQueued(false);
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a scheduler, unless it is already in the queue.
+	 *
+	 * @param scheduler the scheduler
+	 */
+	private void enqueue(CloudletScheduler scheduler) {
+		if (!scheduler.isFinishedCloudletQueued()) {
+			scheduler.setFinishedCloudletQueued(true);
+			schedulers.add(scheduler);
+		}
+	}
+
+}
@@ -7,6 +7,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,7 +27,10 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class Host {
+public class Host implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The id. */
 	private int id;
@@ -126,6 +130,40 @@ public class Host {
 		return smallerTime;
 	}
 
+	/**
+	 * Requests updating of processing of cloudlets in one of the VMs running in this host, the
+	 * other VMs being updated later, e.g. before the cloudlets of that VM change.
+	 * 
+	 * @param vm the VM
+	 * @param currentTime the current time
+	 * @return expected time of completion of the next cloudlet in the VM. Double.MAX_VALUE if
+	 *         there is no future events expected in the VM
+	 * @pre vm != null
+	 * @pre currentTime >= 0.0
+	 * @post $none
+	 * @see #isVmProcessingIndependent()
+	 */
+	public double updateVmProcessing(Vm vm, double currentTime) {
+		VmScheduler scheduler = getVmScheduler();
+		double time = vm.updateVmProcessing(currentTime, scheduler.getAllocatedMipsForVm(vm), scheduler.getAllocatedIopsForVm(vm));
+		if (time > 0.0) {
+			return time;
+		}
+		return Double.MAX_VALUE;
+	}
+
+	/**
+	 * Checks whether the processing of each VM can be updated on its own, with
+	 * {@link #updateVmProcessing(Vm, double)}, which is the case when the update of the host does
+	 * nothing but update each VM with its allocated share. The hosts which reallocate the shares of
+	 * the VMs or do other work on update return false.
+	 * 
+	 * @return true, if the VMs can be updated one at a time
+	 */
+	public boolean isVmProcessingIndependent() {
+		return true;
+	}
+
 /*	public double getIopsAllocatedToEachVm() {
 		double iops = Math.round((((double) ioProvisioner.getIoBw())/(getVmList().size())));
 		//System.out.println("iops = " + iops);
@@ -274,6 +312,9 @@ public class Host {
 		setStorage(getStorage() - vm.getSize());
 		getVmList().add(vm);
 		vm.setHost(this);
+		if (getDatacenter() != null) {
+			getDatacenter().registerCloudletScheduler(vm.getCloudletScheduler());
+		}
 		return true;
 	}
 
@@ -0,0 +1,278 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hosts of a datacenter ordered by the time at which the processing of their VMs is next due,
+ * i.e. the expected completion time of their next cloudlet. The datacenter only updates the hosts
+ * which are due, and those whose VMs or cloudlets have changed, which are made due at once, so
+ * that an update costs O(log n) per updated host rather than O(n) for n hosts. The queue also keeps
+ * the hosts updated since the datacenter last looked for finished cloudlets.
+ * <p>
+ * The requests of the users on the cloudlets of a VM only update that VM, and make its host due
+ * earlier if the VM needs it, so that the other VMs progress lazily until their hosts are due.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see Datacenter#setIncrementalProcessing(boolean)
+ */
+class HostDueQueue {
+
+	/** The hosts. */
+	private final List<? extends Host> hosts;
+
+	/** The positions of the hosts in the host list. */
+	private final Map<Host, Integer> indices;
+
+	/** The due times of the hosts, indexed by position in the host list. */
+	private final double[] dueTimes;
+
+	/** The times of the last updates of the hosts, indexed by position in the host list. */
+	private final double[] updateTimes;
+
+	/** The binary heap of the positions of the hosts, ordered by due time. */
+	private final int[] heap;
+
+	/** The positions in the heap, indexed by position in the host list. */
+	private final int[] heapIndices;
+
+	/** The positions of the hosts taken from the heap by an update. */
+	private final int[] dueHosts;
+
+	/** Whether the hosts have been updated since the last call to {@link #clearUpdatedHosts()}. */
+	private final boolean[] updated;
+
+	/** The hosts updated since the last call to {@link #clearUpdatedHosts()}. */
+	private final List<Host> updatedHosts = new ArrayList<Host>();
+
+	/**
+	 * Instantiates a new queue in which all the hosts are due.
+	 *
+	 * @param hosts the hosts
+	 */
+	HostDueQueue(List<? extends Host> hosts) {
+		this.hosts = hosts;
+		int size = hosts.size();
+		indices = new IdentityHashMap<Host, Integer>(size);
+		dueTimes = new double[size];
+		updateTimes = new double[size];
+		heap = new int[size];
+		heapIndices = new int[size];
+		dueHosts = new int[size];
+		updated = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			indices.put(hosts.get(i), i);
+			updateTimes[i] = -1;
+			heap[i] = i;
+			heapIndices[i] = i;
+		}
+	}
+
+	/**
+	 * Checks whether the queue orders a host list.
+	 *
+	 * @param hosts the host list
+	 * @return true, if the queue was created for that list and the list has not changed in size
+	 */
+	boolean covers(List<? extends Host> hosts) {
+		return this.hosts == hosts && heap.length == hosts.size();
+	}
+
+	/**
+	 * Updates the processing of the hosts which are due at a given time.
+	 *
+	 * @param currentTime the current time
+	 * @return the earliest due time of the hosts, or Double.MAX_VALUE if no host expects a future
+	 *         event
+	 */
+	double update(double currentTime) {
+		// take all the due hosts first, so that a host is updated once even if it stays due
+		int count = 0;
+		while (heap.length > 0 && dueTimes[heap[0]] <= currentTime) {
+			dueHosts[count++] = heap[0];
+			setDueTime(heap[0], Double.MAX_VALUE);
+		}
+		for (int i = 0; i < count; i++) {
+			int index = dueHosts[i];
+			setDueTime(index, updateHost(index, currentTime));
+		}
+		return heap.length == 0 ? Double.MAX_VALUE : dueTimes[heap[0]];
+	}
+
+	/**
+	 * Updates the processing of a host before its VMs or cloudlets change, unless it has already
+	 * been updated at the given time, and makes it due so that its due time is computed again by
+	 * the next update.
+	 *
+	 * @param host the host
+	 * @param currentTime the current time
+	 */
+	void touch(Host host, double currentTime) {
+		Integer index = indices.get(host);
+		if (index == null) {
+			return;
+		}
+		int i = index.intValue();
+		if (updateTimes[i] < currentTime) {
+			updateHost(i, currentTime);
+		}
+		setDueTime(i, currentTime);
+	}
+
+	/**
+	 * Updates the processing of a single VM of a host before or after its cloudlets change, and
+	 * makes the host due when the next cloudlet of the VM is expected to finish, if that is
+	 * earlier than its due time. The other VMs of the host are updated when the host is next due.
+	 * If the VMs of the host cannot be updated one at a time, the host is touched instead, and is
+	 * due at the current time.
+	 *
+	 * @param host the host
+	 * @param vm the VM
+	 * @param currentTime the current time
+	 * @return the new due time of the host if it is now due earlier, or Double.MAX_VALUE
+	 * @see Host#isVmProcessingIndependent()
+	 */
+	double touchVm(Host host, Vm vm, double currentTime) {
+		Integer index = indices.get(host);
+		if (index == null) {
+			return Double.MAX_VALUE;
+		}
+		int i = index.intValue();
+		if (!host.isVmProcessingIndependent()) {
+			touch(host, currentTime);
+			return currentTime;
+		}
+		double time = host.updateVmProcessing(vm, currentTime);
+		markUpdated(i);
+		if (time < dueTimes[i]) {
+			setDueTime(i, time);
+			return time;
+		}
+		return Double.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the hosts updated since the last call to {@link #clearUpdatedHosts()}, which are the
+	 * only ones which may have finished cloudlets.
+	 *
+	 * @return the updated hosts
+	 */
+	List<Host> getUpdatedHosts() {
+		return updatedHosts;
+	}
+
+	/**
+	 * Forgets the hosts updated so far.
+	 */
+	void clearUpdatedHosts() {
+		for (Host host : updatedHosts) {
+			updated[indices.get(host).intValue()] = false;
+		}
+		updatedHosts.clear();
+	}
+
+	/**
+	 * Updates the processing of a host.
+	 *
+	 * @param index the position of the host in the host list
+	 * @param currentTime the current time
+	 * @return the expected completion time of the next cloudlet of the host
+	 */
+	private double updateHost(int index, double currentTime) {
+		Host host = hosts.get(index);
+		double time = host.updateVmsProcessing(currentTime);
+		updateTimes[index] = currentTime;
+		markUpdated(index);
+		return time;
+	}
+
+	/**
+	 * Adds a host to the hosts updated since the last call to {@link #clearUpdatedHosts()}.
+	 *
+	 * @param index the position of the host in the host list
+	 */
+	private void markUpdated(int index) {
+		if (!updated[index]) {
+			updated[index] = true;
+			updatedHosts.add(hosts.get(index));
+		}
+	}
+
+	/**
+	 * Sets the due time of a host and restores the order of the heap.
+	 *
+	 * @param index the position of the host in the host list
+	 * @param time the due time
+	 */
+	private void setDueTime(int index, double time) {
+		double previous = dueTimes[index];
+		dueTimes[index] = time;
+		if (time < previous) {
+			siftUp(heapIndices[index]);
+		} else if (time > previous) {
+			siftDown(heapIndices[index]);
+		}
+	}
+
+	/**
+	 * Moves a heap entry up until its parent is not due later.
+	 *
+	 * @param position the position of the entry in the heap
+	 */
+	private void siftUp(int position) {
+		int index = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (dueTimes[heap[parent]] <= dueTimes[index]) {
+				break;
+			}
+			place(heap[parent], position);
+			position = parent;
+		}
+		place(index, position);
+	}
+
+	/**
+	 * Moves a heap entry down until its children are not due earlier.
+	 *
+	 * @param position the position of the entry in the heap
+	 */
+	private void siftDown(int position) {
+		int index = heap[position];
+		int half = heap.length >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			if (child + 1 < heap.length && dueTimes[heap[child + 1]] < dueTimes[heap[child]]) {
+				child++;
+			}
+			if (dueTimes[index] <= dueTimes[heap[child]]) {
+				break;
+			}
+			place(heap[child], position);
+			position = child;
+		}
+		place(index, position);
+	}
+
+	/**
+	 * Puts a host at a position of the heap.
+	 *
+	 * @param index the position of the host in the host list
+	 * @param position the position in the heap
+	 */
+	private void place(int index, int position) {
+		heap[position] = index;
+		heapIndices[index] = position;
+	}
+
+}
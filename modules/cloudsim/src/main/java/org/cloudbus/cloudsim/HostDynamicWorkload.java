@@ -26,6 +26,9 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  */
 public class HostDynamicWorkload extends Host {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The utilization mips. */
 	private double utilizationMips;
 
@@ -57,6 +60,16 @@ public class HostDynamicWorkload extends Host {
 		setPreviousUtilizationMips(0);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#isVmProcessingIndependent()
+	 */
+	@Override
+	public boolean isVmProcessingIndependent() {
+		// the MIPS of all the VMs are allocated again at each update
+		return false;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see cloudsim.Host#updateVmsProcessing(double)
@@ -26,6 +26,9 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  */
 public class HostDynamicWorkloadIops extends HostDynamicWorkload {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The utilization mips. */
 	private double utilizationMips;
 
@@ -105,6 +108,9 @@ public class HostDynamicWorkloadIops extends HostDynamicWorkload {
 		((CloudletSchedulerDynamicWorkloadIops) vm.getCloudletScheduler()).setHostId(this.getId());
 		getVmList().add(vm);
 		vm.setHost(this);
+		if (getDatacenter() != null) {
+			getDatacenter().registerCloudletScheduler(vm.getCloudletScheduler());
+		}
 		return true;
 	}
 
@@ -14,9 +14,15 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.File;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 /**
  * The Log class used for performing loggin of the simulation process. It provides the ability to
  * substitute the output stream by any OutputStream subclass.
+ * <p>
+ * The log settings belong to the {@link SimulationContext} of the current thread. A context
+ * starts with the settings of its parent context or else of the default context, so that the
+ * settings made before the simulations are started apply to all of them.
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
@@ -26,13 +32,9 @@ public class Log {
 	/** The Constant LINE_SEPARATOR. */
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-	/** The output. */
-	private static OutputStream output;
-	private static OutputStream vmUtilizationOutput;
+	/** The key of the log state in the simulation contexts. */
+	private static final Object STATE_KEY = new Object();
 
-	/** The disable output flag. */
-	private static boolean disabled;
-	
 	private static String vmUtilHeader = "Time, Host Id, Vm Id, Cloudlet Id, Remaining Iops, Iops Util, Remaining Mips, Mips Util";
 
 	/**
@@ -122,7 +124,7 @@ public class Log {
 	 * @param _output the new output
 	 */
 	public static void setOutput(OutputStream _output) {
-		output = _output;
+		getState().output = _output;
 	}
 
 	/**
@@ -131,10 +133,11 @@ public class Log {
 	 * @return the output
 	 */
 	public static OutputStream getOutput() {
-		if (output == null) {
-			setOutput(System.out);
+		State state = getState();
+		if (state.output == null) {
+			state.output = SimulationContext.current().adaptOutput(System.out);
 		}
-		return output;
+		return state.output;
 	}
 
 	/**
@@ -143,7 +146,7 @@ public class Log {
 	 * @param _disabled the new disabled
 	 */
 	public static void setDisabled(boolean _disabled) {
-		disabled = _disabled;
+		getState().disabled = _disabled;
 	}
 
 	/**
@@ -152,7 +155,7 @@ public class Log {
 	 * @return true, if is disable
 	 */
 	public static boolean isDisabled() {
-		return disabled;
+		return getState().disabled;
 	}
 
 	/**
@@ -259,7 +262,7 @@ public class Log {
 	 * @param _output the new output
 	 */
 	public static void setVmUtilOutput(OutputStream _output) {
-		vmUtilizationOutput = _output;
+		getState().vmUtilizationOutput = _output;
 		vmUtilPrintLine(vmUtilHeader);
 	}
 	
@@ -294,7 +297,7 @@ public class Log {
 	 * @return the output
 	 */
 	public static OutputStream getVmUtilOutput() {
-		if (vmUtilizationOutput == null) {
+		if (getState().vmUtilizationOutput == null) {
 			FileOutputStream out;
 			PrintStream ps;
 			File file = null;
@@ -312,7 +315,69 @@ public class Log {
 			}
 			System.err.println("VM utilization LOG: " + file.getAbsolutePath());
 		}
-		return vmUtilizationOutput;
+		return getState().vmUtilizationOutput;
+	}
+
+	/**
+	 * Gets the log state of the current simulation context, creating it if necessary.
+	 * 
+	 * @return the log state
+	 */
+	private static State getState() {
+		SimulationContext context = SimulationContext.current();
+		State state = (State) context.getLocalAttribute(STATE_KEY);
+		if (state == null) {
+			state = new State();
+			State template = getTemplate(context);
+			if (template != null) {
+				if (template.output != null) {
+					state.output = context.adaptOutput(template.output);
+				}
+				if (template.vmUtilizationOutput != null) {
+					state.vmUtilizationOutput = context.adaptOutput(template.vmUtilizationOutput);
+				}
+				state.disabled = template.disabled;
+			}
+			context.setAttribute(STATE_KEY, state);
+		}
+		return state;
+	}
+
+	/**
+	 * Gets the log state whose settings a context starts with: the state of its closest ancestor
+	 * having one or else the state of the default context.
+	 * 
+	 * @param context the context
+	 * @return the log state or <tt>null</tt> if there is none
+	 */
+	private static State getTemplate(SimulationContext context) {
+		for (SimulationContext ancestor = context.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			State state = (State) ancestor.getLocalAttribute(STATE_KEY);
+			if (state != null) {
+				return state;
+			}
+		}
+		SimulationContext defaultContext = SimulationContext.getDefault();
+		if (context == defaultContext) {
+			return null;
+		}
+		return (State) defaultContext.getLocalAttribute(STATE_KEY);
+	}
+
+	/**
+	 * The log settings of a simulation context.
+	 */
+	private static class State {
+
+		/** The output. */
+		private OutputStream output;
+
+		/** The VM utilization output. */
+		private OutputStream vmUtilizationOutput;
+
+		/** The disable output flag. */
+		private boolean disabled;
+
 	}
 
 
@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
@@ -29,6 +30,8 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * The topology belongs to the {@link SimulationContext} of the current thread.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,17 +39,8 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
-	protected static int nextIdx = 0;
-
-	private static boolean networkEnabled = false;
-
-	protected static DelayMatrix_Float delayMatrix = null;
-
-	protected static double[][] bwMatrix = null;
-
-	protected static TopologicalGraph graph = null;
-
-	protected static Map<Integer, Integer> map = null;
+	/** The key of the topology in the simulation contexts. */
+	private static final Object STATE_KEY = new Object();
 
 	/**
 	 * Creates the network topology if file exists and if file can be succesfully parsed. File is
@@ -57,14 +51,15 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void buildNetworkTopology(String fileName) {
+		State state = getState();
 		Log.printLine("Topology file: " + fileName);
 
 		// try to find the file
 		GraphReaderBrite reader = new GraphReaderBrite();
 
 		try {
-			graph = reader.readGraphFile(fileName);
-			map = new HashMap<Integer, Integer>();
+			state.graph = reader.readGraphFile(fileName);
+			state.map = new HashMap<Integer, Integer>();
 			generateMatrices();
 		} catch (IOException e) {
 			// problem with the file. Does not simulate network
@@ -78,13 +73,14 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth between elements
 	 */
 	private static void generateMatrices() {
+		State state = getState();
 		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
+		state.delayMatrix = new DelayMatrix_Float(state.graph, false);
 
 		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		state.bwMatrix = createBwMatrix(state.graph, false);
 
-		networkEnabled = true;
+		state.networkEnabled = true;
 	}
 
 	/**
@@ -99,30 +95,31 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
+		State state = getState();
 
-		if (graph == null) {
-			graph = new TopologicalGraph();
+		if (state.graph == null) {
+			state.graph = new TopologicalGraph();
 		}
 
-		if (map == null) {
-			map = new HashMap<Integer, Integer>();
+		if (state.map == null) {
+			state.map = new HashMap<Integer, Integer>();
 		}
 
 		// maybe add the nodes
-		if (!map.containsKey(srcId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(srcId, nextIdx);
-			nextIdx++;
+		if (!state.map.containsKey(srcId)) {
+			state.graph.addNode(new TopologicalNode(state.nextIdx));
+			state.map.put(srcId, state.nextIdx);
+			state.nextIdx++;
 		}
 
-		if (!map.containsKey(destId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(destId, nextIdx);
-			nextIdx++;
+		if (!state.map.containsKey(destId)) {
+			state.graph.addNode(new TopologicalNode(state.nextIdx));
+			state.map.put(destId, state.nextIdx);
+			state.nextIdx++;
 		}
 
 		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+		state.graph.addLink(new TopologicalLink(state.map.get(srcId), state.map.get(destId), (float) lat, (float) bw));
 
 		generateMatrices();
 
@@ -171,12 +168,13 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
-		if (networkEnabled) {
+		State state = getState();
+		if (state.networkEnabled) {
 			try {
 				// this CloudSim entity was already mapped?
-				if (!map.containsKey(cloudSimEntityID)) {
-					if (!map.containsValue(briteID)) { // this BRITE node was already mapped?
-						map.put(cloudSimEntityID, briteID);
+				if (!state.map.containsKey(cloudSimEntityID)) {
+					if (!state.map.containsValue(briteID)) { // this BRITE node was already mapped?
+						state.map.put(cloudSimEntityID, briteID);
 					} else {
 						Log.printLine("Error in network mapping. BRITE node " + briteID + " already in use.");
 					}
@@ -199,9 +197,10 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
-		if (networkEnabled) {
+		State state = getState();
+		if (state.networkEnabled) {
 			try {
-				map.remove(cloudSimEntityID);
+				state.map.remove(cloudSimEntityID);
 			} catch (Exception e) {
 				Log.printLine("Error in network unmapping. CloudSim node: " + cloudSimEntityID);
 			}
@@ -219,10 +218,11 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
-		if (networkEnabled) {
+		State state = getState();
+		if (state.networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = state.delayMatrix.getDelay(state.map.get(srcID), state.map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -242,7 +242,41 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return getState().networkEnabled;
+	}
+
+	/**
+	 * Gets the topology of the current simulation context, creating it if necessary.
+	 * 
+	 * @return the topology state
+	 */
+	private static State getState() {
+		SimulationContext context = SimulationContext.current();
+		State state = (State) context.getAttribute(STATE_KEY);
+		if (state == null) {
+			state = new State();
+			context.setAttribute(STATE_KEY, state);
+		}
+		return state;
+	}
+
+	/**
+	 * The network topology of a simulation context.
+	 */
+	private static class State {
+
+		private int nextIdx = 0;
+
+		private boolean networkEnabled = false;
+
+		private DelayMatrix_Float delayMatrix = null;
+
+		private double[][] bwMatrix = null;
+
+		private TopologicalGraph graph = null;
+
+		private Map<Integer, Integer> map = null;
+
 	}
 
 }
@@ -9,6 +9,10 @@ import java.util.Map;
 import java.util.Random;
 
 public class UtilizationIops implements UtilizationModel {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	private UtilizationModel model;
 	private Double a;
 	private Double b;
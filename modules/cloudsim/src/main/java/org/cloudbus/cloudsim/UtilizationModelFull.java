@@ -17,6 +17,9 @@ package org.cloudbus.cloudsim;
  */
 public class UtilizationModelFull implements UtilizationModel {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	double util = 1.0;
 	
 	public UtilizationModelFull(double util){
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
@@ -20,7 +21,10 @@ import java.util.Map;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class VmAllocationPolicy {
+public abstract class VmAllocationPolicy implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The host list. */
 	private List<? extends Host> hostList;
@@ -57,6 +61,23 @@ public abstract class VmAllocationPolicy {
 	 */
 	public abstract boolean allocateHostForVm(Vm vm, Host host);
 
+	/**
+	 * Finds the host {@link #allocateHostForVm(Vm)} would allocate to a given VM, without
+	 * allocating it, so that the datacenter can update the processing of the host before the VM
+	 * changes it. A policy overriding this method has to choose the same host as
+	 * {@link #allocateHostForVm(Vm)}, i.e. <tt>allocateHostForVm(vm, findHostForVm(vm))</tt>
+	 * has to be equivalent to <tt>allocateHostForVm(vm)</tt>.
+	 * 
+	 * @param vm the vm
+	 * @return the host, or $null if no host is suitable or if the policy cannot tell it in advance,
+	 *         which is the default
+	 * @pre $none
+	 * @post $none
+	 */
+	public Host findHostForVm(Vm vm) {
+		return null;
+	}
+
 	/**
 	 * Optimize allocation of the VMs according to current utilization.
 	 * 
@@ -97,6 +118,20 @@ public abstract class VmAllocationPolicy {
 	 */
 	public abstract Host getHost(int vmId, int userId);
 
+	/**
+	 * Takes over the current placement of the VMs on the hosts of this policy, as found in the VM
+	 * lists of the hosts, so that this policy can replace another one while the simulation runs,
+	 * e.g. in a simulation restored from a {@link org.cloudbus.cloudsim.core.SimulationCheckpoint}.
+	 * 
+	 * @throws UnsupportedOperationException if the policy cannot take over a placement
+	 * @see Datacenter#replaceVmAllocationPolicy(VmAllocationPolicy)
+	 * @pre $none
+	 * @post $none
+	 */
+	public void adoptAllocation() {
+		throw new UnsupportedOperationException(getClass().getName() + " cannot take over a VM placement.");
+	}
+
 	/**
 	 * Sets the host list.
 	 * 
@@ -25,6 +25,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class VmAllocationPolicySimple extends VmAllocationPolicy {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The vm table. */
 	private Map<String, Host> vmTable;
 
@@ -150,6 +153,26 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 		return getVmTable().get(Vm.getUid(userId, vmId));
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.VmAllocationPolicy#adoptAllocation()
+	 */
+	@Override
+	public void adoptAllocation() {
+		getVmTable().clear();
+		getUsedPes().clear();
+		for (int i = 0; i < getHostList().size(); i++) {
+			Host host = getHostList().get(i);
+			int freePes = host.getNumberOfPes();
+			for (Vm vm : host.<Vm> getVmList()) {
+				getVmTable().put(vm.getUid(), host);
+				getUsedPes().put(vm.getUid(), vm.getNumberOfPes());
+				freePes -= vm.getNumberOfPes();
+			}
+			getFreePes().set(i, freePes);
+		}
+	}
+
 	/**
 	 * Gets the vm table.
 	 * 
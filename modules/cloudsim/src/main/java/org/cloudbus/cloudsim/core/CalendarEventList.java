@@ -0,0 +1,473 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * An event list implemented as a calendar queue (R. Brown, "Calendar Queues: A Fast O(1) Priority
+ * Queue Implementation for the Simulation Event Set Problem", CACM 31(10), 1988). Events are
+ * hashed by time into an array of buckets ("days") of a fixed width; each bucket keeps its events
+ * in a sorted singly linked list threaded through the events themselves, so no extra node is
+ * allocated per event. The number of buckets doubles or halves with the number of events, and the
+ * bucket width is recomputed from the separation of the first events at each resize. Insertion and
+ * removal of the first event cost O(1) amortized for well-behaved event time distributions.
+ * <p>
+ * The events are kept in the order defined by {@link SimEvent#compareTo(SimEvent)}, so a simulation
+ * produces exactly the same results as with the {@link TreeSetEventList}.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see EventList
+ * @see FutureQueue
+ */
+public class CalendarEventList implements EventList {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The minimum number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of events sampled to compute the bucket width. */
+	private static final int WIDTH_SAMPLE_SIZE = 25;
+
+	/** The heads of the bucket lists. */
+	private transient SimEvent[] buckets;
+
+	/** The mask used to map a virtual bucket to a bucket index (number of buckets - 1). */
+	private int mask;
+
+	/** The width of a bucket. */
+	private double width;
+
+	/** A virtual bucket number not greater than the virtual bucket of the first event. */
+	private long currentBucket;
+
+	/** The number of events. */
+	private int size;
+
+	/**
+	 * Instantiates a new calendar event list with the default bucket width of 1.0.
+	 */
+	public CalendarEventList() {
+		this(1.0);
+	}
+
+	/**
+	 * Instantiates a new calendar event list.
+	 *
+	 * @param width the initial bucket width; it is adjusted to the event time distribution as the
+	 *            list grows and shrinks
+	 */
+	public CalendarEventList(double width) {
+		if (width <= 0 || Double.isInfinite(width) || Double.isNaN(width)) {
+			throw new IllegalArgumentException("The bucket width has to be positive.");
+		}
+		this.width = width;
+		setBuckets(new SimEvent[MIN_BUCKETS]);
+		currentBucket = Long.MAX_VALUE;
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		long virtualBucket = getVirtualBucket(event.eventTime());
+		insert(event, virtualBucket);
+		size++;
+		if (virtualBucket < currentBucket) {
+			currentBucket = virtualBucket;
+		}
+		if (size > 2 * buckets.length) {
+			resize(buckets.length * 2);
+		}
+	}
+
+	@Override
+	public SimEvent first() {
+		return findFirst();
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		SimEvent first = findFirst();
+		if (first == null) {
+			return null;
+		}
+		int index = (int) (currentBucket & mask);
+		buckets[index] = first.nextInBucket;
+		first.nextInBucket = null;
+		removed();
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int index = (int) (getVirtualBucket(event.eventTime()) & mask);
+		SimEvent previous = null;
+		SimEvent current = buckets[index];
+		while (current != null && current != event) {
+			previous = current;
+			current = current.nextInBucket;
+		}
+		if (current == null) {
+			return false;
+		}
+		unlink(index, previous, current);
+		removed();
+		return true;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new OrderedIterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < buckets.length; i++) {
+			SimEvent event = buckets[i];
+			while (event != null) {
+				SimEvent next = event.nextInBucket;
+				event.nextInBucket = null;
+				event = next;
+			}
+		}
+		setBuckets(new SimEvent[MIN_BUCKETS]);
+		currentBucket = Long.MAX_VALUE;
+		size = 0;
+	}
+
+	/**
+	 * Gets the current bucket width.
+	 *
+	 * @return the bucket width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the current number of buckets.
+	 *
+	 * @return the number of buckets
+	 */
+	public int getNumberOfBuckets() {
+		return buckets.length;
+	}
+
+	/**
+	 * Gets the virtual bucket of a given time, i.e. the index the bucket would have if the calendar
+	 * had an unlimited number of buckets.
+	 *
+	 * @param time the time
+	 * @return the virtual bucket
+	 */
+	private long getVirtualBucket(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Finds the first event and moves the current bucket to it.
+	 *
+	 * @return the first event or <tt>null</tt> if the list is empty
+	 */
+	private SimEvent findFirst() {
+		if (size == 0) {
+			return null;
+		}
+
+		// scan one year of buckets starting from the current one
+		long virtualBucket = currentBucket;
+		for (int i = 0; i < buckets.length; i++, virtualBucket++) {
+			SimEvent head = buckets[(int) (virtualBucket & mask)];
+			if (head != null && getVirtualBucket(head.eventTime()) == virtualBucket) {
+				currentBucket = virtualBucket;
+				return head;
+			}
+		}
+
+		// no event in the next year: direct search of the earliest head
+		SimEvent first = null;
+		for (SimEvent head : buckets) {
+			if (head != null && (first == null || head.compareTo(first) < 0)) {
+				first = head;
+			}
+		}
+		currentBucket = getVirtualBucket(first.eventTime());
+		return first;
+	}
+
+	/**
+	 * Inserts an event in its bucket after all the events that precede or are equal to it.
+	 *
+	 * @param event the event
+	 * @param virtualBucket the virtual bucket of the event
+	 */
+	private void insert(SimEvent event, long virtualBucket) {
+		int index = (int) (virtualBucket & mask);
+		SimEvent previous = null;
+		SimEvent current = buckets[index];
+		while (current != null && event.compareTo(current) > 0) {
+			previous = current;
+			current = current.nextInBucket;
+		}
+		event.nextInBucket = current;
+		if (previous == null) {
+			buckets[index] = event;
+		} else {
+			previous.nextInBucket = event;
+		}
+	}
+
+	/**
+	 * Unlinks an event from a bucket.
+	 *
+	 * @param index the bucket index
+	 * @param previous the event preceding the unlinked one, or <tt>null</tt> if it is the head
+	 * @param event the event
+	 */
+	private void unlink(int index, SimEvent previous, SimEvent event) {
+		if (previous == null) {
+			buckets[index] = event.nextInBucket;
+		} else {
+			previous.nextInBucket = event.nextInBucket;
+		}
+		event.nextInBucket = null;
+	}
+
+	/**
+	 * Updates the size after an event has been removed, shrinking the calendar if necessary.
+	 */
+	private void removed() {
+		size--;
+		if (buckets.length > MIN_BUCKETS && size < buckets.length / 2 - 2) {
+			resize(buckets.length / 2);
+		}
+	}
+
+	/**
+	 * Resizes the calendar and recomputes the bucket width.
+	 *
+	 * @param numberOfBuckets the new number of buckets
+	 */
+	private void resize(int numberOfBuckets) {
+		SimEvent first = findFirst();
+		double newWidth = computeWidth();
+
+		SimEvent[] oldBuckets = buckets;
+		width = newWidth;
+		setBuckets(new SimEvent[numberOfBuckets]);
+		for (SimEvent head : oldBuckets) {
+			// events of equal order are reinserted in their original relative order
+			SimEvent event = head;
+			while (event != null) {
+				SimEvent next = event.nextInBucket;
+				insert(event, getVirtualBucket(event.eventTime()));
+				event = next;
+			}
+		}
+		currentBucket = first == null ? Long.MAX_VALUE : getVirtualBucket(first.eventTime());
+	}
+
+	/**
+	 * Computes a bucket width from the average separation of the first events, ignoring the
+	 * separations bigger than twice the average.
+	 *
+	 * @return the bucket width
+	 */
+	private double computeWidth() {
+		int samples = Math.min(size, WIDTH_SAMPLE_SIZE);
+		if (samples < 2) {
+			return width;
+		}
+
+		double[] times = new double[samples];
+		Iterator<SimEvent> iterator = iterator();
+		for (int i = 0; i < samples; i++) {
+			times[i] = iterator.next().eventTime();
+		}
+
+		double average = (times[samples - 1] - times[0]) / (samples - 1);
+		double total = 0;
+		int count = 0;
+		for (int i = 1; i < samples; i++) {
+			double separation = times[i] - times[i - 1];
+			if (separation <= 2 * average) {
+				total += separation;
+				count++;
+			}
+		}
+
+		double newWidth = count == 0 ? 0 : 3 * total / count;
+		if (newWidth <= 0 || Double.isInfinite(newWidth) || Double.isNaN(newWidth)) {
+			return width;
+		}
+		return newWidth;
+	}
+
+	/**
+	 * Sets the buckets.
+	 *
+	 * @param buckets the new buckets; the length must be a power of two
+	 */
+	private void setBuckets(SimEvent[] buckets) {
+		this.buckets = buckets;
+		mask = buckets.length - 1;
+	}
+
+	/**
+	 * Writes the list, with the events of each bucket in order rather than linked.
+	 *
+	 * @param out the output stream
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(buckets.length);
+		for (SimEvent head : buckets) {
+			for (SimEvent event = head; event != null; event = event.nextInBucket) {
+				out.writeObject(event);
+			}
+			out.writeObject(null);
+		}
+	}
+
+	/**
+	 * Reads the list written by {@link #writeObject(ObjectOutputStream)} and links the events of
+	 * each bucket again.
+	 *
+	 * @param in the input stream
+	 * @throws IOException if an I/O error occurs
+	 * @throws ClassNotFoundException if the class of an event cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		setBuckets(new SimEvent[in.readInt()]);
+		for (int i = 0; i < buckets.length; i++) {
+			SimEvent previous = null;
+			SimEvent event;
+			while ((event = (SimEvent) in.readObject()) != null) {
+				if (previous == null) {
+					buckets[i] = event;
+				} else {
+					previous.nextInBucket = event;
+				}
+				previous = event;
+			}
+		}
+	}
+
+	/**
+	 * A position in a bucket used by the {@link OrderedIterator}.
+	 */
+	private static class Cursor {
+
+		/** The bucket index. */
+		private final int index;
+
+		/** The event preceding the last returned one in the bucket. */
+		private SimEvent previous;
+
+		/** The last returned event, or <tt>null</tt> if it has been removed. */
+		private SimEvent last;
+
+		/** The next event to return. */
+		private SimEvent next;
+
+		/**
+		 * Instantiates a new cursor.
+		 *
+		 * @param index the bucket index
+		 * @param head the head of the bucket
+		 */
+		public Cursor(int index, SimEvent head) {
+			this.index = index;
+			next = head;
+		}
+
+	}
+
+	/**
+	 * An iterator returning the events in ascending order by merging the sorted buckets.
+	 */
+	private class OrderedIterator implements Iterator<SimEvent> {
+
+		/** The cursors of the buckets having events left, ordered by their next event. */
+		private final PriorityQueue<Cursor> cursors;
+
+		/** The cursor of the last returned event. */
+		private Cursor lastCursor;
+
+		/**
+		 * Instantiates a new ordered iterator.
+		 */
+		public OrderedIterator() {
+			cursors = new PriorityQueue<Cursor>(Math.max(1, Math.min(size, buckets.length)),
+					new Comparator<Cursor>() {
+
+						@Override
+						public int compare(Cursor c1, Cursor c2) {
+							return c1.next.compareTo(c2.next);
+						}
+					});
+			for (int i = 0; i < buckets.length; i++) {
+				if (buckets[i] != null) {
+					cursors.add(new Cursor(i, buckets[i]));
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !cursors.isEmpty();
+		}
+
+		@Override
+		public SimEvent next() {
+			Cursor cursor = cursors.poll();
+			if (cursor == null) {
+				throw new NoSuchElementException();
+			}
+			if (cursor.last != null) {
+				cursor.previous = cursor.last;
+			}
+			cursor.last = cursor.next;
+			cursor.next = cursor.next.nextInBucket;
+			if (cursor.next != null) {
+				cursors.add(cursor);
+			}
+			lastCursor = cursor;
+			return cursor.last;
+		}
+
+		@Override
+		public void remove() {
+			if (lastCursor == null || lastCursor.last == null) {
+				throw new IllegalStateException();
+			}
+			SimEvent event = lastCursor.last;
+			unlink(lastCursor.index, lastCursor.previous, event);
+			lastCursor.last = null;
+			// the calendar is not shrunk while it is being iterated
+			size--;
+		}
+
+	}
+
+}
@@ -0,0 +1,28 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A listener receiving the checkpoint requested by {@link CloudSim#checkpointAt(double,
+ * CheckpointListener)}.
+ * 
+ * @since CloudSim Toolkit 3.1
+ * @see SimulationCheckpoint
+ */
+public interface CheckpointListener {
+
+	/**
+	 * Called when the checkpoint has been taken, while the simulation is suspended between two
+	 * clock ticks.
+	 * 
+	 * @param checkpoint the checkpoint
+	 */
+	void checkpointTaken(SimulationCheckpoint checkpoint);
+
+}
@@ -30,6 +30,9 @@ import org.cloudbus.cloudsim.Log;
  */
 public class CloudInformationService extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** For all types of hostList. */
 	private final List<Integer> resList;
 
@@ -53,6 +56,8 @@ public class CloudInformationService extends SimEntity {
 		resList = new LinkedList<Integer>();
 		arList = new LinkedList<Integer>();
 		gisList = new LinkedList<Integer>();
+		// the other entities read the lists directly
+		setParallelDispatch(false);
 	}
 
 	/**
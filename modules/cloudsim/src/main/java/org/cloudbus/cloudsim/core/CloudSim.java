@@ -11,11 +11,11 @@ package org.cloudbus.cloudsim.core;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -29,6 +29,10 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * network. Later, nodes in such file are mapped to CloudSim entities. Delay calculated from the
  * BRITE model are added to the messages send through CloudSim. Messages using the old model are
  * converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The simulation state is kept in a {@link SimulationContext}. All the methods of this class
+ * operate on the context of the current thread, so that several simulations can run at the same
+ * time in different threads.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -37,31 +41,11 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
 public class CloudSim {
 
 	/** The Constant CLOUDSIM_VERSION_STRING. */
-	private static final String CLOUDSIM_VERSION_STRING = "3.0";
-
-	/** The id of CIS entity. */
-	private static int cisId = -1;
-
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
-
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
+	static final String CLOUDSIM_VERSION_STRING = "3.0";
 
 	/** The Constant NOT_FOUND. */
 	private static final int NOT_FOUND = -1;
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
-
-	/** The calendar. */
-	private static Calendar calendar = null;
-
-	/** The termination time. */
-	private static double terminateAt = -1;
-
 	/**
 	 * Initialises all the common attributes.
 	 * 
@@ -75,21 +59,42 @@ public class CloudSim {
 	 */
 	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
 			throws Exception {
-		initialize();
+		initCommonVariable(_calendar, _traceFlag, numUser, new TreeSetEventList());
+	}
+
+	/**
+	 * Initialises all the common attributes.
+	 * 
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @param futureEventList the event list used by the future event queue
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 * @pre $none
+	 * @post $none
+	 */
+	private static void initCommonVariable(
+			Calendar _calendar,
+			boolean _traceFlag,
+			int numUser,
+			EventList futureEventList) throws Exception {
+		SimulationContext c = SimulationContext.current();
+		initialize(futureEventList);
 		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+		c.traceFlag = _traceFlag;
 
 		// Set the current Wall clock time as the starting time of
 		// simulation
 		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+			c.calendar = Calendar.getInstance();
 		} else {
-			calendar = _calendar;
+			c.calendar = _calendar;
 		}
 
 		// creates a CloudSimShutdown object
 		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+		c.shutdownId = shutdown.getId();
 	}
 
 	/**
@@ -114,14 +119,35 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
+		init(numUser, cal, traceFlag, new TreeSetEventList());
+	}
+
+	/**
+	 * Initialises CloudSim parameters, using a given event list to store the future events. This
+	 * method should be called before creating any entities. The simulation results do not depend on
+	 * the event list, which only affects the simulation performance: a {@link CalendarEventList}
+	 * performs better than the default {@link TreeSetEventList} when there are many pending events.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param futureEventList the event list used by the future event queue
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @pre futureEventList != null
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, EventList futureEventList) {
+		SimulationContext c = SimulationContext.current();
 		try {
-			initCommonVariable(cal, traceFlag, numUser);
+			initCommonVariable(cal, traceFlag, numUser, futureEventList);
 
 			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
+			c.cis = new CloudInformationService("CloudInformationService");
 
 			// set all the above entity IDs
-			cisId = cis.getId();
+			c.cisId = c.cis.getId();
 		} catch (IllegalArgumentException s) {
 			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
 			Log.printLine(s.getMessage());
@@ -131,6 +157,197 @@ public class CloudSim {
 		}
 	}
 
+	/**
+	 * Sets the pool running in parallel the entities which have events to process at the same
+	 * time. By default, the entities run one after the other, in the order of their ids. With a
+	 * pool, the entities allowed to run in parallel ({@link SimEntity#isParallelDispatch()}) each
+	 * process their own events in a task of the pool, while the others still run alone, in their
+	 * turn. The events sent and the writes to the {@link Log} made by the tasks are buffered, and
+	 * applied in the order of the entity ids once all the tasks are done; therefore, the simulation
+	 * gives the same results as a sequential one, provided that the entities running in parallel do
+	 * not share mutable objects. Writes made directly to <tt>System.out</tt> are not buffered.
+	 * <p>
+	 * The entities running in parallel cannot add new entities to the simulation. Their changes to
+	 * the simulation state, e.g. through {@link #terminateSimulation(double)}, take effect for the
+	 * other entities once the tasks are done. When one of them finds no matching deferred event,
+	 * the last deferred event it gets for compatibility is never an event of the other entities
+	 * running at the same time.
+	 * 
+	 * @param pool the pool, or <tt>null</tt> to run the entities sequentially
+	 * @see ParallelSimulation
+	 */
+	public static void setDispatchPool(ForkJoinPool pool) {
+		SimulationContext c = SimulationContext.current();
+		c.dispatcher = pool == null ? null : new ParallelDispatcher(pool);
+	}
+
+	/**
+	 * Gets the pool running in parallel the entities which have events to process at the same
+	 * time.
+	 * 
+	 * @return the pool, or <tt>null</tt> if the entities run sequentially
+	 * @see #setDispatchPool(ForkJoinPool)
+	 */
+	public static ForkJoinPool getDispatchPool() {
+		SimulationContext c = SimulationContext.current();
+		return c.dispatcher == null ? null : c.dispatcher.getPool();
+	}
+
+	/**
+	 * Sets the recorder of the events processed by the simulation, which writes them to a binary
+	 * trace file. The recorder is kept from one simulation to the next of the same context; it has
+	 * to be closed once it is no longer used. The events processed by the logical processes of a
+	 * {@link ParallelSimulation} are not recorded.
+	 * 
+	 * @param recorder the recorder, or <tt>null</tt> to stop recording
+	 * @see EventTrace
+	 */
+	public static void setEventRecorder(EventRecorder recorder) {
+		SimulationContext c = SimulationContext.current();
+		c.recorder = recorder;
+	}
+
+	/**
+	 * Gets the recorder of the events processed by the simulation.
+	 * 
+	 * @return the recorder, or <tt>null</tt> if the events are not recorded
+	 * @see #setEventRecorder(EventRecorder)
+	 */
+	public static EventRecorder getEventRecorder() {
+		SimulationContext c = SimulationContext.current();
+		return c.recorder;
+	}
+
+	/**
+	 * Sets the tick of the simulation time, e.g. 1e-6 for a microsecond when the time is in
+	 * seconds. Once a tick is set, the time of every event sent is rounded to the nearest whole
+	 * number of ticks: the simulation time advances by integral ticks, events less than half a tick
+	 * apart are processed together, and the times of the events are compared exactly rather than
+	 * being subject to the rounding errors of the sums of delays. The tick is kept from one
+	 * simulation to the next of the same context, and has to be set before the simulation starts.
+	 * 
+	 * @param tick the tick, or 0 for a continuous simulation time, which is the default
+	 * @pre tick >= 0
+	 * @see #clockTicks()
+	 */
+	public static void setTimeTick(double tick) {
+		if (tick < 0 || Double.isInfinite(tick) || Double.isNaN(tick)) {
+			throw new IllegalArgumentException("The tick can't be negative.");
+		}
+		SimulationContext c = SimulationContext.current();
+		if (c.running) {
+			throw new IllegalStateException("The tick can't be changed while the simulation is running.");
+		}
+		c.tick = tick;
+	}
+
+	/**
+	 * Gets the tick of the simulation time.
+	 * 
+	 * @return the tick, or 0 if the simulation time is continuous
+	 * @see #setTimeTick(double)
+	 */
+	public static double getTimeTick() {
+		SimulationContext c = SimulationContext.current();
+		return c.tick;
+	}
+
+	/**
+	 * Gets the current simulation time as a number of ticks.
+	 * 
+	 * @return the number of ticks since the start of the simulation
+	 * @throws IllegalStateException if no tick is set
+	 * @see #setTimeTick(double)
+	 */
+	public static long clockTicks() {
+		SimulationContext c = SimulationContext.current();
+		if (c.tick <= 0) {
+			throw new IllegalStateException("No tick is set for the simulation time.");
+		}
+		return Math.round(c.clock / c.tick);
+	}
+
+	/**
+	 * Sets the speed of the real-time mode, in which the clock advances in step with the wall-clock
+	 * time: the events are processed once the wall-clock time elapsed since the start of the
+	 * simulation, times the factor, reaches their time, so that a factor of 1 emulates the system
+	 * in real time and a factor of 60 runs a minute of simulation time per second. The time spent
+	 * while the simulation is paused, or between two calls to {@link #runUntil(double)}, is not
+	 * made up for. The simulation does not end while a termination time is set and not reached, so
+	 * that other threads can keep on {@link #inject(int, int, int, Object) injecting} events. The
+	 * factor is kept from one simulation to the next of the same context, and has to be set before
+	 * the simulation starts. The logical processes of a {@link ParallelSimulation} ignore it.
+	 * 
+	 * @param factor the simulation time per second of wall-clock time, or 0 to process the events
+	 *            as fast as possible, which is the default
+	 * @pre factor >= 0
+	 * @see #terminateSimulation(double)
+	 */
+	public static void setRealTimeFactor(double factor) {
+		if (factor < 0 || Double.isInfinite(factor) || Double.isNaN(factor)) {
+			throw new IllegalArgumentException("The real-time factor can't be negative.");
+		}
+		SimulationContext c = SimulationContext.current();
+		if (c.running) {
+			throw new IllegalStateException("The real-time factor can't be changed while the simulation is running.");
+		}
+		c.realTimeFactor = factor;
+	}
+
+	/**
+	 * Gets the speed of the real-time mode.
+	 * 
+	 * @return the simulation time per second of wall-clock time, or 0 if the events are processed
+	 *         as fast as possible
+	 * @see #setRealTimeFactor(double)
+	 */
+	public static double getRealTimeFactor() {
+		SimulationContext c = SimulationContext.current();
+		return c.realTimeFactor;
+	}
+
+	/**
+	 * Injects an event into the simulation from another thread than the one running it, e.g. a VM
+	 * creation request or a cloudlet submission from an external scheduler. The event is scheduled
+	 * at the next step of the simulation, which is woken up if it waits for the wall-clock time. An
+	 * external thread having no bound context injects into the simulation of the default context;
+	 * {@link SimulationContext#inject(int, int, int, Object)} injects into another context.
+	 * 
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the tag of the event
+	 * @param data the data of the event
+	 * @see #setRealTimeFactor(double)
+	 */
+	public static void inject(int src, int dest, int tag, Object data) {
+		SimulationContext c = SimulationContext.current();
+		c.inject(src, dest, tag, data);
+	}
+
+	/**
+	 * Sets the statistics of the simulation engine, which count the events processed per tag and
+	 * per entity, the time spent running each entity and the sizes of the event queues. The
+	 * statistics are kept from one simulation to the next of the same context, until they are
+	 * reset.
+	 * 
+	 * @param statistics the statistics, or <tt>null</tt> to stop keeping them
+	 */
+	public static void setStatistics(SimulationStatistics statistics) {
+		SimulationContext c = SimulationContext.current();
+		c.statistics = statistics;
+	}
+
+	/**
+	 * Gets the statistics of the simulation engine.
+	 * 
+	 * @return the statistics, or <tt>null</tt> if they are not kept
+	 * @see #setStatistics(SimulationStatistics)
+	 */
+	public static SimulationStatistics getStatistics() {
+		SimulationContext c = SimulationContext.current();
+		return c.statistics;
+	}
+
 	/**
 	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
 	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
@@ -146,16 +363,17 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static double startSimulation() throws NullPointerException {
+		SimulationContext c = SimulationContext.current();
 		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
 		try {
 			double clock = run();
 
 			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
+			c.cisId = -1;
+			c.shutdownId = -1;
+			c.cis = null;
+			c.calendar = null;
+			c.traceFlag = false;
 
 			return clock;
 		} catch (IllegalArgumentException e) {
@@ -192,7 +410,8 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
+		SimulationContext c = SimulationContext.current();
+		c.running = false;
 		printMessage("Simulation: Reached termination time.");
 		return true;
 	}
@@ -204,14 +423,37 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
+		SimulationContext c = SimulationContext.current();
+		if (time <= c.clock) {
 			return false;
 		} else {
-			terminateAt = time;
+			c.terminateAt = time;
 		}
 		return true;
 	}
 
+	/**
+	 * Takes a checkpoint of the simulation once the clock has reached a given time, i.e. after the
+	 * events at the first time not earlier than the given time have been processed. The listener
+	 * receives the checkpoint while the simulation is suspended between two clock ticks; it may
+	 * call {@link #abruptallyTerminate()} to stop the simulation there.
+	 * 
+	 * @param time the time at which the checkpoint has to be taken
+	 * @param listener the listener receiving the checkpoint
+	 * @return true, if the checkpoint has been requested; false if the time has already passed
+	 * @see SimulationCheckpoint
+	 * @pre listener != null
+	 */
+	public static boolean checkpointAt(double time, CheckpointListener listener) {
+		SimulationContext c = SimulationContext.current();
+		if (time < c.clock) {
+			return false;
+		}
+		c.checkpointAt = time;
+		c.checkpointListener = listener;
+		return true;
+	}
+
 	/**
 	 * Gets a new copy of initial simulation Calendar.
 	 * 
@@ -222,10 +464,11 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
+		SimulationContext c = SimulationContext.current();
 		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
+		Calendar clone = c.calendar;
+		if (c.calendar != null) {
+			clone = (Calendar) c.calendar.clone();
 		}
 
 		return clone;
@@ -239,7 +482,8 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		SimulationContext c = SimulationContext.current();
+		return c.cisId;
 	}
 
 	/**
@@ -252,59 +496,42 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
+		SimulationContext c = SimulationContext.current();
+		if (c.cis == null) {
 			return null;
 		}
 
-		return cis.getList();
+		return c.cis.getList();
 	}
 
 	// ======== SIMULATION METHODS ===============//
 
-	/** The entities. */
-	private static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** The simulation clock. */
-	private static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
-
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	private static boolean paused = false;
-
-	/** The pause at. */
-	private static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
-
 	/**
 	 * Initialise the simulation for stand alone simulations. This function should be called at the
 	 * start of the simulation.
 	 */
 	protected static void initialize() {
+		initialize(new TreeSetEventList());
+	}
+
+	/**
+	 * Initialise the simulation for stand alone simulations, using a given event list to store the
+	 * future events. This function should be called at the start of the simulation.
+	 * 
+	 * @param futureEventList the event list used by the future event queue
+	 */
+	protected static void initialize(EventList futureEventList) {
+		SimulationContext c = SimulationContext.current();
 		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+		futureEventList.clear();
+		c.entities = new ArrayList<SimEntity>();
+		c.entitiesByName = new LinkedHashMap<String, SimEntity>();
+		c.future = new FutureQueue(futureEventList);
+		c.deferred = new DeferredQueue();
+		c.runnable = new RunnableSet();
+		c.waitPredicates = new HashMap<Integer, Predicate>();
+		c.clock = 0;
+		c.running = false;
 	}
 
 	// The two standard predicates
@@ -323,7 +550,8 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		SimulationContext c = SimulationContext.current();
+		return c.clock;
 	}
 
 	/**
@@ -332,7 +560,8 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		SimulationContext c = SimulationContext.current();
+		return c.entities.size();
 	}
 
 	/**
@@ -342,7 +571,8 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		SimulationContext c = SimulationContext.current();
+		return c.entities.get(id);
 	}
 
 	/**
@@ -352,7 +582,8 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		SimulationContext c = SimulationContext.current();
+		return c.entitiesByName.get(name);
 	}
 
 	/**
@@ -362,7 +593,8 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
+		SimulationContext c = SimulationContext.current();
+		SimEntity obj = c.entitiesByName.get(name);
 		if (obj == null) {
 			return NOT_FOUND;
 		} else {
@@ -409,10 +641,11 @@ public class CloudSim {
 	 * @return the entity iterator
 	 */
 	public static List<SimEntity> getEntityList() {
+		SimulationContext c = SimulationContext.current();
 		// create a new list to prevent the user from changing
 		// the list of entities used by Simulation
 		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
+		list.addAll(c.entities);
 		return list;
 	}
 
@@ -425,17 +658,18 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	public static void addEntity(SimEntity e) {
+		SimulationContext c = SimulationContext.current();
 		SimEvent evt;
-		if (running) {
+		if (c.running) {
 			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
+			evt = new SimEvent(SimEvent.CREATE, c.clock, 1, 0, 0, e);
+			c.schedule(evt);
 		}
 		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
+			int id = c.entities.size();
 			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
+			c.entities.add(e);
+			c.entitiesByName.put(e.getName(), e);
 		}
 	}
 
@@ -461,50 +695,108 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
-		SimEntity ent;
-		boolean queue_empty;
-		int entities_size = entities.size();
-
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
-			if (ent.getState() == SimEntity.RUNNABLE) {
-				ent.run();
-			}
-		}
+		SimulationContext c = SimulationContext.current();
+		runEntities(c);
+		c.scheduleInjected();
 
 		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> it = future.iterator();
-			queue_empty = false;
-			SimEvent first = it.next();
-			processEvent(first);
-			future.remove(first);
-
-			it = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = it.hasNext();
-			while (trymore) {
-				SimEvent next = it.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = it.hasNext();
-				} else {
-					trymore = false;
+		if (c.future.size() > 0) {
+			dispatchEvents(c);
+			return false;
+		}
+		c.running = false;
+		printMessage("Simulation: No more future events");
+		return true;
+	}
+
+	/**
+	 * Runs the runnable entities, in the order of their ids, which is the first half of a clock
+	 * tick.
+	 * 
+	 * @param c the simulation context
+	 */
+	private static void runEntities(SimulationContext c) {
+		if (c.statistics != null) {
+			c.statistics.addEntities(c.entities);
+		}
+		if (c.runnable.isEmpty()) {
+			return;
+		}
+		// only the entities which may have events to process can do something
+		int count = c.runnable.drain();
+		int[] ids = c.runnable.getBatch();
+		if (c.dispatcher != null) {
+			c.dispatcher.runEntities(c, ids, count);
+		} else {
+			for (int i = 0; i < count; i++) {
+				SimEntity ent = c.entities.get(ids[i]);
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					runEntity(c, ent);
 				}
 			}
+		}
+		keepRunnable(c, ids, count);
+	}
 
-			future.removeAll(toRemove);
+	/**
+	 * Puts back in the runnable set of a context the entities which still have events to process
+	 * after they ran: those having an event buffer, and those still runnable with deferred events,
+	 * e.g. because they override {@link SimEntity#run()}. A waiting or holding entity is not put
+	 * back, since the event waking it up, i.e. an event matching its wait predicate or the end of
+	 * its hold, adds it to the set again.
+	 * 
+	 * @param c the simulation context
+	 * @param ids the ids of the entities, in increasing order
+	 * @param count the number of entities
+	 */
+	static void keepRunnable(SimulationContext c, int[] ids, int count) {
+		for (int i = 0; i < count; i++) {
+			SimEntity ent = c.entities.get(ids[i]);
+			if (ent.getEventBuffer() != null
+					|| (ent.getState() == SimEntity.RUNNABLE && c.deferred.count(ids[i], SIM_ANY) > 0)) {
+				c.runnable.add(ids[i]);
+			}
+		}
+	}
 
+	/**
+	 * Runs an entity, counting the time spent if the statistics are kept.
+	 * 
+	 * @param c the simulation context
+	 * @param ent the entity
+	 */
+	static void runEntity(SimulationContext c, SimEntity ent) {
+		if (c.statistics != null) {
+			c.statistics.run(ent);
 		} else {
-			queue_empty = true;
-			running = false;
-			printMessage("Simulation: No more future events");
+			ent.run();
 		}
+	}
 
-		return queue_empty;
+	/**
+	 * Dispatches the first future event and the next events at the same time, which is the second
+	 * half of a clock tick.
+	 * 
+	 * @param c the simulation context
+	 * @return the number of events dispatched
+	 * @pre c.future.size() > 0
+	 */
+	private static int dispatchEvents(SimulationContext c) {
+		if (c.statistics != null) {
+			c.statistics.tick(c);
+		}
+		SimEvent first = c.future.poll();
+		processEvent(c, first);
+		int count = 1;
+
+		// Process the next events at the same time, including those sent meanwhile
+		SimEvent next = c.future.pollAt(first.eventTime());
+		while (next != null) {
+			processEvent(c, next);
+			count++;
+			next = c.future.pollAt(first.eventTime());
+		}
+		return count;
 	}
 
 	/**
@@ -521,9 +813,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext c = SimulationContext.current();
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, c.eventTime(delay), src);
+		c.schedule(e);
+		c.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -533,9 +826,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext c = SimulationContext.current();
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, c.eventTime(delay), src);
+		c.schedule(e);
+		c.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -548,12 +842,13 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void send(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext c = SimulationContext.current();
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		SimEvent e = new SimEvent(SimEvent.SEND, c.eventTime(delay), src, dest, tag, data);
+		c.schedule(e);
 	}
 
 	/**
@@ -566,12 +861,39 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext c = SimulationContext.current();
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		SimEvent e = new SimEvent(SimEvent.SEND, c.eventTime(delay), src, dest, tag, data);
+		c.scheduleFirst(e);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, unless an equivalent event (same source,
+	 * destination, tag and data) is already pending at the same time or, if the earliest event
+	 * wins, at an earlier time.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 * @param earliestWins whether only the earliest of the equivalent events has to be kept
+	 * @return true, if the event has been sent; false if it has been merged with a pending event
+	 * @see CloudSimTags#COALESCE_SAME_TIME
+	 * @see CloudSimTags#COALESCE_EARLIEST
+	 */
+	public static boolean sendCoalesced(int src, int dest, double delay, int tag, Object data,
+			boolean earliestWins) {
+		SimulationContext c = SimulationContext.current();
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, c.eventTime(delay), src, dest, tag, data);
+		return c.scheduleCoalesced(e, earliestWins);
 	}
 
 	/**
@@ -583,10 +905,11 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
+		SimulationContext c = SimulationContext.current();
+		c.entities.get(src).setState(SimEntity.WAITING);
 		if (p != SIM_ANY) {
 			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
+			c.waitPredicates.put(src, p);
 		}
 	}
 
@@ -598,16 +921,8 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		SimulationContext c = SimulationContext.current();
+		return c.countDeferred(d, p);
 	}
 
 	/**
@@ -618,14 +933,11 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
+		SimulationContext c = SimulationContext.current();
+		SimEvent ev = c.selectDeferred(src, p);
+		if (ev == null) {
+			// for compatibility, return the last deferred event (without removing it) if none matches
+			ev = c.lastDeferred(src);
 		}
 		return ev;
 	}
@@ -638,36 +950,25 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
+		SimulationContext c = SimulationContext.current();
+		SimEvent ev = c.findFirstDeferred(src, p);
+		if (ev == null) {
+			// for compatibility, return the last deferred event if none matches
+			ev = c.lastDeferred(src);
 		}
 		return ev;
 	}
 
 	/**
-	 * Removes an event from the event queue.
+	 * Removes the first event that matches a given predicate from the future event queue.
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the cancelled event or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
-			}
-		}
-
-		return ev;
+		SimulationContext c = SimulationContext.current();
+		return c.cancel(src, p);
 	}
 
 	/**
@@ -679,16 +980,8 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
-		}
-		return previousSize < future.size();
+		SimulationContext c = SimulationContext.current();
+		return c.cancelAll(src, p);
 	}
 
 	//
@@ -698,16 +991,23 @@ public class CloudSim {
 	/**
 	 * Processes an event.
 	 * 
+	 * @param c the simulation context
 	 * @param e the e
 	 */
-	private static void processEvent(SimEvent e) {
+	static void processEvent(SimulationContext c, SimEvent e) {
 		int dest, src;
 		SimEntity dest_ent;
 		// Update the system's clock
-		if (e.eventTime() < clock) {
+		if (e.eventTime() < c.clock) {
 			throw new IllegalArgumentException("Past event detected.");
 		}
-		clock = e.eventTime();
+		c.clock = e.eventTime();
+		if (c.recorder != null) {
+			c.recorder.record(e);
+		}
+		if (c.statistics != null) {
+			c.statistics.eventProcessed(e);
+		}
 
 		// Ok now process it
 		switch (e.getType()) {
@@ -725,20 +1025,28 @@ public class CloudSim {
 				if (dest < 0) {
 					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
 				} else {
+					if (e.timer != null) {
+						e.timer.delivered(e);
+					}
 					int tag = e.getTag();
-					dest_ent = entities.get(dest);
+					dest_ent = c.entities.get(dest);
 					if (dest_ent.getState() == SimEntity.WAITING) {
 						Integer destObj = Integer.valueOf(dest);
-						Predicate p = waitPredicates.get(destObj);
+						Predicate p = c.waitPredicates.get(destObj);
 						if ((p == null) || (tag == 9999) || (p.match(e))) {
 							dest_ent.setEventBuffer((SimEvent) e.clone());
 							dest_ent.setState(SimEntity.RUNNABLE);
-							waitPredicates.remove(destObj);
+							c.waitPredicates.remove(destObj);
+							c.runnable.add(dest);
 						} else {
-							deferred.addEvent(e);
+							c.deferred.addEvent(e);
 						}
 					} else {
-						deferred.addEvent(e);
+						c.deferred.addEvent(e);
+						// a holding entity is run once its hold is done
+						if (dest_ent.getState() == SimEntity.RUNNABLE) {
+							c.runnable.add(dest);
+						}
 					}
 				}
 				break;
@@ -748,7 +1056,8 @@ public class CloudSim {
 				if (src < 0) {
 					throw new IllegalArgumentException("Null entity holding.");
 				} else {
-					entities.get(src).setState(SimEntity.RUNNABLE);
+					c.entities.get(src).setState(SimEntity.RUNNABLE);
+					c.runnable.add(src);
 				}
 				break;
 
@@ -762,9 +1071,10 @@ public class CloudSim {
 	 * simulations.
 	 */
 	public static void runStart() {
-		running = true;
+		SimulationContext c = SimulationContext.current();
+		c.running = true;
 		// Start all the entities
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : c.entities) {
 			ent.startEntity();
 		}
 
@@ -778,7 +1088,8 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		SimulationContext c = SimulationContext.current();
+		return c.running;
 	}
 
 	/**
@@ -787,8 +1098,9 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		SimulationContext c = SimulationContext.current();
+		c.paused = true;
+		return c.paused;
 	}
 
 	/**
@@ -798,10 +1110,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
+		SimulationContext c = SimulationContext.current();
+		if (time <= c.clock) {
 			return false;
 		} else {
-			pauseAt = time;
+			c.pauseAt = time;
 		}
 		return true;
 	}
@@ -812,59 +1125,215 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
-
-		if (pauseAt <= clock) {
-			pauseAt = -1;
+		SimulationContext c = SimulationContext.current();
+		if (c.pauseAt <= c.clock) {
+			c.pauseAt = -1;
 		}
+		c.resume();
 
-		return !paused;
+		return !c.paused;
 	}
 
 	/**
 	 * Start the simulation running. This should be called after all the entities have been setup
-	 * and added, and their ports linked.
+	 * and added, and their ports linked. While the simulation is paused, the calling thread waits
+	 * until another thread resumes it.
 	 * 
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
+		SimulationContext c = SimulationContext.current();
+		advance(c, Double.POSITIVE_INFINITY, Long.MAX_VALUE, null, true);
+
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Runs the simulation until a given time: the events up to that time are processed, and the
+	 * clock is then moved to that time. The simulation is started if it has not been started yet;
+	 * it is finished, as by {@link #startSimulation()}, if it ends before that time.
+	 * <p>
+	 * This method and {@link #step(long)} and {@link #runWhile(SimulationCondition)} let a tool or
+	 * a test drive the simulation in increments from its own thread, e.g. to inspect the entities
+	 * between them. They return early when the simulation is paused, which they resume when called
+	 * again.
+	 * 
+	 * @param time the time
+	 * @return the clock after the last processed event, or the given time
+	 * @see #running()
+	 * @pre time >= 0
+	 */
+	public static double runUntil(double time) {
+		return control(time, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Runs the simulation until at least a given number of events have been processed. The events
+	 * happening at the same time are always processed together, so more events may be processed.
+	 * 
+	 * @param events the number of events
+	 * @return the clock after the last processed event
+	 * @see #runUntil(double)
+	 * @pre events >= 0
+	 */
+	public static double step(long events) {
+		return control(Double.POSITIVE_INFINITY, events, null);
+	}
+
+	/**
+	 * Runs the simulation as long as a condition holds. The condition is checked before the events
+	 * at each new time are processed.
+	 * 
+	 * @param condition the condition
+	 * @return the clock after the last processed event
+	 * @see #runUntil(double)
+	 * @pre condition != null
+	 */
+	public static double runWhile(SimulationCondition condition) {
+		return control(Double.POSITIVE_INFINITY, Long.MAX_VALUE, condition);
+	}
+
+	/**
+	 * Runs the simulation for {@link #runUntil(double)}, {@link #step(long)} and
+	 * {@link #runWhile(SimulationCondition)}.
+	 * 
+	 * @param until the time after which no events are processed
+	 * @param events the number of events after which the simulation stops
+	 * @param condition the condition which has to hold for the simulation to go on, or
+	 *            <tt>null</tt>
+	 * @return the clock when the simulation stops
+	 */
+	private static double control(double until, long events, SimulationCondition condition) {
+		SimulationContext c = SimulationContext.current();
+		if (!c.running) {
+			Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
+		} else if (c.paused) {
+			resumeSimulation();
+		}
+		if (advance(c, until, events, condition, false)) {
+			return c.clock;
+		}
+
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		// reset all static variables
+		c.cisId = -1;
+		c.shutdownId = -1;
+		c.cis = null;
+		c.calendar = null;
+		c.traceFlag = false;
+
+		return clock;
+	}
+
+	/**
+	 * Runs clock ticks until the simulation ends or one of the conditions to stop is met. The
+	 * conditions are checked between the two halves of a tick, once the entities have processed
+	 * the events dispatched so far and before the next events are dispatched, so the simulation can
+	 * stop and go on without changing its results.
+	 * 
+	 * @param c the simulation context
+	 * @param until the time after which no events are dispatched
+	 * @param events the number of events after which the simulation stops
+	 * @param condition the condition which has to hold for the simulation to go on, or
+	 *            <tt>null</tt>
+	 * @param waitWhilePaused whether to wait while the simulation is paused, rather than stop
+	 * @return true, if the simulation has stopped; false if it has ended
+	 */
+	private static boolean advance(SimulationContext c, double until, long events, SimulationCondition condition,
+			boolean waitWhilePaused) {
+		if (!c.running) {
 			runStart();
 		}
+		c.startEngine();
+		long dispatched = 0;
 		while (true) {
-			if (runClockTick() || abruptTerminate) {
-				break;
+			runEntities(c);
+			if (c.realTimeFactor > 0) {
+				awaitRealTime(c, until);
+			}
+			c.scheduleInjected();
+			if (c.future.size() == 0) {
+				c.running = false;
+				printMessage("Simulation: No more future events");
+				return false;
 			}
 
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
+			// the next event is only looked at when the simulation has to stop at a given time
+			if (until != Double.POSITIVE_INFINITY || c.pauseAt != -1) {
+				double next = c.future.first().eventTime();
+				if (next > until) {
+					c.clock = Math.max(c.clock, until);
+					return true;
+				}
+				if (c.pauseAt != -1 && c.clock <= c.pauseAt && c.pauseAt <= next) {
+					pauseSimulation();
+					c.clock = c.pauseAt;
+				}
+			}
+			if (c.paused) {
+				if (!waitWhilePaused) {
+					return true;
+				}
+				c.awaitResume();
+				c.startEngine();
+			}
+			if (dispatched >= events || (condition != null && !condition.holds())) {
+				return true;
+			}
+
+			dispatched += dispatchEvents(c);
+			if (c.abruptTerminate) {
+				return false;
 			}
 
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
+			// this block allows termination of simulation at a specific time
+			if (c.terminateAt > 0.0 && c.clock >= c.terminateAt) {
+				terminateSimulation();
+				c.clock = c.terminateAt;
+				return false;
 			}
 
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+			if (c.checkpointAt >= 0 && c.clock >= c.checkpointAt) {
+				CheckpointListener listener = c.checkpointListener;
+				c.checkpointAt = -1;
+				c.checkpointListener = null;
+				listener.checkpointTaken(SimulationCheckpoint.capture());
+				if (c.abruptTerminate) {
+					return false;
 				}
 			}
 		}
+	}
 
-		double clock = clock();
-
-		finishSimulation();
-		runStop();
-
-		return clock;
+	/**
+	 * Waits, in the real-time mode, until the wall-clock time matches the time of the next event,
+	 * or of the termination if there is no next event, or until an event is injected. When there
+	 * is neither a next event nor a termination time, the simulation ends without waiting.
+	 * 
+	 * @param c the simulation context
+	 * @param until the time after which no events are dispatched
+	 */
+	private static void awaitRealTime(SimulationContext c, double until) {
+		boolean idle = c.future.size() == 0;
+		if (idle && c.terminateAt <= 0) {
+			return;
+		}
+		double next = idle ? c.terminateAt : c.future.first().eventTime();
+		if (c.terminateAt > 0) {
+			next = Math.min(next, c.terminateAt);
+		}
+		if (c.awaitRealTime(Math.min(next, until)) && idle && c.terminateAt <= until) {
+			c.clock = Math.max(c.clock, c.terminateAt);
+		}
 	}
 
 	/**
@@ -872,39 +1341,59 @@ public class CloudSim {
 	 * in user simulations.
 	 */
 	public static void finishSimulation() {
+		SimulationContext c = SimulationContext.current();
 		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
+		if (!c.abruptTerminate) {
+			// including the waiting and holding ones, which are not runnable but may have events
+			for (SimEntity ent : c.entities) {
+				if (c.deferred.count(ent.getId(), SIM_ANY) > 0) {
+					c.runnable.add(ent.getId());
+				}
+			}
+			int count = c.runnable.drain();
+			int[] ids = c.runnable.getBatch();
+			for (int i = 0; i < count; i++) {
+				SimEntity ent = c.entities.get(ids[i]);
 				if (ent.getState() != SimEntity.FINISHED) {
 					ent.run();
 				}
 			}
 		}
 
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : c.entities) {
 			ent.shutdownEntity();
 		}
+		int discarded = c.stopEngine();
+		if (discarded > 0) {
+			printMessage("Simulation: " + discarded + " injected events discarded");
+		}
+		if (c.dispatcher != null) {
+			c.dispatcher.clear();
+		}
 
 		// reset all static variables
 		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		c.entities = null;
+		c.entitiesByName = null;
+		c.future = null;
+		c.deferred = null;
+		c.clock = 0L;
+		c.running = false;
+
+		c.waitPredicates = null;
+		c.paused = false;
+		c.pauseAt = -1;
+		c.abruptTerminate = false;
+		c.checkpointAt = -1;
+		c.checkpointListener = null;
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
+		SimulationContext c = SimulationContext.current();
+		c.abruptTerminate = true;
 	}
 
 	/**
@@ -922,7 +1411,8 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		SimulationContext c = SimulationContext.current();
+		return c.paused;
 	}
 
 }
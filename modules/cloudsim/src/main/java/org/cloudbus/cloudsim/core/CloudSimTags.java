@@ -38,6 +38,30 @@ public class CloudSimTags {
 	/** Schedules an entity without any delay */
 	public static final double SCHEDULE_NOW = 0.0;
 
+	/**
+	 * Denotes a tag whose events are never coalesced. This is the default for all tags.
+	 * 
+	 * @see SimEntity#setCoalescing(int, int)
+	 */
+	public static final int COALESCE_NONE = 0;
+
+	/**
+	 * Denotes a tag whose events are dropped when an event with the same source, destination, tag,
+	 * data and time is already pending.
+	 * 
+	 * @see SimEntity#setCoalescing(int, int)
+	 */
+	public static final int COALESCE_SAME_TIME = 1;
+
+	/**
+	 * Denotes a tag for which only the earliest of the pending events with the same source,
+	 * destination and data is kept: a new event is dropped if an equivalent event is pending at the
+	 * same or an earlier time, otherwise it replaces the pending ones.
+	 * 
+	 * @see SimEntity#setCoalescing(int, int)
+	 */
+	public static final int COALESCE_EARLIEST = 2;
+
 	/** Denotes the end of simulation */
 	public static final int END_OF_SIMULATION = -1;
 
@@ -265,6 +289,26 @@ public class CloudSimTags {
 
 	public static final int NextCycle = BASE + 48;
 
+	/**
+	 * Denotes the submission of a list of Cloudlets in a single event, which the CloudResource
+	 * entity processes with a single update of its Cloudlets. The Cloudlets submitted this way are
+	 * returned with {@link #CLOUDLET_RETURN_BULK}.
+	 */
+	public static final int CLOUDLET_SUBMIT_BULK = BASE + 49;
+
+	/**
+	 * Denotes the return of the list of the Cloudlets of a user which finished at the same time.
+	 * This tag is normally used by CloudResource entity for the Cloudlets submitted with
+	 * {@link #CLOUDLET_SUBMIT_BULK} or {@link #CLOUDLET_SUBMIT_BULK_ACK}.
+	 */
+	public static final int CLOUDLET_RETURN_BULK = BASE + 50;
+
+	/**
+	 * Denotes the submission of a list of Cloudlets in a single event, with an acknowledgement of
+	 * each Cloudlet as for {@link #CLOUDLET_SUBMIT_ACK}.
+	 */
+	public static final int CLOUDLET_SUBMIT_BULK_ACK = BASE + 51;
+
 	/** Private Constructor */
 	private CloudSimTags() {
 		throw new UnsupportedOperationException("CloudSim Tags cannot be instantiated");
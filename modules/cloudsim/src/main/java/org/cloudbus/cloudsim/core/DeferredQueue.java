@@ -8,81 +8,519 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link Simulation}. The events are kept in
+ * temporal order in a linked list. In addition, each destination entity has its own mailbox
+ * linking only the events sent to it, which is further split by event tag. Therefore, selecting
+ * the events of an entity only touches the events of that entity, and selecting them with a
+ * {@link PredicateAny} or a {@link PredicateType} costs O(1) per tag.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The first node of the queue. */
+	private transient Node head;
+
+	/** The last node of the queue. */
+	private transient Node tail;
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The mailboxes indexed by destination entity id. */
+	private transient List<Mailbox> mailboxes = new ArrayList<Mailbox>();
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The number of events. */
+	private transient int size;
+
+	/** The insertion counter. */
+	private long sequence;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
+		Node node = new Node(newEvent, sequence++);
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
-		}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
-			}
+		Node previous = tail;
+		while (previous != null && previous.event.eventTime() > eventTime) {
+			previous = previous.previous;
+		}
+		node.previous = previous;
+		node.next = previous == null ? head : previous.next;
+		if (node.previous == null) {
+			head = node;
+		} else {
+			node.previous.next = node;
+		}
+		if (node.next == null) {
+			tail = node;
+		} else {
+			node.next.previous = node;
 		}
 
-		list.add(newEvent);
+		Mailbox mailbox = getMailbox(newEvent.getDestination(), true);
+		if (mailbox != null) {
+			mailbox.add(node);
+		}
+		size++;
 	}
 
 	/**
 	 * Returns an iterator to the events in the queue.
-	 * 
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private Node next = head;
+
+			private Node last;
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = next.next;
+				return last.event;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				DeferredQueue.this.remove(last);
+				last = null;
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
+	}
+
+	/**
+	 * Counts the events sent to a given entity that match a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(int destination, Predicate p) {
+		Mailbox mailbox = getMailbox(destination, false);
+		if (mailbox == null || mailbox.size == 0 || p instanceof PredicateNone) {
+			return 0;
+		}
+		if (p instanceof PredicateAny) {
+			return mailbox.size;
+		}
+		int count = 0;
+		if (p instanceof PredicateType) {
+			PredicateType predicate = (PredicateType) p;
+			for (int i = 0; i < predicate.getNumberOfTags(); i++) {
+				TagList tagList = mailbox.tagLists.get(predicate.getTag(i));
+				if (tagList != null && !isRepeatedTag(predicate, i)) {
+					count += tagList.size;
+				}
+			}
+			return count;
+		}
+		for (Node node = mailbox.head; node != null; node = node.nextInMailbox) {
+			if (p.match(node.event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the first event sent to a given entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the event or <tt>null</tt> if no event matches
+	 */
+	public SimEvent findFirst(int destination, Predicate p) {
+		Node node = findFirstNode(destination, p);
+		return node == null ? null : node.event;
+	}
+
+	/**
+	 * Removes the first event sent to a given entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the removed event or <tt>null</tt> if no event matches
+	 */
+	public SimEvent select(int destination, Predicate p) {
+		Node node = findFirstNode(destination, p);
+		if (node == null) {
+			return null;
+		}
+		remove(node);
+		return node.event;
+	}
+
+	/**
+	 * Returns the last event of the queue.
+	 *
+	 * @return the last event or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent last() {
+		return tail == null ? null : tail.event;
+	}
+
+	/**
+	 * Returns the last event of the queue that matches a predicate.
+	 *
+	 * @param p the predicate
+	 * @return the last matching event or <tt>null</tt> if no event matches
+	 */
+	public SimEvent last(Predicate p) {
+		for (Node node = tail; node != null; node = node.previous) {
+			if (p.match(node.event)) {
+				return node.event;
+			}
+		}
+		return null;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		head = null;
+		tail = null;
+		mailboxes.clear();
+		size = 0;
+	}
+
+	/**
+	 * Finds the node of the first event sent to a given entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the node or <tt>null</tt> if no event matches
+	 */
+	private Node findFirstNode(int destination, Predicate p) {
+		Mailbox mailbox = getMailbox(destination, false);
+		if (mailbox == null || mailbox.size == 0 || p instanceof PredicateNone) {
+			return null;
+		}
+		if (p instanceof PredicateAny) {
+			return mailbox.head;
+		}
+		if (p instanceof PredicateType) {
+			PredicateType predicate = (PredicateType) p;
+			Node first = null;
+			for (int i = 0; i < predicate.getNumberOfTags(); i++) {
+				TagList tagList = mailbox.tagLists.get(predicate.getTag(i));
+				if (tagList != null && tagList.head != null
+						&& (first == null || tagList.head.precedes(first))) {
+					first = tagList.head;
+				}
+			}
+			return first;
+		}
+		for (Node node = mailbox.head; node != null; node = node.nextInMailbox) {
+			if (p.match(node.event)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a tag of a predicate is also one of the previous tags of the predicate.
+	 *
+	 * @param predicate the predicate
+	 * @param index the index of the tag
+	 * @return true, if the tag is repeated
+	 */
+	private static boolean isRepeatedTag(PredicateType predicate, int index) {
+		for (int i = 0; i < index; i++) {
+			if (predicate.getTag(i) == predicate.getTag(index)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes a node from the queue and from its mailbox.
+	 *
+	 * @param node the node
+	 */
+	private void remove(Node node) {
+		if (node.previous == null) {
+			head = node.next;
+		} else {
+			node.previous.next = node.next;
+		}
+		if (node.next == null) {
+			tail = node.previous;
+		} else {
+			node.next.previous = node.previous;
+		}
+		Mailbox mailbox = getMailbox(node.event.getDestination(), false);
+		if (mailbox != null) {
+			mailbox.remove(node);
+		}
+		size--;
+	}
+
+	/**
+	 * Gets the mailbox of an entity.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param create whether the mailbox has to be created if it does not exist
+	 * @return the mailbox or <tt>null</tt> if it does not exist and it has not been created, or if
+	 *         the destination is not a valid entity id
+	 */
+	private Mailbox getMailbox(int destination, boolean create) {
+		if (destination < 0) {
+			return null;
+		}
+		while (create && mailboxes.size() <= destination) {
+			mailboxes.add(null);
+		}
+		if (destination >= mailboxes.size()) {
+			return null;
+		}
+		Mailbox mailbox = mailboxes.get(destination);
+		if (mailbox == null && create) {
+			mailbox = new Mailbox();
+			mailboxes.set(destination, mailbox);
+		}
+		return mailbox;
+	}
+
+	/**
+	 * Writes the events of the queue in temporal order, rather than its linked nodes.
+	 *
+	 * @param out the output stream
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (Node node = head; node != null; node = node.next) {
+			out.writeObject(node.event);
+		}
+	}
+
+	/**
+	 * Reads the events written by {@link #writeObject(ObjectOutputStream)} and links them again.
+	 *
+	 * @param in the input stream
+	 * @throws IOException if an I/O error occurs
+	 * @throws ClassNotFoundException if the class of an event cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		mailboxes = new ArrayList<Mailbox>();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			addEvent((SimEvent) in.readObject());
+		}
+	}
+
+	/**
+	 * A deferred event linked in the queue, in the mailbox of its destination and in the tag list
+	 * of the mailbox.
+	 */
+	private static class Node {
+
+		/** The event. */
+		private final SimEvent event;
+
+		/** The insertion sequence number. */
+		private final long sequence;
+
+		/** The previous and next nodes of the queue. */
+		private Node previous, next;
+
+		/** The previous and next nodes of the mailbox. */
+		private Node previousInMailbox, nextInMailbox;
+
+		/** The previous and next nodes of the tag list. */
+		private Node previousWithTag, nextWithTag;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param event the event
+		 * @param sequence the insertion sequence number
+		 */
+		public Node(SimEvent event, long sequence) {
+			this.event = event;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Checks whether this node comes before another one in the queue.
+		 *
+		 * @param node the other node
+		 * @return true, if this node comes first
+		 */
+		public boolean precedes(Node node) {
+			double time = event.eventTime();
+			double otherTime = node.event.eventTime();
+			return time < otherTime || (time == otherTime && sequence < node.sequence);
+		}
+
+	}
+
+	/**
+	 * The head and tail of the nodes of a mailbox having the same tag.
+	 */
+	private static class TagList {
+
+		/** The first and last nodes. */
+		private Node head, tail;
+
+		/** The number of nodes. */
+		private int size;
+
+	}
+
+	/**
+	 * The deferred events sent to an entity, in temporal order.
+	 */
+	private static class Mailbox {
+
+		/** The first and last nodes. */
+		private Node head, tail;
+
+		/** The number of nodes. */
+		private int size;
+
+		/** The tag lists indexed by tag. */
+		private final Map<Integer, TagList> tagLists = new HashMap<Integer, TagList>();
+
+		/**
+		 * Adds a node keeping the temporal order, after the nodes having the same time.
+		 *
+		 * @param node the node
+		 */
+		public void add(Node node) {
+			double eventTime = node.event.eventTime();
+
+			Node previous = tail;
+			while (previous != null && previous.event.eventTime() > eventTime) {
+				previous = previous.previousInMailbox;
+			}
+			node.previousInMailbox = previous;
+			node.nextInMailbox = previous == null ? head : previous.nextInMailbox;
+			if (node.previousInMailbox == null) {
+				head = node;
+			} else {
+				node.previousInMailbox.nextInMailbox = node;
+			}
+			if (node.nextInMailbox == null) {
+				tail = node;
+			} else {
+				node.nextInMailbox.previousInMailbox = node;
+			}
+			size++;
+
+			Integer tag = node.event.getTag();
+			TagList tagList = tagLists.get(tag);
+			if (tagList == null) {
+				tagList = new TagList();
+				tagLists.put(tag, tagList);
+			}
+			previous = tagList.tail;
+			while (previous != null && previous.event.eventTime() > eventTime) {
+				previous = previous.previousWithTag;
+			}
+			node.previousWithTag = previous;
+			node.nextWithTag = previous == null ? tagList.head : previous.nextWithTag;
+			if (node.previousWithTag == null) {
+				tagList.head = node;
+			} else {
+				node.previousWithTag.nextWithTag = node;
+			}
+			if (node.nextWithTag == null) {
+				tagList.tail = node;
+			} else {
+				node.nextWithTag.previousWithTag = node;
+			}
+			tagList.size++;
+		}
+
+		/**
+		 * Removes a node.
+		 *
+		 * @param node the node
+		 */
+		public void remove(Node node) {
+			if (node.previousInMailbox == null) {
+				head = node.nextInMailbox;
+			} else {
+				node.previousInMailbox.nextInMailbox = node.nextInMailbox;
+			}
+			if (node.nextInMailbox == null) {
+				tail = node.previousInMailbox;
+			} else {
+				node.nextInMailbox.previousInMailbox = node.previousInMailbox;
+			}
+			size--;
+
+			TagList tagList = tagLists.get(node.event.getTag());
+			if (node.previousWithTag == null) {
+				tagList.head = node.nextWithTag;
+			} else {
+				node.previousWithTag.nextWithTag = node.nextWithTag;
+			}
+			if (node.nextWithTag == null) {
+				tagList.tail = node.previousWithTag;
+			} else {
+				node.nextWithTag.previousWithTag = node.previousWithTag;
+			}
+			tagList.size--;
+		}
+
 	}
 
-}
\ No newline at end of file
+}
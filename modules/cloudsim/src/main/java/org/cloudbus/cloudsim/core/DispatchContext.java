@@ -0,0 +1,343 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * The context in which an entity processes its events in parallel with other entities, for a
+ * {@link ParallelDispatcher}: a child context sharing the state of the simulation, except that the
+ * events sent by the entity and its log writes are buffered until they are merged, and that its
+ * accesses to the future and deferred queues are serialized with those of the other entities.
+ * <p>
+ * The entities running in parallel only touch the pending events they have sent and the deferred
+ * events sent to them, so the results of these accesses do not depend on the other entities.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see ParallelDispatcher
+ */
+class DispatchContext extends SimulationContext {
+
+	/** The entity. */
+	private final SimEntity entity;
+
+	/** The lock guarding the future and deferred queues of the simulation. */
+	private final Object lock;
+
+	/** The ids of the entities running in parallel. */
+	private final BitSet batch;
+
+	/** The events sent by the entity and not merged yet, in sending order. */
+	private final List<SimEvent> sent = new ArrayList<SimEvent>();
+
+	/** The log writes not merged yet. */
+	private final List<LogicalProcess.Write> writes = new ArrayList<LogicalProcess.Write>();
+
+	/** The number of log writes made so far. */
+	private long writeCount;
+
+	/** The termination time of the simulation when the entity started to run. */
+	private double initialTerminateAt;
+
+	/** The pause flag of the simulation when the entity started to run. */
+	private boolean initialPaused;
+
+	/** The pause time of the simulation when the entity started to run. */
+	private long initialPauseAt;
+
+	/**
+	 * Instantiates a new dispatch context.
+	 *
+	 * @param parent the context of the simulation
+	 * @param entity the entity
+	 * @param lock the lock guarding the future and deferred queues of the simulation
+	 * @param batch the ids of the entities running in parallel
+	 * @param waitPredicates the predicates used in entity wait methods, safe for concurrent use
+	 */
+	DispatchContext(SimulationContext parent, SimEntity entity, Object lock, BitSet batch,
+			Map<Integer, Predicate> waitPredicates) {
+		super(parent);
+		this.entity = entity;
+		this.lock = lock;
+		this.batch = batch;
+		this.waitPredicates = waitPredicates;
+	}
+
+	/**
+	 * Gets the entity.
+	 *
+	 * @return the entity
+	 */
+	SimEntity getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Copies the state of the simulation before the entity runs.
+	 */
+	void prepare() {
+		SimulationContext c = getParent();
+		cisId = c.cisId;
+		shutdownId = c.shutdownId;
+		cis = c.cis;
+		traceFlag = c.traceFlag;
+		calendar = c.calendar;
+		entities = c.entities;
+		entitiesByName = c.entitiesByName;
+		future = c.future;
+		deferred = c.deferred;
+		clock = c.clock;
+		tick = c.tick;
+		running = c.running;
+		abruptTerminate = c.abruptTerminate;
+		terminateAt = initialTerminateAt = c.terminateAt;
+		paused = initialPaused = c.paused;
+		pauseAt = initialPauseAt = c.pauseAt;
+	}
+
+	/**
+	 * Runs the entity in this context.
+	 */
+	void runEntity() {
+		run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.runEntity(getParent(), entity);
+			}
+		});
+	}
+
+	/**
+	 * Applies to the simulation the events sent by the entity, its log writes and its changes to
+	 * the state of the simulation.
+	 */
+	void merge() {
+		SimulationContext c = getParent();
+		for (SimEvent event : sent) {
+			// the serial is 0 if the event has been sent first
+			if (event.getSerial() == 0) {
+				c.future.addEventFirst(event);
+			} else {
+				c.future.addEvent(event);
+			}
+		}
+		sent.clear();
+
+		for (LogicalProcess.Write write : writes) {
+			try {
+				write.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		writes.clear();
+
+		if (!running) {
+			c.running = false;
+		}
+		if (abruptTerminate) {
+			c.abruptTerminate = true;
+		}
+		if (terminateAt != initialTerminateAt) {
+			c.terminateAt = terminateAt;
+		}
+		if (paused != initialPaused) {
+			c.paused = paused;
+		}
+		if (pauseAt != initialPauseAt) {
+			c.pauseAt = pauseAt;
+		}
+	}
+
+	@Override
+	public OutputStream adaptOutput(OutputStream output) {
+		return new BufferedOutput(output);
+	}
+
+	@Override
+	void schedule(SimEvent event) {
+		if (event.getType() == SimEvent.CREATE) {
+			throw new UnsupportedOperationException(
+					"Entities cannot be added to the simulation by an entity running in parallel.");
+		}
+		event.setSerial(-1);
+		sent.add(event);
+	}
+
+	@Override
+	void scheduleFirst(SimEvent event) {
+		event.setSerial(0);
+		sent.add(event);
+	}
+
+	@Override
+	boolean scheduleCoalesced(SimEvent event, boolean earliestWins) {
+		double time = event.eventTime();
+		for (SimEvent other : sent) {
+			if (FutureQueue.isEquivalent(other, event)
+					&& (other.eventTime() == time || (earliestWins && other.eventTime() < time))) {
+				return false;
+			}
+		}
+		synchronized (lock) {
+			if (future.isMergeable(event, earliestWins)) {
+				return false;
+			}
+			if (earliestWins) {
+				future.cancelEquivalents(event);
+			}
+		}
+		if (earliestWins) {
+			Iterator<SimEvent> iterator = sent.iterator();
+			while (iterator.hasNext()) {
+				if (FutureQueue.isEquivalent(iterator.next(), event)) {
+					iterator.remove();
+				}
+			}
+		}
+		schedule(event);
+		return true;
+	}
+
+	@Override
+	SimEvent cancel(int source, Predicate p) {
+		SimEvent buffered = null;
+		for (SimEvent event : sent) {
+			if (event.getSource() == source && p.match(event) && (buffered == null || precedes(event, buffered))) {
+				buffered = event;
+			}
+		}
+		synchronized (lock) {
+			SimEvent pending = future.find(source, p);
+			if (pending != null && (buffered == null || !precedes(buffered, pending))) {
+				future.cancel(pending);
+				return pending;
+			}
+		}
+		if (buffered != null) {
+			sent.remove(buffered);
+		}
+		return buffered;
+	}
+
+	@Override
+	void cancelEvent(SimEvent event) {
+		if (!sent.remove(event)) {
+			synchronized (lock) {
+				future.cancel(event);
+			}
+		}
+	}
+
+	@Override
+	boolean cancelAll(int source, Predicate p) {
+		boolean result;
+		synchronized (lock) {
+			result = future.cancelAll(source, p);
+		}
+		Iterator<SimEvent> iterator = sent.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (event.getSource() == source && p.match(event)) {
+				iterator.remove();
+				result = true;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	int countDeferred(int destination, Predicate p) {
+		synchronized (lock) {
+			return deferred.count(destination, p);
+		}
+	}
+
+	@Override
+	SimEvent selectDeferred(int destination, Predicate p) {
+		synchronized (lock) {
+			return deferred.select(destination, p);
+		}
+	}
+
+	@Override
+	SimEvent findFirstDeferred(int destination, Predicate p) {
+		synchronized (lock) {
+			return deferred.findFirst(destination, p);
+		}
+	}
+
+	@Override
+	SimEvent lastDeferred(final int destination) {
+		// the deferred events of the other entities running in parallel are being selected
+		Predicate visible = new Predicate() {
+
+			@Override
+			public boolean match(SimEvent event) {
+				return event.getDestination() == destination || !batch.get(event.getDestination());
+			}
+		};
+		synchronized (lock) {
+			return deferred.last(visible);
+		}
+	}
+
+	/**
+	 * Checks whether an event sent by the entity is dispatched before an event sent earlier.
+	 *
+	 * @param event the event
+	 * @param earlier the event sent earlier
+	 * @return true, if the event is dispatched first
+	 */
+	private static boolean precedes(SimEvent event, SimEvent earlier) {
+		return event.eventTime() < earlier.eventTime()
+				|| (event.eventTime() == earlier.eventTime() && event.getSerial() == 0 && earlier.getSerial() != 0);
+	}
+
+	/**
+	 * An output stream buffering the writes of the entity.
+	 */
+	private class BufferedOutput extends OutputStream {
+
+		/** The output stream the writes are meant for. */
+		private final OutputStream output;
+
+		/**
+		 * Instantiates a new buffered output.
+		 *
+		 * @param output the output stream the writes are meant for
+		 */
+		public BufferedOutput(OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			writes.add(new LogicalProcess.Write(output, Arrays.copyOfRange(b, off, off + len), clock, 0,
+					entity.getId(), writeCount++));
+		}
+
+	}
+
+}
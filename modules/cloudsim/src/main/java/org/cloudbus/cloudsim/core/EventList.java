@@ -0,0 +1,76 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * The data structure holding the events of a {@link FutureQueue}. Implementations must keep the
+ * events ordered as defined by {@link SimEvent#compareTo(SimEvent)}, i.e. by time and then by
+ * serial number, with events of equal time and serial kept in insertion order. This guarantees
+ * that every implementation delivers exactly the same event sequence.
+ * 
+ * @since CloudSim Toolkit 3.1
+ * @see FutureQueue
+ * @see TreeSetEventList
+ * @see CalendarEventList
+ */
+public interface EventList extends Serializable {
+
+	/**
+	 * Adds an event to the list. The serial number of the event must be already set.
+	 * 
+	 * @param event the event
+	 */
+	void add(SimEvent event);
+
+	/**
+	 * Returns the first event of the list without removing it.
+	 * 
+	 * @return the first event or <tt>null</tt> if the list is empty
+	 */
+	SimEvent first();
+
+	/**
+	 * Removes and returns the first event of the list.
+	 * 
+	 * @return the first event or <tt>null</tt> if the list is empty
+	 */
+	SimEvent pollFirst();
+
+	/**
+	 * Removes an event from the list.
+	 * 
+	 * @param event the event
+	 * @return true, if the event was in the list
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Returns an iterator over the events in ascending order. The iterator supports
+	 * {@link Iterator#remove()}.
+	 * 
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns the number of events in the list.
+	 * 
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes all the events from the list.
+	 */
+	void clear();
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * The processing of a logical process of a {@link ParallelSimulation} which sent an event: the
+ * clock, the dispatch round at that clock and the entity being run. It is kept apart from
+ * {@link SimEvent}, since only the events of a parallel simulation have one, and it is shared by
+ * all the events sent by the same processing.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see SimEvent#compareOrder(SimEvent)
+ */
+final class EventOrigin implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The origin of the events not sent by a logical process. */
+	static final EventOrigin NONE = new EventOrigin(0, 0, 0);
+
+	/** The clock when the events were sent. */
+	private final double time;
+
+	/** The dispatch round at that clock. */
+	private final int round;
+
+	/** The id of the entity being run, or -1. */
+	private final int entity;
+
+	/**
+	 * Instantiates a new origin.
+	 *
+	 * @param time the clock when the events were sent
+	 * @param round the dispatch round at that clock
+	 * @param entity the id of the entity being run, or -1
+	 */
+	EventOrigin(double time, int round, int entity) {
+		this.time = time;
+		this.round = round;
+		this.entity = entity;
+	}
+
+	/**
+	 * Checks whether this origin is the given processing.
+	 *
+	 * @param time the clock
+	 * @param round the dispatch round at that clock
+	 * @param entity the id of the entity being run, or -1
+	 * @return true, if this origin has the given keys
+	 */
+	boolean is(double time, int round, int entity) {
+		return this.time == time && this.round == round && this.entity == entity;
+	}
+
+	/**
+	 * Compares this origin with another one: the time, then the round and finally the entity.
+	 *
+	 * @param other the other origin
+	 * @return a negative integer, zero, or a positive integer as this origin comes before, is the
+	 *         same as, or comes after the other origin
+	 */
+	int compareTo(EventOrigin other) {
+		if (this == other) {
+			return 0;
+		} else if (time != other.time) {
+			return time < other.time ? -1 : 1;
+		} else if (round != other.round) {
+			return round < other.round ? -1 : 1;
+		} else if (entity != other.entity) {
+			return entity < other.entity ? -1 : 1;
+		}
+		return 0;
+	}
+
+}
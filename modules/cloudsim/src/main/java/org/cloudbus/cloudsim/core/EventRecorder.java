@@ -0,0 +1,212 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the events processed by a simulation in a binary trace file, for
+ * {@link CloudSim#setEventRecorder(EventRecorder)}. Each event is written as a fixed-width record
+ * holding its time, source, destination, tag, type and the type of its data, so recording an event
+ * costs a few stores in a memory-mapped file and the recorder can be left on in long runs. The
+ * records form a ring: once the file is full, the oldest records are overwritten, so the file
+ * keeps the last events of the simulation.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes: the magic number, the version, the
+ * record size, the capacity in records, the number of events recorded so far and the position of
+ * the data types. The records follow, {@value #RECORD_SIZE} bytes each: the time (double), the
+ * source, destination and tag (ints), the event type and the data type (shorts). The data types
+ * are numbered from 1 in the order they are met, 0 standing for no data, and their class names are
+ * written after the records when the recorder is closed. The file is big-endian. The header is up
+ * to date after each record, so the records of a simulation which did not close its recorder can
+ * still be read by {@link EventTrace}.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see EventTrace
+ * @see EventTraceReplayer
+ */
+public class EventRecorder implements Closeable {
+
+	/** The number identifying a trace file. */
+	static final int MAGIC = 0x43535452;
+
+	/** The version of the file format. */
+	static final int VERSION = 1;
+
+	/** The size of the header, in bytes. */
+	public static final int HEADER_SIZE = 64;
+
+	/** The size of a record, in bytes. */
+	public static final int RECORD_SIZE = 24;
+
+	/** The position of the capacity in the header. */
+	static final int CAPACITY_OFFSET = 12;
+
+	/** The position of the number of events recorded in the header. */
+	static final int COUNT_OFFSET = 16;
+
+	/** The position of the position of the data types in the header. */
+	static final int TYPES_OFFSET = 24;
+
+	/** The largest data type number; the other types are all recorded with this number. */
+	static final int MAX_TYPE = Short.MAX_VALUE;
+
+	/** The file. */
+	private final RandomAccessFile file;
+
+	/** The mapped header and records. */
+	private final MappedByteBuffer buffer;
+
+	/** The capacity, in records. */
+	private final int capacity;
+
+	/** The number of events recorded. */
+	private long count;
+
+	/** The index of the next record in the ring. */
+	private int next;
+
+	/** The numbers of the data types. */
+	private final Map<Class<?>, Integer> types = new HashMap<Class<?>, Integer>();
+
+	/** The class names of the data types, in the order of their numbers. */
+	private final List<String> typeNames = new ArrayList<String>();
+
+	/** The last data type met, which is usually the type of the next event. */
+	private Class<?> lastClass;
+
+	/** The number of the last data type met. */
+	private int lastType;
+
+	/**
+	 * Instantiates a new recorder writing to a file, which is overwritten.
+	 *
+	 * @param file the trace file
+	 * @param capacity the number of events the file holds before the oldest ones are overwritten
+	 * @throws IOException if the file cannot be created
+	 * @pre file != null
+	 * @pre capacity > 0
+	 */
+	public EventRecorder(File file, int capacity) throws IOException {
+		if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+			throw new IllegalArgumentException("The capacity has to be positive and the file smaller than 2 GB.");
+		}
+		this.capacity = capacity;
+		int size = HEADER_SIZE + capacity * RECORD_SIZE;
+		this.file = new RandomAccessFile(file, "rw");
+		try {
+			this.file.setLength(0);
+			this.file.setLength(size);
+			buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, RECORD_SIZE);
+		buffer.putInt(CAPACITY_OFFSET, capacity);
+		buffer.putLong(COUNT_OFFSET, 0);
+		buffer.putLong(TYPES_OFFSET, 0);
+	}
+
+	/**
+	 * Records an event.
+	 *
+	 * @param event the event
+	 */
+	public void record(SimEvent event) {
+		int position = HEADER_SIZE + next * RECORD_SIZE;
+		buffer.putDouble(position, event.eventTime());
+		buffer.putInt(position + 8, event.getSource());
+		buffer.putInt(position + 12, event.getDestination());
+		buffer.putInt(position + 16, event.getTag());
+		buffer.putShort(position + 20, (short) event.getType());
+		buffer.putShort(position + 22, (short) getType(event.getData()));
+		if (++next == capacity) {
+			next = 0;
+		}
+		buffer.putLong(COUNT_OFFSET, ++count);
+	}
+
+	/**
+	 * Gets the number of events recorded, including those which have been overwritten.
+	 *
+	 * @return the number of events
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of events the file holds.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Writes the data types after the records and closes the file.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			long position = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+			file.seek(position);
+			file.writeInt(typeNames.size());
+			for (String name : typeNames) {
+				file.writeUTF(name);
+			}
+			buffer.putLong(TYPES_OFFSET, position);
+			buffer.force();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Gets the number of the type of the data of an event.
+	 *
+	 * @param data the data
+	 * @return the number of its type, or 0 if there is no data
+	 */
+	private int getType(Object data) {
+		if (data == null) {
+			return 0;
+		}
+		Class<?> dataClass = data.getClass();
+		if (dataClass != lastClass) {
+			Integer type = types.get(dataClass);
+			if (type == null) {
+				if (typeNames.size() < MAX_TYPE) {
+					typeNames.add(dataClass.getName());
+				}
+				type = typeNames.size();
+				types.put(dataClass, type);
+			}
+			lastClass = dataClass;
+			lastType = type;
+		}
+		return lastType;
+	}
+
+}
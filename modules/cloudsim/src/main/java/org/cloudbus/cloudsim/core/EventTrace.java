@@ -0,0 +1,200 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The events recorded in a trace file by an {@link EventRecorder}, in the order they were
+ * processed. When the ring of the file has wrapped around, only the last events are available.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see EventRecorder
+ * @see EventTraceReplayer
+ */
+public class EventTrace {
+
+	/** The number of events recorded, including those which have been overwritten. */
+	private final long totalCount;
+
+	/** The event times. */
+	private final double[] times;
+
+	/** The source entity ids. */
+	private final int[] sources;
+
+	/** The destination entity ids. */
+	private final int[] destinations;
+
+	/** The tags. */
+	private final int[] tags;
+
+	/** The event types. */
+	private final short[] types;
+
+	/** The data type numbers. */
+	private final short[] dataTypes;
+
+	/** The class names of the data types, indexed by number - 1. */
+	private final String[] dataTypeNames;
+
+	/**
+	 * Reads a trace file.
+	 *
+	 * @param file the trace file
+	 * @throws IOException if an I/O error occurs or the file is not a trace file
+	 */
+	public EventTrace(File file) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			if (input.length() < EventRecorder.HEADER_SIZE || input.readInt() != EventRecorder.MAGIC
+					|| input.readInt() != EventRecorder.VERSION || input.readInt() != EventRecorder.RECORD_SIZE) {
+				throw new IOException("The file is not an event trace: " + file);
+			}
+			int capacity = input.readInt();
+			totalCount = input.readLong();
+			long typesPosition = input.readLong();
+
+			int size = (int) Math.min(totalCount, capacity);
+			times = new double[size];
+			sources = new int[size];
+			destinations = new int[size];
+			tags = new int[size];
+			types = new short[size];
+			dataTypes = new short[size];
+			MappedByteBuffer buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					EventRecorder.HEADER_SIZE + (long) capacity * EventRecorder.RECORD_SIZE);
+			// the oldest record follows the newest one once the ring has wrapped around
+			int first = (int) (totalCount % capacity);
+			for (int i = 0; i < size; i++) {
+				int index = totalCount > capacity ? (first + i) % capacity : i;
+				int position = EventRecorder.HEADER_SIZE + index * EventRecorder.RECORD_SIZE;
+				times[i] = buffer.getDouble(position);
+				sources[i] = buffer.getInt(position + 8);
+				destinations[i] = buffer.getInt(position + 12);
+				tags[i] = buffer.getInt(position + 16);
+				types[i] = buffer.getShort(position + 20);
+				dataTypes[i] = buffer.getShort(position + 22);
+			}
+
+			if (typesPosition > 0) {
+				input.seek(typesPosition);
+				dataTypeNames = new String[input.readInt()];
+				for (int i = 0; i < dataTypeNames.length; i++) {
+					dataTypeNames[i] = input.readUTF();
+				}
+			} else {
+				dataTypeNames = new String[0];
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Gets the number of events available.
+	 *
+	 * @return the number of events
+	 */
+	public int size() {
+		return times.length;
+	}
+
+	/**
+	 * Gets the number of events recorded, including those which have been overwritten.
+	 *
+	 * @return the number of events
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Gets the time of an event.
+	 *
+	 * @param index the index of the event
+	 * @return the time
+	 */
+	public double getTime(int index) {
+		return times[index];
+	}
+
+	/**
+	 * Gets the id of the source entity of an event.
+	 *
+	 * @param index the index of the event
+	 * @return the source entity id
+	 */
+	public int getSource(int index) {
+		return sources[index];
+	}
+
+	/**
+	 * Gets the id of the destination entity of an event.
+	 *
+	 * @param index the index of the event
+	 * @return the destination entity id
+	 */
+	public int getDestination(int index) {
+		return destinations[index];
+	}
+
+	/**
+	 * Gets the tag of an event.
+	 *
+	 * @param index the index of the event
+	 * @return the tag
+	 */
+	public int getTag(int index) {
+		return tags[index];
+	}
+
+	/**
+	 * Gets the type of an event, e.g. {@link SimEvent#SEND}.
+	 *
+	 * @param index the index of the event
+	 * @return the event type
+	 */
+	public int getType(int index) {
+		return types[index];
+	}
+
+	/**
+	 * Gets the class name of the data of an event.
+	 *
+	 * @param index the index of the event
+	 * @return the class name, <tt>null</tt> if the event had no data, or <tt>"?"</tt> if the
+	 *         recorder was not closed
+	 */
+	public String getDataType(int index) {
+		int dataType = dataTypes[index];
+		if (dataType == 0) {
+			return null;
+		}
+		return dataType <= dataTypeNames.length ? dataTypeNames[dataType - 1] : "?";
+	}
+
+	/**
+	 * Gets the largest entity id found in the events.
+	 *
+	 * @return the largest id, or -1 if there is no event
+	 */
+	public int getMaxEntityId() {
+		int max = -1;
+		for (int i = 0; i < times.length; i++) {
+			max = Math.max(max, Math.max(sources[i], destinations[i]));
+		}
+		return max;
+	}
+
+}
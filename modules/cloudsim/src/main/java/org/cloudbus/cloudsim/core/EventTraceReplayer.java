@@ -0,0 +1,196 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Replays the events of an {@link EventTrace} through a bare simulation, to measure the
+ * performance of the simulation engine on the event stream of a real simulation, without the cost
+ * of its entities. Each entity of the trace is replaced by an entity ignoring its events, and the
+ * events sent in the trace are sent again between these entities, with the same times and tags but
+ * without data. The events are fed to the future event queue a window at a time, so that the queue
+ * holds about as many events as the window; the other kinds of events are not replayed.
+ * <p>
+ * The replay runs in the current simulation context, which it initialises:
+ *
+ * <pre>
+ * EventTrace trace = new EventTrace(file);
+ * long start = System.nanoTime();
+ * int events = new EventTraceReplayer(trace).replay(new CalendarEventList());
+ * long elapsed = System.nanoTime() - start;
+ * </pre>
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see EventTrace
+ * @see EventRecorder
+ */
+public class EventTraceReplayer {
+
+	/** The default number of events fed to the future event queue at once. */
+	public static final int DEFAULT_WINDOW = 1024;
+
+	/** The tag of the events making the feeder feed the next window. */
+	private static final int FEED = -1;
+
+	/** The trace. */
+	private final EventTrace trace;
+
+	/** The number of events fed to the future event queue at once. */
+	private final int window;
+
+	/**
+	 * Instantiates a new replayer feeding the events by windows of {@value #DEFAULT_WINDOW}.
+	 *
+	 * @param trace the trace
+	 */
+	public EventTraceReplayer(EventTrace trace) {
+		this(trace, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Instantiates a new replayer.
+	 *
+	 * @param trace the trace
+	 * @param window the number of events fed to the future event queue at once
+	 * @pre window > 0
+	 */
+	public EventTraceReplayer(EventTrace trace, int window) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("The window has to be positive.");
+		}
+		this.trace = trace;
+		this.window = window;
+	}
+
+	/**
+	 * Replays the trace in the current simulation context, with the default event list.
+	 *
+	 * @return the number of events replayed
+	 */
+	public int replay() {
+		return replay(new TreeSetEventList());
+	}
+
+	/**
+	 * Replays the trace in the current simulation context.
+	 *
+	 * @param eventList the event list used by the future event queue
+	 * @return the number of events replayed
+	 */
+	public int replay(EventList eventList) {
+		CloudSim.init(0, null, false, eventList);
+		int offset = CloudSim.getNumEntities();
+		for (int id = 0; id <= trace.getMaxEntityId(); id++) {
+			new Sink("ReplayedEntity" + id);
+		}
+		Feeder feeder = new Feeder("EventTraceFeeder", offset);
+		CloudSim.startSimulation();
+		return feeder.replayed;
+	}
+
+	/**
+	 * An entity standing for an entity of the trace, which ignores its events.
+	 */
+	private static class Sink extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Instantiates a new sink.
+		 *
+		 * @param name the name
+		 */
+		public Sink(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	/**
+	 * The entity sending the events of the trace, a window at a time.
+	 */
+	private class Feeder extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The id of the entity standing for the entity 0 of the trace. */
+		private final int offset;
+
+		/** The index of the next event of the trace. */
+		private int next;
+
+		/** The number of events sent. */
+		private int replayed;
+
+		/**
+		 * Instantiates a new feeder.
+		 *
+		 * @param name the name
+		 * @param offset the id of the entity standing for the entity 0 of the trace
+		 */
+		public Feeder(String name, int offset) {
+			super(name);
+			this.offset = offset;
+		}
+
+		@Override
+		public void startEntity() {
+			feed();
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == FEED) {
+				feed();
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+		/**
+		 * Sends the next window of events, and schedules the feeding of the following window at
+		 * the time of the last one.
+		 */
+		private void feed() {
+			double clock = CloudSim.clock();
+			double last = clock;
+			int end = Math.min(next + window, trace.size());
+			for (; next < end; next++) {
+				int source = trace.getSource(next);
+				int destination = trace.getDestination(next);
+				if (trace.getType(next) != SimEvent.SEND || source < 0 || destination < 0) {
+					continue;
+				}
+				last = Math.max(trace.getTime(next), clock);
+				CloudSim.send(source + offset, destination + offset, last - clock, trace.getTag(next), null);
+				replayed++;
+			}
+			if (next < trace.size()) {
+				schedule(getId(), last - clock, FEED);
+			}
+		}
+
+	}
+
+}
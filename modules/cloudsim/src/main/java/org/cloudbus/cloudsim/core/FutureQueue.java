@@ -8,28 +8,85 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
+ * This class implements the future event queue used by {@link Simulation}. The events are stored
+ * in an {@link EventList}, which by default is a {@link TreeSetEventList}.
+ * <p>
+ * The pending events are also indexed by source entity and tag, so that cancelling the events
+ * scheduled by an entity only touches the matching events. Cancelled events are not removed from
+ * the event list right away: they are marked as tombstones, which are skipped and discarded when
+ * they reach the head of the queue, or purged at once when they become the majority of the list.
+ * <p>
+ * The events scheduled without delay, i.e. at the time of the last event taken from the queue, do
+ * not go through the event list but are appended to a FIFO lane, provided that they come after
+ * the last event of the lane. In a sequential simulation they are always added after all the other
+ * events of that time, so the lane stays sorted and adding them costs O(1).
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see EventList
  */
-public class FutureQueue {
+public class FutureQueue implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The event list. */
+	private final EventList eventList;
 
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	/** The minimum number of tombstones triggering a purge of the event list. */
+	private static final int MIN_PURGE_SIZE = 1024;
 
 	/** The serial. */
 	private long serial = 0;
 
+	/** The chains of pending events, indexed by source entity id and by tag. */
+	private transient ChainTable[] sources = new ChainTable[0];
+
+	/** The list reused by {@link #getChains(int, Predicate)} to return the matching chains. */
+	private transient List<Chain> chains = new ArrayList<Chain>();
+
+	/** The events at the time of the last event taken from the queue, in insertion order. */
+	private final ArrayDeque<SimEvent> lane = new ArrayDeque<SimEvent>();
+
+	/** The time of the last event taken from the queue. */
+	private double laneTime = Double.NaN;
+
+	/** The number of cancelled events still stored in the event list or in the lane. */
+	private int cancelledCount;
+
+	/**
+	 * Instantiates a new future queue backed by a {@link TreeSetEventList}.
+	 */
+	public FutureQueue() {
+		this(new TreeSetEventList());
+	}
+
+	/**
+	 * Instantiates a new future queue.
+	 * 
+	 * @param eventList the event list used to store the events
+	 */
+	public FutureQueue(EventList eventList) {
+		this.eventList = eventList;
+	}
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
@@ -38,7 +95,12 @@ public class FutureQueue {
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		index(newEvent);
+		if (newEvent.eventTime() == laneTime && (lane.isEmpty() || newEvent.compareTo(lane.peekLast()) > 0)) {
+			lane.addLast(newEvent);
+		} else {
+			eventList.add(newEvent);
+		}
 	}
 
 	/**
@@ -48,7 +110,126 @@ public class FutureQueue {
 	 */
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		index(newEvent);
+		eventList.add(newEvent);
+	}
+
+	/**
+	 * Adds a new event to the queue unless it can be merged with a pending event having the same
+	 * source, destination, tag and data. The new event is merged with a pending event at the same
+	 * time or, if the earliest event wins, at an earlier time; if the earliest event wins and the
+	 * new event is added, the pending events at later times are cancelled.
+	 * 
+	 * @param newEvent the event to be put in the queue
+	 * @param earliestWins whether only the earliest of the equivalent events has to be kept
+	 * @return true, if the event has been added; false if it has been merged
+	 */
+	public boolean addEventCoalesced(SimEvent newEvent, boolean earliestWins) {
+		if (isMergeable(newEvent, earliestWins)) {
+			return false;
+		}
+		if (earliestWins) {
+			cancelEquivalents(newEvent);
+		}
+		addEvent(newEvent);
+		return true;
+	}
+
+	/**
+	 * Checks whether a new event would be merged with a pending event by
+	 * {@link #addEventCoalesced(SimEvent, boolean)}.
+	 * 
+	 * @param newEvent the new event
+	 * @param earliestWins whether only the earliest of the equivalent events has to be kept
+	 * @return true, if an equivalent event is pending at the same time or, if the earliest event
+	 *         wins, at an earlier time
+	 */
+	boolean isMergeable(SimEvent newEvent, boolean earliestWins) {
+		Chain chain = getChain(newEvent.getSource(), newEvent.getTag());
+		if (chain != null) {
+			double time = newEvent.eventTime();
+			for (SimEvent event = chain.head; event != null; event = event.nextWithSourceTag) {
+				if (isEquivalent(event, newEvent)
+						&& (event.eventTime() == time || (earliestWins && event.eventTime() < time))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Cancels the pending events equivalent to a new event.
+	 * 
+	 * @param newEvent the new event
+	 */
+	void cancelEquivalents(SimEvent newEvent) {
+		Chain chain = getChain(newEvent.getSource(), newEvent.getTag());
+		if (chain != null) {
+			SimEvent event = chain.head;
+			while (event != null) {
+				SimEvent next = event.nextWithSourceTag;
+				if (isEquivalent(event, newEvent)) {
+					tombstone(event);
+				}
+				event = next;
+			}
+		}
+	}
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 * 
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent first() {
+		SimEvent first = eventList.first();
+		while (first != null && first.cancelled) {
+			eventList.pollFirst();
+			cancelledCount--;
+			first = eventList.first();
+		}
+		SimEvent head = lane.peekFirst();
+		while (head != null && head.cancelled) {
+			lane.pollFirst();
+			cancelledCount--;
+			head = lane.peekFirst();
+		}
+		if (head != null && (first == null || head.compareTo(first) < 0)) {
+			return head;
+		}
+		return first;
+	}
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 * 
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent poll() {
+		SimEvent first = first();
+		if (first != null) {
+			take(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Removes and returns the first event of the queue if it occurs at a given time. Calling this
+	 * method until it returns <tt>null</tt> drains all the events of that time, including those
+	 * added meanwhile.
+	 * 
+	 * @param time the time
+	 * @return the first event or <tt>null</tt> if the queue is empty or the first event occurs
+	 *         later
+	 */
+	public SimEvent pollAt(double time) {
+		SimEvent first = first();
+		if (first == null || first.eventTime() != time) {
+			return null;
+		}
+		take(first);
+		return first;
 	}
 
 	/**
@@ -57,7 +238,7 @@ public class FutureQueue {
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		return new PendingIterator();
 	}
 
 	/**
@@ -66,17 +247,29 @@ public class FutureQueue {
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return eventList.size() + lane.size() - cancelledCount;
 	}
 
 	/**
-	 * Removes the event from the queue.
+	 * Removes the event from the queue. An event having a source entity is found through its chain
+	 * and cancelled in O(1); an event without source entity, which is not indexed, is searched in the
+	 * lane and in the event list.
 	 * 
 	 * @param event the event
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		if (event.cancelled) {
+			return false;
+		}
+		if (event.getSource() >= 0) {
+			if (!isIndexed(event)) {
+				return false;
+			}
+			cancel(event);
+			return true;
+		}
+		return (event.eventTime() == laneTime && lane.remove(event)) || eventList.remove(event);
 	}
 
 	/**
@@ -86,14 +279,521 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean result = false;
+		for (SimEvent event : events) {
+			result |= remove(event);
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels the first event scheduled by a given entity that matches a predicate.
+	 * 
+	 * @param source the id of the source entity
+	 * @param p the predicate
+	 * @return the cancelled event or <tt>null</tt> if no event matches
+	 */
+	public SimEvent cancel(int source, Predicate p) {
+		SimEvent first = find(source, p);
+		if (first != null) {
+			cancel(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Finds the first event scheduled by a given entity that matches a predicate. Only the chains of
+	 * the entity are searched, except for a negative source id: the events without source entity
+	 * are not indexed, so they are found by iterating over the whole queue in O(n).
+	 * 
+	 * @param source the id of the source entity
+	 * @param p the predicate
+	 * @return the first matching event or <tt>null</tt> if no event matches
+	 */
+	SimEvent find(int source, Predicate p) {
+		SimEvent first = null;
+		if (source < 0) {
+			Iterator<SimEvent> iterator = iterator();
+			while (iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (event.getSource() == source && p.match(event)) {
+					first = event;
+					break;
+				}
+			}
+		} else {
+			for (Chain chain : getChains(source, p)) {
+				for (SimEvent event = chain.head; event != null; event = event.nextWithSourceTag) {
+					if ((first == null || event.compareTo(first) < 0) && p.match(event)) {
+						first = event;
+					}
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Cancels a pending event.
+	 * 
+	 * @param event the event, which has to be pending in this queue
+	 */
+	void cancel(SimEvent event) {
+		tombstone(event);
+		purgeIfNeeded();
+	}
+
+	/**
+	 * Cancels all the events scheduled by a given entity that match a predicate. As in
+	 * {@link #find(int, Predicate)}, a negative source id makes the whole queue be iterated.
+	 * 
+	 * @param source the id of the source entity
+	 * @param p the predicate
+	 * @return true, if at least one event has been cancelled
+	 */
+	public boolean cancelAll(int source, Predicate p) {
+		boolean result = false;
+		if (source < 0) {
+			Iterator<SimEvent> iterator = iterator();
+			while (iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (event.getSource() == source && p.match(event)) {
+					tombstone(event);
+					result = true;
+				}
+			}
+		} else {
+			for (Chain chain : getChains(source, p)) {
+				SimEvent event = chain.head;
+				while (event != null) {
+					SimEvent next = event.nextWithSourceTag;
+					if (p.match(event)) {
+						tombstone(event);
+						result = true;
+					}
+					event = next;
+				}
+			}
+		}
+		if (result) {
+			purgeIfNeeded();
+		}
+		return result;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		eventList.clear();
+		lane.clear();
+		laneTime = Double.NaN;
+		for (ChainTable tags : sources) {
+			if (tags != null) {
+				tags.clear();
+			}
+		}
+		cancelledCount = 0;
+	}
+
+	/**
+	 * Checks whether two events have the same source, destination, tag and data, regardless of
+	 * their times.
+	 * 
+	 * @param event an event
+	 * @param other the other event
+	 * @return true, if the events are equivalent
+	 */
+	static boolean isEquivalent(SimEvent event, SimEvent other) {
+		return event.getSource() == other.getSource() && event.getDestination() == other.getDestination()
+				&& event.getTag() == other.getTag() && event.getData() == other.getData();
+	}
+
+	/**
+	 * Gets the chain of the events of a source entity having a given tag.
+	 * 
+	 * @param source the id of the source entity
+	 * @param tag the tag
+	 * @return the chain or <tt>null</tt> if no such event has ever been added
+	 */
+	private Chain getChain(int source, int tag) {
+		if (source < 0 || source >= sources.length || sources[source] == null) {
+			return null;
+		}
+		return sources[source].get(tag);
+	}
+
+	/**
+	 * Gets the chains of the events of a source entity that may match a predicate. The returned
+	 * list is reused, so it is only valid until the next call.
+	 * 
+	 * @param source the id of the source entity
+	 * @param p the predicate
+	 * @return the chains
+	 */
+	private List<Chain> getChains(int source, Predicate p) {
+		chains.clear();
+		if (source >= sources.length || sources[source] == null || p instanceof PredicateNone) {
+			return chains;
+		}
+		ChainTable tags = sources[source];
+		if (p instanceof PredicateType) {
+			PredicateType predicate = (PredicateType) p;
+			for (int i = 0; i < predicate.getNumberOfTags(); i++) {
+				Chain chain = tags.get(predicate.getTag(i));
+				if (chain != null && !chains.contains(chain)) {
+					chains.add(chain);
+				}
+			}
+		} else {
+			tags.addChainsTo(chains);
+		}
+		return chains;
+	}
+
+	/**
+	 * Removes the first event of the queue, as returned by {@link #first()}, and makes its time the
+	 * time of the lane.
+	 * 
+	 * @param first the first event
+	 */
+	private void take(SimEvent first) {
+		if (first == lane.peekFirst()) {
+			lane.pollFirst();
+		} else {
+			eventList.pollFirst();
+		}
+		unindex(first);
+		laneTime = first.eventTime();
+	}
+
+	/**
+	 * Marks a pending event as cancelled and removes it from the index.
+	 * 
+	 * @param event the event
+	 */
+	private void tombstone(SimEvent event) {
+		unindex(event);
+		event.cancelled = true;
+		cancelledCount++;
+	}
+
+	/**
+	 * Removes the tombstones from the event list and the lane if they are the majority of their
+	 * events.
+	 */
+	private void purgeIfNeeded() {
+		if (cancelledCount < MIN_PURGE_SIZE || cancelledCount * 2 < eventList.size() + lane.size()) {
+			return;
+		}
+		purge(eventList.iterator());
+		purge(lane.iterator());
+		cancelledCount = 0;
+	}
+
+	/**
+	 * Removes the tombstones returned by an iterator.
+	 * 
+	 * @param iterator the iterator
+	 */
+	private static void purge(Iterator<SimEvent> iterator) {
+		while (iterator.hasNext()) {
+			if (iterator.next().cancelled) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Appends an event to the chain of its source entity and tag.
+	 * 
+	 * @param event the event
+	 */
+	private void index(SimEvent event) {
+		event.cancelled = false;
+		int source = event.getSource();
+		if (source < 0) {
+			return;
+		}
+		if (source >= sources.length) {
+			sources = Arrays.copyOf(sources, Math.max(source + 1, sources.length * 2));
+		}
+		ChainTable tags = sources[source];
+		if (tags == null) {
+			tags = new ChainTable();
+			sources[source] = tags;
+		}
+		Chain chain = tags.get(event.getTag());
+		if (chain == null) {
+			chain = new Chain();
+			tags.put(event.getTag(), chain);
+		}
+		event.indexingQueue = this;
+		event.previousWithSourceTag = chain.tail;
+		event.nextWithSourceTag = null;
+		if (chain.tail == null) {
+			chain.head = event;
+		} else {
+			chain.tail.nextWithSourceTag = event;
+		}
+		chain.tail = event;
+	}
+
+	/**
+	 * Checks whether an event having a source entity is pending in this queue, i.e. whether it is
+	 * linked in the chain of its source entity and tag of this queue, rather than in that of
+	 * another queue.
+	 * 
+	 * @param event the event
+	 * @return true, if the event is in its chain
+	 */
+	private boolean isIndexed(SimEvent event) {
+		return event.indexingQueue == this;
+	}
+
+	/**
+	 * Removes an event from the chain of its source entity and tag.
+	 * 
+	 * @param event the event
+	 */
+	private void unindex(SimEvent event) {
+		int source = event.getSource();
+		if (source < 0) {
+			return;
+		}
+		Chain chain = sources[source].get(event.getTag());
+		if (event.previousWithSourceTag == null) {
+			chain.head = event.nextWithSourceTag;
+		} else {
+			event.previousWithSourceTag.nextWithSourceTag = event.nextWithSourceTag;
+		}
+		if (event.nextWithSourceTag == null) {
+			chain.tail = event.previousWithSourceTag;
+		} else {
+			event.nextWithSourceTag.previousWithSourceTag = event.previousWithSourceTag;
+		}
+		event.previousWithSourceTag = null;
+		event.nextWithSourceTag = null;
+		event.indexingQueue = null;
+	}
+
+	/**
+	 * Reads the queue and indexes its pending events again.
+	 * 
+	 * @param in the input stream
+	 * @throws IOException if an I/O error occurs
+	 * @throws ClassNotFoundException if the class of an event cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		sources = new ChainTable[0];
+		chains = new ArrayList<Chain>();
+		Iterator<SimEvent> iterator = iterator();
+		while (iterator.hasNext()) {
+			index(iterator.next());
+		}
+	}
+
+	/**
+	 * The pending events having the same source entity and tag, in insertion order.
+	 */
+	private static class Chain {
+
+		/** The first and last events. */
+		private SimEvent head, tail;
+
+		/**
+		 * Unlinks all the events of the chain.
+		 */
+		void clear() {
+			SimEvent event = head;
+			while (event != null) {
+				SimEvent next = event.nextWithSourceTag;
+				event.previousWithSourceTag = null;
+				event.nextWithSourceTag = null;
+				event.indexingQueue = null;
+				event = next;
+			}
+			head = null;
+			tail = null;
+		}
+
+	}
+
+	/**
+	 * The chains of the events of a source entity, indexed by tag in an open-addressing hash table
+	 * with linear probing, so that the tags are not boxed. The chains are never removed.
+	 */
+	private static class ChainTable {
+
+		/** The tags, by bucket. */
+		private int[] tags = new int[8];
+
+		/** The chains, by bucket, or <tt>null</tt> for an empty bucket. */
+		private Chain[] chains = new Chain[8];
+
+		/** The number of chains. */
+		private int size;
+
+		/**
+		 * Gets the chain of a tag.
+		 * 
+		 * @param tag the tag
+		 * @return the chain or <tt>null</tt> if there is none
+		 */
+		Chain get(int tag) {
+			int mask = chains.length - 1;
+			for (int i = bucket(tag, mask); chains[i] != null; i = (i + 1) & mask) {
+				if (tags[i] == tag) {
+					return chains[i];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Adds the chain of a tag which has none yet.
+		 * 
+		 * @param tag the tag
+		 * @param chain the chain
+		 */
+		void put(int tag, Chain chain) {
+			if (2 * (size + 1) > chains.length) {
+				int[] oldTags = tags;
+				Chain[] oldChains = chains;
+				tags = new int[2 * oldChains.length];
+				chains = new Chain[2 * oldChains.length];
+				for (int i = 0; i < oldChains.length; i++) {
+					if (oldChains[i] != null) {
+						insert(oldTags[i], oldChains[i]);
+					}
+				}
+			}
+			insert(tag, chain);
+			size++;
+		}
+
+		/**
+		 * Adds the chains to a list.
+		 * 
+		 * @param list the list
+		 */
+		void addChainsTo(List<Chain> list) {
+			for (Chain chain : chains) {
+				if (chain != null) {
+					list.add(chain);
+				}
+			}
+		}
+
+		/**
+		 * Unlinks the events of all the chains.
+		 */
+		void clear() {
+			for (Chain chain : chains) {
+				if (chain != null) {
+					chain.clear();
+				}
+			}
+		}
+
+		/**
+		 * Stores a chain in the first free bucket from that of its tag.
+		 * 
+		 * @param tag the tag
+		 * @param chain the chain
+		 */
+		private void insert(int tag, Chain chain) {
+			int mask = chains.length - 1;
+			int i = bucket(tag, mask);
+			while (chains[i] != null) {
+				i = (i + 1) & mask;
+			}
+			tags[i] = tag;
+			chains[i] = chain;
+		}
+
+		/**
+		 * Gets the bucket of a tag, spreading the consecutive tags.
+		 * 
+		 * @param tag the tag
+		 * @param mask the number of buckets minus one
+		 * @return the bucket
+		 */
+		private static int bucket(int tag, int mask) {
+			int hash = tag * 0x9E3779B9;
+			return (hash ^ (hash >>> 16)) & mask;
+		}
+
+	}
+
+	/**
+	 * An iterator merging the event list and the lane, skipping the cancelled events. Removing an
+	 * event through the iterator cancels it, so the underlying event list is not modified while it
+	 * is being iterated.
+	 */
+	private class PendingIterator implements Iterator<SimEvent> {
+
+		/** The iterator of the event list. */
+		private final Iterator<SimEvent> listIterator = eventList.iterator();
+
+		/** The iterator of the lane. */
+		private final Iterator<SimEvent> laneIterator = lane.iterator();
+
+		/** The next pending events of the event list and of the lane. */
+		private SimEvent nextInList, nextInLane;
+
+		/** The last returned event. */
+		private SimEvent last;
+
+		@Override
+		public boolean hasNext() {
+			nextInList = advance(listIterator, nextInList);
+			nextInLane = advance(laneIterator, nextInLane);
+			return nextInList != null || nextInLane != null;
+		}
+
+		@Override
+		public SimEvent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (nextInList == null || (nextInLane != null && nextInLane.compareTo(nextInList) < 0)) {
+				last = nextInLane;
+				nextInLane = null;
+			} else {
+				last = nextInList;
+				nextInList = null;
+			}
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null || last.cancelled) {
+				throw new IllegalStateException();
+			}
+			tombstone(last);
+			last = null;
+		}
+
+		/**
+		 * Finds the next pending event of an iterator.
+		 * 
+		 * @param iterator the iterator
+		 * @param next the next pending event already found, or <tt>null</tt>
+		 * @return the next pending event or <tt>null</tt> if there is none
+		 */
+		private SimEvent advance(Iterator<SimEvent> iterator, SimEvent next) {
+			while (next == null && iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (!event.cancelled) {
+					next = event;
+				}
+			}
+			return next;
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The events injected into a simulation by threads other than the one running it, until the
+ * engine takes them at its next step. The queue is a linked list on which any number of threads
+ * append without locking, each with a single atomic exchange of the tail, and from which only
+ * the thread running the simulation takes, reading the head without any atomic operation. An
+ * event appended while it is taken may only be seen at the next step.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+class InjectionQueue {
+
+	/** The last node appended, shared by the appending threads. */
+	private final AtomicReference<Node> tail;
+
+	/** The node before the first event to take, only used by the taking thread. */
+	private Node head;
+
+	/**
+	 * Instantiates a new empty queue.
+	 */
+	InjectionQueue() {
+		head = new Node(-1, -1, -1, null);
+		tail = new AtomicReference<Node>(head);
+	}
+
+	/**
+	 * Appends an event. This method may be called by any thread.
+	 *
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the tag of the event
+	 * @param data the data of the event
+	 */
+	void offer(int src, int dest, int tag, Object data) {
+		Node node = new Node(src, dest, tag, data);
+		Node previous = tail.getAndSet(node);
+		previous.next = node;
+	}
+
+	/**
+	 * Checks whether an event can be taken. This method has to be called by the thread running
+	 * the simulation.
+	 *
+	 * @return true, if no event can be taken
+	 */
+	boolean isEmpty() {
+		return head.next == null;
+	}
+
+	/**
+	 * Takes the first event and schedules it at a given time. This method has to be called by the
+	 * thread running the simulation.
+	 *
+	 * @param time the time of the event
+	 * @return the event, or <tt>null</tt> if no event can be taken
+	 */
+	SimEvent poll(double time) {
+		Node first = head.next;
+		if (first == null) {
+			return null;
+		}
+		head = first;
+		SimEvent event = new SimEvent(SimEvent.SEND, time, first.src, first.dest, first.tag, first.data);
+		first.data = null;
+		return event;
+	}
+
+	/**
+	 * Discards the events which can be taken. This method has to be called by the thread running
+	 * the simulation.
+	 *
+	 * @return the number of events discarded
+	 */
+	int clear() {
+		int count = 0;
+		Node next = head.next;
+		while (next != null) {
+			next.data = null;
+			head = next;
+			next = head.next;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * An event appended to the queue.
+	 */
+	private static class Node {
+
+		/** The id of the source entity. */
+		final int src;
+
+		/** The id of the destination entity. */
+		final int dest;
+
+		/** The tag of the event. */
+		final int tag;
+
+		/** The data of the event, cleared once the event is taken. */
+		Object data;
+
+		/** The next node, set once by the thread appending it. */
+		volatile Node next;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param src the id of the source entity
+		 * @param dest the id of the destination entity
+		 * @param tag the tag of the event
+		 * @param data the data of the event
+		 */
+		Node(int src, int dest, int tag, Object data) {
+			this.src = src;
+			this.dest = dest;
+			this.tag = tag;
+			this.data = data;
+		}
+
+	}
+
+}
@@ -0,0 +1,527 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A logical process of a {@link ParallelSimulation}: a child context owning a subset of the
+ * entities, with its own future and deferred queues and its own clock. The events sent to the
+ * entities of other logical processes are kept in an outbox until the end of the current window.
+ * The log writes are buffered with the position of the processing that made them, so that the
+ * writes of all the logical processes can be merged in the order of the sequential simulation.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see ParallelSimulation
+ */
+class LogicalProcess extends SimulationContext {
+
+	/** The index of this logical process. */
+	private final int index;
+
+	/** The indices of the logical processes owning the entities, indexed by entity id. */
+	private final int[] owners;
+
+	/** The entities owned by this logical process, in id order. */
+	private final List<SimEntity> ownEntities = new ArrayList<SimEntity>();
+
+	/** The events sent to the other logical processes and not delivered yet, in sending order. */
+	private final List<SimEvent> outbox = new ArrayList<SimEvent>();
+
+	/** The log writes not merged yet. */
+	private final List<Write> writes = new ArrayList<Write>();
+
+	/** The end of the current window, before which no event can be sent to another process. */
+	private double windowEnd = Double.NEGATIVE_INFINITY;
+
+	/** The dispatch round at the current clock, -1 before the first dispatch. */
+	private int round = -1;
+
+	/** The id of the entity being run or started, -1 if none. */
+	private int runningEntity = -1;
+
+	/** The processing which sent the last event, shared by the events it sends. */
+	private EventOrigin origin = EventOrigin.NONE;
+
+	/** The number of log writes made so far. */
+	private long writeCount;
+
+	/** The clock when the simulation was terminated abruptly, NaN if it was not. */
+	private double abortTime = Double.NaN;
+
+	/** The dispatch round when the simulation was terminated abruptly. */
+	private int abortRound;
+
+	/**
+	 * Instantiates a new logical process.
+	 *
+	 * @param parent the context of the simulation
+	 * @param index the index of the logical process
+	 * @param owners the indices of the logical processes owning the entities, indexed by entity id
+	 */
+	LogicalProcess(SimulationContext parent, int index, int[] owners) {
+		super(parent);
+		this.index = index;
+		this.owners = owners;
+		cisId = parent.cisId;
+		shutdownId = parent.shutdownId;
+		cis = parent.cis;
+		traceFlag = parent.traceFlag;
+		calendar = parent.calendar;
+		entities = parent.entities;
+		entitiesByName = parent.entitiesByName;
+		future = new FutureQueue();
+		deferred = new DeferredQueue();
+		runnable = new RunnableSet();
+		waitPredicates = new HashMap<Integer, Predicate>();
+		clock = parent.clock;
+		tick = parent.tick;
+		running = true;
+		for (SimEntity entity : entities) {
+			if (owners[entity.getId()] == index) {
+				ownEntities.add(entity);
+			}
+		}
+	}
+
+	/**
+	 * Gets the index of this logical process.
+	 *
+	 * @return the index
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the time of the next pending event.
+	 *
+	 * @return the time, or positive infinity if no event is pending
+	 */
+	double nextEventTime() {
+		SimEvent first = future.first();
+		return first == null ? Double.POSITIVE_INFINITY : first.eventTime();
+	}
+
+	/**
+	 * Starts an entity of this logical process.
+	 *
+	 * @param entity the entity
+	 */
+	void start(SimEntity entity) {
+		runningEntity = entity.getId();
+		try {
+			entity.startEntity();
+		} finally {
+			runningEntity = -1;
+		}
+	}
+
+	/**
+	 * Dispatches the events pending at a given time, as {@link CloudSim#runClockTick()} does.
+	 *
+	 * @param time the time
+	 * @param dispatchRound the dispatch round at that time in the whole simulation
+	 */
+	void dispatch(double time, int dispatchRound) {
+		round = dispatchRound;
+		SimEvent next = future.pollAt(time);
+		while (next != null) {
+			CloudSim.processEvent(this, next);
+			next = future.pollAt(time);
+		}
+	}
+
+	/**
+	 * Dispatches the next pending events if they occur at a given time.
+	 *
+	 * @param time the time
+	 * @param dispatchRound the dispatch round at that time in the whole simulation
+	 * @return true, if events have been dispatched
+	 */
+	boolean dispatchIfAt(double time, int dispatchRound) {
+		if (nextEventTime() != time) {
+			return false;
+		}
+		dispatch(time, dispatchRound);
+		return true;
+	}
+
+	/**
+	 * Runs the runnable entities of this logical process, as {@link CloudSim#runClockTick()} does.
+	 */
+	void runEntities() {
+		if (runnable.isEmpty()) {
+			return;
+		}
+		int count = runnable.drain();
+		int[] ids = runnable.getBatch();
+		for (int i = 0; i < count; i++) {
+			SimEntity entity = entities.get(ids[i]);
+			if (entity.getState() == SimEntity.RUNNABLE) {
+				runningEntity = entity.getId();
+				try {
+					entity.run();
+				} finally {
+					runningEntity = -1;
+				}
+				if (abruptTerminate && Double.isNaN(abortTime)) {
+					abortTime = clock;
+					abortRound = round;
+				}
+			}
+		}
+		CloudSim.keepRunnable(this, ids, count);
+	}
+
+	/**
+	 * Processes the events of this logical process occurring before the end of a window, which
+	 * cannot depend on the events of the other logical processes. The processing stops early if
+	 * the simulation is terminated abruptly.
+	 *
+	 * @param end the end of the window, excluded
+	 */
+	void runWindow(double end) {
+		windowEnd = end;
+		try {
+			double time = nextEventTime();
+			while (time < end && !abruptTerminate) {
+				dispatch(time, time == clock && round >= 0 ? round + 1 : 0);
+				runEntities();
+				time = nextEventTime();
+			}
+		} finally {
+			windowEnd = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Delivers the events of the outbox to the logical processes owning their destinations.
+	 *
+	 * @param processes the logical processes, by index
+	 */
+	void deliver(LogicalProcess[] processes) {
+		for (SimEvent event : outbox) {
+			LogicalProcess target = processes[owners[getOwnerEntity(event)]];
+			// the serial is 0 if the event has been sent first
+			if (event.getSerial() == 0) {
+				target.future.addEventFirst(event);
+			} else {
+				target.future.addEvent(event);
+			}
+		}
+		outbox.clear();
+	}
+
+	/**
+	 * Prepares the logical process to run the end of the simulation, after the last window.
+	 *
+	 * @param time the final clock
+	 * @param stillRunning whether the simulation is still flagged as running
+	 */
+	void finish(double time, boolean stillRunning) {
+		clock = time;
+		round = Integer.MAX_VALUE;
+		running = stillRunning;
+	}
+
+	/**
+	 * Runs the end of the simulation for an entity of this logical process, as
+	 * {@link CloudSim#finishSimulation()} does.
+	 *
+	 * @param entity the entity
+	 * @param runEntity whether the entity has to process its deferred events
+	 */
+	void finish(SimEntity entity, boolean runEntity) {
+		runningEntity = entity.getId();
+		try {
+			if (runEntity && entity.getState() != SimEntity.FINISHED) {
+				entity.run();
+			}
+		} finally {
+			runningEntity = -1;
+		}
+	}
+
+	/**
+	 * Shuts down an entity of this logical process.
+	 *
+	 * @param entity the entity
+	 */
+	void shutdown(SimEntity entity) {
+		runningEntity = entity.getId();
+		try {
+			entity.shutdownEntity();
+		} finally {
+			runningEntity = -1;
+		}
+	}
+
+	/**
+	 * Gets the clock when the simulation was terminated abruptly.
+	 *
+	 * @return the clock, or NaN if the simulation has not been terminated abruptly
+	 */
+	double getAbortTime() {
+		return abortTime;
+	}
+
+	/**
+	 * Gets the dispatch round when the simulation was terminated abruptly.
+	 *
+	 * @return the dispatch round
+	 */
+	int getAbortRound() {
+		return abortRound;
+	}
+
+	/**
+	 * Gets the dispatch round at the current clock.
+	 *
+	 * @return the dispatch round, -1 before the first dispatch
+	 */
+	int getRound() {
+		return round;
+	}
+
+	/**
+	 * Moves the log writes of this logical process to a list.
+	 *
+	 * @param list the list
+	 */
+	void drainWrites(List<Write> list) {
+		list.addAll(writes);
+		writes.clear();
+	}
+
+	@Override
+	public OutputStream adaptOutput(OutputStream output) {
+		return new OrderedOutput(output);
+	}
+
+	@Override
+	void schedule(SimEvent event) {
+		if (event.getType() == SimEvent.CREATE) {
+			throw new UnsupportedOperationException(
+					"Entities cannot be added to a parallel simulation while it is running.");
+		}
+		stamp(event);
+		if (isLocal(event)) {
+			future.addEvent(event);
+		} else {
+			event.setSerial(-1);
+			outbox.add(event);
+		}
+	}
+
+	@Override
+	void scheduleFirst(SimEvent event) {
+		stamp(event);
+		if (isLocal(event)) {
+			future.addEventFirst(event);
+		} else {
+			event.setSerial(0);
+			outbox.add(event);
+		}
+	}
+
+	@Override
+	boolean scheduleCoalesced(SimEvent event, boolean earliestWins) {
+		stamp(event);
+		if (!isLocal(event)) {
+			throw new UnsupportedOperationException("Event " + event.getTag()
+					+ " cannot be coalesced with the events of another logical process.");
+		}
+		return future.addEventCoalesced(event, earliestWins);
+	}
+
+	@Override
+	SimEvent cancel(int source, Predicate p) {
+		SimEvent first = future.find(source, p);
+		SimEvent sent = null;
+		for (SimEvent event : outbox) {
+			if (event.getSource() == source && p.match(event) && (sent == null || event.compareTo(sent) < 0)) {
+				sent = event;
+			}
+		}
+		if (sent != null && (first == null || sent.compareTo(first) < 0)) {
+			outbox.remove(sent);
+			return sent;
+		}
+		if (first != null) {
+			future.cancel(first);
+		}
+		return first;
+	}
+
+	@Override
+	boolean cancelAll(int source, Predicate p) {
+		boolean result = future.cancelAll(source, p);
+		Iterator<SimEvent> iterator = outbox.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (event.getSource() == source && p.match(event)) {
+				iterator.remove();
+				result = true;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Records the processing sending an event.
+	 *
+	 * @param event the event
+	 */
+	private void stamp(SimEvent event) {
+		if (!origin.is(clock, round, runningEntity)) {
+			origin = new EventOrigin(clock, round, runningEntity);
+		}
+		event.setOrigin(origin);
+	}
+
+	/**
+	 * Checks whether an event is handled by this logical process, making sure that it does not
+	 * have to be handled before the end of the window otherwise.
+	 *
+	 * @param event the event
+	 * @return true, if the event is handled by this logical process
+	 * @throws IllegalStateException if the event would break the lookahead of the simulation
+	 */
+	private boolean isLocal(SimEvent event) {
+		int owner = owners[getOwnerEntity(event)];
+		if (owner == index) {
+			return true;
+		}
+		if (event.eventTime() < windowEnd) {
+			throw new IllegalStateException("Event " + event.getTag() + " sent by entity #" + event.getSource()
+					+ " at " + clock + " to entity #" + event.getDestination() + " of another logical process"
+					+ " occurs at " + event.eventTime() + ", before the end of the lookahead window at "
+					+ windowEnd + ".");
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the entity handling an event: its destination, or its source if it has none.
+	 *
+	 * @param event the event
+	 * @return the entity id
+	 */
+	private static int getOwnerEntity(SimEvent event) {
+		return event.getType() == SimEvent.SEND ? event.getDestination() : event.getSource();
+	}
+
+	/**
+	 * A log write, ordered by the position of the processing that made it in the sequential
+	 * simulation.
+	 */
+	static class Write implements Comparable<Write> {
+
+		/** The output stream. */
+		private final OutputStream output;
+
+		/** The bytes written. */
+		private final byte[] bytes;
+
+		/** The clock. */
+		private final double time;
+
+		/** The dispatch round. */
+		private final int round;
+
+		/** The entity being run. */
+		private final int entity;
+
+		/** The rank of the write in its logical process. */
+		private final long rank;
+
+		/**
+		 * Instantiates a new write.
+		 *
+		 * @param output the output stream
+		 * @param bytes the bytes written
+		 * @param time the clock
+		 * @param round the dispatch round
+		 * @param entity the entity being run
+		 * @param rank the rank of the write in its logical process
+		 */
+		public Write(OutputStream output, byte[] bytes, double time, int round, int entity, long rank) {
+			this.output = output;
+			this.bytes = bytes;
+			this.time = time;
+			this.round = round;
+			this.entity = entity;
+			this.rank = rank;
+		}
+
+		/**
+		 * Writes the bytes to the output stream.
+		 *
+		 * @throws IOException if the stream cannot be written
+		 */
+		public void flush() throws IOException {
+			output.write(bytes);
+		}
+
+		@Override
+		public int compareTo(Write write) {
+			if (time != write.time) {
+				return time < write.time ? -1 : 1;
+			} else if (round != write.round) {
+				return round < write.round ? -1 : 1;
+			} else if (entity != write.entity) {
+				return entity < write.entity ? -1 : 1;
+			} else if (rank != write.rank) {
+				return rank < write.rank ? -1 : 1;
+			}
+			return 0;
+		}
+
+	}
+
+	/**
+	 * An output stream buffering the writes of this logical process.
+	 */
+	private class OrderedOutput extends OutputStream {
+
+		/** The output stream the writes are meant for. */
+		private final OutputStream output;
+
+		/**
+		 * Instantiates a new ordered output.
+		 *
+		 * @param output the output stream the writes are meant for
+		 */
+		public OrderedOutput(OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			writes.add(new Write(output, Arrays.copyOfRange(b, off, off + len), clock, round, runningEntity,
+					writeCount++));
+		}
+
+	}
+
+}
@@ -0,0 +1,512 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An event list implemented as a binary heap whose ordering keys (time, serial and insertion
+ * sequence) are stored as a structure of primitive arrays, optionally allocated off-heap in direct
+ * byte buffers. The events themselves are kept in a side table of slots, which the heap refers to
+ * by index, along with the heap position and the origin of each event. Unlike a
+ * {@link TreeSetEventList}, no entry object is allocated per event, no field of the events is used
+ * by the list, and the heap comparisons never dereference an event: they only touch primitive
+ * memory, which the garbage collector never has to scan, and the shared origins of the events of a
+ * {@link ParallelSimulation}.
+ * <p>
+ * The events are still objects holding their source, destination, tag and data, so the list
+ * lowers the cost of the ordering structure rather than that of the events.
+ * <p>
+ * Insertions, polls and removals through the iterator cost O(log n). Removing a given event costs
+ * O(n), since the list keeps no reference from the event to its slot; the {@link FutureQueue} only
+ * does so for the rare events without source entity, which it does not index. Iterating over the
+ * list sorts a snapshot of the events, so it costs O(n log n) and should be kept for infrequent
+ * operations.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see EventList
+ * @see FutureQueue
+ */
+public class PackedEventList implements EventList {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The default initial capacity. */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/** Whether the keys are stored off-heap. */
+	private final boolean offHeap;
+
+	/** The event times, in heap order. */
+	private transient DoubleBuffer times;
+
+	/** The event serials, in heap order. */
+	private transient LongBuffer serials;
+
+	/** The insertion sequence numbers breaking the ties between events having the same keys. */
+	private transient LongBuffer sequences;
+
+	/** The slots of the events, in heap order. */
+	private transient IntBuffer slots;
+
+	/** The events, by slot. */
+	private transient SimEvent[] events;
+
+	/** The origins of the events, by slot. */
+	private transient EventOrigin[] origins;
+
+	/**
+	 * The heap positions of the events, by slot. A free slot holds the next free slot instead,
+	 * encoded as -2 - slot, or -1 if it is the last one.
+	 */
+	private transient int[] positions;
+
+	/** The first free slot below {@link #usedSlots}, or -1. */
+	private transient int firstFreeSlot;
+
+	/** The number of slots which have been used since the list was last emptied. */
+	private transient int usedSlots;
+
+	/** The number of events. */
+	private transient int size;
+
+	/** The insertion counter. */
+	private long sequence;
+
+	/**
+	 * Instantiates a new packed event list storing its keys on the Java heap.
+	 */
+	public PackedEventList() {
+		this(DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * Instantiates a new packed event list.
+	 *
+	 * @param initialCapacity the initial number of events the list can hold without growing
+	 * @param offHeap whether the keys are stored in direct byte buffers outside of the Java heap
+	 */
+	public PackedEventList(int initialCapacity, boolean offHeap) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("The initial capacity has to be positive.");
+		}
+		this.offHeap = offHeap;
+		firstFreeSlot = -1;
+		allocate(initialCapacity);
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		if (size == events.length) {
+			grow();
+		}
+		int slot;
+		if (firstFreeSlot >= 0) {
+			slot = firstFreeSlot;
+			firstFreeSlot = -2 - positions[slot];
+		} else {
+			slot = usedSlots++;
+		}
+		events[slot] = event;
+		origins[slot] = event.getOrigin();
+		times.put(size, event.eventTime());
+		serials.put(size, event.getSerial());
+		sequences.put(size, sequence++);
+		slots.put(size, slot);
+		positions[slot] = size;
+		size++;
+		siftUp(size - 1);
+	}
+
+	@Override
+	public SimEvent first() {
+		return size == 0 ? null : events[slots.get(0)];
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = events[slots.get(0)];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		for (int slot = 0; slot < usedSlots; slot++) {
+			if (events[slot] == event) {
+				removeAt(positions[slot]);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new SnapshotIterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(events, 0, usedSlots, null);
+		Arrays.fill(origins, 0, usedSlots, null);
+		size = 0;
+		usedSlots = 0;
+		firstFreeSlot = -1;
+	}
+
+	/**
+	 * Checks whether the keys are stored off-heap.
+	 *
+	 * @return true, if the keys are stored in direct byte buffers
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * Allocates the storage for a given number of events, copying the current events.
+	 *
+	 * @param capacity the capacity
+	 */
+	private void allocate(int capacity) {
+		DoubleBuffer newTimes = newBuffer(capacity, 8).asDoubleBuffer();
+		LongBuffer newSerials = newBuffer(capacity, 8).asLongBuffer();
+		LongBuffer newSequences = newBuffer(capacity, 8).asLongBuffer();
+		IntBuffer newSlots = newBuffer(capacity, 4).asIntBuffer();
+		for (int i = 0; i < size; i++) {
+			newTimes.put(i, times.get(i));
+			newSerials.put(i, serials.get(i));
+			newSequences.put(i, sequences.get(i));
+			newSlots.put(i, slots.get(i));
+		}
+		times = newTimes;
+		serials = newSerials;
+		sequences = newSequences;
+		slots = newSlots;
+		if (events == null) {
+			events = new SimEvent[capacity];
+			origins = new EventOrigin[capacity];
+			positions = new int[capacity];
+		} else {
+			events = Arrays.copyOf(events, capacity);
+			origins = Arrays.copyOf(origins, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+	}
+
+	/**
+	 * Creates a byte buffer holding one key of a given width per event.
+	 *
+	 * @param capacity the number of events
+	 * @param width the number of bytes of a key
+	 * @return the byte buffer
+	 */
+	private ByteBuffer newBuffer(int capacity, int width) {
+		ByteBuffer buffer = offHeap
+				? ByteBuffer.allocateDirect(capacity * width)
+				: ByteBuffer.allocate(capacity * width);
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Writes the list: the capacity, the number of events, then the events in heap order with
+	 * their insertion sequence numbers. The other keys and the slots are taken again from the
+	 * events when the list is read.
+	 *
+	 * @param out the output stream
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(events.length);
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeObject(events[slots.get(i)]);
+			out.writeLong(sequences.get(i));
+		}
+	}
+
+	/**
+	 * Reads the list written by {@link #writeObject(ObjectOutputStream)}, allocating new buffers
+	 * for the keys. The event at heap position i is given slot i.
+	 *
+	 * @param in the input stream
+	 * @throws IOException if an I/O error occurs
+	 * @throws ClassNotFoundException if the class of an event cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		firstFreeSlot = -1;
+		allocate(in.readInt());
+		size = in.readInt();
+		usedSlots = size;
+		for (int i = 0; i < size; i++) {
+			SimEvent event = (SimEvent) in.readObject();
+			events[i] = event;
+			origins[i] = event.getOrigin();
+			positions[i] = i;
+			times.put(i, event.eventTime());
+			serials.put(i, event.getSerial());
+			sequences.put(i, in.readLong());
+			slots.put(i, i);
+		}
+	}
+
+	/**
+	 * Doubles the capacity.
+	 */
+	private void grow() {
+		if (events.length > Integer.MAX_VALUE / 32) {
+			throw new IllegalStateException("Too many events in the list.");
+		}
+		allocate(events.length * 2);
+	}
+
+	/**
+	 * Removes the event at a given heap position and frees its slot.
+	 *
+	 * @param index the heap position
+	 */
+	private void removeAt(int index) {
+		int slot = slots.get(index);
+		size--;
+		if (index != size) {
+			int last = slots.get(size);
+			move(size, index);
+			siftDown(index);
+			if (slots.get(index) == last) {
+				siftUp(index);
+			}
+		}
+		events[slot] = null;
+		origins[slot] = null;
+		positions[slot] = -2 - firstFreeSlot;
+		firstFreeSlot = slot;
+	}
+
+	/**
+	 * Moves an event towards the root of the heap until its parent precedes it.
+	 *
+	 * @param index the heap position of the event
+	 */
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!precedes(index, parent)) {
+				break;
+			}
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	/**
+	 * Moves an event towards the leaves of the heap until it precedes its children.
+	 *
+	 * @param index the heap position of the event
+	 */
+	private void siftDown(int index) {
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && precedes(child + 1, child)) {
+				child++;
+			}
+			if (!precedes(child, index)) {
+				break;
+			}
+			swap(index, child);
+			index = child;
+		}
+	}
+
+	/**
+	 * Checks whether the event at a heap position comes before the event at another one, in the
+	 * order of {@link SimEvent#compareTo(SimEvent)}: the time, then whether the event has been sent
+	 * first (serial 0), then the origin, the serial and finally the insertion sequence.
+	 *
+	 * @param i a heap position
+	 * @param j the other heap position
+	 * @return true, if the event at i comes first
+	 */
+	private boolean precedes(int i, int j) {
+		double time = times.get(i);
+		double otherTime = times.get(j);
+		if (time != otherTime) {
+			return time < otherTime;
+		}
+		long serial = serials.get(i);
+		long otherSerial = serials.get(j);
+		if ((serial == 0) != (otherSerial == 0)) {
+			return serial == 0;
+		}
+		EventOrigin origin = origins[slots.get(i)];
+		EventOrigin otherOrigin = origins[slots.get(j)];
+		if (origin != otherOrigin) {
+			int order = origin.compareTo(otherOrigin);
+			if (order != 0) {
+				return order < 0;
+			}
+		}
+		if (serial != otherSerial) {
+			return serial < otherSerial;
+		}
+		return sequences.get(i) < sequences.get(j);
+	}
+
+	/**
+	 * Swaps the events at two heap positions.
+	 *
+	 * @param i a heap position
+	 * @param j the other heap position
+	 */
+	private void swap(int i, int j) {
+		double time = times.get(i);
+		long serial = serials.get(i);
+		long sequence = sequences.get(i);
+		int slot = slots.get(i);
+		move(j, i);
+		times.put(j, time);
+		serials.put(j, serial);
+		sequences.put(j, sequence);
+		slots.put(j, slot);
+		positions[slot] = j;
+	}
+
+	/**
+	 * Copies the event at a heap position to another one.
+	 *
+	 * @param from the source heap position
+	 * @param to the target heap position
+	 */
+	private void move(int from, int to) {
+		int slot = slots.get(from);
+		times.put(to, times.get(from));
+		serials.put(to, serials.get(from));
+		sequences.put(to, sequences.get(from));
+		slots.put(to, slot);
+		positions[slot] = to;
+	}
+
+	/**
+	 * Sorts a range of heap positions by the order of their events, using a buffer of the same
+	 * length.
+	 *
+	 * @param order the heap positions
+	 * @param buffer the buffer
+	 * @param from the first position of the range, included
+	 * @param to the last position of the range, excluded
+	 */
+	private void sort(int[] order, int[] buffer, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(order, buffer, from, middle);
+		sort(order, buffer, middle, to);
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && !precedes(buffer[right], buffer[left]))) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+
+	/**
+	 * An iterator over a sorted snapshot of the events. Removing an event through the iterator
+	 * removes it from the heap.
+	 */
+	private class SnapshotIterator implements Iterator<SimEvent> {
+
+		/** The slots of the events of the snapshot. */
+		private final int[] snapshotSlots;
+
+		/** The events of the snapshot. */
+		private final SimEvent[] snapshot;
+
+		/** The position of the next event in the snapshot. */
+		private int next;
+
+		/** The position of the last returned event in the snapshot, or -1. */
+		private int last = -1;
+
+		/**
+		 * Instantiates a new snapshot iterator.
+		 */
+		public SnapshotIterator() {
+			int[] order = new int[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			sort(order, new int[size], 0, size);
+			snapshotSlots = new int[size];
+			snapshot = new SimEvent[size];
+			for (int i = 0; i < size; i++) {
+				snapshotSlots[i] = slots.get(order[i]);
+				snapshot[i] = events[snapshotSlots[i]];
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < snapshot.length;
+		}
+
+		@Override
+		public SimEvent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return snapshot[last];
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			int slot = snapshotSlots[last];
+			if (events[slot] == snapshot[last]) {
+				removeAt(positions[slot]);
+			} else {
+				PackedEventList.this.remove(snapshot[last]);
+			}
+			last = -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * Runs in parallel the entities which have events to process at the same time, for
+ * {@link CloudSim#setDispatchPool(ForkJoinPool)}. The events dispatched at a given time are
+ * already grouped by destination in the deferred queue, so each runnable entity processes its own
+ * events in a task of the pool, in a {@link DispatchContext} buffering what it sends. Once all the
+ * tasks are done, the buffers are applied in the order of the entity ids, which is the order of a
+ * sequential simulation. The entities which are not allowed to run in parallel run alone, between
+ * the entities before and after them.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see CloudSim#setDispatchPool(ForkJoinPool)
+ * @see DispatchContext
+ */
+class ParallelDispatcher {
+
+	/** The pool. */
+	private final ForkJoinPool pool;
+
+	/** The lock guarding the future and deferred queues while the entities run in parallel. */
+	private final Object lock = new Object();
+
+	/** The ids of the entities running in parallel. */
+	private final BitSet batch = new BitSet();
+
+	/** The contexts of the entities, indexed by entity id, created when they first run in parallel. */
+	private final List<DispatchContext> contexts = new ArrayList<DispatchContext>();
+
+	/** The predicates used in entity wait methods, shared by the contexts. */
+	private Map<Integer, Predicate> waitPredicates;
+
+	/**
+	 * Instantiates a new parallel dispatcher.
+	 *
+	 * @param pool the pool running the entities
+	 */
+	ParallelDispatcher(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Gets the pool running the entities.
+	 *
+	 * @return the pool
+	 */
+	ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Runs the runnable entities, as {@link CloudSim#runClockTick()} does.
+	 *
+	 * @param c the context of the simulation
+	 * @param ids the ids of the entities to consider, in increasing order
+	 * @param count the number of entities to consider
+	 */
+	void runEntities(SimulationContext c, int[] ids, int count) {
+		List<DispatchContext> group = new ArrayList<DispatchContext>();
+		for (int i = 0; i < count; i++) {
+			SimEntity entity = c.entities.get(ids[i]);
+			if (entity.getState() != SimEntity.RUNNABLE) {
+				continue;
+			}
+			if (entity.isParallelDispatch()) {
+				group.add(getContext(c, entity));
+			} else {
+				runGroup(c, group);
+				CloudSim.runEntity(c, entity);
+			}
+		}
+		runGroup(c, group);
+	}
+
+	/**
+	 * Forgets the state of the last simulation.
+	 */
+	void clear() {
+		contexts.clear();
+		waitPredicates = null;
+	}
+
+	/**
+	 * Runs a group of entities in parallel and applies what they sent in the order of their ids.
+	 * The group is cleared afterwards.
+	 *
+	 * @param c the context of the simulation
+	 * @param group the contexts of the entities, in id order
+	 */
+	private void runGroup(SimulationContext c, List<DispatchContext> group) {
+		if (group.size() == 1) {
+			// nothing to run in parallel, run the entity in the context of the simulation
+			CloudSim.runEntity(c, group.get(0).getEntity());
+		} else if (group.size() > 1) {
+			batch.clear();
+			for (DispatchContext context : group) {
+				context.prepare();
+				batch.set(context.getEntity().getId());
+			}
+			pool.invoke(new DispatchTask(group, 0, group.size()));
+			for (DispatchContext context : group) {
+				context.merge();
+			}
+		}
+		group.clear();
+	}
+
+	/**
+	 * Gets the context in which an entity runs in parallel, creating it if necessary.
+	 *
+	 * @param c the context of the simulation
+	 * @param entity the entity
+	 * @return the context of the entity
+	 */
+	private DispatchContext getContext(SimulationContext c, SimEntity entity) {
+		int id = entity.getId();
+		while (contexts.size() <= id) {
+			contexts.add(null);
+		}
+		DispatchContext context = contexts.get(id);
+		if (context == null) {
+			if (waitPredicates == null) {
+				waitPredicates = Collections.synchronizedMap(c.waitPredicates);
+			}
+			context = new DispatchContext(c, entity, lock, batch, waitPredicates);
+			contexts.set(id, context);
+		}
+		return context;
+	}
+
+	/**
+	 * A task running a range of entities, splitting it in halves until it holds one entity.
+	 */
+	private static class DispatchTask extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The contexts of the entities. */
+		private final List<DispatchContext> contexts;
+
+		/** The first entity of the range, included. */
+		private final int from;
+
+		/** The last entity of the range, excluded. */
+		private final int to;
+
+		/**
+		 * Instantiates a new dispatch task.
+		 *
+		 * @param contexts the contexts of the entities
+		 * @param from the first entity of the range, included
+		 * @param to the last entity of the range, excluded
+		 */
+		public DispatchTask(List<DispatchContext> contexts, int from, int to) {
+			this.contexts = contexts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				contexts.get(from).runEntity();
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new DispatchTask(contexts, from, middle), new DispatchTask(contexts, middle, to));
+			}
+		}
+
+	}
+
+}
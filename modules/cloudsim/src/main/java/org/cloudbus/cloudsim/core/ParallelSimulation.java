@@ -0,0 +1,544 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+
+/**
+ * A conservative parallel alternative to {@link CloudSim#startSimulation()}. The entities are
+ * split into logical processes, for instance one per datacenter together with its brokers, which
+ * run on a thread pool. Each logical process has its own future and deferred queues and its own
+ * clock, and is a {@link SimulationContext} bound to the thread running it, so that the entities
+ * keep using the static methods of {@link CloudSim}.
+ * <p>
+ * The logical processes are synchronized by windows: if T is the time of the next pending event
+ * and L the lookahead, i.e. the minimum delay of the events sent from one logical process to
+ * another, no event sent during the window [T, T + L) can occur in it, so the logical processes
+ * process their events of the window independently. The events sent to other logical processes
+ * are delivered at the end of the window. With a zero lookahead, the windows shrink to one clock
+ * tick: the logical processes only run in parallel the entities having events at the same time.
+ * By default, the lookahead is the minimum delay of the {@link NetworkTopology} between the
+ * entities of different logical processes.
+ * <p>
+ * The events are processed in the same order as in a sequential simulation: the events occurring
+ * at the same time are ordered by the processing that sent them (its clock, dispatch round and
+ * entity), which is the order of their serials in a sequential simulation. The writes to the
+ * {@link Log} are buffered and merged in the same order; writes made directly to
+ * <tt>System.out</tt> are not. The results are therefore identical to those of
+ * {@link CloudSim#startSimulation()}, provided that:
+ * <ul>
+ * <li>the entities of different logical processes only interact through events, and do not
+ * modify objects they have sent to another logical process until they get them back;
+ * <li>no entity sends an event to another logical process with a delay below the lookahead, which
+ * throws an {@link IllegalStateException};
+ * <li>no entity cancels an event it has sent to another logical process in a previous window, and
+ * no event sent to another logical process is coalesced;
+ * <li>the entities do not rely on the deferred events of the other logical processes, e.g. through
+ * the event returned by {@link CloudSim#select(int, org.cloudbus.cloudsim.core.predicates.Predicate)}
+ * when no event matches;
+ * <li>the simulation is neither paused nor extended with new entities while it runs, and it is
+ * only terminated abruptly within a window if no other logical process went beyond that point,
+ * which always holds with a zero lookahead.
+ * </ul>
+ * Termination at a given time ({@link CloudSim#terminateSimulation(double)}) is supported.
+ *
+ * <pre>
+ * CloudSim.init(1, Calendar.getInstance(), false);
+ * // create the entities
+ * ParallelSimulation simulation = new ParallelSimulation(4);
+ * simulation.assign(datacenter1, 1);
+ * simulation.assign(datacenter2, 2);
+ * simulation.startSimulation();
+ * </pre>
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see CloudSim#startSimulation()
+ * @see SimulationContext
+ */
+public class ParallelSimulation {
+
+	/** The number of threads. */
+	private final int threads;
+
+	/** The logical processes of the entities, indexed by entity id. */
+	private final Map<Integer, Integer> assignments = new HashMap<Integer, Integer>();
+
+	/** The lookahead, or a negative value if it has to be computed from the network topology. */
+	private double lookahead = -1;
+
+	/**
+	 * Instantiates a new parallel simulation.
+	 *
+	 * @param threads the number of threads running the logical processes
+	 * @pre threads > 0
+	 */
+	public ParallelSimulation(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("The number of threads has to be positive.");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Assigns an entity to a logical process. The entities not assigned belong to the logical
+	 * process 0.
+	 *
+	 * @param entity the entity
+	 * @param process the index of the logical process
+	 * @pre entity != null
+	 * @pre process >= 0
+	 */
+	public void assign(SimEntity entity, int process) {
+		if (entity.getId() < 0) {
+			throw new IllegalArgumentException("Entity " + entity.getName() + " has not been added to the simulation.");
+		}
+		if (process < 0) {
+			throw new IllegalArgumentException("The index of a logical process can't be negative.");
+		}
+		assignments.put(entity.getId(), process);
+	}
+
+	/**
+	 * Sets the lookahead, i.e. the minimum delay of the events sent from one logical process to
+	 * another.
+	 *
+	 * @param lookahead the lookahead
+	 * @pre lookahead >= 0
+	 */
+	public void setLookahead(double lookahead) {
+		if (lookahead < 0) {
+			throw new IllegalArgumentException("The lookahead can't be negative.");
+		}
+		this.lookahead = lookahead;
+	}
+
+	/**
+	 * Gets the lookahead.
+	 *
+	 * @return the lookahead, or a negative value if it is computed from the network topology
+	 */
+	public double getLookahead() {
+		return lookahead;
+	}
+
+	/**
+	 * Runs the simulation initialized in the current context, with the same results as
+	 * {@link CloudSim#startSimulation()}.
+	 *
+	 * @return the last clock value
+	 * @throws IllegalStateException if CloudSim has not been initialized or is already running, or
+	 *             if an entity breaks the lookahead
+	 */
+	public double startSimulation() {
+		SimulationContext c = SimulationContext.current();
+		if (c.entities == null || c.running) {
+			throw new IllegalStateException("CloudSim has to be initialized and not running.");
+		}
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+
+		int[] owners = new int[c.entities.size()];
+		int count = 1;
+		for (Map.Entry<Integer, Integer> assignment : assignments.entrySet()) {
+			owners[assignment.getKey()] = assignment.getValue();
+			count = Math.max(count, assignment.getValue() + 1);
+		}
+		LogicalProcess[] processes = new LogicalProcess[count];
+		for (int i = 0; i < count; i++) {
+			processes[i] = new LogicalProcess(c, i, owners);
+		}
+		double window = lookahead >= 0 ? lookahead : computeLookahead(owners);
+
+		ExecutorService executor = null;
+		if (threads > 1 && count > 1) {
+			executor = Executors.newFixedThreadPool(Math.min(threads, count), SimulationThread.FACTORY);
+		}
+		try {
+			c.running = true;
+			for (final SimEntity entity : c.entities) {
+				final LogicalProcess process = processes[owners[entity.getId()]];
+				process.run(new Runnable() {
+
+					@Override
+					public void run() {
+						process.start(entity);
+					}
+				});
+			}
+			flushWrites(processes);
+			Log.printLine("Entities started.");
+			deliver(processes);
+
+			double clock = run(c, processes, window, executor);
+			finish(c, processes, owners);
+			return clock;
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Runs the windows until the simulation ends, as {@link CloudSim#run()} does.
+	 *
+	 * @param c the context of the simulation
+	 * @param processes the logical processes
+	 * @param window the lookahead
+	 * @param executor the executor running the logical processes, or <tt>null</tt>
+	 * @return the last clock value
+	 */
+	private double run(SimulationContext c, LogicalProcess[] processes, double window, ExecutorService executor) {
+		double lastTime = Double.NaN;
+		int round = -1;
+		while (true) {
+			final double time = nextEventTime(processes);
+			if (time == Double.POSITIVE_INFINITY) {
+				Log.printLine("Simulation: No more future events");
+				end(processes, getClock(processes), false);
+				return getClock(processes);
+			}
+
+			round = time == lastTime ? round + 1 : 0;
+			lastTime = time;
+			final int dispatchRound = round;
+			if (c.terminateAt > 0.0 && time >= c.terminateAt) {
+				runAll(executor, processes, time, new Step() {
+
+					@Override
+					public void run(LogicalProcess process) {
+						process.dispatchIfAt(time, dispatchRound);
+					}
+				});
+				Log.printLine("Simulation: Reached termination time.");
+				end(processes, c.terminateAt, false);
+				return c.terminateAt;
+			}
+
+			if (window > 0) {
+				double end = time + window;
+				if (c.terminateAt > 0.0) {
+					end = Math.min(end, c.terminateAt);
+				}
+				final double windowEnd = end;
+				runAll(executor, processes, Double.NaN, new Step() {
+
+					@Override
+					public void run(LogicalProcess process) {
+						process.runWindow(windowEnd);
+					}
+				});
+			} else {
+				runAll(executor, processes, time, new Step() {
+
+					@Override
+					public void run(LogicalProcess process) {
+						process.dispatch(time, dispatchRound);
+						process.runEntities();
+					}
+				});
+			}
+			flushWrites(processes);
+			deliver(processes);
+
+			LogicalProcess aborted = getAbortedProcess(processes);
+			if (aborted != null) {
+				return abort(processes, aborted, executor);
+			}
+		}
+	}
+
+	/**
+	 * Ends the simulation after the clock tick in which it has been terminated abruptly, as
+	 * {@link CloudSim#run()} does: the events of the next time are still dispatched.
+	 *
+	 * @param processes the logical processes
+	 * @param aborted the logical process which terminated the simulation
+	 * @param executor the executor running the logical processes, or <tt>null</tt>
+	 * @return the last clock value
+	 */
+	private double abort(LogicalProcess[] processes, LogicalProcess aborted, ExecutorService executor) {
+		double abortTime = aborted.getAbortTime();
+		int abortRound = aborted.getAbortRound();
+		for (LogicalProcess process : processes) {
+			if (process.getClock() > abortTime
+					|| (process.getClock() == abortTime && process.getRound() > abortRound)) {
+				throw new IllegalStateException("The simulation has been terminated abruptly at " + abortTime
+						+ " in logical process " + aborted.getIndex() + " while logical process " + process.getIndex()
+						+ " had already processed later events. Use a smaller lookahead.");
+			}
+		}
+
+		final double time = nextEventTime(processes);
+		if (time == Double.POSITIVE_INFINITY) {
+			Log.printLine("Simulation: No more future events");
+			end(processes, getClock(processes), false);
+			return getClock(processes);
+		}
+		final int round = time == abortTime ? abortRound + 1 : 0;
+		runAll(executor, processes, time, new Step() {
+
+			@Override
+			public void run(LogicalProcess process) {
+				process.dispatch(time, round);
+			}
+		});
+		end(processes, getClock(processes), true);
+		return getClock(processes);
+	}
+
+	/**
+	 * Sets the final clock of the logical processes.
+	 *
+	 * @param processes the logical processes
+	 * @param clock the final clock
+	 * @param stillRunning whether the simulation is still flagged as running
+	 */
+	private static void end(LogicalProcess[] processes, double clock, boolean stillRunning) {
+		for (LogicalProcess process : processes) {
+			process.finish(clock, stillRunning);
+		}
+	}
+
+	/**
+	 * Lets the entities terminate, as {@link CloudSim#finishSimulation()} does, and resets the
+	 * context of the simulation as {@link CloudSim#startSimulation()} does.
+	 *
+	 * @param c the context of the simulation
+	 * @param processes the logical processes
+	 * @param owners the logical processes of the entities, indexed by entity id
+	 */
+	private static void finish(SimulationContext c, LogicalProcess[] processes, int[] owners) {
+		final boolean runEntities = getAbortedProcess(processes) == null;
+		for (final SimEntity entity : c.entities) {
+			final LogicalProcess process = processes[owners[entity.getId()]];
+			process.run(new Runnable() {
+
+				@Override
+				public void run() {
+					process.finish(entity, runEntities);
+				}
+			});
+		}
+		flushWrites(processes);
+		for (final SimEntity entity : c.entities) {
+			final LogicalProcess process = processes[owners[entity.getId()]];
+			process.run(new Runnable() {
+
+				@Override
+				public void run() {
+					process.shutdown(entity);
+				}
+			});
+		}
+		flushWrites(processes);
+
+		c.entities = null;
+		c.entitiesByName = null;
+		c.future = null;
+		c.deferred = null;
+		c.clock = 0L;
+		c.running = false;
+		c.waitPredicates = null;
+		c.paused = false;
+		c.pauseAt = -1;
+		c.abruptTerminate = false;
+		CloudSim.runStop();
+
+		c.cisId = -1;
+		c.shutdownId = -1;
+		c.cis = null;
+		c.calendar = null;
+		c.traceFlag = false;
+	}
+
+	/**
+	 * Computes the lookahead from the network topology: the minimum delay between two entities of
+	 * different logical processes.
+	 *
+	 * @param owners the logical processes of the entities, indexed by entity id
+	 * @return the lookahead, or positive infinity if all the entities belong to the same process
+	 */
+	private static double computeLookahead(int[] owners) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < owners.length; i++) {
+			for (int j = 0; j < owners.length; j++) {
+				if (owners[i] != owners[j]) {
+					min = Math.min(min, NetworkTopology.getDelay(i, j));
+				}
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * Runs a step on the logical processes having events to process.
+	 *
+	 * @param executor the executor, or <tt>null</tt> to run the step in the current thread
+	 * @param processes the logical processes
+	 * @param time the time of the events the step dispatches, or NaN if the step runs a window
+	 * @param step the step
+	 */
+	private static void runAll(ExecutorService executor, LogicalProcess[] processes, double time,
+			final Step step) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final LogicalProcess process : processes) {
+			if (!Double.isNaN(time) && process.nextEventTime() != time) {
+				continue;
+			}
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					return process.call(new Callable<Void>() {
+
+						@Override
+						public Void call() {
+							step.run(process);
+							return null;
+						}
+					});
+				}
+			});
+		}
+
+		try {
+			if (executor == null || tasks.size() == 1) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+			} else {
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The simulation has been interrupted.", e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Delivers the events sent to other logical processes during the last window.
+	 *
+	 * @param processes the logical processes
+	 */
+	private static void deliver(LogicalProcess[] processes) {
+		for (LogicalProcess process : processes) {
+			process.deliver(processes);
+		}
+	}
+
+	/**
+	 * Writes the buffered log writes of the logical processes to their outputs, in the order of a
+	 * sequential simulation.
+	 *
+	 * @param processes the logical processes
+	 */
+	private static void flushWrites(LogicalProcess[] processes) {
+		List<LogicalProcess.Write> writes = new ArrayList<LogicalProcess.Write>();
+		for (LogicalProcess process : processes) {
+			process.drainWrites(writes);
+		}
+		Collections.sort(writes);
+		for (LogicalProcess.Write write : writes) {
+			try {
+				write.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Gets the time of the next pending event of the simulation.
+	 *
+	 * @param processes the logical processes
+	 * @return the time, or positive infinity if no event is pending
+	 */
+	private static double nextEventTime(LogicalProcess[] processes) {
+		double time = Double.POSITIVE_INFINITY;
+		for (LogicalProcess process : processes) {
+			time = Math.min(time, process.nextEventTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Gets the clock of the simulation, i.e. the time of the last dispatched events.
+	 *
+	 * @param processes the logical processes
+	 * @return the clock
+	 */
+	private static double getClock(LogicalProcess[] processes) {
+		double clock = 0;
+		for (LogicalProcess process : processes) {
+			clock = Math.max(clock, process.getClock());
+		}
+		return clock;
+	}
+
+	/**
+	 * Gets the logical process which terminated the simulation abruptly first.
+	 *
+	 * @param processes the logical processes
+	 * @return the logical process, or <tt>null</tt> if the simulation has not been terminated
+	 */
+	private static LogicalProcess getAbortedProcess(LogicalProcess[] processes) {
+		LogicalProcess aborted = null;
+		for (LogicalProcess process : processes) {
+			double time = process.getAbortTime();
+			if (!Double.isNaN(time)
+					&& (aborted == null || time < aborted.getAbortTime()
+					|| (time == aborted.getAbortTime() && process.getAbortRound() < aborted.getAbortRound()))) {
+				aborted = process;
+			}
+		}
+		return aborted;
+	}
+
+	/**
+	 * A step run by the logical processes in parallel.
+	 */
+	private interface Step {
+
+		/**
+		 * Runs the step.
+		 *
+		 * @param process the logical process
+		 */
+		void run(LogicalProcess process);
+
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * A timer sending an event to its entity periodically, created by
+ * {@link SimEntity#schedulePeriodic(int, double, double, Object)}. The timer keeps a single
+ * pending event, its next firing, in the future event queue. Once the entity has processed a
+ * firing, the next one is scheduled after the interval, so the entity does not have to schedule
+ * its ticks itself nor to cancel the pending ones with {@link CloudSim#cancelAll}.
+ * <p>
+ * While processing a firing, the entity may {@link #cancel()} the timer, which then stops, or
+ * {@link #reschedule(double)} it, which moves the next firing and the following ones. A firing
+ * that the entity takes with {@link SimEntity#getNextEvent()} or {@link SimEntity#selectEvent}
+ * rather than processing it in {@link SimEntity#processEvent(SimEvent)} does not re-arm the timer;
+ * the entity has to reschedule it. The firings are not coalesced.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see SimEntity#schedulePeriodic(int, double)
+ */
+public class PeriodicTimer implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The id of the entity. */
+	private final int entityId;
+
+	/** The tag of the events. */
+	private final int tag;
+
+	/** The data of the events. */
+	private final Object data;
+
+	/** The interval between two firings. */
+	private double interval;
+
+	/** The next firing, pending in the future event queue, or <tt>null</tt>. */
+	private SimEvent pending;
+
+	/** Whether a firing has been delivered to the entity and not processed yet. */
+	private boolean firing;
+
+	/**
+	 * Instantiates a new timer, which is not scheduled.
+	 *
+	 * @param entityId the id of the entity
+	 * @param tag the tag of the events
+	 * @param interval the interval between two firings
+	 * @param data the data of the events
+	 */
+	PeriodicTimer(int entityId, int tag, double interval, Object data) {
+		this.entityId = entityId;
+		this.tag = tag;
+		this.data = data;
+		setInterval(interval);
+	}
+
+	/**
+	 * Cancels the next firing and stops the timer. If the entity is processing a firing, the timer
+	 * is not re-armed afterwards.
+	 */
+	public void cancel() {
+		firing = false;
+		if (pending != null) {
+			if (!pending.cancelled) {
+				SimulationContext.current().cancelEvent(pending);
+			}
+			pending = null;
+		}
+	}
+
+	/**
+	 * Moves the next firing, cancelling the pending one; the following firings are scheduled at the
+	 * interval from it.
+	 *
+	 * @param delay the delay of the next firing from the current simulation time
+	 * @pre delay >= 0
+	 */
+	public void reschedule(double delay) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Timer delay can't be negative.");
+		}
+		cancel();
+		arm(delay);
+	}
+
+	/**
+	 * Sets the interval between two firings, which applies from the next firing scheduled.
+	 *
+	 * @param interval the interval
+	 * @pre interval > 0
+	 */
+	public void setInterval(double interval) {
+		if (interval <= 0 || Double.isInfinite(interval) || Double.isNaN(interval)) {
+			throw new IllegalArgumentException("Timer interval has to be positive.");
+		}
+		this.interval = interval;
+	}
+
+	/**
+	 * Gets the interval between two firings.
+	 *
+	 * @return the interval
+	 */
+	public double getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Gets the tag of the events.
+	 *
+	 * @return the tag
+	 */
+	public int getTag() {
+		return tag;
+	}
+
+	/**
+	 * Gets the data of the events.
+	 *
+	 * @return the data
+	 */
+	public Object getData() {
+		return data;
+	}
+
+	/**
+	 * Gets the time of the next firing.
+	 *
+	 * @return the time, or -1 if no firing is pending
+	 */
+	public double getNextTime() {
+		return pending == null || pending.cancelled ? -1 : pending.eventTime();
+	}
+
+	/**
+	 * Checks whether the timer is active, i.e. whether a firing is pending or the entity is
+	 * processing one.
+	 *
+	 * @return true, if the timer is active
+	 */
+	public boolean isActive() {
+		return firing || getNextTime() >= 0;
+	}
+
+	/**
+	 * Checks whether a firing has been delivered to the entity and not processed yet, i.e. whether
+	 * the entity is processing a firing when it calls this method.
+	 *
+	 * @return true, if the timer is firing
+	 */
+	public boolean isFiring() {
+		return firing;
+	}
+
+	/**
+	 * Schedules the next firing.
+	 *
+	 * @param delay the delay from the current simulation time
+	 */
+	void arm(double delay) {
+		if (!CloudSim.running()) {
+			return;
+		}
+		SimulationContext c = SimulationContext.current();
+		SimEvent event = new SimEvent(SimEvent.SEND, c.eventTime(delay), entityId, entityId, tag, data);
+		event.timer = this;
+		c.schedule(event);
+		pending = event;
+	}
+
+	/**
+	 * Notes that a firing has been taken from the future event queue to be delivered to the
+	 * entity.
+	 *
+	 * @param event the event
+	 */
+	void delivered(SimEvent event) {
+		if (event == pending) {
+			pending = null;
+			firing = true;
+		}
+	}
+
+	/**
+	 * Re-arms the timer once the entity has processed a firing, unless the entity has cancelled or
+	 * rescheduled it meanwhile.
+	 */
+	void processed() {
+		if (firing) {
+			firing = false;
+			arm(interval);
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The ids of the entities which may have events to process: the entities which have been sent
+ * deferred events, have been given an event buffer or have been woken up, and those which still
+ * had events after they last ran. A clock tick only runs these entities, so its cost grows with
+ * the number of active entities rather than with the number of entities of the simulation.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+class RunnableSet implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The ids in the set. */
+	private final BitSet members = new BitSet();
+
+	/** The ids in the set, in insertion order. */
+	private int[] ids = new int[16];
+
+	/** The number of ids in the set. */
+	private int size;
+
+	/** The ids taken by the last call to {@link #drain()}, in increasing order. */
+	private int[] batch = new int[16];
+
+	/**
+	 * Adds an entity to the set.
+	 *
+	 * @param id the id of the entity
+	 */
+	void add(int id) {
+		if (id < 0 || members.get(id)) {
+			return;
+		}
+		members.set(id);
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+		ids[size++] = id;
+	}
+
+	/**
+	 * Checks whether the set is empty.
+	 *
+	 * @return true, if the set is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Empties the set into the batch, in increasing order. The entities to keep in the set have to
+	 * be added again.
+	 *
+	 * @return the number of ids in the batch
+	 * @see #getBatch()
+	 */
+	int drain() {
+		int count = size;
+		Arrays.sort(ids, 0, count);
+		for (int i = 0; i < count; i++) {
+			members.clear(ids[i]);
+		}
+		int[] drained = ids;
+		ids = batch.length >= count ? batch : new int[drained.length];
+		batch = drained;
+		size = 0;
+		return count;
+	}
+
+	/**
+	 * Gets the ids taken by the last call to {@link #drain()}, in increasing order.
+	 *
+	 * @return the batch, whose length may exceed the number of ids
+	 */
+	int[] getBatch() {
+		return batch;
+	}
+
+}
@@ -8,6 +8,10 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -28,7 +32,10 @@ import org.cloudbus.cloudsim.core.predicates.Predicate;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The name. */
 	private String name;
@@ -42,6 +49,12 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The coalescing policies of the tags sent by this entity, or <tt>null</tt> if none is set. */
+	private Map<Integer, Integer> coalescing;
+
+	/** Whether this entity may process its events in parallel with other entities. */
+	private boolean parallelDispatch = true;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -75,6 +88,75 @@ public abstract class SimEntity implements Cloneable {
 		return id;
 	}
 
+	/**
+	 * Sets how the events with a given tag sent by this entity are coalesced. By default, events
+	 * are never coalesced. For instance, a datacenter bursting with cloudlet submissions can avoid
+	 * sweeping its hosts once per pending update event with:
+	 * 
+	 * <pre>
+	 * datacenter.setCoalescing(CloudSimTags.VM_DATACENTER_EVENT, CloudSimTags.COALESCE_EARLIEST);
+	 * </pre>
+	 * 
+	 * Coalescing applies to the events sent with the <tt>schedule</tt> and <tt>send</tt> methods,
+	 * not to the ones sent with the <tt>scheduleFirst</tt> methods.
+	 * 
+	 * @param tag the tag
+	 * @param policy {@link CloudSimTags#COALESCE_NONE}, {@link CloudSimTags#COALESCE_SAME_TIME} or
+	 *            {@link CloudSimTags#COALESCE_EARLIEST}
+	 */
+	public void setCoalescing(int tag, int policy) {
+		if (policy != CloudSimTags.COALESCE_NONE && policy != CloudSimTags.COALESCE_SAME_TIME
+				&& policy != CloudSimTags.COALESCE_EARLIEST) {
+			throw new IllegalArgumentException("Unknown coalescing policy: " + policy);
+		}
+		if (coalescing == null) {
+			coalescing = new HashMap<Integer, Integer>();
+		}
+		if (policy == CloudSimTags.COALESCE_NONE) {
+			coalescing.remove(tag);
+		} else {
+			coalescing.put(tag, policy);
+		}
+	}
+
+	/**
+	 * Gets how the events with a given tag sent by this entity are coalesced.
+	 * 
+	 * @param tag the tag
+	 * @return the coalescing policy
+	 * @see #setCoalescing(int, int)
+	 */
+	public int getCoalescing(int tag) {
+		if (coalescing == null) {
+			return CloudSimTags.COALESCE_NONE;
+		}
+		Integer policy = coalescing.get(tag);
+		return policy == null ? CloudSimTags.COALESCE_NONE : policy;
+	}
+
+	/**
+	 * Sets whether this entity may process its events in parallel with other entities, when the
+	 * simulation has a dispatch pool. An entity sharing mutable objects with other entities, other
+	 * than through events, has to run alone: the entities running in parallel before it finish
+	 * first, and those after it wait for it. By default, entities may run in parallel.
+	 * 
+	 * @param parallelDispatch whether this entity may run in parallel with other entities
+	 * @see CloudSim#setDispatchPool(java.util.concurrent.ForkJoinPool)
+	 */
+	public void setParallelDispatch(boolean parallelDispatch) {
+		this.parallelDispatch = parallelDispatch;
+	}
+
+	/**
+	 * Checks whether this entity may process its events in parallel with other entities.
+	 * 
+	 * @return true, if this entity may run in parallel with other entities
+	 * @see #setParallelDispatch(boolean)
+	 */
+	public boolean isParallelDispatch() {
+		return parallelDispatch;
+	}
+
 	// The schedule functions
 
 	/**
@@ -90,7 +172,12 @@ public abstract class SimEntity implements Cloneable {
 		if (!CloudSim.running()) {
 			return;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		int policy = getCoalescing(tag);
+		if (policy == CloudSimTags.COALESCE_NONE) {
+			CloudSim.send(id, dest, delay, tag, data);
+		} else {
+			CloudSim.sendCoalesced(id, dest, delay, tag, data, policy == CloudSimTags.COALESCE_EARLIEST);
+		}
 	}
 
 	/**
@@ -275,6 +362,38 @@ public abstract class SimEntity implements Cloneable {
 		scheduleFirst(dest, 0, tag, null);
 	}
 
+	/**
+	 * Starts a timer sending an event with <b>no</b> data to this entity periodically, the first
+	 * time after the interval.
+	 *
+	 * @param tag An user-defined number representing the type of event.
+	 * @param interval The time between two events
+	 * @return the timer, to cancel or reschedule it
+	 * @see PeriodicTimer
+	 */
+	public PeriodicTimer schedulePeriodic(int tag, double interval) {
+		return schedulePeriodic(tag, interval, interval, null);
+	}
+
+	/**
+	 * Starts a timer sending an event to this entity periodically.
+	 *
+	 * @param tag An user-defined number representing the type of event.
+	 * @param delay How long from the current simulation time the first event should be sent
+	 * @param interval The time between two events
+	 * @param data The data to be sent with the events.
+	 * @return the timer, to cancel or reschedule it
+	 * @see PeriodicTimer
+	 */
+	public PeriodicTimer schedulePeriodic(int tag, double delay, double interval, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Timer delay can't be negative.");
+		}
+		PeriodicTimer timer = new PeriodicTimer(id, tag, interval, data);
+		timer.arm(delay);
+		return timer;
+	}
+
 	/**
 	 * Set the entity to be inactive for a time period.
 	 * 
@@ -404,6 +523,9 @@ public abstract class SimEntity implements Cloneable {
 
 		while (ev != null) {
 			processEvent(ev);
+			if (ev.timer != null) {
+				ev.timer.processed();
+			}
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -428,6 +550,9 @@ public abstract class SimEntity implements Cloneable {
 		SimEntity copy = (SimEntity) super.clone();
 		copy.setName(name);
 		copy.setEventBuffer(null);
+		if (coalescing != null) {
+			copy.coalescing = new HashMap<Integer, Integer>(coalescing);
+		}
 		return copy;
 	}
 
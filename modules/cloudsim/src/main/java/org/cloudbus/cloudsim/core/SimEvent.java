@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  * 
@@ -15,7 +17,10 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** internal event type **/
 	private final int etype;
@@ -40,6 +45,24 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	private long serial = -1;
 
+	/** the next event in the same bucket of a {@link CalendarEventList} **/
+	transient SimEvent nextInBucket;
+
+	/** the previous and next events with the same source and tag in a {@link FutureQueue} **/
+	transient SimEvent previousWithSourceTag, nextWithSourceTag;
+
+	/** the {@link FutureQueue} whose chains of events by source and tag link the event, if any **/
+	transient FutureQueue indexingQueue;
+
+	/** whether the event has been cancelled while waiting in a {@link FutureQueue} **/
+	boolean cancelled;
+
+	/** the periodic timer the event is a firing of, if any **/
+	PeriodicTimer timer;
+
+	/** the processing of a logical process of a {@link ParallelSimulation} that sent the event **/
+	private EventOrigin origin = EventOrigin.NONE;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -86,6 +109,30 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		this.serial = serial;
 	}
 
+	protected long getSerial() {
+		return serial;
+	}
+
+	/**
+	 * Records the processing that sent this event. The events sent by the logical processes of a
+	 * {@link ParallelSimulation} are ordered by origin before serial, because their serials are
+	 * only comparable within one logical process.
+	 * 
+	 * @param origin the processing that sent the event
+	 */
+	void setOrigin(EventOrigin origin) {
+		this.origin = origin;
+	}
+
+	/**
+	 * Gets the processing that sent this event.
+	 * 
+	 * @return the origin, {@link EventOrigin#NONE} if the event was not sent by a logical process
+	 */
+	EventOrigin getOrigin() {
+		return origin;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
@@ -119,12 +166,10 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	public int compareTo(SimEvent event) {
 		if (event == null) {
 			return 1;
-		} else if (time < event.time) {
-			return -1;
-		} else if (time > event.time) {
-			return 1;
-		} else if (serial < event.serial) {
-			return -1;
+		}
+		int order = compareOrder(event);
+		if (order != 0) {
+			return order;
 		} else if (this == event) {
 			return 0;
 		} else {
@@ -132,6 +177,29 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		}
 	}
 
+	/**
+	 * Compares the ordering keys of this event with those of another one: the time, then whether
+	 * the event has been sent first (serial 0), then the origin and finally the serial.
+	 * 
+	 * @param event the other event
+	 * @return a negative integer, zero, or a positive integer as this event comes before, has the
+	 *         same keys as, or comes after the other event
+	 */
+	int compareOrder(SimEvent event) {
+		if (time != event.time) {
+			return time < event.time ? -1 : 1;
+		} else if ((serial == 0) != (event.serial == 0)) {
+			return serial == 0 ? -1 : 1;
+		}
+		int order = origin.compareTo(event.origin);
+		if (order != 0) {
+			return order;
+		} else if (serial != event.serial) {
+			return serial < event.serial ? -1 : 1;
+		}
+		return 0;
+	}
+
 	/**
 	 * Get the unique id number of the entity which received this event.
 	 * 
@@ -211,7 +279,9 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 */
 	@Override
 	public Object clone() {
-		return new SimEvent(etype, time, entSrc, entDst, tag, data);
+		SimEvent copy = new SimEvent(etype, time, entSrc, entDst, tag, data);
+		copy.timer = timer;
+		return copy;
 	}
 
 	/**
@@ -0,0 +1,290 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.concurrent.Semaphore;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A process-oriented entity, whose behaviour is written as a sequential {@link #body()} that
+ * blocks in {@link #hold(double)}, {@link #waitFor(Predicate)} and {@link #receive()} rather than
+ * as a state machine driven by {@link #processEvent(SimEvent)}. For example, a broker can send its
+ * VM creation requests, then receive as many acknowledgements, then submit its cloudlets, with
+ * its progress kept in local variables.
+ * <p>
+ * The body runs in a thread of its own, but never concurrently with the simulation: the thread
+ * running the entity hands control to the body when the entity starts and whenever it is woken
+ * up, and waits until the body blocks again or returns. The body therefore sees the simulation as
+ * an ordinary entity does and may call the methods of {@link SimEntity} and {@link CloudSim}
+ * directly. Once the body has returned, the entity is finished and its further events are left in
+ * the deferred queue.
+ * <p>
+ * A blocked body that is never woken up is terminated when the simulation finishes: the blocking
+ * method then throws an error which unwinds the body and which the body must not catch. The
+ * threads are daemon threads with a small stack, given to the constructor, so that many processes
+ * can be suspended at the same time; the state of a process, being kept on the stack of its
+ * thread, is not saved by {@link SimulationCheckpoint}.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+public abstract class SimProcess extends SimEntity {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The default stack size of the thread of a process, in bytes. */
+	public static final long DEFAULT_STACK_SIZE = 256 * 1024;
+
+	/** The stack size of the thread, in bytes. */
+	private final long stackSize;
+
+	/** The permit given to the body to run. */
+	private transient Semaphore resumed;
+
+	/** The permit given back by the body once it has blocked or returned. */
+	private transient Semaphore yielded;
+
+	/** The thread running the body, or <tt>null</tt> if the body is not started or has returned. */
+	private transient Thread thread;
+
+	/** The context of the thread which resumed the body. */
+	private transient SimulationContext context;
+
+	/** Whether the body has to be terminated when it is resumed. */
+	private transient boolean terminated;
+
+	/** The error thrown by the body, to be rethrown in the thread running the entity. */
+	private transient Throwable failure;
+
+	/**
+	 * Creates a new process with the default stack size.
+	 *
+	 * @param name the name to be associated with this entity
+	 */
+	public SimProcess(String name) {
+		this(name, DEFAULT_STACK_SIZE);
+	}
+
+	/**
+	 * Creates a new process.
+	 *
+	 * @param name the name to be associated with this entity
+	 * @param stackSize the stack size of the thread of the process, in bytes, or 0 to use the
+	 *            default of the virtual machine
+	 * @pre stackSize >= 0
+	 */
+	public SimProcess(String name, long stackSize) {
+		super(name);
+		if (stackSize < 0) {
+			throw new IllegalArgumentException("The stack size can't be negative.");
+		}
+		this.stackSize = stackSize;
+	}
+
+	/**
+	 * The behaviour of the process, run from the start of the simulation until it returns.
+	 */
+	protected abstract void body();
+
+	/**
+	 * Invoked before the simulation finishes, once the body has returned or has been terminated.
+	 * It does nothing by default.
+	 */
+	protected void shutdownProcess() {
+	}
+
+	/**
+	 * Starts the body, which runs until it first blocks or returns.
+	 */
+	@Override
+	public final void startEntity() {
+		resumed = new Semaphore(0);
+		yielded = new Semaphore(0);
+		thread = new SimulationThread(new Runnable() {
+
+			@Override
+			public void run() {
+				runBody();
+			}
+		}, getName(), stackSize);
+		thread.setDaemon(true);
+		thread.start();
+		resume();
+	}
+
+	/**
+	 * Resumes the body if the entity has been woken up, and waits until it blocks again or
+	 * returns.
+	 */
+	@Override
+	public final void run() {
+		if (thread != null && getState() == RUNNABLE) {
+			resume();
+		}
+	}
+
+	/**
+	 * Does nothing: the events are taken by the body.
+	 *
+	 * @param ev the event
+	 */
+	@Override
+	public final void processEvent(SimEvent ev) {
+	}
+
+	/**
+	 * Terminates the body if it is still blocked, then invokes {@link #shutdownProcess()}.
+	 */
+	@Override
+	public final void shutdownEntity() {
+		if (thread != null) {
+			terminated = true;
+			resume();
+		}
+		shutdownProcess();
+	}
+
+	/**
+	 * Blocks the body for a time period. The events received meanwhile are kept in the deferred
+	 * queue.
+	 *
+	 * @param delay the time period
+	 * @pre delay >= 0
+	 */
+	protected void hold(double delay) {
+		checkBodyThread();
+		pause(delay);
+		if (getState() == HOLDING) {
+			block();
+		}
+	}
+
+	/**
+	 * Gets the first event matching a predicate from the deferred queue or, if none match, blocks
+	 * the body until a matching event arrives. The events not matching are kept in the deferred
+	 * queue.
+	 *
+	 * @param p the predicate to match
+	 * @return the event, or <tt>null</tt> if the simulation is not running
+	 */
+	protected SimEvent waitFor(Predicate p) {
+		checkBodyThread();
+		SimEvent ev = getNextEvent(p);
+		if (ev != null) {
+			return ev;
+		}
+		waitForEvent(p);
+		if (getState() != WAITING) {
+			return null;
+		}
+		block();
+		ev = getEventBuffer();
+		setEventBuffer(null);
+		return ev;
+	}
+
+	/**
+	 * Gets the first event from the deferred queue or, if there is none, blocks the body until an
+	 * event arrives.
+	 *
+	 * @return the event, or <tt>null</tt> if the simulation is not running
+	 */
+	protected SimEvent receive() {
+		return waitFor(CloudSim.SIM_ANY);
+	}
+
+	/**
+	 * Checks whether the body is running, i.e. has been started and has neither returned nor been
+	 * terminated.
+	 *
+	 * @return true, if the body is running
+	 */
+	public boolean isAlive() {
+		return thread != null;
+	}
+
+	/**
+	 * Hands control to the body and waits until it blocks or returns, rethrowing its failure.
+	 */
+	private void resume() {
+		context = SimulationContext.current();
+		resumed.release();
+		yielded.acquireUninterruptibly();
+		if (failure != null) {
+			Throwable t = failure;
+			failure = null;
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			}
+			if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw new IllegalStateException("The body of " + getName() + " failed.", t);
+		}
+	}
+
+	/**
+	 * Hands control back to the thread running the entity and waits until the body is resumed.
+	 */
+	private void block() {
+		yielded.release();
+		await();
+	}
+
+	/**
+	 * Waits until the body is resumed, and binds the context of the thread which resumed it.
+	 */
+	private void await() {
+		resumed.acquireUninterruptibly();
+		SimulationContext.bind(context);
+		if (terminated) {
+			throw new Termination();
+		}
+	}
+
+	/**
+	 * Runs the body in the thread of the process.
+	 */
+	private void runBody() {
+		try {
+			await();
+			body();
+		} catch (Termination e) {
+			// the simulation has finished while the body was blocked
+		} catch (Throwable t) {
+			failure = t;
+		} finally {
+			thread = null;
+			setState(FINISHED);
+			SimulationContext.bind(null);
+			yielded.release();
+		}
+	}
+
+	/**
+	 * Checks that a blocking method is called by the body.
+	 */
+	private void checkBodyThread() {
+		if (Thread.currentThread() != thread) {
+			throw new IllegalStateException("Only the body of " + getName() + " can block.");
+		}
+	}
+
+	/**
+	 * The error unwinding a body blocked when the simulation finishes.
+	 */
+	private static class Termination extends Error {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+	}
+
+}
@@ -0,0 +1,323 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A snapshot of a simulation: its entities, with everything they refer to, its pending events and
+ * its clock. A simulation restored from a checkpoint continues from the time of the checkpoint and
+ * gives the same results as the simulation the checkpoint was taken from, so a long warm-up can be
+ * simulated once and shared by several scenarios, each running in its own fork:
+ *
+ * <pre>
+ * CloudSim.checkpointAt(warmUpTime, new CheckpointListener() {
+ *
+ * 	public void checkpointTaken(SimulationCheckpoint checkpoint) {
+ * 		for (SimulationContext fork : checkpoint.fork(scenarios)) {
+ * 			fork.run(new Runnable() {
+ *
+ * 				public void run() {
+ * 					// modify the scenario, e.g. with Datacenter.replaceVmAllocationPolicy()
+ * 					CloudSim.startSimulation();
+ * 				}
+ * 			});
+ * 		}
+ * 	}
+ * });
+ * </pre>
+ *
+ * The simulation state is copied with Java serialization, so the entities, the data of the events
+ * and the objects they refer to have to be serializable; the copy is compressed and kept in memory,
+ * and it can be saved to a stream. A checkpoint has to be taken between two clock ticks: before the
+ * simulation starts, while it is paused, or from a listener given to
+ * {@link CloudSim#checkpointAt(double, CheckpointListener)}.
+ * <p>
+ * The state kept for the simulation by other classes, such as the settings of the
+ * {@link org.cloudbus.cloudsim.Log} or the {@link org.cloudbus.cloudsim.NetworkTopology}, is not
+ * part of the checkpoint: a restored simulation inherits it from the context it is restored in.
+ * Neither is the dispatch pool of the simulation ({@link CloudSim#setDispatchPool}).
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see CloudSim#checkpointAt(double, CheckpointListener)
+ * @see SimulationContext
+ */
+public class SimulationCheckpoint {
+
+	/** The number identifying a checkpoint saved to a stream. */
+	private static final int MAGIC = 0x43534350;
+
+	/** The compressed state of the simulation. */
+	private final byte[] data;
+
+	/** The simulation clock. */
+	private final double clock;
+
+	/**
+	 * Instantiates a new checkpoint.
+	 *
+	 * @param data the compressed state of the simulation
+	 * @param clock the simulation clock
+	 */
+	private SimulationCheckpoint(byte[] data, double clock) {
+		this.data = data;
+		this.clock = clock;
+	}
+
+	/**
+	 * Takes a checkpoint of the simulation of the current context.
+	 *
+	 * @return the checkpoint
+	 * @throws IllegalStateException if CloudSim has not been initialised, or if an object of the
+	 *             simulation is not serializable
+	 * @pre the simulation is not processing events
+	 */
+	public static SimulationCheckpoint capture() {
+		SimulationContext c = SimulationContext.current();
+		if (c.entities == null) {
+			throw new IllegalStateException("CloudSim has not been initialised.");
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes));
+			out.writeObject(new State(c));
+			out.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("The simulation cannot be checkpointed: " + e, e);
+		}
+		return new SimulationCheckpoint(bytes.toByteArray(), c.clock);
+	}
+
+	/**
+	 * Reads a checkpoint saved by {@link #write(OutputStream)}.
+	 *
+	 * @param input the input stream
+	 * @return the checkpoint
+	 * @throws IOException if an I/O error occurs or the stream does not hold a checkpoint
+	 */
+	public static SimulationCheckpoint read(InputStream input) throws IOException {
+		DataInputStream in = new DataInputStream(input);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("The stream does not hold a simulation checkpoint.");
+		}
+		double clock = in.readDouble();
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		return new SimulationCheckpoint(data, clock);
+	}
+
+	/**
+	 * Saves the checkpoint to a stream.
+	 *
+	 * @param output the output stream
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write(OutputStream output) throws IOException {
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(MAGIC);
+		out.writeDouble(clock);
+		out.writeInt(data.length);
+		out.write(data);
+		out.flush();
+	}
+
+	/**
+	 * Gets the simulation clock when the checkpoint was taken.
+	 *
+	 * @return the simulation clock
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 * Gets the size of the compressed state of the simulation.
+	 *
+	 * @return the size in bytes
+	 */
+	public int getSize() {
+		return data.length;
+	}
+
+	/**
+	 * Restores the simulation in a new context, child of the current context. Running
+	 * {@link CloudSim#startSimulation()} in the new context continues the simulation if it was
+	 * running when the checkpoint was taken, or starts it otherwise.
+	 *
+	 * @return the context of the restored simulation
+	 * @throws IllegalStateException if the state of the simulation cannot be read
+	 */
+	public SimulationContext restore() {
+		SimulationContext context = new SimulationContext(SimulationContext.current());
+		readState().applyTo(context);
+		return context;
+	}
+
+	/**
+	 * Restores several independent copies of the simulation, as {@link #restore()} does.
+	 *
+	 * @param copies the number of copies
+	 * @return the contexts of the copies
+	 * @throws IllegalStateException if the state of the simulation cannot be read
+	 * @pre copies >= 0
+	 */
+	public List<SimulationContext> fork(int copies) {
+		List<SimulationContext> contexts = new ArrayList<SimulationContext>(copies);
+		for (int i = 0; i < copies; i++) {
+			contexts.add(restore());
+		}
+		return contexts;
+	}
+
+	/**
+	 * Reads a new copy of the state of the simulation.
+	 *
+	 * @return the state
+	 */
+	private State readState() {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+			try {
+				return (State) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("The simulation cannot be restored: " + e, e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("The simulation cannot be restored: " + e, e);
+		}
+	}
+
+	/**
+	 * The state of a simulation context.
+	 */
+	private static class State implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The id of CIS entity. */
+		private final int cisId;
+
+		/** The id of CloudSimShutdown entity. */
+		private final int shutdownId;
+
+		/** The CIS object. */
+		private final CloudInformationService cis;
+
+		/** The trace flag. */
+		private final boolean traceFlag;
+
+		/** The calendar. */
+		private final Calendar calendar;
+
+		/** The termination time. */
+		private final double terminateAt;
+
+		/** The entities. */
+		private final List<SimEntity> entities;
+
+		/** The future event queue. */
+		private final FutureQueue future;
+
+		/** The deferred event queue. */
+		private final DeferredQueue deferred;
+
+		/** The entities which may have events to process. */
+		private final RunnableSet runnable;
+
+		/** The simulation clock. */
+		private final double clock;
+
+		/** Flag for checking if the simulation is running. */
+		private final boolean running;
+
+		/** The entities by name. */
+		private final Map<String, SimEntity> entitiesByName;
+
+		/** The predicates used in entity wait methods. */
+		private final Map<Integer, Predicate> waitPredicates;
+
+		/** The pause at. */
+		private final long pauseAt;
+
+		/** The abrupt terminate. */
+		private final boolean abruptTerminate;
+
+		/**
+		 * Instantiates the state of a context.
+		 *
+		 * @param c the context
+		 */
+		public State(SimulationContext c) {
+			cisId = c.cisId;
+			shutdownId = c.shutdownId;
+			cis = c.cis;
+			traceFlag = c.traceFlag;
+			calendar = c.calendar;
+			terminateAt = c.terminateAt;
+			entities = c.entities;
+			future = c.future;
+			deferred = c.deferred;
+			runnable = c.runnable;
+			clock = c.clock;
+			running = c.running;
+			entitiesByName = c.entitiesByName;
+			waitPredicates = c.waitPredicates;
+			pauseAt = c.pauseAt;
+			abruptTerminate = c.abruptTerminate;
+		}
+
+		/**
+		 * Applies the state to a context.
+		 *
+		 * @param c the context
+		 */
+		public void applyTo(SimulationContext c) {
+			c.cisId = cisId;
+			c.shutdownId = shutdownId;
+			c.cis = cis;
+			c.traceFlag = traceFlag;
+			c.calendar = calendar;
+			c.terminateAt = terminateAt;
+			c.entities = entities;
+			c.future = future;
+			c.deferred = deferred;
+			c.runnable = runnable;
+			c.clock = clock;
+			c.running = running;
+			c.entitiesByName = entitiesByName;
+			c.waitPredicates = waitPredicates;
+			// the simulation may have been paused to take the checkpoint
+			c.paused = false;
+			c.pauseAt = pauseAt;
+			c.abruptTerminate = abruptTerminate;
+		}
+
+	}
+
+}
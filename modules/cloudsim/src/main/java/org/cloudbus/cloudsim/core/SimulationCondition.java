@@ -0,0 +1,26 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A condition on the state of a simulation, for {@link CloudSim#runWhile(SimulationCondition)}.
+ * 
+ * @since CloudSim Toolkit 3.1
+ * @see CloudSim#runWhile(SimulationCondition)
+ */
+public interface SimulationCondition {
+
+	/**
+	 * Checks whether the condition holds.
+	 * 
+	 * @return true, if the condition holds
+	 */
+	boolean holds();
+
+}
@@ -0,0 +1,593 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * The state of a simulation. The static methods of {@link CloudSim}, as well as those of the
+ * classes keeping a global state such as {@link org.cloudbus.cloudsim.Log} or
+ * {@link org.cloudbus.cloudsim.NetworkTopology}, operate on the context bound to the current
+ * thread, or on the default context if no context is bound to it. Therefore, independent
+ * simulations can run at the same time in one JVM, each in its own thread with its own context:
+ *
+ * <pre>
+ * new SimulationContext().run(new Runnable() {
+ *
+ * 	public void run() {
+ * 		CloudSim.init(1, Calendar.getInstance(), false);
+ * 		// create the entities
+ * 		CloudSim.startSimulation();
+ * 	}
+ * });
+ * </pre>
+ *
+ * The entities of a simulation must be created and run in the thread its context is bound to. A
+ * context must not be used by several threads at the same time. A {@link SimulationThread} keeps
+ * its bound context itself, which {@link #current()} finds faster than in a thread local; so does
+ * the default context while no other thread has a bound context.
+ * <p>
+ * A context may have a parent context, whose state it inherits. The logical processes of a
+ * {@link ParallelSimulation} are such child contexts.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see CloudSim
+ */
+public class SimulationContext {
+
+	/** The context used by the threads having no bound context. */
+	private static final SimulationContext DEFAULT_CONTEXT = new SimulationContext();
+
+	/** The contexts bound to the threads. */
+	private static final ThreadLocal<SimulationContext> BOUND_CONTEXT = new ThreadLocal<SimulationContext>();
+
+	/**
+	 * The number of threads, other than the {@link SimulationThread}s, having a bound context. While
+	 * there is none, {@link #current()} returns the default context without looking up the thread
+	 * local.
+	 */
+	private static final AtomicInteger BOUND_THREADS = new AtomicInteger();
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	FutureQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/** The entities which may have events to process. */
+	RunnableSet runnable;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** The duration of the tick to which the event times are rounded, or 0 if the time is continuous. */
+	double tick;
+
+	/** The simulation time per second of wall-clock time, or 0 if the simulation runs freely. */
+	double realTimeFactor;
+
+	/** The wall-clock time, in nanoseconds, from which the real time is measured. */
+	private long realTimeOrigin;
+
+	/** The simulation time at {@link #realTimeOrigin}. */
+	private double realTimeOriginClock;
+
+	/** The events injected by other threads, until the simulation takes them. */
+	private final InjectionQueue injected = new InjectionQueue();
+
+	/** The thread running the simulation, woken up when an event is injected. */
+	private volatile Thread engine;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/** The predicates used in entity wait methods. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The paused, which may be changed by another thread than the one running the simulation. */
+	volatile boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	/** The dispatcher running the entities in parallel, or <tt>null</tt> to run them sequentially. */
+	ParallelDispatcher dispatcher;
+
+	/** The recorder of the processed events, or <tt>null</tt> if they are not recorded. */
+	EventRecorder recorder;
+
+	/** The statistics of the engine, or <tt>null</tt> if they are not kept. */
+	SimulationStatistics statistics;
+
+	/** The time at which a checkpoint has to be taken, or -1 if none has to be taken. */
+	double checkpointAt = -1;
+
+	/** The listener receiving the checkpoint. */
+	CheckpointListener checkpointListener;
+
+	/** The monitor on which the simulation waits while it is paused. */
+	private final Object pauseMonitor = new Object();
+
+	/** The state kept by other classes for this context, indexed by key. */
+	private final Map<Object, Object> attributes = new ConcurrentHashMap<Object, Object>();
+
+	/** The parent context, or <tt>null</tt> if this context has no parent. */
+	private final SimulationContext parent;
+
+	/**
+	 * Instantiates a new context without parent.
+	 */
+	public SimulationContext() {
+		this(null);
+	}
+
+	/**
+	 * Instantiates a new context inheriting the state kept by other classes for a parent context.
+	 * 
+	 * @param parent the parent context, or <tt>null</tt> if the context has no parent
+	 */
+	SimulationContext(SimulationContext parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Gets the context bound to the current thread, or the default context if none is bound.
+	 *
+	 * @return the current context
+	 */
+	public static SimulationContext current() {
+		Thread thread = Thread.currentThread();
+		SimulationContext context;
+		if (thread instanceof SimulationThread) {
+			context = ((SimulationThread) thread).context;
+		} else if (BOUND_THREADS.get() == 0) {
+			return DEFAULT_CONTEXT;
+		} else {
+			context = BOUND_CONTEXT.get();
+		}
+		return context == null ? DEFAULT_CONTEXT : context;
+	}
+
+	/**
+	 * Gets the default context, used by the threads having no bound context.
+	 *
+	 * @return the default context
+	 */
+	public static SimulationContext getDefault() {
+		return DEFAULT_CONTEXT;
+	}
+
+	/**
+	 * Binds a context to the current thread.
+	 *
+	 * @param context the context, or <tt>null</tt> to make the thread use the default context
+	 * @return the context previously bound to the thread, or <tt>null</tt> if none was bound
+	 */
+	public static SimulationContext bind(SimulationContext context) {
+		Thread thread = Thread.currentThread();
+		if (thread instanceof SimulationThread) {
+			SimulationContext previous = ((SimulationThread) thread).context;
+			((SimulationThread) thread).context = context;
+			return previous;
+		}
+		SimulationContext previous = BOUND_CONTEXT.get();
+		if (context == null) {
+			BOUND_CONTEXT.remove();
+			if (previous != null) {
+				BOUND_THREADS.decrementAndGet();
+			}
+		} else {
+			BOUND_CONTEXT.set(context);
+			if (previous == null) {
+				BOUND_THREADS.incrementAndGet();
+			}
+		}
+		return previous;
+	}
+
+	/**
+	 * Runs a task in the current thread with this context bound to it. The previously bound
+	 * context is restored afterwards.
+	 *
+	 * @param task the task
+	 */
+	public void run(Runnable task) {
+		SimulationContext previous = bind(this);
+		try {
+			task.run();
+		} finally {
+			bind(previous);
+		}
+	}
+
+	/**
+	 * Runs a task in the current thread with this context bound to it and returns its result. The
+	 * previously bound context is restored afterwards.
+	 *
+	 * @param task the task
+	 * @return the result of the task
+	 * @throws Exception if the task throws an exception
+	 */
+	public <V> V call(Callable<V> task) throws Exception {
+		SimulationContext previous = bind(this);
+		try {
+			return task.call();
+		} finally {
+			bind(previous);
+		}
+	}
+
+	/**
+	 * Gets the parent context.
+	 *
+	 * @return the parent context, or <tt>null</tt> if this context has no parent
+	 */
+	public SimulationContext getParent() {
+		return parent;
+	}
+
+	/**
+	 * Gets the state kept by a class for this context or, if none has been set, for its parent
+	 * context. Classes whose state is modified while the simulation runs should use
+	 * {@link #getLocalAttribute(Object)} instead, so that each child context gets its own state.
+	 *
+	 * @param key the key identifying the state
+	 * @return the state or <tt>null</tt> if none has been set
+	 */
+	public Object getAttribute(Object key) {
+		Object value = attributes.get(key);
+		if (value == null && parent != null) {
+			return parent.getAttribute(key);
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the state kept by a class for this context, ignoring the parent context.
+	 *
+	 * @param key the key identifying the state
+	 * @return the state or <tt>null</tt> if none has been set for this context
+	 */
+	public Object getLocalAttribute(Object key) {
+		return attributes.get(key);
+	}
+
+	/**
+	 * Sets the state kept by a class for this context.
+	 *
+	 * @param key the key identifying the state
+	 * @param value the state, or <tt>null</tt> to remove it
+	 */
+	public void setAttribute(Object key, Object value) {
+		if (value == null) {
+			attributes.remove(key);
+		} else {
+			attributes.put(key, value);
+		}
+	}
+
+	/**
+	 * Forgets the state kept by other classes for this context, which they then get again from the
+	 * parent context.
+	 */
+	void clearAttributes() {
+		attributes.clear();
+	}
+
+	/**
+	 * Gets the current simulation time of this context.
+	 *
+	 * @return the simulation time
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 * Checks whether the simulation of this context is running.
+	 *
+	 * @return true, if it is running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Injects an event sent by another thread than the one running the simulation of this
+	 * context. The event is scheduled at the next step of the simulation, at the simulation time
+	 * matching the wall-clock time of that step in the real-time mode, or at the current clock
+	 * otherwise. This method may be called by any thread, does not lock and does not wait; the
+	 * events injected by one thread are processed in the order they were injected. The events
+	 * injected too late to be taken by the last step are discarded when the simulation finishes,
+	 * which logs their number.
+	 *
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the tag of the event
+	 * @param data the data of the event
+	 * @see CloudSim#setRealTimeFactor(double)
+	 */
+	public void inject(int src, int dest, int tag, Object data) {
+		injected.offer(src, dest, tag, data);
+		Thread thread = engine;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Adapts an output stream inherited from the parent context before this context writes to it.
+	 * The logical processes of a {@link ParallelSimulation} buffer their writes, so that they reach
+	 * the stream in the order of a sequential simulation. By default, the stream is returned as is.
+	 *
+	 * @param output the output stream
+	 * @return the output stream this context has to write to
+	 */
+	public OutputStream adaptOutput(OutputStream output) {
+		return output;
+	}
+
+	/**
+	 * Waits until the simulation is resumed by {@link #resume()}, if it is paused.
+	 */
+	void awaitResume() {
+		synchronized (pauseMonitor) {
+			while (paused) {
+				try {
+					pauseMonitor.wait();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resumes the simulation, waking up the thread waiting in {@link #awaitResume()}.
+	 */
+	void resume() {
+		synchronized (pauseMonitor) {
+			paused = false;
+			pauseMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Makes the current thread the one woken up when an event is injected, and measures the real
+	 * time from now on, so that the time spent before or while the simulation was paused is not
+	 * made up for.
+	 *
+	 * @pre this == current()
+	 */
+	void startEngine() {
+		engine = Thread.currentThread();
+		realTimeOrigin = System.nanoTime();
+		realTimeOriginClock = clock;
+	}
+
+	/**
+	 * Stops waking up the thread running the simulation, and discards the events injected since
+	 * its last step. Once the simulation is finishing, its entities are being shut down and its
+	 * termination time, if any, has passed, so these events cannot be delivered anymore.
+	 *
+	 * @return the number of injected events discarded
+	 */
+	int stopEngine() {
+		engine = null;
+		return injected.clear();
+	}
+
+	/**
+	 * Waits until the wall-clock time matches a simulation time in the real-time mode, or until an
+	 * event is injected.
+	 *
+	 * @param time the simulation time, which may be infinite
+	 * @return true, if the time has been reached; false if an event has been injected before
+	 */
+	boolean awaitRealTime(double time) {
+		double seconds = (time - realTimeOriginClock) / realTimeFactor;
+		boolean bounded = seconds < Long.MAX_VALUE / 1e9;
+		long deadline = realTimeOrigin + (long) (seconds * 1e9);
+		while (injected.isEmpty()) {
+			if (!bounded) {
+				LockSupport.park(this);
+				continue;
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return true;
+			}
+			LockSupport.parkNanos(this, remaining);
+		}
+		return false;
+	}
+
+	/**
+	 * Schedules the events injected since the last step, at the simulation time matching the
+	 * current wall-clock time in the real-time mode, or at the current clock otherwise.
+	 *
+	 * @return the number of events scheduled
+	 */
+	int scheduleInjected() {
+		if (injected.isEmpty()) {
+			return 0;
+		}
+		double time = clock;
+		if (realTimeFactor > 0) {
+			double now = realTimeOriginClock + (System.nanoTime() - realTimeOrigin) / 1e9 * realTimeFactor;
+			time = eventTime(Math.max(0, now - clock));
+		}
+		int count = 0;
+		SimEvent event = injected.poll(time);
+		while (event != null) {
+			future.addEvent(event);
+			count++;
+			event = injected.poll(time);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the time of an event sent with a given delay from the current clock. If a tick is set,
+	 * the time is rounded to the nearest whole number of ticks, computed as that number times the
+	 * tick, so that two events falling in the same tick get exactly the same time.
+	 *
+	 * @param delay the delay, which is not negative
+	 * @return the time of the event
+	 */
+	double eventTime(double delay) {
+		double time = clock + delay;
+		if (tick > 0) {
+			return Math.rint(time / tick) * tick;
+		}
+		return time;
+	}
+
+	/**
+	 * Schedules an event.
+	 *
+	 * @param event the event
+	 */
+	void schedule(SimEvent event) {
+		future.addEvent(event);
+	}
+
+	/**
+	 * Schedules an event with priority over the other events at the same time.
+	 *
+	 * @param event the event
+	 */
+	void scheduleFirst(SimEvent event) {
+		future.addEventFirst(event);
+	}
+
+	/**
+	 * Schedules an event unless an equivalent event is pending.
+	 *
+	 * @param event the event
+	 * @param earliestWins whether only the earliest of the equivalent events has to be kept
+	 * @return true, if the event has been scheduled; false if it has been merged
+	 * @see FutureQueue#addEventCoalesced(SimEvent, boolean)
+	 */
+	boolean scheduleCoalesced(SimEvent event, boolean earliestWins) {
+		return future.addEventCoalesced(event, earliestWins);
+	}
+
+	/**
+	 * Cancels the first pending event scheduled by an entity that matches a predicate.
+	 *
+	 * @param source the id of the source entity
+	 * @param p the predicate
+	 * @return the cancelled event or <tt>null</tt> if no event matches
+	 */
+	SimEvent cancel(int source, Predicate p) {
+		return future.cancel(source, p);
+	}
+
+	/**
+	 * Cancels a pending event.
+	 *
+	 * @param event the event, which has to be pending
+	 */
+	void cancelEvent(SimEvent event) {
+		future.cancel(event);
+	}
+
+	/**
+	 * Cancels all the pending events scheduled by an entity that match a predicate.
+	 *
+	 * @param source the id of the source entity
+	 * @param p the predicate
+	 * @return true, if at least one event has been cancelled
+	 */
+	boolean cancelAll(int source, Predicate p) {
+		return future.cancelAll(source, p);
+	}
+
+	/**
+	 * Counts the deferred events sent to an entity that match a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	int countDeferred(int destination, Predicate p) {
+		return deferred.count(destination, p);
+	}
+
+	/**
+	 * Removes the first deferred event sent to an entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the removed event or <tt>null</tt> if no event matches
+	 */
+	SimEvent selectDeferred(int destination, Predicate p) {
+		return deferred.select(destination, p);
+	}
+
+	/**
+	 * Finds the first deferred event sent to an entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the event or <tt>null</tt> if no event matches
+	 */
+	SimEvent findFirstDeferred(int destination, Predicate p) {
+		return deferred.findFirst(destination, p);
+	}
+
+	/**
+	 * Gets the last deferred event, which an entity looking for its deferred events gets for
+	 * compatibility when none matches.
+	 *
+	 * @param destination the id of the entity looking for its deferred events
+	 * @return the last deferred event or <tt>null</tt> if there is none
+	 */
+	SimEvent lastDeferred(int destination) {
+		return deferred.last();
+	}
+
+}
@@ -0,0 +1,473 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of the simulation engine, for {@link CloudSim#setStatistics(SimulationStatistics)}:
+ * the number of events processed per tag and per type, the number of events sent to each entity
+ * and the time spent running it, and the histograms of the sizes of the future and deferred
+ * queues, which are sampled at each clock tick.
+ * <p>
+ * The statistics are updated by the thread running the simulation with plain counters, so keeping
+ * them costs little; when the entities run in parallel (see
+ * {@link CloudSim#setDispatchPool(java.util.concurrent.ForkJoinPool)}), each entity only updates
+ * its own counters. They can be read during the simulation, e.g. from an entity or between calls
+ * to {@link CloudSim#runUntil(double)}, and after it. Reading them from another thread while the
+ * simulation runs gives values which may be slightly out of date. The events processed by the
+ * logical processes of a {@link ParallelSimulation} are not counted.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+public class SimulationStatistics {
+
+	/** The tags counted in an array, from 0 included; the other tags are counted in a map. */
+	private static final int DENSE_TAGS = 256;
+
+	/** The names of the tags defined in {@link CloudSimTags}. */
+	private static Map<Integer, String> tagNames;
+
+	/** The number of events processed per tag, for the tags from 0 to {@link #DENSE_TAGS}. */
+	private final long[] tagCounts = new long[DENSE_TAGS];
+
+	/** The number of events processed per tag, for the other tags. */
+	private final Map<Integer, long[]> otherTagCounts = new HashMap<Integer, long[]>();
+
+	/** The number of events processed per type. */
+	private final long[] typeCounts = new long[SimEvent.CREATE + 1];
+
+	/** The number of events processed. */
+	private long eventCount;
+
+	/** The number of clock ticks. */
+	private long tickCount;
+
+	/** The number of events sent to each entity, by id. */
+	private long[] entityEvents = new long[0];
+
+	/** The number of times each entity has run, by id. */
+	private long[] entityRuns = new long[0];
+
+	/** The time spent running each entity, in nanoseconds, by id. */
+	private long[] entityTimes = new long[0];
+
+	/** The names of the entities, by id. */
+	private String[] entityNames = new String[0];
+
+	/** The sizes of the future queue at the clock ticks. */
+	private final Histogram futureQueue = new Histogram();
+
+	/** The sizes of the deferred queue at the clock ticks. */
+	private final Histogram deferredQueue = new Histogram();
+
+	/**
+	 * Gets the number of events processed.
+	 *
+	 * @return the number of events
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Gets the number of clock ticks, i.e. of distinct times at which events were processed.
+	 *
+	 * @return the number of clock ticks
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * Gets the number of events processed with a tag, e.g. {@link CloudSimTags#VM_DATACENTER_EVENT}.
+	 *
+	 * @param tag the tag
+	 * @return the number of events
+	 */
+	public long getTagCount(int tag) {
+		if (tag >= 0 && tag < DENSE_TAGS) {
+			return tagCounts[tag];
+		}
+		long[] count = otherTagCounts.get(tag);
+		return count == null ? 0 : count[0];
+	}
+
+	/**
+	 * Gets the tags of the events processed, in increasing order.
+	 *
+	 * @return the tags
+	 */
+	public List<Integer> getTags() {
+		List<Integer> tags = new ArrayList<Integer>(otherTagCounts.keySet());
+		for (int tag = 0; tag < DENSE_TAGS; tag++) {
+			if (tagCounts[tag] > 0) {
+				tags.add(tag);
+			}
+		}
+		Integer[] sorted = tags.toArray(new Integer[tags.size()]);
+		Arrays.sort(sorted);
+		return Arrays.asList(sorted);
+	}
+
+	/**
+	 * Gets the number of events processed with a type, e.g. {@link SimEvent#SEND}.
+	 *
+	 * @param type the type
+	 * @return the number of events
+	 */
+	public long getTypeCount(int type) {
+		return type >= 0 && type < typeCounts.length ? typeCounts[type] : 0;
+	}
+
+	/**
+	 * Gets the number of events sent to an entity.
+	 *
+	 * @param id the id of the entity
+	 * @return the number of events
+	 */
+	public long getEntityEventCount(int id) {
+		return id >= 0 && id < entityEvents.length ? entityEvents[id] : 0;
+	}
+
+	/**
+	 * Gets the number of times an entity has run, processing the events it had.
+	 *
+	 * @param id the id of the entity
+	 * @return the number of runs
+	 */
+	public long getEntityRunCount(int id) {
+		return id >= 0 && id < entityRuns.length ? entityRuns[id] : 0;
+	}
+
+	/**
+	 * Gets the time spent running an entity, i.e. in its {@link SimEntity#processEvent(SimEvent)}
+	 * method and in the calls it makes.
+	 *
+	 * @param id the id of the entity
+	 * @return the time, in nanoseconds
+	 */
+	public long getEntityTime(int id) {
+		return id >= 0 && id < entityTimes.length ? entityTimes[id] : 0;
+	}
+
+	/**
+	 * Gets the number of entities seen.
+	 *
+	 * @return the largest id of the entities seen + 1
+	 */
+	public int getEntityCount() {
+		return entityNames.length;
+	}
+
+	/**
+	 * Gets the histogram of the sizes of the future queue at the clock ticks.
+	 *
+	 * @return the histogram
+	 */
+	public Histogram getFutureQueueHistogram() {
+		return futureQueue;
+	}
+
+	/**
+	 * Gets the histogram of the sizes of the deferred queue at the clock ticks.
+	 *
+	 * @return the histogram
+	 */
+	public Histogram getDeferredQueueHistogram() {
+		return deferredQueue;
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public void reset() {
+		Arrays.fill(tagCounts, 0);
+		otherTagCounts.clear();
+		Arrays.fill(typeCounts, 0);
+		eventCount = 0;
+		tickCount = 0;
+		entityEvents = new long[0];
+		entityRuns = new long[0];
+		entityTimes = new long[0];
+		entityNames = new String[0];
+		futureQueue.reset();
+		deferredQueue.reset();
+	}
+
+	/**
+	 * Formats the statistics as text tables: the events per tag, the entities and the queue
+	 * histograms.
+	 *
+	 * @return the tables
+	 */
+	public String toTable() {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%-32s %12s %7s%n", "Tag", "Events", "%"));
+		for (int tag : getTags()) {
+			String name = getTagName(tag);
+			table.append(String.format("%-32s %12d %7.2f%n", name == null ? Integer.toString(tag) : name + " ("
+					+ tag + ")", getTagCount(tag), percentage(getTagCount(tag), eventCount)));
+		}
+		table.append(String.format("%-32s %12d%n", "Total", eventCount));
+
+		table.append(String.format("%n%-32s %12s %12s %14s %12s%n", "Entity", "Events", "Runs", "Time (ms)",
+				"ns/event"));
+		for (int id = 0; id < entityNames.length; id++) {
+			if (entityEvents[id] == 0 && entityRuns[id] == 0) {
+				continue;
+			}
+			table.append(String.format("%-32s %12d %12d %14.3f %12.0f%n", entityNames[id] + " (" + id + ")",
+					entityEvents[id], entityRuns[id], entityTimes[id] / 1e6,
+					entityEvents[id] == 0 ? 0.0 : (double) entityTimes[id] / entityEvents[id]));
+		}
+
+		table.append(String.format("%n%-32s %12s %12s%n", "Queue size", "Future", "Deferred"));
+		int buckets = Math.max(futureQueue.getBucketCount(), deferredQueue.getBucketCount());
+		for (int i = 0; i < buckets; i++) {
+			String range = i == 0 ? "0" : Histogram.getLowerBound(i) + " - " + (Histogram.getLowerBound(i + 1) - 1);
+			table.append(String.format("%-32s %12d %12d%n", range, futureQueue.getCount(i), deferredQueue.getCount(i)));
+		}
+		table.append(String.format("%-32s %12.1f %12.1f%n", "Mean", futureQueue.getMean(), deferredQueue.getMean()));
+		table.append(String.format("%-32s %12d %12d%n", "Max", futureQueue.getMax(), deferredQueue.getMax()));
+		return table.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toTable();
+	}
+
+	/**
+	 * Counts a processed event.
+	 *
+	 * @param event the event
+	 */
+	void eventProcessed(SimEvent event) {
+		eventCount++;
+		int type = event.getType();
+		if (type >= 0 && type < typeCounts.length) {
+			typeCounts[type]++;
+		}
+		int tag = event.getTag();
+		if (tag >= 0 && tag < DENSE_TAGS) {
+			tagCounts[tag]++;
+		} else {
+			long[] count = otherTagCounts.get(tag);
+			if (count == null) {
+				count = new long[1];
+				otherTagCounts.put(tag, count);
+			}
+			count[0]++;
+		}
+		if (type == SimEvent.SEND) {
+			int destination = event.getDestination();
+			if (destination >= 0 && destination < entityEvents.length) {
+				entityEvents[destination]++;
+			}
+		}
+	}
+
+	/**
+	 * Samples the sizes of the queues of the simulation at a clock tick.
+	 *
+	 * @param c the simulation context
+	 */
+	void tick(SimulationContext c) {
+		tickCount++;
+		futureQueue.add(c.future.size());
+		deferredQueue.add(c.deferred.size());
+	}
+
+	/**
+	 * Makes room for the counters of the entities of the simulation, before they run.
+	 *
+	 * @param entities the entities, by id
+	 */
+	void addEntities(List<SimEntity> entities) {
+		int size = entities.size();
+		if (size > entityNames.length) {
+			entityEvents = Arrays.copyOf(entityEvents, size);
+			entityRuns = Arrays.copyOf(entityRuns, size);
+			entityTimes = Arrays.copyOf(entityTimes, size);
+			String[] names = Arrays.copyOf(entityNames, size);
+			for (int id = entityNames.length; id < size; id++) {
+				names[id] = entities.get(id).getName();
+			}
+			entityNames = names;
+		}
+	}
+
+	/**
+	 * Runs an entity and counts the time spent.
+	 *
+	 * @param entity the entity
+	 * @pre entity.getId() < getEntityCount()
+	 */
+	void run(SimEntity entity) {
+		int id = entity.getId();
+		long start = System.nanoTime();
+		entity.run();
+		entityTimes[id] += System.nanoTime() - start;
+		entityRuns[id]++;
+	}
+
+	/**
+	 * Gets the percentage a count is of a total.
+	 *
+	 * @param count the count
+	 * @param total the total
+	 * @return the percentage
+	 */
+	private static double percentage(long count, long total) {
+		return total == 0 ? 0 : 100.0 * count / total;
+	}
+
+	/**
+	 * Gets the name of a tag defined in {@link CloudSimTags}.
+	 *
+	 * @param tag the tag
+	 * @return the name, or <tt>null</tt> if the tag is not defined there
+	 */
+	private static synchronized String getTagName(int tag) {
+		if (tagNames == null) {
+			tagNames = new TreeMap<Integer, String>();
+			for (Field field : CloudSimTags.class.getFields()) {
+				String name = field.getName();
+				if (field.getType() != int.class || !Modifier.isStatic(field.getModifiers()) || name.equals("TRUE")
+						|| name.equals("FALSE") || name.equals("DEFAULT_BAUD_RATE") || name.startsWith("COALESCE_")) {
+					continue;
+				}
+				try {
+					tagNames.put(field.getInt(null), name);
+				} catch (IllegalAccessException e) {
+					// the field is public
+				}
+			}
+		}
+		return tagNames.get(tag);
+	}
+
+	/**
+	 * A histogram of sizes, with buckets of exponentially growing widths: the bucket 0 counts the
+	 * size 0 and the bucket i > 0 the sizes from 2<sup>i-1</sup> to 2<sup>i</sup> - 1.
+	 */
+	public static class Histogram {
+
+		/** The counts per bucket. */
+		private final long[] counts = new long[Integer.SIZE + 1];
+
+		/** The number of buckets used. */
+		private int bucketCount;
+
+		/** The number of sizes. */
+		private long count;
+
+		/** The sum of the sizes. */
+		private long sum;
+
+		/** The largest size. */
+		private int max;
+
+		/**
+		 * Adds a size.
+		 *
+		 * @param size the size
+		 * @pre size >= 0
+		 */
+		void add(int size) {
+			int bucket = Integer.SIZE - Integer.numberOfLeadingZeros(size);
+			counts[bucket]++;
+			if (bucket >= bucketCount) {
+				bucketCount = bucket + 1;
+			}
+			count++;
+			sum += size;
+			if (size > max) {
+				max = size;
+			}
+		}
+
+		/**
+		 * Resets the histogram.
+		 */
+		void reset() {
+			Arrays.fill(counts, 0);
+			bucketCount = 0;
+			count = 0;
+			sum = 0;
+			max = 0;
+		}
+
+		/**
+		 * Gets the number of buckets, up to the last non-empty one.
+		 *
+		 * @return the number of buckets
+		 */
+		public int getBucketCount() {
+			return bucketCount;
+		}
+
+		/**
+		 * Gets the number of sizes in a bucket.
+		 *
+		 * @param bucket the bucket
+		 * @return the number of sizes
+		 */
+		public long getCount(int bucket) {
+			return bucket >= 0 && bucket < counts.length ? counts[bucket] : 0;
+		}
+
+		/**
+		 * Gets the smallest size of a bucket.
+		 *
+		 * @param bucket the bucket
+		 * @return the smallest size
+		 */
+		public static long getLowerBound(int bucket) {
+			return bucket == 0 ? 0 : 1L << (bucket - 1);
+		}
+
+		/**
+		 * Gets the number of sizes.
+		 *
+		 * @return the number of sizes
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Gets the mean size.
+		 *
+		 * @return the mean size, or 0 if there is none
+		 */
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * Gets the largest size.
+		 *
+		 * @return the largest size
+		 */
+		public int getMax() {
+			return max;
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A thread keeping its bound {@link SimulationContext} in a field, so that
+ * {@link SimulationContext#current()} finds it without looking up a thread local. The static
+ * methods of {@link CloudSim} being called for every event, a simulation runs faster in such a
+ * thread, e.g. when several simulations run at the same time:
+ *
+ * <pre>
+ * new SimulationThread(new Runnable() {
+ *
+ * 	public void run() {
+ * 		new SimulationContext().run(simulation);
+ * 	}
+ * }).start();
+ * </pre>
+ *
+ * The logical processes of a {@link ParallelSimulation} and the bodies of the {@link SimProcess}es
+ * run in such threads.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see SimulationContext#bind(SimulationContext)
+ */
+public class SimulationThread extends Thread {
+
+	/** A factory of simulation threads, e.g. for the executors running simulations. */
+	public static final ThreadFactory FACTORY = new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable task) {
+			return new SimulationThread(task);
+		}
+	};
+
+	/** The context bound to the thread, or <tt>null</tt> if none is bound. */
+	SimulationContext context;
+
+	/**
+	 * Instantiates a new simulation thread.
+	 *
+	 * @param target the task run by the thread
+	 */
+	public SimulationThread(Runnable target) {
+		super(target);
+	}
+
+	/**
+	 * Instantiates a new simulation thread with a given name and stack size.
+	 *
+	 * @param target the task run by the thread
+	 * @param name the name of the thread
+	 * @param stackSize the stack size of the thread, or 0 to use the default size
+	 * @see Thread#Thread(ThreadGroup, Runnable, String, long)
+	 */
+	public SimulationThread(Runnable target, String name, long stackSize) {
+		super(null, target, name, stackSize);
+	}
+
+}
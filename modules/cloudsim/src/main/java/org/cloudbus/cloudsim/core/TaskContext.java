@@ -0,0 +1,254 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * The context of a task which an entity runs in parallel with other tasks while it processes an
+ * event, e.g. the update of one of the hosts of a datacenter: a child context seeing the state of
+ * the simulation as it was when the task was prepared, in which the log writes are buffered until
+ * they are flushed. The entity flushes the contexts of its tasks in the order in which it would
+ * have run them sequentially, so that the log is that of a sequential simulation.
+ * <p>
+ * The tasks must not change the state of the simulation: sending, cancelling or selecting events
+ * throws an {@link UnsupportedOperationException}. A context can be prepared again for another
+ * task once it has been flushed. A task may change state shared with other tasks through actions
+ * deferred until its context is flushed, see {@link #defer(Runnable)}. The writes of the tasks to
+ * the standard streams, rather than to the log, are only buffered once these streams have been
+ * routed, see {@link #routeStandardStreams()}.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see SimulationContext#run(Runnable)
+ */
+public class TaskContext extends SimulationContext {
+
+	/** The log writes not flushed yet. */
+	private final List<LogicalProcess.Write> writes = new ArrayList<LogicalProcess.Write>();
+
+	/** The actions deferred until the context is flushed. */
+	private final List<Runnable> deferredActions = new ArrayList<Runnable>();
+
+	/** The standard output stream installed by {@link #routeStandardStreams()}. */
+	private static PrintStream routedOut;
+
+	/** The standard error stream installed by {@link #routeStandardStreams()}. */
+	private static PrintStream routedErr;
+
+	/**
+	 * Instantiates a new task context.
+	 *
+	 * @param parent the context of the simulation
+	 */
+	public TaskContext(SimulationContext parent) {
+		super(parent);
+	}
+
+	/**
+	 * Copies the state of the simulation before a task runs. The state kept by other classes for
+	 * this context, such as the log settings, is taken again from the context of the simulation.
+	 */
+	public void prepare() {
+		SimulationContext c = getParent();
+		cisId = c.cisId;
+		shutdownId = c.shutdownId;
+		cis = c.cis;
+		traceFlag = c.traceFlag;
+		calendar = c.calendar;
+		entities = c.entities;
+		entitiesByName = c.entitiesByName;
+		clock = c.clock;
+		tick = c.tick;
+		running = c.running;
+		terminateAt = c.terminateAt;
+		paused = c.paused;
+		pauseAt = c.pauseAt;
+		clearAttributes();
+	}
+
+	/**
+	 * Writes the log writes of the task to the outputs they are meant for, then runs the actions
+	 * deferred by the task. This method has to be called by the thread running the simulation,
+	 * once the task is done.
+	 */
+	public void flush() {
+		for (LogicalProcess.Write write : writes) {
+			try {
+				write.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		writes.clear();
+		for (int i = 0; i < deferredActions.size(); i++) {
+			deferredActions.get(i).run();
+		}
+		deferredActions.clear();
+	}
+
+	/**
+	 * Defers an action changing state shared with other tasks until the context is flushed, e.g.
+	 * the notification of an entity, so that the actions of the tasks run in the order of their
+	 * contexts rather than in the order in which the tasks run.
+	 *
+	 * @param action the action
+	 */
+	public void defer(Runnable action) {
+		deferredActions.add(action);
+	}
+
+	/**
+	 * Creates a stream writing to a print stream, except that the writes made by a task are
+	 * buffered in its context. It is meant to replace a standard stream, so that the direct writes
+	 * of the tasks to that stream are ordered as their log writes are.
+	 *
+	 * @param output the print stream, usually the standard output or error stream
+	 * @return the stream routing the writes
+	 * @see System#setOut(PrintStream)
+	 * @see System#setErr(PrintStream)
+	 */
+	public static PrintStream routeOutput(final PrintStream output) {
+		return new PrintStream(new OutputStream() {
+
+			@Override
+			public void write(int b) {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				SimulationContext context = SimulationContext.current();
+				if (context instanceof TaskContext) {
+					((TaskContext) context).buffer(output, b, off, len);
+				} else {
+					output.write(b, off, len);
+				}
+			}
+
+			@Override
+			public void flush() {
+				output.flush();
+			}
+		}, true);
+	}
+
+	/**
+	 * Replaces the standard output and error streams by streams routing the writes of the tasks to
+	 * their contexts, see {@link #routeOutput(PrintStream)}, unless it has already been done. The
+	 * routing streams write directly to the former streams outside of the tasks, so they are kept
+	 * once installed, and serve all the simulations running at the same time: each write is routed
+	 * by the context of the thread making it. A stream replaced since by the application is routed
+	 * again.
+	 */
+	public static synchronized void routeStandardStreams() {
+		if (System.out != routedOut) {
+			routedOut = routeOutput(System.out);
+			System.setOut(routedOut);
+		}
+		if (System.err != routedErr) {
+			routedErr = routeOutput(System.err);
+			System.setErr(routedErr);
+		}
+	}
+
+	@Override
+	public OutputStream adaptOutput(final OutputStream output) {
+		return new OutputStream() {
+
+			@Override
+			public void write(int b) {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				buffer(output, b, off, len);
+			}
+		};
+	}
+
+	/**
+	 * Buffers a write until the context is flushed.
+	 *
+	 * @param output the output stream the write is meant for
+	 * @param b the bytes
+	 * @param off the offset of the first byte written
+	 * @param len the number of bytes written
+	 */
+	private void buffer(OutputStream output, byte[] b, int off, int len) {
+		writes.add(new LogicalProcess.Write(output, Arrays.copyOfRange(b, off, off + len), clock, 0, 0, writes.size()));
+	}
+
+	@Override
+	void schedule(SimEvent event) {
+		throw unsupported();
+	}
+
+	@Override
+	void scheduleFirst(SimEvent event) {
+		throw unsupported();
+	}
+
+	@Override
+	boolean scheduleCoalesced(SimEvent event, boolean earliestWins) {
+		throw unsupported();
+	}
+
+	@Override
+	SimEvent cancel(int source, Predicate p) {
+		throw unsupported();
+	}
+
+	@Override
+	void cancelEvent(SimEvent event) {
+		throw unsupported();
+	}
+
+	@Override
+	boolean cancelAll(int source, Predicate p) {
+		throw unsupported();
+	}
+
+	@Override
+	int countDeferred(int destination, Predicate p) {
+		throw unsupported();
+	}
+
+	@Override
+	SimEvent selectDeferred(int destination, Predicate p) {
+		throw unsupported();
+	}
+
+	@Override
+	SimEvent findFirstDeferred(int destination, Predicate p) {
+		throw unsupported();
+	}
+
+	@Override
+	SimEvent lastDeferred(int destination) {
+		throw unsupported();
+	}
+
+	/**
+	 * Creates the exception thrown when a task tries to change the state of the simulation.
+	 *
+	 * @return the exception
+	 */
+	private static UnsupportedOperationException unsupported() {
+		return new UnsupportedOperationException("The events cannot be accessed by a task running in parallel.");
+	}
+
+}
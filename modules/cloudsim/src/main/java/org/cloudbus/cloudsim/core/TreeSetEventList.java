@@ -0,0 +1,68 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * An event list backed by a {@link TreeSet}. Insertions and removals cost O(log n). This is the
+ * default event list of the {@link FutureQueue}.
+ * 
+ * @since CloudSim Toolkit 3.1
+ * @see EventList
+ * @see java.util.TreeSet
+ */
+public class TreeSetEventList implements EventList {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The sorted set. */
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	@Override
+	public void add(SimEvent event) {
+		sortedSet.add(event);
+	}
+
+	@Override
+	public SimEvent first() {
+		if (sortedSet.isEmpty()) {
+			return null;
+		}
+		return sortedSet.first();
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
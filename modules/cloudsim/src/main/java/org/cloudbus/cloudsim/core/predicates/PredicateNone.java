@@ -23,6 +23,9 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateNone extends Predicate {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The match function called by {@link Simulation}, not used directly by the user.
 	 * 
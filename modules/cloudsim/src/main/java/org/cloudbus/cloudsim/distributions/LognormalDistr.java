@@ -18,6 +18,9 @@ import java.util.Random;
  */
 public class LognormalDistr implements ContinuousDistribution {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The num gen. */
 	private final Random numGen;
 
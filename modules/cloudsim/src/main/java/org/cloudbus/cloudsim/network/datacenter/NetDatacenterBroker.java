@@ -22,6 +22,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.distributions.UniformDistr;
 import org.cloudbus.cloudsim.lists.VmList;
 
@@ -36,6 +37,9 @@ import org.cloudbus.cloudsim.lists.VmList;
  */
 public class NetDatacenterBroker extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	// TODO: remove unnecessary variables
 
 	/** The vm list. */
@@ -81,11 +85,13 @@ public class NetDatacenterBroker extends SimEntity {
 	/** The datacenter characteristics list. */
 	private Map<Integer, DatacenterCharacteristics> datacenterCharacteristicsList;
 
-	public static NetworkDatacenter linkDC;
+	/** The key of the linked datacenter in the simulation contexts. */
+	private static final Object LINK_DC_KEY = new Object();
 
-	public boolean createvmflag = true;
+	/** The key of the cached cloudlet counter in the simulation contexts. */
+	private static final Object CACHED_CLOUDLET_KEY = new Object();
 
-	public static int cachedcloudlet = 0;
+	public boolean createvmflag = true;
 
 	/**
 	 * Created a new DatacenterBroker object.
@@ -119,6 +125,8 @@ public class NetDatacenterBroker extends SimEntity {
 		setVmsToDatacentersMap(new HashMap<Integer, Integer>());
 		setDatacenterCharacteristicsList(new HashMap<Integer, DatacenterCharacteristics>());
 
+		// the broker creates the applications directly in the linked datacenter
+		setParallelDispatch(false);
 	}
 
 	/**
@@ -147,7 +155,35 @@ public class NetDatacenterBroker extends SimEntity {
 	}
 
 	public void setLinkDC(NetworkDatacenter alinkDC) {
-		linkDC = alinkDC;
+		SimulationContext.current().setAttribute(LINK_DC_KEY, alinkDC);
+	}
+
+	/**
+	 * Gets the datacenter linked to the brokers of the current simulation context.
+	 * 
+	 * @return the linked datacenter
+	 */
+	public static NetworkDatacenter getLinkDC() {
+		return (NetworkDatacenter) SimulationContext.current().getAttribute(LINK_DC_KEY);
+	}
+
+	/**
+	 * Gets the number of cached cloudlets of the current simulation context.
+	 * 
+	 * @return the number of cached cloudlets
+	 */
+	public static int getCachedCloudlet() {
+		Integer cachedcloudlet = (Integer) SimulationContext.current().getAttribute(CACHED_CLOUDLET_KEY);
+		return cachedcloudlet == null ? 0 : cachedcloudlet;
+	}
+
+	/**
+	 * Sets the number of cached cloudlets of the current simulation context.
+	 * 
+	 * @param cachedcloudlet the number of cached cloudlets
+	 */
+	public static void setCachedCloudlet(int cachedcloudlet) {
+		SimulationContext.current().setAttribute(CACHED_CLOUDLET_KEY, cachedcloudlet);
 	}
 
 	/**
@@ -181,7 +217,7 @@ public class NetDatacenterBroker extends SimEntity {
 				break;
 			case CloudSimTags.NextCycle:
 				if (NetworkConstants.BASE) {
-					createVmsInDatacenterBase(linkDC.getId());
+					createVmsInDatacenterBase(getLinkDC().getId());
 				}
 
 				break;
@@ -319,7 +355,7 @@ public class NetDatacenterBroker extends SimEntity {
 		for (AppCloudlet app : this.getAppCloudletList()) {
 
 			List<Integer> vmids = new ArrayList<Integer>();
-			int numVms = linkDC.getVmList().size();
+			int numVms = getLinkDC().getVmList().size();
 			UniformDistr ufrnd = new UniformDistr(0, numVms, 5);
 			for (int i = 0; i < app.numbervm; i++) {
 
@@ -362,7 +398,7 @@ public class NetDatacenterBroker extends SimEntity {
 
 	private void CreateVMs(int datacenterId) {
 		// two VMs per host
-		int numVM = linkDC.getHostList().size() * NetworkConstants.maxhostVM;
+		int numVM = getLinkDC().getHostList().size() * NetworkConstants.maxhostVM;
 		for (int i = 0; i < numVM; i++) {
 			int vmid = i;
 			int mips = 1;
@@ -383,7 +419,7 @@ public class NetDatacenterBroker extends SimEntity {
 					size,
 					vmm,
 					new NetworkCloudletSpaceSharedScheduler());
-			linkDC.processVmCreateNetwork(vm);
+			getLinkDC().processVmCreateNetwork(vm);
 			// add the VM to the vmList
 			getVmList().add(vm);
 			getVmsToDatacentersMap().put(vmid, datacenterId);
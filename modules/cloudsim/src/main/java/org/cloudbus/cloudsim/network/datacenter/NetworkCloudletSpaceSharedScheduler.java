@@ -33,6 +33,9 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
  */
 public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet waiting list. */
 	private List<? extends ResCloudlet> cloudletWaitingList;
 
@@ -155,13 +158,13 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 				cl.timetostartStage = CloudSim.clock();
 
 				if (cl.stages.get(0).type == NetworkConstants.EXECUTION) {
-					NetDatacenterBroker.linkDC.schedule(
-							NetDatacenterBroker.linkDC.getId(),
+					NetDatacenterBroker.getLinkDC().schedule(
+							NetDatacenterBroker.getLinkDC().getId(),
 							cl.stages.get(0).time,
 							CloudSimTags.VM_DATACENTER_EVENT);
 				} else {
-					NetDatacenterBroker.linkDC.schedule(
-							NetDatacenterBroker.linkDC.getId(),
+					NetDatacenterBroker.getLinkDC().schedule(
+							NetDatacenterBroker.getLinkDC().getId(),
 							0.0001,
 							CloudSimTags.VM_DATACENTER_EVENT);
 					// /sendstage///
@@ -260,8 +263,8 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 				}
 
 			}
-			NetDatacenterBroker.linkDC.schedule(
-					NetDatacenterBroker.linkDC.getId(),
+			NetDatacenterBroker.getLinkDC().schedule(
+					NetDatacenterBroker.getLinkDC().getId(),
 					0.0001,
 					CloudSimTags.VM_DATACENTER_EVENT);
 			if (i == cl.stages.size()) {
@@ -269,8 +272,8 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 			} else {
 				cl.currStagenum = i;
 				if (cl.stages.get(i).type == NetworkConstants.EXECUTION) {
-					NetDatacenterBroker.linkDC.schedule(
-							NetDatacenterBroker.linkDC.getId(),
+					NetDatacenterBroker.getLinkDC().schedule(
+							NetDatacenterBroker.getLinkDC().getId(),
 							cl.stages.get(i).time,
 							CloudSimTags.VM_DATACENTER_EVENT);
 				}
@@ -407,6 +410,12 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 		rcl.finalizeCloudlet();
 		getCloudletFinishedList().add(rcl);
 		usedPes -= rcl.getNumberOfPes();
+		notifyCloudletFinished();
+	}
+
+	@Override
+	protected boolean isNotifyingFinishedCloudlets() {
+		return true;
 	}
 
 	/**
@@ -40,6 +40,9 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  */
 public class NetworkHost extends Host {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	public List<NetworkPacket> packetTosendLocal;
 
 	public List<NetworkPacket> packetTosendGlobal;
@@ -72,6 +75,16 @@ public class NetworkHost extends Host {
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#isVmProcessingIndependent()
+	 */
+	@Override
+	public boolean isVmProcessingIndependent() {
+		// the packets of all the VMs are sent and received at each update
+		return false;
+	}
+
 	/**
 	 * Requests updating of processing of cloudlets in the VMs running in this host.
 	 * 
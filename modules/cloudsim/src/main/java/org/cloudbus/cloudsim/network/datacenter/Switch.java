@@ -27,6 +27,9 @@ import org.cloudbus.cloudsim.lists.VmList;
 
 public class Switch extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	// switch level
 	public int id;
 
@@ -76,6 +79,8 @@ public class Switch extends SimEntity {
 		super(name);
 		this.level = level;
 		this.dc = dc;
+		// the switches read the state of the datacenter directly
+		setParallelDispatch(false);
 	}
 
 	@Override
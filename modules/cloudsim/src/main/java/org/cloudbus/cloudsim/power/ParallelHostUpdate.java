@@ -0,0 +1,289 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.core.TaskContext;
+
+/**
+ * Updates the hosts of a power datacenter in parallel, for
+ * {@link PowerDatacenter#setHostUpdatePool(ForkJoinPool)}. Each host is updated, then its energy
+ * for the last time frame is computed, in a task of the pool, in {@link TaskContext}s buffering
+ * the log writes of the update and of the energy. The datacenter then flushes the buffers and
+ * reduces the next event times and the energies in the order of the host list, which is the order
+ * of the sequential updates, so that the results and the log are exactly those of the sequential
+ * updates.
+ * <p>
+ * The standard output and error streams are routed once the update is created, see
+ * {@link TaskContext#routeStandardStreams()}, so that the direct writes of the hosts to them are
+ * buffered with their log writes.
+ * <p>
+ * The hosts sharing a VM being migrated, which is in the VM lists of both its source and target
+ * hosts, are updated one after the other in the order of the host list, once the other hosts have
+ * been updated in parallel. The other hosts share no VM, so the order of their updates does not
+ * matter.
+ *
+ * @since CloudSim Toolkit 3.1
+ * @see PowerDatacenter#setHostUpdatePool(ForkJoinPool)
+ */
+class ParallelHostUpdate {
+
+	/** The pool. */
+	private final ForkJoinPool pool;
+
+	/** The contexts of the updates of the hosts, indexed by position in the host list. */
+	private TaskContext[] updateContexts = new TaskContext[0];
+
+	/** The contexts of the energy computations of the hosts. */
+	private TaskContext[] energyContexts = new TaskContext[0];
+
+	/** The next event times of the hosts. */
+	private double[] times = new double[0];
+
+	/** The energies of the hosts for the last time frame. */
+	private double[] energies = new double[0];
+
+	/** The positions of the hosts updated in parallel. */
+	private int[] parallelHosts = new int[0];
+
+	/** The number of hosts updated by the last call to {@link #run(PowerDatacenter, List, double, double)}. */
+	private int size;
+
+	/**
+	 * Instantiates a new parallel host update.
+	 *
+	 * @param pool the pool updating the hosts
+	 */
+	ParallelHostUpdate(ForkJoinPool pool) {
+		this.pool = pool;
+		TaskContext.routeStandardStreams();
+	}
+
+	/**
+	 * Gets the pool updating the hosts.
+	 *
+	 * @return the pool
+	 */
+	ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Updates the hosts and computes their energies, without writing the log.
+	 *
+	 * @param datacenter the datacenter
+	 * @param hosts the hosts of the datacenter
+	 * @param currentTime the current time
+	 * @param timeDiff the duration of the last time frame, the energies being computed only if it
+	 *            is positive
+	 */
+	void run(PowerDatacenter datacenter, List<PowerHost> hosts, double currentTime, double timeDiff) {
+		size = hosts.size();
+		prepare(SimulationContext.current());
+
+		int parallelCount = 0;
+		boolean[] shared = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			shared[i] = isSharingVms(hosts.get(i));
+			if (!shared[i]) {
+				parallelHosts[parallelCount++] = i;
+			}
+		}
+		if (parallelCount > 0) {
+			pool.invoke(new HostTask(datacenter, hosts, currentTime, timeDiff, 0, parallelCount));
+		}
+		for (int i = 0; i < size; i++) {
+			if (shared[i]) {
+				updateHost(datacenter, hosts, i, currentTime, timeDiff);
+			}
+		}
+	}
+
+	/**
+	 * Writes the log of the updates of the hosts, in the order of the host list.
+	 *
+	 * @return the earliest next event time of the hosts, or Double.MAX_VALUE if there is none
+	 */
+	double flushUpdates() {
+		double minTime = Double.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			updateContexts[i].flush();
+			if (times[i] < minTime) {
+				minTime = times[i];
+			}
+		}
+		return minTime;
+	}
+
+	/**
+	 * Writes the log of the energy computations of the hosts, in the order of the host list.
+	 *
+	 * @return the energy of the datacenter for the last time frame
+	 */
+	double flushEnergies() {
+		double energy = 0.0;
+		for (int i = 0; i < size; i++) {
+			energyContexts[i].flush();
+			energy += energies[i];
+		}
+		return energy;
+	}
+
+	/**
+	 * Prepares the contexts of the hosts, creating them if necessary.
+	 *
+	 * @param c the context of the simulation
+	 */
+	private void prepare(SimulationContext c) {
+		if (updateContexts.length < size || (size > 0 && updateContexts[0].getParent() != c)) {
+			updateContexts = new TaskContext[size];
+			energyContexts = new TaskContext[size];
+			times = new double[size];
+			energies = new double[size];
+			parallelHosts = new int[size];
+			for (int i = 0; i < size; i++) {
+				updateContexts[i] = new TaskContext(c);
+				energyContexts[i] = new TaskContext(c);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			updateContexts[i].prepare();
+			energyContexts[i].prepare();
+		}
+	}
+
+	/**
+	 * Updates a host and computes its energy in the contexts of the host.
+	 *
+	 * @param datacenter the datacenter
+	 * @param hosts the hosts of the datacenter
+	 * @param index the position of the host in the host list
+	 * @param currentTime the current time
+	 * @param timeDiff the duration of the last time frame
+	 */
+	private void updateHost(
+			final PowerDatacenter datacenter,
+			List<PowerHost> hosts,
+			final int index,
+			final double currentTime,
+			final double timeDiff) {
+		final PowerHost host = hosts.get(index);
+		updateContexts[index].run(new Runnable() {
+
+			@Override
+			public void run() {
+				times[index] = datacenter.updateHostVmsProcessing(host, currentTime);
+			}
+		});
+		if (timeDiff > 0) {
+			energyContexts[index].run(new Runnable() {
+
+				@Override
+				public void run() {
+					energies[index] = datacenter.updateHostEnergy(host, currentTime, timeDiff);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Checks whether a host shares VMs with other hosts, which is the case of the source and
+	 * target hosts of a VM being migrated.
+	 *
+	 * @param host the host
+	 * @return true, if a VM of the host is being migrated
+	 */
+	private static boolean isSharingVms(PowerHost host) {
+		if (!host.getVmsMigratingIn().isEmpty()) {
+			return true;
+		}
+		for (Vm vm : host.getVmList()) {
+			if (vm.isInMigration()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A task updating a range of the hosts updated in parallel, splitting it in halves until it
+	 * holds one host.
+	 */
+	private class HostTask extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The datacenter. */
+		private final PowerDatacenter datacenter;
+
+		/** The hosts of the datacenter. */
+		private final List<PowerHost> hosts;
+
+		/** The current time. */
+		private final double currentTime;
+
+		/** The duration of the last time frame. */
+		private final double timeDiff;
+
+		/** The first host of the range, included. */
+		private final int from;
+
+		/** The last host of the range, excluded. */
+		private final int to;
+
+		/**
+		 * Instantiates a new host task.
+		 *
+		 * @param datacenter the datacenter
+		 * @param hosts the hosts of the datacenter
+		 * @param currentTime the current time
+		 * @param timeDiff the duration of the last time frame
+		 * @param from the first host of the range, included
+		 * @param to the last host of the range, excluded
+		 */
+		public HostTask(
+				PowerDatacenter datacenter,
+				List<PowerHost> hosts,
+				double currentTime,
+				double timeDiff,
+				int from,
+				int to) {
+			this.datacenter = datacenter;
+			this.hosts = hosts;
+			this.currentTime = currentTime;
+			this.timeDiff = timeDiff;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				updateHost(datacenter, hosts, parallelHosts[from], currentTime, timeDiff);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new HostTask(datacenter, hosts, currentTime, timeDiff, from, middle), new HostTask(
+						datacenter,
+						hosts,
+						currentTime,
+						timeDiff,
+						middle,
+						to));
+			}
+		}
+
+	}
+
+}
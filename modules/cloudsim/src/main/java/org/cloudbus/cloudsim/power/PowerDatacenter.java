@@ -10,6 +10,7 @@ package org.cloudbus.cloudsim.power;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
@@ -19,6 +20,7 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.PeriodicTimer;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
@@ -38,6 +40,9 @@ import org.cloudbus.cloudsim.core.predicates.PredicateType;
  */
 public class PowerDatacenter extends Datacenter {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The power. */
 	private double power;
 
@@ -50,6 +55,15 @@ public class PowerDatacenter extends Datacenter {
 	/** The migration count. */
 	private int migrationCount;
 
+	/** The timer of the updates of the cloudlet processing. */
+	private PeriodicTimer updateTimer;
+
+	/** Whether the submission or the resumption of cloudlets may have scheduled wake-up events. */
+	private boolean wakeUpScheduled;
+
+	/** The parallel update of the hosts, or <tt>null</tt> if the hosts are updated sequentially. */
+	private transient ParallelHostUpdate hostUpdate;
+
 	/**
 	 * Instantiates a new datacenter.
 	 * 
@@ -86,8 +100,7 @@ public class PowerDatacenter extends Datacenter {
 	@Override
 	protected void updateCloudletProcessing() {
 		if (getCloudletSubmitted() == -1 || getCloudletSubmitted() == CloudSim.clock()) {
-			CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
-			schedule(getId(), getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
+			scheduleNextUpdate();
 			return;
 		}
 		double currentTime = CloudSim.clock();
@@ -141,12 +154,40 @@ public class PowerDatacenter extends Datacenter {
 
 			// schedules an event to the next time
 			if (minTime != Double.MAX_VALUE) {
-				CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
-				send(getId(), getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
+				scheduleNextUpdate();
 			}
 
 			setLastProcessTime(currentTime);
 		}
+		stopUnscheduledUpdates();
+	}
+
+	/**
+	 * Schedules the next update of the cloudlet processing after the scheduling interval, in place
+	 * of the pending one. The wake-up events scheduled by the submission or the resumption of
+	 * cloudlets are cancelled.
+	 */
+	protected void scheduleNextUpdate() {
+		if (wakeUpScheduled) {
+			CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
+			wakeUpScheduled = false;
+		}
+		if (updateTimer == null) {
+			updateTimer = schedulePeriodic(CloudSimTags.VM_DATACENTER_EVENT, getSchedulingInterval());
+		} else {
+			updateTimer.reschedule(getSchedulingInterval());
+		}
+	}
+
+	/**
+	 * Stops the updates of the cloudlet processing if the current update has been fired by the
+	 * update timer and has not scheduled the next one, e.g. because no cloudlet is running. The
+	 * next update is then scheduled when a cloudlet is submitted.
+	 */
+	protected void stopUnscheduledUpdates() {
+		if (updateTimer != null && updateTimer.isFiring()) {
+			updateTimer.cancel();
+		}
 	}
 
 	/**
@@ -175,19 +216,20 @@ public class PowerDatacenter extends Datacenter {
 		Log.printLine("\n\n--------------------------------------------------------------\n\n");
 		Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
-			Log.printLine();
-
-			double time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
-			if (time < minTime) {
-				minTime = time;
+		if (hostUpdate != null) {
+			if (!Log.isDisabled()) {
+				// opens the VM utilization log once, rather than in each task
+				Log.getVmUtilOutput();
+			}
+			hostUpdate.run(this, this.<PowerHost> getHostList(), currentTime, timeDiff);
+			minTime = hostUpdate.flushUpdates();
+		} else {
+			for (PowerHost host : this.<PowerHost> getHostList()) {
+				double time = updateHostVmsProcessing(host, currentTime);
+				if (time < minTime) {
+					minTime = time;
+				}
 			}
-
-			Log.formatLine(
-					"%.2f: [Host #%d] utilization is %.2f%%",
-					currentTime,
-					host.getId(),
-					host.getUtilizationOfCpu() * 100);
 		}
 
 		if (timeDiff > 0) {
@@ -196,28 +238,12 @@ public class PowerDatacenter extends Datacenter {
 					getLastProcessTime(),
 					currentTime);
 
-			for (PowerHost host : this.<PowerHost> getHostList()) {
-				double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
-				double utilizationOfCpu = host.getUtilizationOfCpu();
-				double timeFrameHostEnergy = host.getEnergyLinearInterpolation(
-						previousUtilizationOfCpu,
-						utilizationOfCpu,
-						timeDiff);
-				timeFrameDatacenterEnergy += timeFrameHostEnergy;
-
-				Log.printLine();
-				Log.formatLine(
-						"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
-						currentTime,
-						host.getId(),
-						getLastProcessTime(),
-						previousUtilizationOfCpu * 100,
-						utilizationOfCpu * 100);
-				Log.formatLine(
-						"%.2f: [Host #%d] energy is %.2f W*sec",
-						currentTime,
-						host.getId(),
-						timeFrameHostEnergy);
+			if (hostUpdate != null) {
+				timeFrameDatacenterEnergy = hostUpdate.flushEnergies();
+			} else {
+				for (PowerHost host : this.<PowerHost> getHostList()) {
+					timeFrameDatacenterEnergy += updateHostEnergy(host, currentTime, timeDiff);
+				}
 			}
 
 			Log.formatLine(
@@ -245,6 +271,91 @@ public class PowerDatacenter extends Datacenter {
 		return minTime;
 	}
 
+	/**
+	 * Updates the processing of the VMs of a host, for
+	 * {@link #updateCloudetProcessingWithoutSchedulingFutureEventsForce()}. When the hosts are
+	 * updated in parallel, this method is called in a task of the pool for the hosts which share no
+	 * VM with other hosts; it must then only change the state of the host and of its VMs.
+	 * 
+	 * @param host the host
+	 * @param currentTime the current time
+	 * @return the expected completion time of the next cloudlet of the host
+	 */
+	protected double updateHostVmsProcessing(PowerHost host, double currentTime) {
+		Log.printLine();
+
+		double time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
+
+		Log.formatLine(
+				"%.2f: [Host #%d] utilization is %.2f%%",
+				currentTime,
+				host.getId(),
+				host.getUtilizationOfCpu() * 100);
+		return time;
+	}
+
+	/**
+	 * Computes the energy consumed by a host during the last time frame, for
+	 * {@link #updateCloudetProcessingWithoutSchedulingFutureEventsForce()}. When the hosts are
+	 * updated in parallel, this method is called in a task of the pool.
+	 * 
+	 * @param host the host, whose processing has been updated
+	 * @param currentTime the current time
+	 * @param timeDiff the duration of the time frame
+	 * @return the energy in W*sec
+	 */
+	protected double updateHostEnergy(PowerHost host, double currentTime, double timeDiff) {
+		double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
+		double utilizationOfCpu = host.getUtilizationOfCpu();
+		double timeFrameHostEnergy = host.getEnergyLinearInterpolation(
+				previousUtilizationOfCpu,
+				utilizationOfCpu,
+				timeDiff);
+
+		Log.printLine();
+		Log.formatLine(
+				"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
+				currentTime,
+				host.getId(),
+				getLastProcessTime(),
+				previousUtilizationOfCpu * 100,
+				utilizationOfCpu * 100);
+		Log.formatLine(
+				"%.2f: [Host #%d] energy is %.2f W*sec",
+				currentTime,
+				host.getId(),
+				timeFrameHostEnergy);
+		return timeFrameHostEnergy;
+	}
+
+	/**
+	 * Sets the pool updating the hosts in parallel. The hosts are updated, and their energies
+	 * computed, in tasks of the pool, whose log writes are buffered; the next event time, the
+	 * energy of the datacenter and the log are then reduced in the order of the host list, so the
+	 * results and the log are exactly those of the sequential updates. The hosts sharing a VM being
+	 * migrated are updated sequentially, after the others.
+	 * <p>
+	 * The VMs and cloudlets of different hosts must not share mutable state, e.g. a stochastic
+	 * utilization model, since they are updated at the same time. The pool is not kept by a
+	 * {@link org.cloudbus.cloudsim.core.SimulationCheckpoint}.
+	 * 
+	 * @param pool the pool, or <tt>null</tt> to update the hosts sequentially, which is the default
+	 * @see org.cloudbus.cloudsim.core.TaskContext
+	 */
+	public void setHostUpdatePool(ForkJoinPool pool) {
+		hostUpdate = pool == null ? null : new ParallelHostUpdate(pool);
+	}
+
+	/**
+	 * Gets the pool updating the hosts in parallel.
+	 * 
+	 * @return the pool, or <tt>null</tt> if the hosts are updated sequentially
+	 * @see #setHostUpdatePool(ForkJoinPool)
+	 */
+	public ForkJoinPool getHostUpdatePool() {
+		return hostUpdate == null ? null : hostUpdate.getPool();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.cloudbus.cloudsim.Datacenter#processVmMigrate(org.cloudbus.cloudsim.core.SimEvent,
@@ -267,9 +378,31 @@ public class PowerDatacenter extends Datacenter {
 	@Override
 	protected void processCloudletSubmit(SimEvent ev, boolean ack) {
 		super.processCloudletSubmit(ev, ack);
+		wakeUpScheduled = true;
+		setCloudletSubmitted(CloudSim.clock());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Datacenter#processCloudletSubmitBulk(org.cloudbus.cloudsim.core.SimEvent, boolean)
+	 */
+	@Override
+	protected void processCloudletSubmitBulk(SimEvent ev, boolean ack) {
+		super.processCloudletSubmitBulk(ev, ack);
+		wakeUpScheduled = true;
 		setCloudletSubmitted(CloudSim.clock());
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Datacenter#processCloudletResume(int, int, int, boolean)
+	 */
+	@Override
+	protected void processCloudletResume(int cloudletId, int userId, int vmId, boolean ack) {
+		super.processCloudletResume(cloudletId, userId, vmId, ack);
+		wakeUpScheduled = true;
+	}
+
 	/**
 	 * Gets the power.
 	 * 
@@ -35,6 +35,9 @@ import flanagan.analysis.Stat;
  */
 public class PowerVm extends Vm {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The Constant HISTORY_LENGTH. */
 	public static final int HISTORY_LENGTH = 30;
 
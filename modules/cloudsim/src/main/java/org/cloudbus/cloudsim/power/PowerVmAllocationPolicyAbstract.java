@@ -34,6 +34,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The vm table. */
 	private final Map<String, Host> vmTable = new HashMap<String, Host>();
 
@@ -124,6 +127,20 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 		return getVmTable().get(Vm.getUid(userId, vmId));
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.VmAllocationPolicy#adoptAllocation()
+	 */
+	@Override
+	public void adoptAllocation() {
+		getVmTable().clear();
+		for (Host host : this.<Host> getHostList()) {
+			for (Vm vm : host.<Vm> getVmList()) {
+				getVmTable().put(vm.getUid(), host);
+			}
+		}
+	}
+
 	/**
 	 * Gets the vm table.
 	 * 
@@ -30,6 +30,9 @@ import flanagan.analysis.Regression;
  * @since CloudSim Toolkit 3.0
  */
 public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPolicy {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	
 	
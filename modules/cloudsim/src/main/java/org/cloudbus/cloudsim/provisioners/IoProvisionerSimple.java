@@ -23,6 +23,9 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class IoProvisionerSimple extends IoProvisioner {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The IoBw table. */
 	private Map<String, Integer> IoBwTable;
 
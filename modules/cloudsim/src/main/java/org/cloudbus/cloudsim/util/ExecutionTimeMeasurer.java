@@ -11,16 +11,19 @@ package org.cloudbus.cloudsim.util;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 /**
- * The class for measuring the execution time.
+ * The class for measuring the execution time. The measurements in progress belong to the
+ * {@link SimulationContext} of the current thread.
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 3.0
  */
 public class ExecutionTimeMeasurer {
 
-	/** The execution times. */
-	private final static Map<String, Long> executionTimes = new HashMap<String, Long>();
+	/** The key of the execution times in the simulation contexts. */
+	private final static Object EXECUTION_TIMES_KEY = new Object();
 
 	/**
 	 * Start.
@@ -48,7 +51,14 @@ public class ExecutionTimeMeasurer {
 	 * 
 	 * @return the execution times
 	 */
+	@SuppressWarnings("unchecked")
 	public static Map<String, Long> getExecutionTimes() {
+		SimulationContext context = SimulationContext.current();
+		Map<String, Long> executionTimes = (Map<String, Long>) context.getLocalAttribute(EXECUTION_TIMES_KEY);
+		if (executionTimes == null) {
+			executionTimes = new HashMap<String, Long>();
+			context.setAttribute(EXECUTION_TIMES_KEY, executionTimes);
+		}
 		return executionTimes;
 	}
 
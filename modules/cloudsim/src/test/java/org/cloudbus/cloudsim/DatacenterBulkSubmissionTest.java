@@ -0,0 +1,300 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.IoProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class DatacenterBulkSubmissionTest {
+
+	private static final int HOSTS = 10;
+
+	private static final int CLOUDLETS = 40;
+
+	private static final int SPACE_SHARED = 0;
+
+	private static final int TIME_SHARED = 1;
+
+	private static final int DYNAMIC_WORKLOAD = 2;
+
+	private static final double LATER = 20;
+
+	private Datacenter datacenter;
+
+	@Before
+	public void setUp() {
+		Log.disable();
+	}
+
+	@Test
+	public void testSameFinishTimes() throws Exception {
+		assertSameFinishTimes(SPACE_SHARED, false);
+		assertSameFinishTimes(DYNAMIC_WORKLOAD, false);
+	}
+
+	@Test
+	public void testSameFinishTimesIncremental() throws Exception {
+		assertSameFinishTimes(SPACE_SHARED, true);
+		assertSameFinishTimes(TIME_SHARED, true);
+		assertSameFinishTimes(DYNAMIC_WORKLOAD, true);
+	}
+
+	@Test
+	public void testSameFinishTimesSubmittedLater() throws Exception {
+		double[] separate = runSubmittedLater(false);
+		double[] bulk = runSubmittedLater(true);
+		for (int i = 0; i < separate.length; i++) {
+			assertEquals(LATER + 1 + i, separate[i], 0.01);
+		}
+		assertArrayEquals(separate, bulk, 0.01);
+	}
+
+	@Test
+	public void testBulkSubmissionAcknowledged() throws Exception {
+		createDatacenter(false);
+		User user = new User("User");
+		List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+		for (int i = 0; i < 3; i++) {
+			Vm vm = createVm(i, user.getId(), 0);
+			user.vms.add(vm);
+			cloudlets.add(createCloudlet(i, user.getId(), vm.getId(), 1000));
+		}
+		user.bulks.add(cloudlets);
+		user.ack = true;
+		CloudSim.startSimulation();
+
+		assertEquals(3, user.acks);
+		assertEquals(3, user.bulkReturned);
+	}
+
+	@Test
+	public void testCloudletsReturnedAsSubmitted() throws Exception {
+		createDatacenter(false);
+		User user = new User("User");
+		Vm vm = createVm(0, user.getId(), 0);
+		user.vms.add(vm);
+		List<Cloudlet> bulk = new ArrayList<Cloudlet>();
+		bulk.add(createCloudlet(0, user.getId(), vm.getId(), 1000));
+		user.bulks.add(bulk);
+		user.cloudlets.add(createCloudlet(1, user.getId(), vm.getId(), 2000));
+		CloudSim.startSimulation();
+
+		assertEquals(0, user.acks);
+		assertEquals(1, user.bulkReturned);
+		assertEquals(1, user.returned);
+	}
+
+	/**
+	 * Submits one cloudlet per VM once the simulation has run for a while, separately or in bulk,
+	 * so that the expected finish times of the cloudlets differ from their delays.
+	 */
+	private double[] runSubmittedLater(boolean bulk) throws Exception {
+		createDatacenter(false);
+		User user = new User("User");
+		user.submitTime = LATER;
+		List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+		for (int i = 0; i < 3; i++) {
+			Vm vm = createVm(i, user.getId(), SPACE_SHARED);
+			user.vms.add(vm);
+			cloudlets.add(createCloudlet(i, user.getId(), vm.getId(), 1000 * (i + 1)));
+		}
+		if (bulk) {
+			user.bulks.add(cloudlets);
+		} else {
+			user.cloudlets.addAll(cloudlets);
+		}
+		CloudSim.startSimulation();
+
+		double[] finishTimes = new double[cloudlets.size()];
+		for (Cloudlet cloudlet : cloudlets) {
+			finishTimes[cloudlet.getCloudletId()] = cloudlet.getFinishTime();
+		}
+		return finishTimes;
+	}
+
+	/**
+	 * Runs the same workload with separate and bulk submissions of the cloudlets, and checks that
+	 * they finish at the same times, up to the rounding of the times of the events, which are not
+	 * added up the same way. The time shared cloudlets are not compared when all the hosts are
+	 * updated together, since each separate submission at the start of the simulation updates
+	 * them, and schedules an event at the earliest finish time of the cloudlets submitted so far,
+	 * which delays the next updates differently.
+	 */
+	private void assertSameFinishTimes(int scheduler, boolean incremental) throws Exception {
+		double[] separate = run(scheduler, incremental, false);
+		double[] bulk = run(scheduler, incremental, true);
+		for (double finishTime : separate) {
+			assertTrue(finishTime > 0);
+		}
+		assertArrayEquals(separate, bulk, 0.01);
+	}
+
+	private double[] run(int scheduler, boolean incremental, boolean bulk) throws Exception {
+		createDatacenter(incremental);
+		DatacenterBroker broker = new DatacenterBroker("Broker");
+		broker.setBulkSubmission(bulk);
+		List<Vm> vms = new ArrayList<Vm>();
+		for (int i = 0; i < HOSTS; i++) {
+			vms.add(createVm(i, broker.getId(), scheduler));
+		}
+		List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+		for (int i = 0; i < CLOUDLETS; i++) {
+			cloudlets.add(createCloudlet(i, broker.getId(), i % HOSTS, 1000 * (i % 7 + 1)));
+		}
+		broker.submitVmList(vms);
+		broker.submitCloudletList(cloudlets);
+		CloudSim.startSimulation();
+
+		assertEquals(CLOUDLETS, broker.getCloudletReceivedList().size());
+		double[] finishTimes = new double[CLOUDLETS];
+		for (Cloudlet cloudlet : cloudlets) {
+			finishTimes[cloudlet.getCloudletId()] = cloudlet.getFinishTime();
+		}
+		return finishTimes;
+	}
+
+	private void createDatacenter(boolean incremental) throws Exception {
+		CloudSim.init(1, Calendar.getInstance(), false);
+		List<Host> hosts = new ArrayList<Host>();
+		for (int i = 0; i < HOSTS; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+			hosts.add(new Host(
+					i,
+					new RamProvisionerSimple(4096),
+					new BwProvisionerSimple(100000),
+					1000000,
+					peList,
+					new VmSchedulerTimeShared(peList, new IoProvisionerSimple(1000))));
+		}
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
+				"x86",
+				"Linux",
+				"Xen",
+				hosts,
+				10.0,
+				3.0,
+				0.05,
+				0.001,
+				0.0);
+		datacenter = new Datacenter(
+				"Datacenter",
+				characteristics,
+				new VmAllocationPolicySimple(hosts),
+				new LinkedList<Storage>(),
+				0);
+		datacenter.setIncrementalProcessing(incremental);
+	}
+
+	private static Vm createVm(int id, int userId, int scheduler) {
+		CloudletScheduler cloudletScheduler;
+		if (scheduler == SPACE_SHARED) {
+			cloudletScheduler = new CloudletSchedulerSpaceShared();
+		} else if (scheduler == TIME_SHARED) {
+			cloudletScheduler = new CloudletSchedulerTimeShared();
+		} else {
+			cloudletScheduler = new CloudletSchedulerDynamicWorkload(100, 1000, 1);
+		}
+		return new Vm(id, userId, 1000, 100, 1, 512, 1000, 1000, "Xen", cloudletScheduler);
+	}
+
+	private static Cloudlet createCloudlet(int id, int userId, int vmId, long length) {
+		UtilizationModel full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(id, length, 0, 1, 300, 300, full, full, full, full);
+		cloudlet.setUserId(userId);
+		cloudlet.setVmId(vmId);
+		return cloudlet;
+	}
+
+	/**
+	 * A user creating its VMs, then submitting its cloudlets separately and in bulk, and counting
+	 * the acknowledgements and the returned cloudlets.
+	 */
+	private class User extends SimEntity {
+
+		private final List<Vm> vms = new ArrayList<Vm>();
+
+		private final List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+
+		private final List<List<Cloudlet>> bulks = new ArrayList<List<Cloudlet>>();
+
+		private double submitTime = 1;
+
+		private boolean ack;
+
+		private int acks;
+
+		private int returned;
+
+		private int bulkReturned;
+
+		public User(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+			for (Vm vm : vms) {
+				sendNow(datacenter.getId(), CloudSimTags.VM_CREATE, vm);
+			}
+			for (Cloudlet cloudlet : cloudlets) {
+				send(datacenter.getId(), submitTime, CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+			}
+			int tag = ack ? CloudSimTags.CLOUDLET_SUBMIT_BULK_ACK : CloudSimTags.CLOUDLET_SUBMIT_BULK;
+			for (List<Cloudlet> bulk : bulks) {
+				send(datacenter.getId(), submitTime, tag, bulk);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void processEvent(SimEvent ev) {
+			switch (ev.getTag()) {
+				case CloudSimTags.CLOUDLET_SUBMIT_ACK:
+					assertEquals(CloudSimTags.TRUE, ((int[]) ev.getData())[2]);
+					acks++;
+					break;
+				case CloudSimTags.CLOUDLET_RETURN:
+					returned++;
+					break;
+				case CloudSimTags.CLOUDLET_RETURN_BULK:
+					bulkReturned += ((List<Cloudlet>) ev.getData()).size();
+					break;
+				default:
+					break;
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.IoProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class DatacenterIncrementalProcessingTest {
+
+	private static final double MIPS = 1000;
+
+	private static final int HOSTS = 3;
+
+	private static final int CLOUDLETS = 30;
+
+	private List<Host> hosts;
+
+	private Datacenter datacenter;
+
+	private User user;
+
+	@Before
+	public void setUp() throws Exception {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		hosts = new ArrayList<Host>();
+		for (int i = 0; i < 2; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(MIPS)));
+			hosts.add(new Host(
+					i,
+					new RamProvisionerSimple(4096),
+					new BwProvisionerSimple(100000),
+					1000000,
+					peList,
+					new VmSchedulerTimeSharedOverSubscription(peList, new IoProvisionerSimple(1000))));
+		}
+	}
+
+	@Test
+	public void testHostsUpdatedBeforeVmCreation() throws Exception {
+		createDatacenter(new VmAllocationPolicyFirstHost(hosts, false), true);
+		assertCreationUpdatesHostBefore();
+	}
+
+	@Test
+	public void testChosenHostUpdatedBeforeVmCreation() throws Exception {
+		createDatacenter(new VmAllocationPolicyFirstHost(hosts, true), true);
+		assertCreationUpdatesHostBefore();
+	}
+
+	@Test
+	public void testHostsUpdatedBeforeVmMigration() throws Exception {
+		createDatacenter(new VmAllocationPolicySimple(hosts), true);
+		Vm first = createVm(0, new CloudletSchedulerDynamicWorkload(100, MIPS, 1));
+		Vm second = createVm(1, new CloudletSchedulerDynamicWorkload(100, MIPS, 1));
+		user.sendAt(0, CloudSimTags.VM_CREATE, first);
+		user.sendAt(0, CloudSimTags.VM_CREATE, second);
+		user.sendAt(0, CloudSimTags.CLOUDLET_SUBMIT, createCloudlet(0, first, 10000));
+		user.sendAt(0, CloudSimTags.CLOUDLET_SUBMIT, createCloudlet(1, second, 10000));
+
+		// the second VM moves to the host of the first one, halving the MIPS of both VMs after
+		// they have run their cloudlets for 4 seconds at full speed
+		Map<String, Object> migrate = new HashMap<String, Object>();
+		migrate.put("vm", second);
+		migrate.put("host", hosts.get(0));
+		user.sendAt(4, CloudSimTags.VM_MIGRATE, migrate);
+		CloudSim.startSimulation();
+
+		assertEquals(2, user.finishTimes.size());
+		assertEquals(4 + 6000 / (MIPS / 2), user.finishTimes.get(0), 0.01);
+		assertEquals(4 + 6000 / (MIPS / 2), user.finishTimes.get(1), 0.01);
+	}
+
+	@Test
+	public void testSameFinishTimesAsDefaultModeSpaceShared() throws Exception {
+		assertSameFinishTimes(false);
+	}
+
+	@Test
+	public void testSameFinishTimesAsDefaultModeTimeShared() throws Exception {
+		assertSameFinishTimes(true);
+	}
+
+	/**
+	 * Runs the same workload, with several VMs per host and cloudlets submitted while others run,
+	 * in the default and the incremental mode, and checks that the cloudlets finish at the same
+	 * times.
+	 */
+	private void assertSameFinishTimes(boolean timeShared) throws Exception {
+		Map<Integer, Double> updatingAll = run(timeShared, false);
+		Map<Integer, Double> incremental = run(timeShared, true);
+		assertEquals(CLOUDLETS, updatingAll.size());
+		assertEquals(CLOUDLETS, incremental.size());
+		for (int i = 0; i < CLOUDLETS; i++) {
+			assertEquals(updatingAll.get(i), incremental.get(i), 0.01);
+		}
+	}
+
+	private Map<Integer, Double> run(boolean timeShared, boolean incremental) throws Exception {
+		CloudSim.init(1, Calendar.getInstance(), false);
+		hosts = new ArrayList<Host>();
+		for (int i = 0; i < HOSTS; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(MIPS)));
+			peList.add(new Pe(1, new PeProvisionerSimple(MIPS)));
+			hosts.add(new Host(
+					i,
+					new RamProvisionerSimple(4096),
+					new BwProvisionerSimple(100000),
+					1000000,
+					peList,
+					new VmSchedulerTimeShared(peList, new IoProvisionerSimple(1000))));
+		}
+		createDatacenter(new VmAllocationPolicySimple(hosts), incremental);
+
+		List<Vm> vms = new ArrayList<Vm>();
+		for (int i = 0; i < 2 * HOSTS; i++) {
+			CloudletScheduler cloudletScheduler = new CloudletSchedulerSpaceShared();
+			if (timeShared) {
+				cloudletScheduler = new CloudletSchedulerTimeShared();
+			}
+			Vm vm = createVm(i, cloudletScheduler);
+			vms.add(vm);
+			user.sendAt(0, CloudSimTags.VM_CREATE, vm);
+		}
+		for (int i = 0; i < CLOUDLETS; i++) {
+			Vm vm = vms.get(i % vms.size());
+			user.sendAt(0.5 * i, CloudSimTags.CLOUDLET_SUBMIT, createCloudlet(i, vm, 1000 * (i % 5 + 1)));
+		}
+		CloudSim.startSimulation();
+		return user.finishTimes;
+	}
+
+	private void assertCreationUpdatesHostBefore() {
+		Vm first = createVm(0);
+		user.sendAt(0, CloudSimTags.VM_CREATE, first);
+		user.sendAt(0, CloudSimTags.CLOUDLET_SUBMIT, createCloudlet(0, first, 10000));
+
+		// the second VM halves the MIPS of the first one, which has then run its cloudlet for 4
+		// seconds at full speed
+		user.sendAt(4, CloudSimTags.VM_CREATE, createVm(1));
+		CloudSim.startSimulation();
+
+		assertEquals(1, user.finishTimes.size());
+		assertEquals(4 + 6000 / (MIPS / 2), user.finishTimes.get(0), 0.01);
+	}
+
+	private void createDatacenter(VmAllocationPolicy policy, boolean incremental) throws Exception {
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
+				"x86",
+				"Linux",
+				"Xen",
+				hosts,
+				10.0,
+				3.0,
+				0.05,
+				0.001,
+				0.0);
+		datacenter = new Datacenter(
+				"Datacenter",
+				characteristics,
+				policy,
+				new LinkedList<Storage>(),
+				0);
+		datacenter.setIncrementalProcessing(incremental);
+		user = new User("User");
+	}
+
+	private Vm createVm(int id) {
+		return createVm(id, new CloudletSchedulerTimeShared());
+	}
+
+	private Vm createVm(int id, CloudletScheduler cloudletScheduler) {
+		return new Vm(id, user.getId(), MIPS, 100, 1, 512, 1000, 1000, "Xen", cloudletScheduler);
+	}
+
+	private Cloudlet createCloudlet(int id, Vm vm, long length) {
+		UtilizationModel full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(id, length, 0, 1, 300, 300, full, full, full, full);
+		cloudlet.setUserId(user.getId());
+		cloudlet.setVmId(vm.getId());
+		return cloudlet;
+	}
+
+	/**
+	 * A policy allocating all the VMs to the first host, which it may tell in advance.
+	 */
+	private static class VmAllocationPolicyFirstHost extends VmAllocationPolicySimple {
+
+		private final boolean telling;
+
+		public VmAllocationPolicyFirstHost(List<? extends Host> list, boolean telling) {
+			super(list);
+			this.telling = telling;
+		}
+
+		@Override
+		public Host findHostForVm(Vm vm) {
+			return telling ? getHostList().get(0) : null;
+		}
+
+		@Override
+		public boolean allocateHostForVm(Vm vm) {
+			return allocateHostForVm(vm, getHostList().get(0));
+		}
+
+	}
+
+	/**
+	 * A user sending its requests to the datacenter at given times, and recording the finish times
+	 * of the returned cloudlets.
+	 */
+	private class User extends SimEntity {
+
+		private final List<Object[]> requests = new ArrayList<Object[]>();
+
+		private final Map<Integer, Double> finishTimes = new HashMap<Integer, Double>();
+
+		public User(String name) {
+			super(name);
+		}
+
+		public void sendAt(double time, int tag, Object data) {
+			requests.add(new Object[] { time, tag, data });
+		}
+
+		@Override
+		public void startEntity() {
+			for (Object[] request : requests) {
+				send(datacenter.getId(), (Double) request[0], (Integer) request[1], request[2]);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == CloudSimTags.CLOUDLET_RETURN) {
+				Cloudlet cloudlet = (Cloudlet) ev.getData();
+				finishTimes.put(cloudlet.getCloudletId(), cloudlet.getFinishTime());
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
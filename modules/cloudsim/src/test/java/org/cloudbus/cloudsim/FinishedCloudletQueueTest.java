@@ -0,0 +1,108 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.core.TaskContext;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class FinishedCloudletQueueTest {
+
+	private FinishedCloudletQueue queue;
+
+	private CloudletSchedulerSpaceShared first;
+
+	private CloudletSchedulerSpaceShared second;
+
+	@Before
+	public void setUp() {
+		queue = new FinishedCloudletQueue();
+		first = new CloudletSchedulerSpaceShared();
+		second = new CloudletSchedulerSpaceShared();
+		assertTrue(first.isNotifyingFinishedCloudlets());
+		first.setFinishedCloudletQueue(queue);
+		second.setFinishedCloudletQueue(queue);
+	}
+
+	@Test
+	public void testSchedulerQueuedOnce() {
+		finish(first, 0);
+		finish(first, 1);
+		List<CloudletScheduler> schedulers = queue.take();
+		assertEquals(1, schedulers.size());
+		assertSame(first, schedulers.get(0));
+		assertEquals(2, first.getCloudletFinishedList().size());
+		assertTrue(queue.take().isEmpty());
+	}
+
+	@Test
+	public void testSchedulersInNotificationOrder() {
+		finish(second, 0);
+		finish(first, 1);
+		finish(second, 2);
+		List<CloudletScheduler> schedulers = queue.take();
+		assertEquals(2, schedulers.size());
+		assertSame(second, schedulers.get(0));
+		assertSame(first, schedulers.get(1));
+
+		finish(first, 3);
+		schedulers = queue.take();
+		assertEquals(1, schedulers.size());
+		assertSame(first, schedulers.get(0));
+	}
+
+	@Test
+	public void testNotificationsOfTasksDeferredUntilFlush() {
+		SimulationContext context = new SimulationContext();
+		TaskContext firstTask = new TaskContext(context);
+		TaskContext secondTask = new TaskContext(context);
+		firstTask.prepare();
+		secondTask.prepare();
+		secondTask.run(new Runnable() {
+
+			@Override
+			public void run() {
+				finish(second, 0);
+			}
+		});
+		firstTask.run(new Runnable() {
+
+			@Override
+			public void run() {
+				finish(first, 1);
+			}
+		});
+		assertTrue(queue.isEmpty());
+
+		firstTask.flush();
+		secondTask.flush();
+		List<CloudletScheduler> schedulers = queue.take();
+		assertEquals(2, schedulers.size());
+		assertSame(first, schedulers.get(0));
+		assertSame(second, schedulers.get(1));
+	}
+
+	private static void finish(CloudletScheduler scheduler, int cloudletId) {
+		UtilizationModel full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(cloudletId, 1000, 1000, 1, 300, 300, full, full, full, full);
+		cloudlet.setResourceParameter(0, 0, 0);
+		scheduler.cloudletFinish(new ResCloudlet(cloudlet));
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.IoProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class HostDueQueueTest {
+
+	private static final int HOSTS = 100;
+
+	private List<DueHost> hosts;
+
+	private HostDueQueue queue;
+
+	@Before
+	public void setUp() {
+		hosts = new ArrayList<DueHost>();
+		for (int i = 0; i < HOSTS; i++) {
+			hosts.add(new DueHost(i));
+		}
+		queue = new HostDueQueue(hosts);
+	}
+
+	@Test
+	public void testFirstUpdateUpdatesAllHosts() {
+		for (DueHost host : hosts) {
+			host.nextTime = 10 + host.getId();
+		}
+		assertEquals(10, queue.update(0), 0);
+		for (DueHost host : hosts) {
+			assertEquals(1, host.updates);
+		}
+		assertEquals(HOSTS, queue.getUpdatedHosts().size());
+	}
+
+	@Test
+	public void testUpdateOnlyDueHosts() {
+		for (DueHost host : hosts) {
+			host.nextTime = 10 + host.getId();
+		}
+		queue.update(0);
+		queue.clearUpdatedHosts();
+
+		// hosts 0 to 5 are due at time 15
+		for (DueHost host : hosts) {
+			host.nextTime = Double.MAX_VALUE;
+		}
+		assertEquals(16, queue.update(15), 0);
+		for (DueHost host : hosts) {
+			assertEquals(host.getId() <= 5 ? 2 : 1, host.updates);
+		}
+		assertEquals(6, queue.getUpdatedHosts().size());
+		assertEquals(15, hosts.get(3).lastTime, 0);
+	}
+
+	@Test
+	public void testTouchedHostIsDue() {
+		for (DueHost host : hosts) {
+			host.nextTime = 100;
+		}
+		queue.update(0);
+		queue.clearUpdatedHosts();
+
+		DueHost host = hosts.get(42);
+		queue.touch(host, 20);
+		assertEquals(2, host.updates);
+		assertEquals(20, host.lastTime, 0);
+		// touching again at the same time does not update the host again
+		queue.touch(host, 20);
+		assertEquals(2, host.updates);
+
+		host.nextTime = 50;
+		assertEquals(50, queue.update(30), 0);
+		assertEquals(3, host.updates);
+		assertEquals(1, hosts.get(41).updates);
+		assertEquals(1, queue.getUpdatedHosts().size());
+
+		queue.clearUpdatedHosts();
+		assertTrue(queue.getUpdatedHosts().isEmpty());
+	}
+
+	@Test
+	public void testTouchedVmMakesHostDueEarlier() {
+		for (DueHost host : hosts) {
+			host.nextTime = 100;
+		}
+		queue.update(0);
+		queue.clearUpdatedHosts();
+
+		DueHost host = hosts.get(42);
+		host.vmNextTime = 50;
+		assertEquals(50, queue.touchVm(host, null, 20), 0);
+		assertEquals(1, host.vmUpdates);
+		// the other VMs of the host are not updated
+		assertEquals(1, host.updates);
+		assertEquals(1, queue.getUpdatedHosts().size());
+
+		// a VM expecting its next event after the due time of the host does not change it
+		host.vmNextTime = 70;
+		assertEquals(Double.MAX_VALUE, queue.touchVm(host, null, 20), 0);
+		assertEquals(2, host.vmUpdates);
+
+		assertEquals(50, queue.update(30), 0);
+		assertEquals(1, host.updates);
+		assertEquals(100, queue.update(50), 0);
+		assertEquals(2, host.updates);
+		assertEquals(1, hosts.get(41).updates);
+	}
+
+	@Test
+	public void testTouchedVmOfDependentHostTouchesHost() {
+		for (DueHost host : hosts) {
+			host.nextTime = 100;
+		}
+		queue.update(0);
+
+		DueHost host = hosts.get(42);
+		host.independent = false;
+		host.vmNextTime = 50;
+		// the host is due now
+		assertEquals(20, queue.touchVm(host, null, 20), 0);
+		assertEquals(0, host.vmUpdates);
+		assertEquals(2, host.updates);
+
+		host.nextTime = 60;
+		assertEquals(60, queue.update(20), 0);
+		assertEquals(3, host.updates);
+	}
+
+	@Test
+	public void testHostStayingDueIsUpdatedOnce() {
+		hosts.get(7).nextTime = 0;
+		queue.update(0);
+		assertEquals(1, hosts.get(7).updates);
+	}
+
+	@Test
+	public void testCovers() {
+		assertTrue(queue.covers(hosts));
+		assertFalse(queue.covers(new ArrayList<DueHost>(hosts)));
+		hosts.add(new DueHost(HOSTS));
+		assertFalse(queue.covers(hosts));
+	}
+
+	/**
+	 * A host expecting its next event at a given time.
+	 */
+	private static class DueHost extends Host {
+
+		private double nextTime = Double.MAX_VALUE;
+
+		private double lastTime = -1;
+
+		private int updates;
+
+		private double vmNextTime = Double.MAX_VALUE;
+
+		private int vmUpdates;
+
+		private boolean independent = true;
+
+		public DueHost(int id) {
+			super(id, new RamProvisionerSimple(1024), new BwProvisionerSimple(1000), 1000, createPes(),
+					new VmSchedulerTimeShared(createPes(), new IoProvisionerSimple(100)));
+		}
+
+		private static List<Pe> createPes() {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+			return peList;
+		}
+
+		@Override
+		public double updateVmsProcessing(double currentTime) {
+			updates++;
+			lastTime = currentTime;
+			return nextTime;
+		}
+
+		@Override
+		public double updateVmProcessing(Vm vm, double currentTime) {
+			vmUpdates++;
+			return vmNextTime;
+		}
+
+		@Override
+		public boolean isVmProcessingIndependent() {
+			return independent;
+		}
+
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class CalendarEventListTest {
+
+	private EventList calendarQueue;
+
+	private EventList treeSetQueue;
+
+	private long serial;
+
+	@Before
+	public void setUp() throws Exception {
+		calendarQueue = new CalendarEventList();
+		treeSetQueue = new TreeSetEventList();
+		serial = 0;
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, calendarQueue.size());
+		assertNull(calendarQueue.first());
+		assertNull(calendarQueue.pollFirst());
+		assertFalse(calendarQueue.iterator().hasNext());
+	}
+
+	@Test
+	public void testSameOrderAsTreeSet() {
+		Random random = new Random(1);
+		double clock = 0;
+		for (int round = 0; round < 200; round++) {
+			int adds = random.nextInt(100);
+			for (int i = 0; i < adds; i++) {
+				double time = clock + (random.nextBoolean() ? random.nextInt(10) : random.nextDouble() * 1000);
+				boolean first = random.nextInt(20) == 0;
+				add(new SimEvent(SimEvent.SEND, time, i, 0, 0, null), first);
+			}
+			int polls = random.nextInt(100);
+			for (int i = 0; i < polls && treeSetQueue.size() > 0; i++) {
+				assertSame(treeSetQueue.first(), calendarQueue.first());
+				SimEvent event = treeSetQueue.pollFirst();
+				assertSame(event, calendarQueue.pollFirst());
+				clock = event.eventTime();
+			}
+			assertEquals(treeSetQueue.size(), calendarQueue.size());
+		}
+
+		assertSameSequence();
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		Random random = new Random(2);
+		for (int i = 0; i < 1000; i++) {
+			add(new SimEvent(SimEvent.SEND, random.nextInt(500), i % 7, 0, 0, null), false);
+		}
+
+		Iterator<SimEvent> treeSetIterator = treeSetQueue.iterator();
+		Iterator<SimEvent> calendarIterator = calendarQueue.iterator();
+		while (treeSetIterator.hasNext()) {
+			assertTrue(calendarIterator.hasNext());
+			SimEvent event = treeSetIterator.next();
+			assertSame(event, calendarIterator.next());
+			if (event.getSource() == 3) {
+				treeSetIterator.remove();
+				calendarIterator.remove();
+			}
+		}
+		assertFalse(calendarIterator.hasNext());
+		assertEquals(treeSetQueue.size(), calendarQueue.size());
+
+		assertSameSequence();
+	}
+
+	@Test
+	public void testRemove() {
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		for (int i = 0; i < 100; i++) {
+			SimEvent event = new SimEvent(SimEvent.SEND, i % 10, i, 0, 0, null);
+			events.add(event);
+			add(event, false);
+		}
+
+		for (int i = 0; i < events.size(); i += 3) {
+			assertTrue(calendarQueue.remove(events.get(i)));
+			treeSetQueue.remove(events.get(i));
+		}
+		assertFalse(calendarQueue.remove(events.get(0)));
+		assertEquals(treeSetQueue.size(), calendarQueue.size());
+
+		assertSameSequence();
+	}
+
+	private void add(SimEvent event, boolean first) {
+		// same serials as assigned by the FutureQueue
+		event.setSerial(first ? 0 : serial++);
+		treeSetQueue.add(event);
+		calendarQueue.add(event);
+	}
+
+	private void assertSameSequence() {
+		while (treeSetQueue.size() > 0) {
+			assertSame(treeSetQueue.pollFirst(), calendarQueue.pollFirst());
+		}
+		assertEquals(0, calendarQueue.size());
+	}
+
+}
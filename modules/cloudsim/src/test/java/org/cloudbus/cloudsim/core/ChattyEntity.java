@@ -0,0 +1,149 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * An entity of the simulations run by the tests of the engine, named "Chatty" followed by its
+ * index. It answers each event with events sent to random entities, at integer times so that many
+ * events occur at the same time, until the time 200. It also sends events to itself, some of them
+ * first, and cancels them from time to time. Its choices depend on the order of its events, so the
+ * tests can check that a simulation gives the same results however it is run. It logs the events
+ * it processes and keeps their history.
+ *
+ * @since CloudSim Toolkit 3.1
+ */
+class ChattyEntity extends SimEntity {
+
+	/** The tag of the events sent by an entity to itself. */
+	static final int TAG_SELF = 1;
+
+	/** The tag of the events sent to the other entities, not counted in an array by the statistics. */
+	static final int TAG_OTHER = 1000;
+
+	/** The tag of the updates sent by an entity to itself when it is updating. */
+	static final int TAG_UPDATE = CloudSimTags.VM_DATACENTER_EVENT;
+
+	/** The time after which the entities stop answering every event. */
+	private static final double END_TIME = 200;
+
+	/** The index of the entity. */
+	final int index;
+
+	/** The number of chatty entities in the simulation. */
+	private final int entities;
+
+	/** The random choices of the entity. */
+	private final Random random;
+
+	/** The times and data of the events processed. */
+	final StringBuilder history = new StringBuilder();
+
+	/** The number of events processed. */
+	int received;
+
+	/** The minimum delay of the events sent to the other entities. */
+	private int minDelay;
+
+	/** Whether the entity also sends updates to itself. */
+	private boolean updating;
+
+	/**
+	 * Instantiates a new chatty entity.
+	 *
+	 * @param index the index of the entity
+	 * @param entities the number of chatty entities in the simulation
+	 */
+	ChattyEntity(int index, int entities) {
+		super("Chatty" + index);
+		this.index = index;
+		this.entities = entities;
+		random = new Random(index);
+	}
+
+	/**
+	 * Sets the minimum delay of the events sent to the other entities, e.g. the lookahead of a
+	 * parallel simulation.
+	 *
+	 * @param minDelay the minimum delay
+	 */
+	void setMinDelay(int minDelay) {
+		this.minDelay = minDelay;
+	}
+
+	/**
+	 * Makes the entity also send updates to itself, coalesced with the earliest pending update for
+	 * the even entities and with the update at the same time for the odd ones.
+	 *
+	 * @param updating whether the entity sends updates
+	 */
+	void setUpdating(boolean updating) {
+		this.updating = updating;
+		setCoalescing(TAG_UPDATE, !updating ? CloudSimTags.COALESCE_NONE
+				: index % 2 == 0 ? CloudSimTags.COALESCE_EARLIEST : CloudSimTags.COALESCE_SAME_TIME);
+	}
+
+	@Override
+	public void startEntity() {
+		for (int i = 0; i < 3; i++) {
+			sendRandom();
+		}
+	}
+
+	@Override
+	public void processEvent(SimEvent ev) {
+		received++;
+		history.append(CloudSim.clock()).append(':').append(ev.getData()).append(' ');
+		Log.printLine(CloudSim.clock() + ": " + getName() + " received " + ev.getTag() + " " + ev.getData()
+				+ " from " + ev.getSource());
+		if (random.nextInt(20) == 0) {
+			if (random.nextBoolean()) {
+				cancelEvent(new PredicateType(TAG_SELF));
+			} else {
+				CloudSim.cancelAll(getId(), new PredicateType(TAG_SELF));
+			}
+		}
+		if (CloudSim.clock() < END_TIME) {
+			sendRandom();
+		}
+		if (random.nextInt(20) == 0) {
+			sendRandom();
+		}
+	}
+
+	/**
+	 * Sends an event to a random entity, possibly itself.
+	 */
+	private void sendRandom() {
+		int target = random.nextInt(updating ? entities + 2 : entities + 1);
+		if (target == entities + 1) {
+			schedule(getId(), random.nextInt(5), TAG_UPDATE);
+		} else if (target == entities || target == index) {
+			int delay = random.nextInt(3);
+			if (random.nextBoolean()) {
+				schedule(getId(), delay, TAG_SELF, getName() + "#" + received);
+			} else {
+				scheduleFirst(getId(), delay, TAG_SELF, getName() + "#" + received + "!");
+			}
+		} else {
+			schedule(CloudSim.getEntityId("Chatty" + target), minDelay + random.nextInt(4), TAG_OTHER, getName()
+					+ "#" + received);
+		}
+	}
+
+	@Override
+	public void shutdownEntity() {
+		Log.printLine(getName() + " is shutting down after " + received + " events");
+	}
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class CloudSimTest {
+
+	private static final int ENTITIES = 6;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testRunUntil() {
+		String expected = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				return CloudSim.startSimulation();
+			}
+		});
+		String actual = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				double clock = 0;
+				for (double time = 7.3; CloudSim.running() || time < 10; time += 7.3) {
+					clock = CloudSim.runUntil(time);
+					if (CloudSim.running()) {
+						assertEquals(time, clock, 0);
+						assertEquals(time, CloudSim.clock(), 0);
+					}
+				}
+				return clock;
+			}
+		});
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testStep() {
+		String expected = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				return CloudSim.startSimulation();
+			}
+		});
+		String actual = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				double clock = CloudSim.step(0);
+				assertEquals(0, clock, 0);
+				int steps = 1;
+				while (CloudSim.running()) {
+					double previous = clock;
+					clock = CloudSim.step(5);
+					assertTrue(clock >= previous);
+					steps++;
+				}
+				assertTrue(steps > 10);
+				return clock;
+			}
+		});
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testRunWhile() {
+		String expected = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				return CloudSim.startSimulation();
+			}
+		});
+		String actual = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				final ChattyEntity entity = (ChattyEntity) CloudSim.getEntity("Chatty0");
+				double clock = CloudSim.runWhile(new SimulationCondition() {
+
+					@Override
+					public boolean holds() {
+						return entity.received < 20;
+					}
+				});
+				assertTrue(CloudSim.running());
+				assertTrue(entity.received >= 20);
+				assertTrue(clock > 0);
+				return CloudSim.runUntil(Double.MAX_VALUE);
+			}
+		});
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testPauseAndResume() throws Exception {
+		String expected = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				return CloudSim.startSimulation();
+			}
+		});
+		final double[] pausedAt = new double[1];
+		String actual = simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() throws InterruptedException {
+				final SimulationContext context = SimulationContext.current();
+				assertTrue(CloudSim.pauseSimulation(50));
+				Thread monitor = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+						context.run(new Runnable() {
+
+							@Override
+							public void run() {
+								while (!CloudSim.isPaused()) {
+									Thread.yield();
+								}
+								pausedAt[0] = CloudSim.clock();
+								CloudSim.resumeSimulation();
+							}
+						});
+					}
+				});
+				monitor.start();
+				double clock = CloudSim.startSimulation();
+				monitor.join();
+				return clock;
+			}
+		});
+		assertEquals(expected, actual);
+		assertEquals(50, pausedAt[0], 0);
+	}
+
+	@Test
+	public void testControllerReturnsWhenPaused() {
+		simulate(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				assertTrue(CloudSim.pauseSimulation(50));
+				assertEquals(50, CloudSim.runUntil(100), 0);
+				assertTrue(CloudSim.isPaused());
+				assertEquals(100, CloudSim.runUntil(100), 0);
+				assertFalse(CloudSim.isPaused());
+				return CloudSim.runUntil(Double.MAX_VALUE);
+			}
+		});
+	}
+
+	private static String simulate(final Callable<Double> task) {
+		try {
+			return new SimulationContext().call(new Callable<String>() {
+
+				@Override
+				public String call() throws Exception {
+					CloudSim.init(0, null, false);
+					List<ChattyEntity> entities = new ArrayList<ChattyEntity>();
+					for (int i = 0; i < ENTITIES; i++) {
+						entities.add(new ChattyEntity(i, ENTITIES));
+					}
+					StringBuilder result = new StringBuilder("clock ").append(task.call());
+					for (ChattyEntity entity : entities) {
+						result.append('\n').append(entity.history);
+					}
+					return result.toString();
+				}
+			});
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateFrom;
+import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class DeferredQueueTest {
+
+	private static final Predicate[] PREDICATES = new Predicate[] {
+			new PredicateAny(),
+			new PredicateNone(),
+			new PredicateType(1),
+			new PredicateType(new int[] { 2, 0, 2 }),
+			new PredicateFrom(3) };
+
+	private DeferredQueue queue;
+
+	/** The events in the order of the original linked list implementation. */
+	private List<SimEvent> expected;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new DeferredQueue();
+		expected = new LinkedList<SimEvent>();
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, queue.size());
+		assertEquals(0, queue.count(0, PREDICATES[0]));
+		assertNull(queue.select(0, PREDICATES[0]));
+		assertNull(queue.findFirst(5, PREDICATES[2]));
+		assertNull(queue.last());
+		assertFalse(queue.iterator().hasNext());
+	}
+
+	@Test
+	public void testSelect() {
+		Random random = new Random(1);
+		double time = 0;
+		for (int round = 0; round < 2000; round++) {
+			if (random.nextInt(3) > 0) {
+				time += random.nextInt(3);
+				double eventTime = random.nextInt(10) == 0 ? time - random.nextInt(5) : time;
+				add(new SimEvent(SimEvent.SEND, eventTime, random.nextInt(5), random.nextInt(4), random
+						.nextInt(4), null));
+			} else {
+				int destination = random.nextInt(5);
+				Predicate p = PREDICATES[random.nextInt(PREDICATES.length)];
+				assertEquals(count(destination, p), queue.count(destination, p));
+				assertSame(find(destination, p), queue.findFirst(destination, p));
+				SimEvent event = find(destination, p);
+				expected.remove(event);
+				assertSame(event, queue.select(destination, p));
+			}
+			assertEquals(expected.size(), queue.size());
+		}
+
+		Iterator<SimEvent> iterator = queue.iterator();
+		for (SimEvent event : expected) {
+			assertSame(event, iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+		assertSame(((LinkedList<SimEvent>) expected).getLast(), queue.last());
+	}
+
+	private void add(SimEvent newEvent) {
+		ListIterator<SimEvent> iterator = expected.listIterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().eventTime() > newEvent.eventTime()) {
+				iterator.previous();
+				break;
+			}
+		}
+		iterator.add(newEvent);
+		queue.addEvent(newEvent);
+	}
+
+	private int count(int destination, Predicate p) {
+		int count = 0;
+		for (SimEvent event : expected) {
+			if (event.getDestination() == destination && p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private SimEvent find(int destination, Predicate p) {
+		for (SimEvent event : expected) {
+			if (event.getDestination() == destination && p.match(event)) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class EventRecorderTest {
+
+	private static final int ENTITIES = 5;
+
+	private boolean disabled;
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		disabled = Log.isDisabled();
+		Log.disable();
+		file = File.createTempFile("trace", ".bin");
+		file.deleteOnExit();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+		file.delete();
+	}
+
+	@Test
+	public void testRecordAndRead() throws IOException {
+		final EventRecorder recorder = new EventRecorder(file, 100000);
+		List<String> received = simulate(recorder);
+		recorder.close();
+		assertEquals(received.size(), recorder.getCount());
+
+		EventTrace trace = new EventTrace(file);
+		assertEquals(received.size(), trace.size());
+		assertEquals(received.size(), trace.getTotalCount());
+		assertEquals(ENTITIES + 1, trace.getMaxEntityId());
+		List<String> recorded = new ArrayList<String>();
+		for (int i = 0; i < trace.size(); i++) {
+			assertEquals(SimEvent.SEND, trace.getType(i));
+			assertEquals(String.class.getName(), trace.getDataType(i));
+			if (i > 0) {
+				assertTrue(trace.getTime(i) >= trace.getTime(i - 1));
+			}
+			recorded.add(describe(trace, i, 0));
+		}
+		Collections.sort(received);
+		Collections.sort(recorded);
+		assertEquals(received, recorded);
+	}
+
+	@Test
+	public void testRingKeepsLastEvents() throws IOException {
+		EventRecorder recorder = new EventRecorder(file, 100000);
+		simulate(recorder);
+		recorder.close();
+		EventTrace full = new EventTrace(file);
+		assertTrue(full.size() > 100);
+
+		// the recorder is not closed, so the data types are unknown
+		recorder = new EventRecorder(file, 100);
+		simulate(recorder);
+		EventTrace last = new EventTrace(file);
+		recorder.close();
+		assertEquals(100, last.size());
+		assertEquals(full.size(), last.getTotalCount());
+		for (int i = 0; i < last.size(); i++) {
+			int j = full.size() - last.size() + i;
+			assertEquals(describe(full, j, 0), describe(last, i, 0));
+			assertEquals("?", last.getDataType(i));
+		}
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		EventRecorder recorder = new EventRecorder(file, 100000);
+		simulate(recorder);
+		recorder.close();
+		final EventTrace trace = new EventTrace(file);
+
+		File replayFile = File.createTempFile("replay", ".bin");
+		replayFile.deleteOnExit();
+		try {
+			final EventRecorder replayRecorder = new EventRecorder(replayFile, 100000);
+			int replayed = new SimulationContext().call(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					CloudSim.setEventRecorder(replayRecorder);
+					return new EventTraceReplayer(trace, 16).replay(new CalendarEventList());
+				}
+			});
+			replayRecorder.close();
+			assertEquals(trace.size(), replayed);
+
+			EventTrace replay = new EventTrace(replayFile);
+			int offset = 2;
+			List<String> expected = new ArrayList<String>();
+			for (int i = 0; i < trace.size(); i++) {
+				expected.add(describe(trace, i, offset));
+			}
+			List<String> actual = new ArrayList<String>();
+			for (int i = 0; i < replay.size(); i++) {
+				if (replay.getTag(i) >= 0) {
+					assertNull(replay.getDataType(i));
+					actual.add(describe(replay, i, 0));
+				}
+			}
+			assertEquals(expected.size(), actual.size());
+			Collections.sort(expected);
+			Collections.sort(actual);
+			assertEquals(expected, actual);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		} finally {
+			replayFile.delete();
+		}
+	}
+
+	@Test
+	public void testNotATrace() throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(new byte[128]);
+		output.close();
+		try {
+			new EventTrace(file);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("trace"));
+		}
+	}
+
+	private static String describe(EventTrace trace, int i, int offset) {
+		return trace.getTime(i) + " " + (trace.getSource(i) + offset) + " " + (trace.getDestination(i) + offset) + " "
+				+ trace.getTag(i);
+	}
+
+	private static List<String> simulate(final EventRecorder recorder) {
+		final List<String> processed = new ArrayList<String>();
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.setEventRecorder(recorder);
+				for (int i = 0; i < ENTITIES; i++) {
+					new ChattyEntity(i, ENTITIES) {
+
+						@Override
+						public void processEvent(SimEvent ev) {
+							processed.add(ev.eventTime() + " " + ev.getSource() + " " + ev.getDestination() + " "
+									+ ev.getTag());
+							super.processEvent(ev);
+						}
+					};
+				}
+				CloudSim.startSimulation();
+			}
+		});
+		return processed;
+	}
+
+}
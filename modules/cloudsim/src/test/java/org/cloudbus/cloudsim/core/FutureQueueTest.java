@@ -0,0 +1,281 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateNotType;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class FutureQueueTest {
+
+	private static final Predicate[] PREDICATES = new Predicate[] {
+			new PredicateAny(),
+			new PredicateNone(),
+			new PredicateType(1),
+			new PredicateType(new int[] { 2, 0, 2 }),
+			new PredicateNotType(3) };
+
+	private FutureQueue queue;
+
+	/** The pending events, cancelled by scanning them as the original implementation did. */
+	private TreeSet<SimEvent> expected;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new FutureQueue(new CalendarEventList());
+		expected = new TreeSet<SimEvent>();
+	}
+
+	@Test
+	public void testCancelNothing() {
+		assertNull(queue.cancel(0, PREDICATES[0]));
+		assertFalse(queue.cancelAll(0, PREDICATES[0]));
+		queue.addEvent(new SimEvent(SimEvent.SEND, 1, 0, 1, 1, null));
+		assertNull(queue.cancel(1, PREDICATES[0]));
+		assertNull(queue.cancel(0, PREDICATES[1]));
+		assertFalse(queue.cancelAll(0, new PredicateType(2)));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testCancel() {
+		Random random = new Random(1);
+		double clock = 0;
+		for (int round = 0; round < 20000; round++) {
+			int action = random.nextInt(10);
+			if (action < 6) {
+				SimEvent event = new SimEvent(SimEvent.SEND, clock + random.nextInt(20), random.nextInt(4), 0,
+						random.nextInt(4), null);
+				queue.addEvent(event);
+				expected.add(event);
+			} else if (action < 7) {
+				SimEvent event = queue.poll();
+				assertSame(expected.pollFirst(), event);
+				if (event != null) {
+					clock = event.eventTime();
+				}
+			} else {
+				int source = random.nextInt(4);
+				Predicate p = PREDICATES[random.nextInt(PREDICATES.length)];
+				if (action < 9) {
+					SimEvent event = find(source, p);
+					if (event != null) {
+						expected.remove(event);
+					}
+					assertSame(event, queue.cancel(source, p));
+				} else {
+					boolean cancelled = false;
+					Iterator<SimEvent> iterator = expected.iterator();
+					while (iterator.hasNext()) {
+						SimEvent event = iterator.next();
+						if (event.getSource() == source && p.match(event)) {
+							iterator.remove();
+							cancelled = true;
+						}
+					}
+					assertEquals(cancelled, queue.cancelAll(source, p));
+				}
+			}
+			assertEquals(expected.size(), queue.size());
+			assertSame(expected.isEmpty() ? null : expected.first(), queue.first());
+		}
+
+		Iterator<SimEvent> iterator = queue.iterator();
+		for (SimEvent event : expected) {
+			assertTrue(iterator.hasNext());
+			assertSame(event, iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testPollAt() {
+		Random random = new Random(2);
+		double clock = 0;
+		for (int round = 0; round < 1000; round++) {
+			int adds = random.nextInt(10);
+			for (int i = 0; i < adds; i++) {
+				double time = clock + (random.nextBoolean() ? 0 : random.nextInt(5));
+				SimEvent event = new SimEvent(SimEvent.SEND, time, 0, 0, 0, null);
+				if (random.nextInt(10) == 0) {
+					queue.addEventFirst(event);
+				} else {
+					queue.addEvent(event);
+				}
+				expected.add(event);
+			}
+			assertEquals(expected.size(), queue.size());
+			if (expected.isEmpty()) {
+				continue;
+			}
+			SimEvent event = expected.first().eventTime() == clock ? queue.pollAt(clock) : queue.poll();
+			assertSame(expected.pollFirst(), event);
+			clock = event.eventTime();
+			assertSame(expected.isEmpty() || expected.first().eventTime() != clock ? null : expected.first(),
+					queue.pollAt(clock));
+			if (!expected.isEmpty() && expected.first().eventTime() == clock) {
+				expected.pollFirst();
+			}
+		}
+
+		Iterator<SimEvent> iterator = queue.iterator();
+		for (SimEvent event : expected) {
+			assertSame(event, iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testAddEventCoalesced() {
+		Object data = new Object();
+		SimEvent event = new SimEvent(SimEvent.SEND, 5, 1, 1, 41, null);
+		assertTrue(queue.addEventCoalesced(event, false));
+		assertFalse(queue.addEventCoalesced(new SimEvent(SimEvent.SEND, 5, 1, 1, 41, null), false));
+		assertTrue(queue.addEventCoalesced(new SimEvent(SimEvent.SEND, 5, 1, 1, 41, data), false));
+		assertTrue(queue.addEventCoalesced(new SimEvent(SimEvent.SEND, 5, 1, 2, 41, null), false));
+		assertTrue(queue.addEventCoalesced(new SimEvent(SimEvent.SEND, 5, 2, 1, 41, null), false));
+		assertTrue(queue.addEventCoalesced(new SimEvent(SimEvent.SEND, 6, 1, 1, 41, null), false));
+		assertEquals(5, queue.size());
+
+		assertFalse(queue.addEventCoalesced(new SimEvent(SimEvent.SEND, 7, 1, 1, 41, null), true));
+		SimEvent earlier = new SimEvent(SimEvent.SEND, 3, 1, 1, 41, null);
+		assertTrue(queue.addEventCoalesced(earlier, true));
+		assertEquals(4, queue.size());
+		assertSame(earlier, queue.poll());
+		assertFalse(queue.remove(event));
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		for (int i = 0; i < 100; i++) {
+			SimEvent event = new SimEvent(SimEvent.SEND, i, i % 3, 0, 0, null);
+			queue.addEvent(event);
+			expected.add(event);
+		}
+		SimEvent removed = null;
+		Iterator<SimEvent> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (event.getSource() == 1) {
+				iterator.remove();
+				expected.remove(event);
+				removed = event;
+			}
+		}
+		assertEquals(expected.size(), queue.size());
+		assertNull(queue.cancel(1, PREDICATES[0]));
+		assertFalse(queue.remove(removed));
+		while (!expected.isEmpty()) {
+			assertSame(expected.pollFirst(), queue.poll());
+		}
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testRemove() {
+		queue.addEvent(new SimEvent(SimEvent.SEND, 1, 0, 0, 0, null));
+		for (int i = 0; i < 30; i++) {
+			SimEvent event = new SimEvent(SimEvent.SEND, 1 + i % 2, i % 3 - 1, 0, i % 2, null);
+			queue.addEvent(event);
+			expected.add(event);
+		}
+		queue.poll();
+		for (int i = 0; i < 10; i++) {
+			SimEvent event = new SimEvent(SimEvent.SEND, 1, i % 3 - 1, 0, 0, null);
+			queue.addEvent(event);
+			expected.add(event);
+		}
+		int i = 0;
+		for (SimEvent event : expected.toArray(new SimEvent[0])) {
+			if (i++ % 2 == 0) {
+				assertTrue(queue.remove(event));
+				assertFalse(queue.remove(event));
+				expected.remove(event);
+			}
+		}
+		assertFalse(queue.remove(new SimEvent(SimEvent.SEND, 1, 0, 0, 0, null)));
+		assertFalse(queue.remove(new SimEvent(SimEvent.SEND, 1, -1, 0, 0, null)));
+		assertEquals(expected.size(), queue.size());
+		while (!expected.isEmpty()) {
+			assertSame(expected.pollFirst(), queue.poll());
+		}
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testRemoveEventOfAnotherQueue() {
+		FutureQueue other = new FutureQueue(new CalendarEventList());
+		SimEvent first = new SimEvent(SimEvent.SEND, 1, 0, 0, 0, null);
+		SimEvent second = new SimEvent(SimEvent.SEND, 2, 0, 0, 0, null);
+		other.addEvent(first);
+		other.addEvent(second);
+		SimEvent event = new SimEvent(SimEvent.SEND, 1, 0, 0, 0, null);
+		queue.addEvent(event);
+
+		assertFalse(queue.remove(first));
+		assertFalse(queue.remove(second));
+		assertEquals(1, queue.size());
+		assertEquals(2, other.size());
+		assertTrue(other.remove(second));
+		assertSame(event, queue.poll());
+		assertSame(first, other.poll());
+		assertNull(other.poll());
+	}
+
+	@Test
+	public void testCancelAmongManyTags() {
+		for (int tag = -100; tag < 300; tag++) {
+			for (int i = 0; i < 3; i++) {
+				SimEvent event = new SimEvent(SimEvent.SEND, 1 + i, 0, 0, tag, null);
+				queue.addEvent(event);
+				expected.add(event);
+			}
+		}
+		for (int tag = -100; tag < 300; tag += 7) {
+			assertTrue(queue.cancelAll(0, new PredicateType(tag)));
+			assertFalse(queue.cancelAll(0, new PredicateType(tag)));
+			for (SimEvent event : expected.toArray(new SimEvent[0])) {
+				if (event.getTag() == tag) {
+					expected.remove(event);
+				}
+			}
+		}
+		assertEquals(expected.size(), queue.size());
+		while (!expected.isEmpty()) {
+			assertSame(expected.pollFirst(), queue.poll());
+		}
+	}
+
+	private SimEvent find(int source, Predicate p) {
+		for (SimEvent event : expected) {
+			if (event.getSource() == source && p.match(event)) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+}
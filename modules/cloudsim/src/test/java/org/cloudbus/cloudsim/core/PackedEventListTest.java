@@ -0,0 +1,115 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class PackedEventListTest {
+
+	private EventList packedList;
+
+	private EventList treeSetList;
+
+	private long serial;
+
+	private boolean origins;
+
+	@Test
+	public void testEmpty() {
+		packedList = new PackedEventList();
+		assertEquals(0, packedList.size());
+		assertNull(packedList.first());
+		assertNull(packedList.pollFirst());
+		assertFalse(packedList.iterator().hasNext());
+	}
+
+	@Test
+	public void testSameOrderAsTreeSet() {
+		testSameOrderAsTreeSet(new PackedEventList(1, false));
+	}
+
+	@Test
+	public void testSameOrderAsTreeSetOffHeap() {
+		testSameOrderAsTreeSet(new PackedEventList(1, true));
+	}
+
+	@Test
+	public void testSameOrderAsTreeSetWithOrigins() {
+		origins = true;
+		testSameOrderAsTreeSet(new PackedEventList(1, false));
+	}
+
+	private void testSameOrderAsTreeSet(PackedEventList list) {
+		packedList = list;
+		treeSetList = new TreeSetEventList();
+		List<SimEvent> pending = new ArrayList<SimEvent>();
+		Random random = new Random(1);
+		double clock = 0;
+		for (int round = 0; round < 200; round++) {
+			int adds = random.nextInt(100);
+			for (int i = 0; i < adds; i++) {
+				double time = clock + (random.nextBoolean() ? random.nextInt(10) : random.nextDouble() * 1000);
+				SimEvent event = new SimEvent(SimEvent.SEND, time, i, 0, 0, null);
+				event.setSerial(random.nextInt(20) == 0 ? 0 : serial++);
+				if (origins && random.nextBoolean()) {
+					event.setOrigin(new EventOrigin(random.nextInt(3), random.nextInt(2), random.nextInt(3)));
+				}
+				treeSetList.add(event);
+				packedList.add(event);
+				pending.add(event);
+			}
+			for (int i = random.nextInt(5); i > 0 && !pending.isEmpty(); i--) {
+				SimEvent event = pending.remove(random.nextInt(pending.size()));
+				assertEquals(treeSetList.remove(event), packedList.remove(event));
+			}
+			int polls = random.nextInt(100);
+			for (int i = 0; i < polls && treeSetList.size() > 0; i++) {
+				assertSame(treeSetList.first(), packedList.first());
+				SimEvent event = treeSetList.pollFirst();
+				assertSame(event, packedList.pollFirst());
+				assertFalse(packedList.remove(event));
+				clock = event.eventTime();
+			}
+			assertEquals(treeSetList.size(), packedList.size());
+		}
+
+		Iterator<SimEvent> treeSetIterator = treeSetList.iterator();
+		Iterator<SimEvent> packedIterator = packedList.iterator();
+		while (treeSetIterator.hasNext()) {
+			assertTrue(packedIterator.hasNext());
+			SimEvent event = treeSetIterator.next();
+			assertSame(event, packedIterator.next());
+			if (event.getSource() % 3 == 0) {
+				treeSetIterator.remove();
+				packedIterator.remove();
+			}
+		}
+		assertFalse(packedIterator.hasNext());
+
+		while (treeSetList.size() > 0) {
+			assertSame(treeSetList.pollFirst(), packedList.pollFirst());
+		}
+		assertEquals(0, packedList.size());
+	}
+
+}
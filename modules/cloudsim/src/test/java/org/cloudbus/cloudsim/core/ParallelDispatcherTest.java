@@ -0,0 +1,138 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class ParallelDispatcherTest {
+
+	private static final int ENTITIES = 12;
+
+	private static ForkJoinPool pool;
+
+	private OutputStream output;
+
+	private boolean disabled;
+
+	@BeforeClass
+	public static void setUpClass() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		pool.shutdown();
+	}
+
+	@Before
+	public void setUp() {
+		output = Log.getOutput();
+		disabled = Log.isDisabled();
+		Log.enable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setOutput(output);
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testSameResultsAsSequential() {
+		String expected = simulate(false, -1);
+		assertTrue(expected.contains("No more future events"));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expected, simulate(true, -1));
+		}
+	}
+
+	@Test
+	public void testSameResultsAsSequentialWithTermination() {
+		String expected = simulate(false, 150.5);
+		assertTrue(expected.contains("Reached termination time"));
+		assertEquals(expected, simulate(true, 150.5));
+	}
+
+	@Test
+	public void testDispatchPool() {
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				assertNull(CloudSim.getDispatchPool());
+				CloudSim.setDispatchPool(pool);
+				assertSame(pool, CloudSim.getDispatchPool());
+				CloudSim.setDispatchPool(null);
+				assertNull(CloudSim.getDispatchPool());
+			}
+		});
+	}
+
+	private String simulate(final boolean parallel, final double terminateAt) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		Log.setOutput(buffer);
+		try {
+			String result = new SimulationContext().call(new Callable<String>() {
+
+				@Override
+				public String call() {
+					return run(parallel, terminateAt);
+				}
+			});
+			return buffer.toString() + result;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String run(boolean parallel, double terminateAt) {
+		CloudSim.init(0, null, false);
+		List<ChattyEntity> entities = new ArrayList<ChattyEntity>();
+		for (int i = 0; i < ENTITIES; i++) {
+			ChattyEntity entity = new ChattyEntity(i, ENTITIES);
+			entity.setUpdating(true);
+			// every fourth entity cannot run in parallel
+			entity.setParallelDispatch(i % 4 != 3);
+			entities.add(entity);
+		}
+		if (parallel) {
+			CloudSim.setDispatchPool(pool);
+		}
+		if (terminateAt > 0) {
+			CloudSim.terminateSimulation(terminateAt);
+		}
+		double clock = CloudSim.startSimulation();
+		StringBuilder result = new StringBuilder("clock ").append(clock);
+		for (ChattyEntity entity : entities) {
+			result.append(' ').append(entity.received);
+		}
+		return result.toString();
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class ParallelSimulationTest {
+
+	private static final int ENTITIES = 12;
+
+	private static final int PROCESSES = 3;
+
+	private static final double LOOKAHEAD = 2;
+
+	private OutputStream output;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		output = Log.getOutput();
+		disabled = Log.isDisabled();
+		Log.enable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setOutput(output);
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testSameResultsAsSequential() {
+		String expected = simulate(null, -1);
+		assertTrue(expected.contains("No more future events"));
+		assertEquals(expected, simulate(new ParallelSimulation(4), LOOKAHEAD));
+		assertEquals(expected, simulate(new ParallelSimulation(1), LOOKAHEAD));
+	}
+
+	@Test
+	public void testSameResultsAsSequentialWithoutLookahead() {
+		assertEquals(simulate(null, -1), simulate(new ParallelSimulation(4), 0));
+	}
+
+	@Test
+	public void testSameResultsAsSequentialWithTermination() {
+		String expected = simulate(null, -1, 150.5);
+		assertTrue(expected.contains("Reached termination time"));
+		assertEquals(expected, simulate(new ParallelSimulation(4), LOOKAHEAD, 150.5));
+	}
+
+	@Test
+	public void testLookaheadViolation() {
+		Log.disable();
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				createEntities(true);
+				ParallelSimulation simulation = newParallelSimulation(new ParallelSimulation(2), LOOKAHEAD + 1);
+				try {
+					simulation.startSimulation();
+					fail();
+				} catch (IllegalStateException e) {
+					assertTrue(e.getMessage().contains("lookahead"));
+				}
+			}
+		});
+	}
+
+	private String simulate(ParallelSimulation simulation, double lookahead) {
+		return simulate(simulation, lookahead, -1);
+	}
+
+	private String simulate(final ParallelSimulation simulation, final double lookahead, final double terminateAt) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		Log.setOutput(buffer);
+		try {
+			String result = new SimulationContext().call(new Callable<String>() {
+
+				@Override
+				public String call() {
+					return run(simulation, lookahead, terminateAt);
+				}
+			});
+			return buffer.toString() + result;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String run(ParallelSimulation simulation, double lookahead, double terminateAt) {
+		CloudSim.init(0, null, false);
+		List<ChattyEntity> entities = createEntities(false);
+		if (terminateAt > 0) {
+			CloudSim.terminateSimulation(terminateAt);
+		}
+		double clock;
+		if (simulation == null) {
+			clock = CloudSim.startSimulation();
+		} else {
+			clock = newParallelSimulation(simulation, lookahead).startSimulation();
+		}
+		StringBuilder result = new StringBuilder("clock ").append(clock);
+		for (ChattyEntity entity : entities) {
+			result.append(' ').append(entity.received);
+		}
+		return result.toString();
+	}
+
+	private static List<ChattyEntity> createEntities(boolean impatient) {
+		List<ChattyEntity> entities = new ArrayList<ChattyEntity>();
+		for (int i = 0; i < ENTITIES; i++) {
+			ChattyEntity entity = new ChattyEntity(i, ENTITIES);
+			entity.setMinDelay(impatient ? 0 : (int) LOOKAHEAD);
+			entities.add(entity);
+		}
+		return entities;
+	}
+
+	private static ParallelSimulation newParallelSimulation(ParallelSimulation simulation, double lookahead) {
+		for (SimEntity entity : CloudSim.getEntityList()) {
+			if (entity instanceof ChattyEntity) {
+				simulation.assign(entity, ((ChattyEntity) entity).index % PROCESSES);
+			}
+		}
+		simulation.setLookahead(lookahead);
+		return simulation;
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class PeriodicTimerTest {
+
+	private static final int TICK = 1;
+
+	private static final int MOVE = 2;
+
+	private static final int STOP = 3;
+
+	private static final int CANCEL_ALL = 4;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testPeriodicFirings() {
+		TickingEntity entity = simulate(new Options(5), null, -1);
+		assertEquals(Arrays.asList(10.0, 20.0, 30.0, 40.0, 50.0), entity.ticks);
+		assertFalse(entity.timer.isActive());
+		assertEquals(-1, entity.timer.getNextTime(), 0);
+		assertEquals(50, entity.endTime, 0);
+	}
+
+	@Test
+	public void testRescheduleFromAnotherEvent() {
+		Options options = new Options(4);
+		options.moveAt = 15;
+		TickingEntity entity = simulate(options, null, -1);
+		// the event at 15 moves the next firing to 18, and the following ones follow from it
+		assertEquals(Arrays.asList(10.0, 18.0, 28.0, 38.0), entity.ticks);
+	}
+
+	@Test
+	public void testRescheduleWhileFiring() {
+		Options options = new Options(4);
+		options.rescheduleOnTick = 5;
+		TickingEntity entity = simulate(options, null, -1);
+		assertEquals(Arrays.asList(10.0, 15.0, 20.0, 25.0), entity.ticks);
+	}
+
+	@Test
+	public void testCancelFromAnotherEvent() {
+		Options options = new Options(Integer.MAX_VALUE);
+		options.stopAt = 35;
+		TickingEntity entity = simulate(options, null, -1);
+		assertEquals(Arrays.asList(10.0, 20.0, 30.0), entity.ticks);
+		assertFalse(entity.timer.isActive());
+		assertEquals(35, entity.endTime, 0);
+	}
+
+	@Test
+	public void testCancelAllCancelsPendingFiring() {
+		Options options = new Options(Integer.MAX_VALUE);
+		options.cancelAllAt = 25;
+		TickingEntity entity = simulate(options, null, -1);
+		assertEquals(Arrays.asList(10.0, 20.0), entity.ticks);
+		assertFalse(entity.timer.isActive());
+	}
+
+	@Test
+	public void testParallelDispatch() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			Options options = new Options(4);
+			options.moveAt = 15;
+			TickingEntity entity = simulate(options, pool, 5);
+			assertEquals(Arrays.asList(10.0, 18.0, 28.0, 38.0), entity.ticks);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static TickingEntity simulate(final Options options, final ForkJoinPool pool, final double busyInterval) {
+		final TickingEntity[] entity = new TickingEntity[1];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.setDispatchPool(pool);
+				entity[0] = new TickingEntity("Ticking", options);
+				entity[0].setParallelDispatch(pool != null);
+				if (busyInterval > 0) {
+					// another entity having events at the same times, to run both in parallel
+					new TickingEntity("Busy", new Options(10)) {
+
+						@Override
+						public void startEntity() {
+							timer = schedulePeriodic(TICK, busyInterval);
+							setParallelDispatch(true);
+						}
+
+					};
+				}
+				CloudSim.startSimulation();
+			}
+		});
+		return entity[0];
+	}
+
+	private static class Options {
+
+		private final int maxTicks;
+
+		private double moveAt = -1;
+
+		private double stopAt = -1;
+
+		private double cancelAllAt = -1;
+
+		private double rescheduleOnTick = -1;
+
+		public Options(int maxTicks) {
+			this.maxTicks = maxTicks;
+		}
+
+	}
+
+	/**
+	 * An entity ticking every 10 time units until a number of ticks.
+	 */
+	private static class TickingEntity extends SimEntity {
+
+		private final Options options;
+
+		private final List<Double> ticks = new ArrayList<Double>();
+
+		protected PeriodicTimer timer;
+
+		private double endTime;
+
+		public TickingEntity(String name, Options options) {
+			super(name);
+			this.options = options;
+		}
+
+		@Override
+		public void startEntity() {
+			timer = schedulePeriodic(TICK, 10);
+			if (options.moveAt >= 0) {
+				schedule(getId(), options.moveAt, MOVE);
+			}
+			if (options.stopAt >= 0) {
+				schedule(getId(), options.stopAt, STOP);
+			}
+			if (options.cancelAllAt >= 0) {
+				schedule(getId(), options.cancelAllAt, CANCEL_ALL);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			endTime = CloudSim.clock();
+			switch (ev.getTag()) {
+				case TICK:
+					assertTrue(timer.isFiring());
+					ticks.add(CloudSim.clock());
+					if (ticks.size() == options.maxTicks) {
+						timer.cancel();
+					} else if (options.rescheduleOnTick > 0) {
+						timer.reschedule(options.rescheduleOnTick);
+					}
+					break;
+				case MOVE:
+					assertFalse(timer.isFiring());
+					assertEquals(20, timer.getNextTime(), 0);
+					timer.reschedule(3);
+					assertEquals(18, timer.getNextTime(), 0);
+					break;
+				case STOP:
+					timer.cancel();
+					break;
+				case CANCEL_ALL:
+					CloudSim.cancelAll(getId(), new PredicateType(TICK));
+					break;
+				default:
+					break;
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class RealTimeTest {
+
+	private static final int TICK = 1;
+
+	private static final int REQUEST = 2;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testClockFollowsWallClock() {
+		final long[] elapsed = new long[1];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.setRealTimeFactor(100);
+				new ReceiverEntity("Receiver", 10);
+				long start = System.nanoTime();
+				CloudSim.startSimulation();
+				elapsed[0] = System.nanoTime() - start;
+			}
+		});
+		// 10 of simulation time at 100 per second take 100 ms
+		assertTrue(elapsed[0] >= 90000000L);
+	}
+
+	@Test
+	public void testInjectedEvents() throws Exception {
+		final SimulationContext context = new SimulationContext();
+		final ReceiverEntity[] receiver = new ReceiverEntity[1];
+		final double[] injectionTimes = new double[10];
+		final double[] clock = new double[1];
+		context.run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.setRealTimeFactor(1000);
+				receiver[0] = new ReceiverEntity("Receiver", 1);
+			}
+		});
+		Thread injector = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				// the first tick is processed once the engine runs in real time
+				try {
+					if (!receiver[0].ticked.await(10, TimeUnit.SECONDS)) {
+						return;
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 10; i++) {
+					// a lower bound of the simulation time when the event is injected
+					long elapsed = System.nanoTime() - receiver[0].tickNanos;
+					injectionTimes[i] = receiver[0].tickClock + elapsed / 1e9 * 1000;
+					context.inject(receiver[0].getId(), receiver[0].getId(), REQUEST, i);
+				}
+			}
+		});
+		injector.start();
+		context.run(new Runnable() {
+
+			@Override
+			public void run() {
+				// the simulation waits for the injected events until it is terminated
+				CloudSim.terminateSimulation(100);
+				clock[0] = CloudSim.startSimulation();
+			}
+		});
+		injector.join();
+
+		assertEquals(10, receiver[0].requests.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, receiver[0].requests.get(i).intValue());
+			double time = receiver[0].requestTimes.get(i);
+			assertTrue(time >= injectionTimes[i]);
+			assertTrue(time < 100);
+			if (i > 0) {
+				assertTrue(time >= receiver[0].requestTimes.get(i - 1));
+			}
+		}
+		assertEquals(100, clock[0], 0);
+	}
+
+	@Test
+	public void testInjectedEventsWithoutRealTime() {
+		final ReceiverEntity[] receiver = new ReceiverEntity[1];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				receiver[0] = new ReceiverEntity("Receiver", 5);
+				CloudSim.inject(receiver[0].getId(), receiver[0].getId(), REQUEST, 1);
+				CloudSim.startSimulation();
+			}
+		});
+		assertEquals(1, receiver[0].requests.size());
+		assertEquals(0, receiver[0].requestTimes.get(0), 0);
+	}
+
+	@Test
+	public void testEventsInjectedAfterLastStepDiscarded() {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		OutputStream output = Log.getOutput();
+		Log.setOutput(buffer);
+		Log.enable();
+		try {
+			new SimulationContext().run(new Runnable() {
+
+				@Override
+				public void run() {
+					CloudSim.init(0, null, false);
+					new ReceiverEntity("Receiver", 5) {
+
+						@Override
+						public void shutdownEntity() {
+							CloudSim.inject(getId(), getId(), REQUEST, 1);
+						}
+					};
+					CloudSim.startSimulation();
+				}
+			});
+		} finally {
+			Log.setOutput(output);
+			Log.disable();
+		}
+		assertTrue(buffer.toString().contains("Simulation: 1 injected events discarded"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeFactor() {
+		CloudSim.setRealTimeFactor(-1);
+	}
+
+	/**
+	 * An entity recording the requests it receives, and sending itself an event after a delay.
+	 */
+	private static class ReceiverEntity extends SimEntity {
+
+		private final double delay;
+
+		private final List<Integer> requests = new ArrayList<Integer>();
+
+		private final List<Double> requestTimes = new ArrayList<Double>();
+
+		private final CountDownLatch ticked = new CountDownLatch(1);
+
+		private volatile long tickNanos;
+
+		private volatile double tickClock;
+
+		public ReceiverEntity(String name, double delay) {
+			super(name);
+			this.delay = delay;
+		}
+
+		@Override
+		public void startEntity() {
+			if (delay > 0) {
+				schedule(getId(), delay, TICK);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == REQUEST) {
+				requests.add((Integer) ev.getData());
+				requestTimes.add(CloudSim.clock());
+			} else if (ev.getTag() == TICK) {
+				tickNanos = System.nanoTime();
+				tickClock = CloudSim.clock();
+				ticked.countDown();
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
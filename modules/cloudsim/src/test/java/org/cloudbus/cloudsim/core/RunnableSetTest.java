@@ -0,0 +1,247 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class RunnableSetTest {
+
+	private static final int PING = 1;
+
+	private static final int WAKE = 2;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testDrain() {
+		RunnableSet set = new RunnableSet();
+		assertTrue(set.isEmpty());
+		for (int id : new int[] { 40, 3, 17, 3, 0, 40, 25 }) {
+			set.add(id);
+		}
+		assertFalse(set.isEmpty());
+		int count = set.drain();
+		assertEquals(5, count);
+		assertEquals("[0, 3, 17, 25, 40]", Arrays.toString(Arrays.copyOf(set.getBatch(), count)));
+		assertTrue(set.isEmpty());
+
+		// the drained ids can be added again while the batch is read
+		int[] batch = set.getBatch();
+		for (int i = 0; i < 100; i++) {
+			set.add(100 - i);
+		}
+		assertEquals("[0, 3, 17, 25, 40]", Arrays.toString(Arrays.copyOf(batch, count)));
+		assertEquals(100, set.drain());
+		assertEquals(1, set.getBatch()[0]);
+		assertEquals(100, set.getBatch()[99]);
+	}
+
+	@Test
+	public void testIdleEntitiesDoNotRun() {
+		final List<CountingEntity> idle = new ArrayList<CountingEntity>();
+		final CountingEntity[] pair = new CountingEntity[2];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				for (int i = 0; i < 500; i++) {
+					idle.add(new CountingEntity("Idle" + i, -1));
+				}
+				pair[0] = new CountingEntity("Ping", 50);
+				pair[1] = new CountingEntity("Pong", 50);
+				CloudSim.startSimulation();
+			}
+		});
+		for (CountingEntity entity : idle) {
+			assertEquals(0, entity.runs);
+		}
+		assertEquals(49, pair[0].received);
+		assertEquals(50, pair[1].received);
+		assertEquals(pair[0].received, pair[0].runs);
+	}
+
+	@Test
+	public void testHoldingEntityProcessesDeferredEvents() {
+		final CountingEntity[] entities = new CountingEntity[2];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				entities[0] = new CountingEntity("Sleeper", -1) {
+
+					@Override
+					public void startEntity() {
+						pause(50);
+					}
+
+				};
+				entities[1] = new CountingEntity("Sender", -1) {
+
+					@Override
+					public void startEntity() {
+						for (int i = 1; i <= 3; i++) {
+							schedule(CloudSim.getEntityId("Sleeper"), 10 * i, PING);
+						}
+					}
+
+				};
+				CloudSim.startSimulation();
+			}
+		});
+		// the events sent while the entity was holding are processed once it wakes up
+		assertEquals(3, entities[0].received);
+		assertEquals(Arrays.asList(50.0, 50.0, 50.0), entities[0].times);
+	}
+
+	@Test
+	public void testWaitingEntityNotDrainedOnUnrelatedTicks() {
+		final CountingEntity[] entities = new CountingEntity[2];
+		final CountingRunnableSet runnable = new CountingRunnableSet();
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				SimulationContext.current().runnable = runnable;
+				entities[0] = new CountingEntity("Waiter", -1) {
+
+					@Override
+					public void startEntity() {
+						schedule(getId(), 0, PING);
+					}
+
+					@Override
+					public void processEvent(SimEvent ev) {
+						super.processEvent(ev);
+						if (ev.getSource() == getId()) {
+							waitForEvent(new PredicateType(WAKE));
+						}
+					}
+
+				};
+				entities[1] = new CountingEntity("Sender", -1) {
+
+					@Override
+					public void startEntity() {
+						for (int i = 1; i <= 20; i++) {
+							schedule(CloudSim.getEntityId("Waiter"), i, PING);
+						}
+						schedule(CloudSim.getEntityId("Waiter"), 30, WAKE);
+					}
+
+				};
+				runnable.watched = entities[0].getId();
+				CloudSim.startSimulation();
+			}
+		});
+		// the unrelated events deferred while waiting do not make the entity be drained at each tick
+		assertEquals(2, runnable.drains);
+		assertEquals(22, entities[0].received);
+		assertEquals(30.0, entities[0].times.get(21), 0);
+	}
+
+	/**
+	 * A runnable set counting the batches holding a watched entity.
+	 */
+	private static class CountingRunnableSet extends RunnableSet {
+
+		private static final long serialVersionUID = 1L;
+
+		private int watched = -1;
+
+		private int drains;
+
+		@Override
+		int drain() {
+			int count = super.drain();
+			for (int i = 0; i < count; i++) {
+				if (getBatch()[i] == watched) {
+					drains++;
+				}
+			}
+			return count;
+		}
+
+	}
+
+	/**
+	 * An entity counting its runs and sending back the events it gets until a number of events.
+	 */
+	private static class CountingEntity extends SimEntity {
+
+		private final int maxEvents;
+
+		private final List<Double> times = new ArrayList<Double>();
+
+		private int runs;
+
+		private int received;
+
+		public CountingEntity(String name, int maxEvents) {
+			super(name);
+			this.maxEvents = maxEvents;
+		}
+
+		@Override
+		public void startEntity() {
+			if (getName().equals("Ping")) {
+				schedule(CloudSim.getEntityId("Pong"), 1, PING);
+			}
+		}
+
+		@Override
+		public void run() {
+			runs++;
+			super.run();
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			received++;
+			times.add(CloudSim.clock());
+			if (received < maxEvents) {
+				schedule(ev.getSource(), 1, PING);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
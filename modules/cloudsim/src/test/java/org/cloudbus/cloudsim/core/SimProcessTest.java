@@ -0,0 +1,157 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class SimProcessTest {
+
+	private static final int REQUEST = 1;
+
+	private static final int REPLY = 2;
+
+	private static final int NOTE = 3;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testHoldAndReceive() {
+		final List<String> log = new ArrayList<String>();
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				new SimProcess("Client") {
+
+					@Override
+					protected void body() {
+						int server = CloudSim.getEntityId("Server");
+						for (int i = 0; i < 3; i++) {
+							hold(10);
+							sendNow(server, REQUEST, i);
+							SimEvent reply = receive();
+							log.add("reply " + reply.getData() + " at " + CloudSim.clock());
+						}
+					}
+
+				};
+				new SimProcess("Server") {
+
+					@Override
+					protected void body() {
+						while (true) {
+							SimEvent request = receive();
+							hold(1);
+							send(request.getSource(), 0.5, REPLY, request.getData());
+						}
+					}
+
+				};
+				CloudSim.startSimulation();
+			}
+		});
+		assertEquals(Arrays.asList("reply 0 at 11.5", "reply 1 at 23.0", "reply 2 at 34.5"), log);
+	}
+
+	@Test
+	public void testWaitForKeepsOtherEvents() {
+		final List<Object> received = new ArrayList<Object>();
+		final SimProcess[] process = new SimProcess[1];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				process[0] = new SimProcess("Waiter") {
+
+					@Override
+					protected void body() {
+						received.add(waitFor(new PredicateType(REPLY)).getData());
+						received.add(receive().getData());
+						received.add(receive().getData());
+						// never satisfied: terminated when the simulation finishes
+						waitFor(new PredicateType(REPLY));
+						received.add("unreachable");
+					}
+
+				};
+				new SimProcess("Sender") {
+
+					@Override
+					protected void body() {
+						int waiter = CloudSim.getEntityId("Waiter");
+						send(waiter, 1, NOTE, "note 1");
+						send(waiter, 2, NOTE, "note 2");
+						send(waiter, 3, REPLY, "reply");
+					}
+
+				};
+				CloudSim.startSimulation();
+			}
+		});
+		assertEquals(Arrays.<Object> asList("reply", "note 1", "note 2"), received);
+		assertFalse(process[0].isAlive());
+	}
+
+	@Test
+	public void testFailurePropagates() {
+		final RuntimeException failure = new RuntimeException("failed");
+		try {
+			new SimulationContext().run(new Runnable() {
+
+				@Override
+				public void run() {
+					CloudSim.init(0, null, false);
+					new SimProcess("Failing") {
+
+						@Override
+						protected void body() {
+							hold(5);
+							throw failure;
+						}
+
+					};
+					CloudSim.startSimulation();
+				}
+			});
+		} catch (RuntimeException e) {
+			assertEquals(failure, e);
+			return;
+		}
+		fail("the failure of the body has not been rethrown");
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class SimulationCheckpointTest {
+
+	private static final int ENTITIES = 8;
+
+	private static final double CHECKPOINT_TIME = 100.5;
+
+	private boolean disabled;
+
+	private SimulationCheckpoint checkpoint;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testRestoredSimulationGivesSameResults() {
+		String expected = call(new SimulationContext(), new Simulation(new TreeSetEventList(), false));
+		String interrupted = call(new SimulationContext(), new Simulation(new TreeSetEventList(), true));
+		assertNotNull(checkpoint);
+		assertTrue(checkpoint.getClock() >= CHECKPOINT_TIME);
+		assertTrue(checkpoint.getSize() > 0);
+		assertFalse(expected.equals(interrupted));
+		assertEquals(expected, resume(checkpoint.restore()));
+	}
+
+	@Test
+	public void testRestoredSimulationGivesSameResultsWithOtherEventLists() {
+		String expected = call(new SimulationContext(), new Simulation(new TreeSetEventList(), false));
+		call(new SimulationContext(), new Simulation(new CalendarEventList(), true));
+		assertEquals(expected, resume(checkpoint.restore()));
+		call(new SimulationContext(), new Simulation(new PackedEventList(4, true), true));
+		assertEquals(expected, resume(checkpoint.restore()));
+	}
+
+	@Test
+	public void testForksAreIndependent() {
+		String expected = call(new SimulationContext(), new Simulation(new TreeSetEventList(), false));
+		call(new SimulationContext(), new Simulation(new TreeSetEventList(), true));
+		List<SimulationContext> forks = checkpoint.fork(3);
+		assertEquals(3, forks.size());
+		String first = call(forks.get(0), new Callable<String>() {
+
+			@Override
+			public String call() {
+				CloudSim.terminateSimulation(150.5);
+				List<SimEntity> entities = CloudSim.getEntityList();
+				return result(CloudSim.startSimulation(), entities);
+			}
+		});
+		assertFalse(expected.equals(first));
+		assertEquals(expected, resume(forks.get(1)));
+		assertEquals(expected, resume(forks.get(2)));
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		String expected = call(new SimulationContext(), new Simulation(new TreeSetEventList(), false));
+		call(new SimulationContext(), new Simulation(new TreeSetEventList(), true));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		checkpoint.write(output);
+		SimulationCheckpoint copy = SimulationCheckpoint.read(new ByteArrayInputStream(output.toByteArray()));
+		assertEquals(checkpoint.getClock(), copy.getClock(), 0);
+		assertEquals(expected, resume(copy.restore()));
+
+		try {
+			SimulationCheckpoint.read(new ByteArrayInputStream(new byte[16]));
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("checkpoint"));
+		}
+	}
+
+	@Test
+	public void testCheckpointBeforeStart() {
+		String expected = call(new SimulationContext(), new Simulation(new TreeSetEventList(), false));
+		SimulationContext context = new SimulationContext();
+		SimulationContext restored = call(context, new Callable<SimulationContext>() {
+
+			@Override
+			public SimulationContext call() {
+				CloudSim.init(0, null, false);
+				createEntities();
+				return SimulationCheckpoint.capture().restore();
+			}
+		});
+		assertEquals(expected, resume(restored));
+	}
+
+	private String resume(SimulationContext context) {
+		return call(context, new Callable<String>() {
+
+			@Override
+			public String call() {
+				List<SimEntity> entities = CloudSim.getEntityList();
+				return result(CloudSim.startSimulation(), entities);
+			}
+		});
+	}
+
+	private static <V> V call(SimulationContext context, Callable<V> task) {
+		try {
+			return context.call(task);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void createEntities() {
+		for (int i = 0; i < ENTITIES; i++) {
+			new ChattyEntity(i, ENTITIES);
+		}
+	}
+
+	private static String result(double clock, List<SimEntity> entities) {
+		StringBuilder result = new StringBuilder("clock ").append(clock);
+		for (SimEntity entity : entities) {
+			if (entity instanceof ChattyEntity) {
+				result.append('\n').append(((ChattyEntity) entity).history);
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * A simulation of chatty entities, optionally stopped after a checkpoint.
+	 */
+	private class Simulation implements Callable<String> {
+
+		private final EventList eventList;
+
+		private final boolean interrupted;
+
+		public Simulation(EventList eventList, boolean interrupted) {
+			this.eventList = eventList;
+			this.interrupted = interrupted;
+		}
+
+		@Override
+		public String call() {
+			CloudSim.init(0, null, false, eventList);
+			createEntities();
+			if (interrupted) {
+				CloudSim.checkpointAt(CHECKPOINT_TIME, new CheckpointListener() {
+
+					@Override
+					public void checkpointTaken(SimulationCheckpoint checkpoint) {
+						SimulationCheckpointTest.this.checkpoint = checkpoint;
+						CloudSim.abruptallyTerminate();
+					}
+				});
+			}
+			List<SimEntity> entities = CloudSim.getEntityList();
+			return result(CloudSim.startSimulation(), entities);
+		}
+
+	}
+
+}
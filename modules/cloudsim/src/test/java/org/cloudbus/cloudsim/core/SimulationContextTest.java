@@ -0,0 +1,134 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class SimulationContextTest {
+
+	private static final int TICK = 1000;
+
+	@Before
+	public void setUp() {
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	@Test
+	public void testBind() {
+		SimulationContext context = new SimulationContext();
+		assertSame(SimulationContext.getDefault(), SimulationContext.current());
+		SimulationContext previous = SimulationContext.bind(context);
+		assertSame(context, SimulationContext.current());
+		assertTrue(Log.isDisabled());
+		SimulationContext.bind(previous);
+		assertSame(SimulationContext.getDefault(), SimulationContext.current());
+	}
+
+	@Test
+	public void testConcurrentSimulations() throws Exception {
+		runConcurrentSimulations(Executors.newFixedThreadPool(4));
+	}
+
+	@Test
+	public void testConcurrentSimulationsInSimulationThreads() throws Exception {
+		runConcurrentSimulations(Executors.newFixedThreadPool(4, SimulationThread.FACTORY));
+	}
+
+	/**
+	 * Runs simulations ending at different times in the threads of an executor, each with its own
+	 * context, and checks that they do not interfere.
+	 */
+	private void runConcurrentSimulations(ExecutorService executor) throws Exception {
+		try {
+			List<Future<Double>> results = new ArrayList<Future<Double>>();
+			for (int i = 1; i <= 8; i++) {
+				final double delay = i;
+				final SimulationContext context = new SimulationContext();
+				results.add(executor.submit(new Callable<Double>() {
+
+					@Override
+					public Double call() throws Exception {
+						assertSame(SimulationContext.getDefault(), SimulationContext.current());
+						return context.call(new Callable<Double>() {
+
+							@Override
+							public Double call() {
+								assertSame(context, SimulationContext.current());
+								CloudSim.init(0, null, false);
+								new TickingEntity("Ticking", delay, 1000);
+								return CloudSim.startSimulation();
+							}
+						});
+					}
+				}));
+			}
+			for (int i = 1; i <= 8; i++) {
+				assertEquals(i * 1000.0, results.get(i - 1).get(), 0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * An entity sending itself a given number of events at a fixed interval.
+	 */
+	private static class TickingEntity extends SimEntity {
+
+		private final double delay;
+
+		private int remaining;
+
+		public TickingEntity(String name, double delay, int count) {
+			super(name);
+			this.delay = delay;
+			remaining = count;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), delay, TICK);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (--remaining > 0) {
+				schedule(getId(), delay, TICK);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class SimulationStatisticsTest {
+
+	private static final int ENTITIES = 5;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testCounters() {
+		SimulationStatistics statistics = new SimulationStatistics();
+		List<ChattyEntity> entities = simulate(statistics, null);
+
+		long received = 0;
+		for (ChattyEntity entity : entities) {
+			assertEquals(entity.received, statistics.getEntityEventCount(entity.getId()));
+			assertTrue(statistics.getEntityRunCount(entity.getId()) > 0);
+			assertTrue(statistics.getEntityTime(entity.getId()) > 0);
+			received += entity.received;
+		}
+		assertEquals(received, statistics.getTypeCount(SimEvent.SEND));
+		assertEquals(statistics.getEventCount(), statistics.getTypeCount(SimEvent.SEND));
+		assertEquals(Arrays.asList(ChattyEntity.TAG_SELF, ChattyEntity.TAG_UPDATE, ChattyEntity.TAG_OTHER),
+				statistics.getTags());
+		assertEquals(received, statistics.getTagCount(ChattyEntity.TAG_SELF)
+				+ statistics.getTagCount(ChattyEntity.TAG_UPDATE) + statistics.getTagCount(ChattyEntity.TAG_OTHER));
+		assertTrue(statistics.getTagCount(ChattyEntity.TAG_OTHER) > 0);
+		assertTrue(statistics.getTagCount(ChattyEntity.TAG_UPDATE) > 0);
+		assertEquals(0, statistics.getTagCount(CloudSimTags.CLOUDLET_SUBMIT));
+
+		SimulationStatistics.Histogram future = statistics.getFutureQueueHistogram();
+		assertEquals(statistics.getTickCount(), future.getCount());
+		long ticks = 0;
+		for (int i = 0; i < future.getBucketCount(); i++) {
+			ticks += future.getCount(i);
+		}
+		assertEquals(statistics.getTickCount(), ticks);
+		assertTrue(future.getMax() >= future.getMean());
+		assertTrue(future.getMax() >= SimulationStatistics.Histogram.getLowerBound(future.getBucketCount() - 1));
+		assertTrue(future.getMax() < SimulationStatistics.Histogram.getLowerBound(future.getBucketCount()));
+		assertEquals(statistics.getTickCount(), statistics.getDeferredQueueHistogram().getCount());
+
+		String table = statistics.toTable();
+		assertTrue(table.contains("VM_DATACENTER_EVENT (" + CloudSimTags.VM_DATACENTER_EVENT + ")"));
+		assertTrue(table.contains("Chatty0"));
+
+		statistics.reset();
+		assertEquals(0, statistics.getEventCount());
+		assertEquals(0, statistics.getTags().size());
+		assertEquals(0, statistics.getFutureQueueHistogram().getCount());
+	}
+
+	@Test
+	public void testParallelDispatch() {
+		SimulationStatistics sequential = new SimulationStatistics();
+		simulate(sequential, null);
+		SimulationStatistics parallel = new SimulationStatistics();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			simulate(parallel, pool);
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(sequential.getEventCount(), parallel.getEventCount());
+		assertEquals(sequential.getTickCount(), parallel.getTickCount());
+		for (int id = 0; id < sequential.getEntityCount(); id++) {
+			assertEquals(sequential.getEntityEventCount(id), parallel.getEntityEventCount(id));
+			assertEquals(sequential.getEntityRunCount(id), parallel.getEntityRunCount(id));
+		}
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		SimulationStatistics.Histogram histogram = new SimulationStatistics.Histogram();
+		for (int size : new int[] { 0, 1, 2, 3, 4, 7, 8, 1000 }) {
+			histogram.add(size);
+		}
+		assertEquals(1, histogram.getCount(0));
+		assertEquals(1, histogram.getCount(1));
+		assertEquals(2, histogram.getCount(2));
+		assertEquals(2, histogram.getCount(3));
+		assertEquals(1, histogram.getCount(4));
+		assertEquals(1, histogram.getCount(10));
+		assertEquals(11, histogram.getBucketCount());
+		assertEquals(512, SimulationStatistics.Histogram.getLowerBound(10));
+		assertEquals(1000, histogram.getMax());
+		assertEquals(1025 / 8.0, histogram.getMean(), 0);
+	}
+
+	private static List<ChattyEntity> simulate(final SimulationStatistics statistics, final ForkJoinPool pool) {
+		final List<ChattyEntity> entities = new ArrayList<ChattyEntity>();
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.setStatistics(statistics);
+				CloudSim.setDispatchPool(pool);
+				for (int i = 0; i < ENTITIES; i++) {
+					ChattyEntity entity = new ChattyEntity(i, ENTITIES);
+					entity.setUpdating(true);
+					entity.setParallelDispatch(pool != null);
+					entities.add(entity);
+				}
+				CloudSim.startSimulation();
+			}
+		});
+		return entities;
+	}
+
+}
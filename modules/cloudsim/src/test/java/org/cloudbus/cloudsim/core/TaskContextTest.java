@@ -0,0 +1,123 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class TaskContextTest {
+
+	@Test
+	public void testLogWritesFlushedInOrder() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final SimulationContext context = new SimulationContext();
+		context.run(new Runnable() {
+
+			@Override
+			public void run() {
+				Log.setOutput(output);
+				Log.setDisabled(false);
+			}
+		});
+
+		final TaskContext[] tasks = new TaskContext[8];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new TaskContext(context);
+			tasks[i].prepare();
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int i = tasks.length - 1; i >= 0; i--) {
+			final int index = i;
+			pool.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					tasks[index].run(new Runnable() {
+
+						@Override
+						public void run() {
+							Log.printLine("task " + index);
+						}
+					});
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(10, TimeUnit.SECONDS);
+		assertEquals(0, output.size());
+
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i].flush();
+			expected.append("task " + i + System.getProperty("line.separator"));
+		}
+		assertEquals(expected.toString(), output.toString());
+	}
+
+	@Test
+	public void testRouteOutput() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream routed = TaskContext.routeOutput(new PrintStream(bytes));
+		TaskContext task = new TaskContext(new SimulationContext());
+		task.prepare();
+
+		routed.print("a");
+		SimulationContext previous = SimulationContext.bind(task);
+		try {
+			routed.print("b");
+		} finally {
+			SimulationContext.bind(previous);
+		}
+		routed.print("c");
+		assertEquals("ac", bytes.toString());
+		task.flush();
+		assertEquals("acb", bytes.toString());
+	}
+
+	@Test
+	public void testClockOfParent() {
+		final SimulationContext context = new SimulationContext();
+		context.clock = 42;
+		TaskContext task = new TaskContext(context);
+		task.prepare();
+		final double[] clock = new double[1];
+		task.run(new Runnable() {
+
+			@Override
+			public void run() {
+				clock[0] = CloudSim.clock();
+			}
+		});
+		assertEquals(42, clock[0], 0);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSendUnsupported() {
+		TaskContext task = new TaskContext(new SimulationContext());
+		task.prepare();
+		task.run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.send(0, 0, 1, 0, null);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since CloudSim Toolkit 3.1
+ */
+public class TimeTickTest {
+
+	private static final int STEP = 1;
+
+	private static final int PROBE = 2;
+
+	private boolean disabled;
+
+	@Before
+	public void setUp() {
+		disabled = Log.isDisabled();
+		Log.disable();
+	}
+
+	@After
+	public void tearDown() {
+		Log.setDisabled(disabled);
+	}
+
+	@Test
+	public void testContinuousTime() {
+		StepEntity entity = simulate(0);
+		// ten steps of 0.1 do not add up to 1.0
+		assertTrue(entity.stepTimes.get(9) != 1.0);
+		assertTrue(entity.probeTimes.get(0).doubleValue() != entity.probeTimes.get(1).doubleValue());
+	}
+
+	@Test
+	public void testTickTime() {
+		StepEntity entity = simulate(0.001);
+		assertEquals(1.0, entity.stepTimes.get(9), 0);
+		assertEquals(1000, entity.lastTicks);
+		// 0.1 + 0.2 and 0.3 fall in the same tick, so both events are processed at the same time
+		assertEquals(entity.probeTimes.get(0), entity.probeTimes.get(1), 0);
+		assertEquals(entity.probeTimes.get(0), entity.probeTimes.get(2), 0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClockTicksWithoutTick() {
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.clockTicks();
+			}
+		});
+	}
+
+	private static StepEntity simulate(final double tick) {
+		final StepEntity[] entity = new StepEntity[1];
+		new SimulationContext().run(new Runnable() {
+
+			@Override
+			public void run() {
+				CloudSim.init(0, null, false);
+				CloudSim.setTimeTick(tick);
+				entity[0] = new StepEntity("Stepper");
+				CloudSim.startSimulation();
+			}
+		});
+		return entity[0];
+	}
+
+	/**
+	 * An entity taking ten steps of 0.1 and sending itself probes at times which differ by rounding
+	 * errors only.
+	 */
+	private static class StepEntity extends SimEntity {
+
+		private final List<Double> stepTimes = new ArrayList<Double>();
+
+		private final List<Double> probeTimes = new ArrayList<Double>();
+
+		private long lastTicks;
+
+		public StepEntity(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 0.1, STEP);
+			schedule(getId(), 0.1 + 0.2, PROBE);
+			schedule(getId(), 0.3, PROBE);
+			schedule(getId(), 0.3 + 0.0001, PROBE);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == PROBE) {
+				probeTimes.add(CloudSim.clock());
+				return;
+			}
+			stepTimes.add(CloudSim.clock());
+			if (CloudSim.getTimeTick() > 0) {
+				lastTicks = CloudSim.clockTicks();
+			}
+			if (stepTimes.size() < 10) {
+				schedule(getId(), 0.1, STEP);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+}